@@ -151,10 +151,10 @@ public class ActivityLoggingAspect {
                     currentUser.getFullName()
             );
 
-            // Log activity asynchronously
+            // Queue activity for the batched writer
             activityLogService.logActivity(
                     clinicId,
-                    currentUser.getId(),
+                    currentUser,
                     actionType,
                     httpMethod,
                     entityDetails.entityType,
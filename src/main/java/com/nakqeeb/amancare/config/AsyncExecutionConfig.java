@@ -0,0 +1,97 @@
+// =============================================================================
+// AsyncExecutionConfig.java
+// Location: /src/main/java/com/nakqeeb/amancare/config/
+// =============================================================================
+
+package com.nakqeeb.amancare.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * منفذات المهام المخصصة للعمليات الطويلة
+ * Dedicated executors for long-running work, so it never shares the small
+ * applicationTaskExecutor (spring.task.execution.pool.*) with short background tasks.
+ *
+ * Because these beans are Executors, spring.task.execution.mode=force keeps the
+ * auto-configured applicationTaskExecutor alongside them.
+ */
+@Configuration
+public class AsyncExecutionConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor downloadTaskExecutor;
+    private final long asyncRequestTimeoutMillis;
+
+    public AsyncExecutionConfig(@Qualifier("downloadTaskExecutor") ThreadPoolTaskExecutor downloadTaskExecutor,
+                                @Value("${spring.mvc.async.request-timeout:120000}") long asyncRequestTimeoutMillis) {
+        this.downloadTaskExecutor = downloadTaskExecutor;
+        this.asyncRequestTimeoutMillis = asyncRequestTimeoutMillis;
+    }
+
+    /**
+     * منفذ التنزيلات المتدفقة (StreamingResponseBody لملفات PDF)
+     * Sized for slow clients: a thread is held for the whole download, while the
+     * number of simultaneous PDF layouts is still capped by app.pdf.max-concurrent-renders.
+     */
+    @Bean(name = "downloadTaskExecutor")
+    public static ThreadPoolTaskExecutor downloadTaskExecutor(
+            @Value("${app.download.pool.core-size:4}") int coreSize,
+            @Value("${app.download.pool.max-size:16}") int maxSize,
+            @Value("${app.download.pool.queue-capacity:50}") int queueCapacity) {
+        return boundedExecutor("download-", coreSize, maxSize, queueCapacity);
+    }
+
+    /**
+     * منفذ تصدير السجلات إلى CSV (WebAsyncTask)
+     * One thread per allowed export; LogExportService rejects requests beyond
+     * app.export.max-concurrent before they reach this pool, so the queue only
+     * absorbs a thread that has released its permit but not yet returned.
+     */
+    @Bean(name = "exportTaskExecutor")
+    public static ThreadPoolTaskExecutor exportTaskExecutor(
+            @Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        return boundedExecutor("csv-export-", maxConcurrent, maxConcurrent, maxConcurrent);
+    }
+
+    /**
+     * منفذ حفظ إجراءات مدير النظام (SystemAdminAction)
+     * A single writer keeps the audit inserts off the request thread; on shutdown it
+     * stops accepting work and drains the queue for up to
+     * app.admin-actions.shutdown-await-seconds so no audit row is lost on redeploy.
+     * It depends on the EntityManagerFactory so it is destroyed, and drained, first.
+     */
+    @Bean(name = "adminActionTaskExecutor")
+    @DependsOn("entityManagerFactory")
+    public static ThreadPoolTaskExecutor adminActionTaskExecutor(
+            @Value("${app.admin-actions.queue-capacity:500}") int queueCapacity,
+            @Value("${app.admin-actions.shutdown-await-seconds:30}") int shutdownAwaitSeconds) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("admin-action-", 1, 1, queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownAwaitSeconds);
+        return executor;
+    }
+
+    /**
+     * الطلبات غير المتزامنة في Spring MVC تعمل على منفذ التنزيلات بدلاً من applicationTaskExecutor
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(downloadTaskExecutor);
+        configurer.setDefaultTimeout(asyncRequestTimeoutMillis);
+    }
+
+    static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int coreSize, int maxSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(Math.max(coreSize, 1));
+        executor.setMaxPoolSize(Math.max(maxSize, Math.max(coreSize, 1)));
+        executor.setQueueCapacity(Math.max(queueCapacity, 0));
+        return executor;
+    }
+}
@@ -2,22 +2,61 @@
 
 package com.nakqeeb.amancare.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.core.env.Environment;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * إعدادات الذاكرة المؤقتة - لكل ذاكرة حد أقصى للحجم ومدة صلاحية وإحصائيات
+ * Bounded Caffeine caches with per-cache size/TTL policies.
+ *
+ * Each policy can be overridden with app.cache.specs.&lt;name&gt; using the
+ * Caffeine spec syntax, e.g. maximumSize=5000,expireAfterWrite=1m,recordStats.
+ * Stats are exported through the actuator cache.* meters.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    public static final String CLINIC_DOCTORS = "clinicDoctors";
+    public static final String DOCTOR_SCHEDULES = "doctorSchedules";
+    public static final String AVAILABLE_SLOTS = "availableSlots";
+    public static final String CLINICS = "clinics";
+    public static final String AVAILABILITY_MATRIX = "availabilityMatrix";
+
+    // السياسات الافتراضية لكل ذاكرة مؤقتة
+    private static final Map<String, String> DEFAULT_SPECS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_SPECS.put(CLINIC_DOCTORS, "maximumSize=1000,expireAfterWrite=10m,recordStats");
+        DEFAULT_SPECS.put(DOCTOR_SCHEDULES, "maximumSize=5000,expireAfterWrite=10m,recordStats");
+        DEFAULT_SPECS.put(AVAILABLE_SLOTS, "maximumSize=20000,expireAfterWrite=2m,recordStats");
+        DEFAULT_SPECS.put(CLINICS, "maximumSize=5000,expireAfterWrite=30m,recordStats");
+        DEFAULT_SPECS.put(AVAILABILITY_MATRIX, "maximumSize=2000,expireAfterWrite=2m,recordStats");
+    }
+
+    // تُطبق على أي ذاكرة مؤقتة غير مُعرفة أعلاه
+    private static final String FALLBACK_SPEC = "maximumSize=1000,expireAfterWrite=5m,recordStats";
+
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-                "clinicDoctors",
-                "doctorSchedules",
-                "availableSlots"
-        );
+    public CacheManager cacheManager(Environment environment) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(
+                environment.getProperty("app.cache.default-spec", FALLBACK_SPEC)));
+
+        DEFAULT_SPECS.forEach((name, defaultSpec) -> {
+            String spec = environment.getProperty("app.cache.specs." + name, defaultSpec);
+            cacheManager.registerCustomCache(name, Caffeine.from(spec).build());
+        });
+
+        return cacheManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+// =============================================================================
+// NumberingDataSourceConfig.java
+// Location: /src/main/java/com/nakqeeb/amancare/config/
+// =============================================================================
+
+package com.nakqeeb.amancare.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+/**
+ * مجمعات الاتصالات: مجمع التطبيق ومجمع صغير مستقل لحجز كتل الترقيم
+ * Application and numbering connection pools.
+ *
+ * Both pools connect with spring.datasource.url/username/password. The
+ * application pool keeps the usual spring.datasource.hikari.* settings and stays
+ * the primary DataSource for JPA and JdbcTemplate. The numbering pool is tuned
+ * under app.numbering.datasource.* (maximum-pool-size, connection-timeout, ...)
+ * and is only used by NumberAllocatorService to reserve number blocks, so its
+ * connections count visibly against the database's max_connections.
+ *
+ * Declaring a DataSource bean switches off Boot's own pool, so the primary one
+ * is declared here the same way Boot builds it.
+ */
+@Configuration
+public class NumberingDataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean(name = "numberingDataSource")
+    @ConfigurationProperties(prefix = "app.numbering.datasource")
+    public HikariDataSource numberingDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("numbering-pool");
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setMinimumIdle(0);
+        return dataSource;
+    }
+}
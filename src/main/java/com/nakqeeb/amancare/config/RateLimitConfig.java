@@ -2,36 +2,108 @@
 
 package com.nakqeeb.amancare.config;
 
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import org.springframework.core.env.Environment;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Rate limiting configuration to prevent abuse
+ *
+ * Policies are matched in order and the first match wins, so specific routes
+ * come before the general public read policy. Each policy can be overridden
+ * with app.rate-limit.policies.&lt;name&gt;.capacity / .period / .enabled.
+ * Trusted proxies are single addresses or CIDR ranges (e.g. 10.0.0.0/8).
  */
 @Configuration
 public class RateLimitConfig {
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    public static final String LOGIN = "login";
+    public static final String EMAIL_REQUEST = "emailRequest";
+    public static final String TOKEN_CONFIRMATION = "tokenConfirmation";
+    public static final String GUEST_BOOKING = "guestBooking";
+    public static final String PUBLIC_READ = "publicRead";
 
-    /**
-     * Rate limiter for guest booking endpoints
-     * Allows 5 bookings per hour per IP
-     */
-    public Bucket resolveBucket(String key) {
-        return cache.computeIfAbsent(key, k -> createNewBucket());
+    // السياسات الافتراضية (المسارات بدون /api/v1)
+    private static final List<RateLimitPolicy> DEFAULT_POLICIES = List.of(
+            new RateLimitPolicy(LOGIN, "POST", List.of("/auth/login"),
+                    10, Duration.ofMinutes(1)),
+            // الطلبات التي ترسل بريداً إلكترونياً
+            new RateLimitPolicy(EMAIL_REQUEST, "POST",
+                    List.of("/auth/forgot-password", "/auth/resend-verification"),
+                    5, Duration.ofMinutes(15)),
+            // الطلبات التي تتحقق من رمز مرسل بالبريد
+            new RateLimitPolicy(TOKEN_CONFIRMATION, "POST",
+                    List.of("/auth/reset-password", "/auth/verify-email", "/guest/confirm-appointment"),
+                    10, Duration.ofMinutes(15)),
+            // 5 حجوزات في الساعة لكل عميل
+            new RateLimitPolicy(GUEST_BOOKING, "POST", List.of("/guest/book-appointment"),
+                    5, Duration.ofHours(1)),
+            new RateLimitPolicy(PUBLIC_READ, "GET",
+                    List.of("/public/**", "/guest/**",
+                            "/auth/validate-reset-token", "/auth/validate-verification-token"),
+                    120, Duration.ofMinutes(1))
+    );
+
+    // عنوان IPv4 حرفي؛ أي قيمة أخرى بدون ":" قد تكون اسم مضيف ولا تُطابق حتى لا يُستعلم DNS
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final boolean enabled;
+    private final long maxKeysPerPolicy;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final List<RateLimitPolicy> policies;
+
+    public RateLimitConfig(Environment environment) {
+        this.enabled = environment.getProperty("app.rate-limit.enabled", Boolean.class, true);
+        this.maxKeysPerPolicy = environment.getProperty("app.rate-limit.max-keys-per-policy", Long.class, 100_000L);
+        this.trustedProxies = Arrays.stream(environment
+                        .getProperty("app.rate-limit.trusted-proxies", "127.0.0.1,0:0:0:0:0:0:0:1")
+                        .split(","))
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+
+        List<RateLimitPolicy> configured = new ArrayList<>();
+        for (RateLimitPolicy policy : DEFAULT_POLICIES) {
+            String prefix = "app.rate-limit.policies." + policy.name() + ".";
+            if (!environment.getProperty(prefix + "enabled", Boolean.class, true)) {
+                continue;
+            }
+            configured.add(new RateLimitPolicy(policy.name(), policy.method(), policy.patterns(),
+                    environment.getProperty(prefix + "capacity", Long.class, policy.capacity()),
+                    environment.getProperty(prefix + "period", Duration.class, policy.period())));
+        }
+        this.policies = List.copyOf(configured);
     }
 
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(5, Refill.intervally(5, Duration.ofHours(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    public boolean isEnabled() { return enabled; }
+
+    public List<RateLimitPolicy> getPolicies() { return policies; }
+
+    public long getMaxKeysPerPolicy() { return maxKeysPerPolicy; }
+
+    /**
+     * هل العنوان لوكيل عكسي موثوق بترويسة X-Forwarded-For القادمة منه
+     */
+    public boolean isTrustedProxy(String address) {
+        if (address == null || !(address.indexOf(':') >= 0 || IPV4.matcher(address).matches())) {
+            return false;
+        }
+        try {
+            for (IpAddressMatcher proxy : trustedProxies) {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // ليس عنواناً صالحاً
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
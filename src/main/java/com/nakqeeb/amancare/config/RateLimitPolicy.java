@@ -0,0 +1,27 @@
+// src/main/java/com/nakqeeb/amancare/config/RateLimitPolicy.java
+
+package com.nakqeeb.amancare.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * سياسة تحديد معدل الطلبات لمجموعة مسارات: عدد الطلبات المسموح به لكل عميل في كل فترة
+ *
+ * @param name     اسم السياسة (يستخدم في المفاتيح والإعدادات والمقاييس)
+ * @param method   طريقة HTTP، أو null لجميع الطرق
+ * @param patterns أنماط المسارات بدون context-path (صيغة Ant)
+ */
+public record RateLimitPolicy(String name, String method, List<String> patterns,
+                              long capacity, Duration period) {
+
+    public Bucket newBucket() {
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, period)))
+                .build();
+    }
+}
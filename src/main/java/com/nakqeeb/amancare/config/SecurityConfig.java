@@ -75,6 +75,7 @@ public class SecurityConfig {
                         // مسارات عامة
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("SYSTEM_ADMIN")
                         .requestMatchers("/docs/**", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
 
                         // ===================================================================
@@ -3,14 +3,19 @@ package com.nakqeeb.amancare.controller;
 import com.nakqeeb.amancare.dto.response.ActivityLogResponse;
 import com.nakqeeb.amancare.dto.response.ActivityStatisticsResponse;
 import com.nakqeeb.amancare.dto.response.ApiResponse;
+import com.nakqeeb.amancare.dto.response.CursorPageResponse;
 import com.nakqeeb.amancare.entity.ActionType;
 import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.exception.BadRequestException;
+import com.nakqeeb.amancare.exception.ForbiddenOperationException;
 import com.nakqeeb.amancare.security.UserPrincipal;
 import com.nakqeeb.amancare.service.ActivityLogService;
 import com.nakqeeb.amancare.service.ClinicContextService;
+import com.nakqeeb.amancare.service.LogExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,12 +24,16 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -46,6 +55,9 @@ public class ActivityLogController {
     @Autowired
     private ClinicContextService clinicContextService;
 
+    @Autowired
+    private LogExportService logExportService;
+
     // =============================================================================
     // GET RECENT ACTIVITIES
     // =============================================================================
@@ -192,6 +204,124 @@ public class ActivityLogController {
         }
     }
 
+    /**
+     * Search activities by cursor (keyset pagination, no total count)
+     */
+    @GetMapping("/search/cursor")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SYSTEM_ADMIN')")
+    @Operation(
+            summary = "🔍 البحث في الأنشطة بالمؤشر",
+            description = """
+            نفس معايير البحث في الأنشطة، الأحدث أولاً وبدون عدد إجمالي.
+            للصفحة التالية أرسل nextCursor من الاستجابة السابقة.
+            """
+    )
+    public ResponseEntity<ApiResponse<CursorPageResponse<ActivityLogResponse>>> searchActivitiesByCursor(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
+            @RequestParam(required = false) Long clinicId,
+            @Parameter(description = "معرف المستخدم")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "نوع الإجراء")
+            @RequestParam(required = false) ActionType actionType,
+            @Parameter(description = "نوع الكيان")
+            @RequestParam(required = false) String entityType,
+            @Parameter(description = "تاريخ البداية")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "تاريخ النهاية")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "مصطلح البحث")
+            @RequestParam(required = false) String searchTerm,
+            @Parameter(description = "مؤشر الصفحة التالية (فارغ للصفحة الأولى)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "حجم الصفحة")
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        try {
+            Long effectiveClinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())
+                    ? clinicId
+                    : currentUser.getClinicId();
+
+            if (effectiveClinicId == null) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(new ApiResponse<>(false, "لم يتم تحديد سياق العيادة", null));
+            }
+
+            CursorPageResponse<ActivityLogResponse> activities = activityLogService.searchActivitiesByCursor(
+                    effectiveClinicId, userId, actionType, entityType,
+                    startDate, endDate, searchTerm, cursor, size
+            );
+
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "تم البحث بنجاح", activities)
+            );
+
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        } catch (Exception e) {
+            logger.error("Error searching activities by cursor: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "خطأ في البحث: " + e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Export activities matching the search filters to CSV (streamed, no row limit)
+     */
+    @GetMapping("/export/csv")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SYSTEM_ADMIN')")
+    @Operation(
+            summary = "📥 تصدير الأنشطة",
+            description = """
+            تصدير سجلات الأنشطة إلى ملف CSV بنفس معايير البحث.
+            يُكتب الملف صفاً بصف دون حد لعدد الصفوف، مع ضغط gzip اختياري.
+            """
+    )
+    public WebAsyncTask<Void> exportActivities(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
+            @RequestParam(required = false) Long clinicId,
+            @Parameter(description = "معرف المستخدم")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "نوع الإجراء")
+            @RequestParam(required = false) ActionType actionType,
+            @Parameter(description = "نوع الكيان")
+            @RequestParam(required = false) String entityType,
+            @Parameter(description = "تاريخ البداية")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "تاريخ النهاية")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "مصطلح البحث")
+            @RequestParam(required = false) String searchTerm,
+            @Parameter(description = "ضغط الملف بصيغة gzip")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) {
+        Long effectiveClinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())
+                ? clinicId
+                : currentUser.getClinicId();
+
+        if (effectiveClinicId == null) {
+            throw new ForbiddenOperationException("لم يتم تحديد سياق العيادة");
+        }
+
+        logger.info("User {} exporting activities for clinic {}", currentUser.getId(), effectiveClinicId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.TEXT_PLAIN);
+        headers.setContentDispositionFormData("attachment",
+                String.format("activity_logs_%d_%s.csv%s", effectiveClinicId, LocalDate.now(), gzip ? ".gz" : ""));
+
+        return logExportService.stream(response, headers, out -> logExportService.exportActivities(
+                effectiveClinicId, userId, actionType, entityType,
+                startDate, endDate, searchTerm, out, gzip));
+    }
+
     // =============================================================================
     // GET ENTITY ACTIVITY TRAIL
     // =============================================================================
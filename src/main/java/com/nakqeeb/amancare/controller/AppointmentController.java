@@ -11,6 +11,7 @@ import com.nakqeeb.amancare.dto.request.UpdateAppointmentRequest;
 import com.nakqeeb.amancare.dto.response.*;
 import com.nakqeeb.amancare.entity.AppointmentStatus;
 import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.exception.BadRequestException;
 import com.nakqeeb.amancare.security.UserPrincipal;
 import com.nakqeeb.amancare.service.AppointmentService;
 import com.nakqeeb.amancare.service.ClinicContextService;
@@ -163,6 +164,54 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * المواعيد بالترقيم بالمؤشر (للقوائم الطويلة)
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('SYSTEM_ADMIN') or hasRole('ADMIN') or hasRole('DOCTOR') or hasRole('NURSE') or hasRole('RECEPTIONIST')")
+    @Operation(
+            summary = "📋 قائمة المواعيد بالمؤشر",
+            description = "الحصول على المواعيد مرتبة بالتاريخ والوقت بدون عدد إجمالي. للصفحة التالية أرسل nextCursor من الاستجابة السابقة"
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "تم الحصول على قائمة المواعيد بنجاح"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "مؤشر الصفحة غير صالح"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "غير مصرح - يجب تسجيل الدخول"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "ممنوع - صلاحيات غير كافية")
+    })
+    public ResponseEntity<ApiResponse<CursorPageResponse<AppointmentResponse>>> getAppointmentsByCursor(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
+            @RequestParam(required = false) Long clinicId,
+            @Parameter(description = "تاريخ المواعيد", example = "2024-08-28")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "معرف الطبيب", example = "2")
+            @RequestParam(required = false) Long doctorId,
+            @Parameter(description = "حالة الموعد", example = "SCHEDULED")
+            @RequestParam(required = false) AppointmentStatus status,
+            @Parameter(description = "مؤشر الصفحة التالية (فارغ للصفحة الأولى)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "حجم الصفحة", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            Long effectiveClinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())
+                    ? clinicId
+                    : currentUser.getClinicId();
+            CursorPageResponse<AppointmentResponse> appointments = appointmentService.getAppointmentsByCursor(
+                    effectiveClinicId, date, doctorId, status, cursor, size
+            );
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "تم الحصول على قائمة المواعيد بنجاح", appointments)
+            );
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "فشل في الحصول على قائمة المواعيد: " + e.getMessage(), null));
+        }
+    }
+
     /**
      * مواعيد اليوم
      */
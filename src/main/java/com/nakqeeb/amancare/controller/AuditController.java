@@ -12,9 +12,11 @@ import com.nakqeeb.amancare.dto.response.AuditStatisticsResponse;
 import com.nakqeeb.amancare.entity.UserRole;
 import com.nakqeeb.amancare.security.UserPrincipal;
 import com.nakqeeb.amancare.service.AuditLogService;
+import com.nakqeeb.amancare.service.LogExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -28,6 +30,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -46,6 +49,9 @@ public class AuditController {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private LogExportService logExportService;
+
     /**
      * Get audit logs with filtering and pagination
      */
@@ -188,16 +194,17 @@ public class AuditController {
     @PreAuthorize("hasRole('SYSTEM_ADMIN')")
     @Operation(
             summary = "📥 تصدير السجلات",
-            description = "تصدير سجلات المراجعة إلى ملف CSV"
+            description = "تصدير سجلات المراجعة إلى ملف CSV (متدفق وبدون حد لعدد الصفوف، مع ضغط gzip اختياري)"
     )
-    public ResponseEntity<String> exportAuditLogs(
+    public WebAsyncTask<Void> exportAuditLogs(
             @AuthenticationPrincipal UserPrincipal currentUser,
             @Parameter(description = "تاريخ البداية", example = "2025-08-23T00:00:00", required = true)
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDateTime startDate,
             @Parameter(description = "تاريخ النهاية", example = "2025-09-15T00:00:00", required = true)
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDateTime endDate) {
-
-        String csvContent = auditLogService.exportAuditLogsToCsv(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDateTime endDate,
+            @Parameter(description = "ضغط الملف بصيغة gzip")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
 
         // Log the export action itself
         auditLogService.logAction(
@@ -210,14 +217,13 @@ public class AuditController {
         );
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.TEXT_PLAIN);
+        headers.setContentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.TEXT_PLAIN);
         headers.setContentDispositionFormData("attachment",
-                String.format("audit_logs_%s_%s.csv",
-                        startDate.toLocalDate(), endDate.toLocalDate()));
+                String.format("audit_logs_%s_%s.csv%s",
+                        startDate.toLocalDate(), endDate.toLocalDate(), gzip ? ".gz" : ""));
 
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(csvContent);
+        return logExportService.stream(response, headers,
+                out -> logExportService.exportAuditLogs(startDate, endDate, out, gzip));
     }
 
     /**
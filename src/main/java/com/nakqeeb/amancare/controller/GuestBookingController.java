@@ -13,6 +13,8 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -24,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -130,8 +133,10 @@ public class GuestBookingController {
             @PathVariable Long doctorId,
             @Parameter(description = "التاريخ المطلوب", example = "2024-10-15", required = true)
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-            @Parameter(description = "مدة الموعد بالدقائق", example = "30")
-            @RequestParam(defaultValue = "30") Integer durationMinutes) {
+            @Parameter(description = "مدة الموعد بالدقائق (5 - 240)", example = "30")
+            @RequestParam(defaultValue = "30")
+            @Min(value = 5, message = "مدة الموعد يجب أن تكون 5 دقائق على الأقل")
+            @Max(value = 240, message = "مدة الموعد يجب ألا تتجاوز 240 دقيقة") Integer durationMinutes) {
         try {
             List<java.time.LocalTime> slots = guestBookingService.getAvailableTimeSlots(
                     clinicId, doctorId, date, durationMinutes);
@@ -145,6 +150,40 @@ public class GuestBookingController {
         }
     }
 
+    /**
+     * Get availability matrix (doctor x date) for the booking calendar
+     */
+    @GetMapping("/clinics/{clinicId}/availability")
+    @Operation(
+            summary = "📅 مصفوفة الأوقات المتاحة",
+            description = "عرض الأوقات المتاحة لجميع أطباء العيادة (أو أطباء محددين) خلال فترة حتى 31 يوماً"
+    )
+    public ResponseEntity<ApiResponse<AvailabilityMatrixResponse>> getAvailabilityMatrix(
+            @Parameter(description = "معرف العيادة", example = "1")
+            @PathVariable Long clinicId,
+            @Parameter(description = "تاريخ البداية", example = "2024-10-14", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "تاريخ النهاية", example = "2024-10-27", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "مدة الموعد بالدقائق (5 - 240)", example = "30")
+            @RequestParam(defaultValue = "30")
+            @Min(value = 5, message = "مدة الموعد يجب أن تكون 5 دقائق على الأقل")
+            @Max(value = 240, message = "مدة الموعد يجب ألا تتجاوز 240 دقيقة") Integer durationMinutes,
+            @Parameter(description = "معرفات الأطباء (اختياري)", example = "2,3")
+            @RequestParam(required = false) Set<Long> doctorIds) {
+        try {
+            AvailabilityMatrixResponse matrix = guestBookingService.getAvailabilityMatrix(
+                    clinicId, startDate, endDate, durationMinutes, doctorIds);
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "تم الحصول على الأوقات المتاحة بنجاح", matrix)
+            );
+        } catch (Exception e) {
+            log.error("Error fetching availability matrix: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, e.getMessage(), null));
+        }
+    }
+
     /**
      * Book appointment as guest
      */
@@ -18,6 +18,7 @@ import com.nakqeeb.amancare.security.UserPrincipal;
 import com.nakqeeb.amancare.service.InvoiceService;
 import com.nakqeeb.amancare.service.ClinicContextService;
 import com.nakqeeb.amancare.service.pdf.PdfInvoiceService;
+import com.nakqeeb.amancare.service.pdf.RenderedPdfCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -40,6 +41,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -66,6 +68,9 @@ public class InvoiceController {
     @Autowired
     private PdfInvoiceService pdfInvoiceService;
 
+    @Autowired
+    private RenderedPdfCache renderedPdfCache;
+
     // ===================================================================
     // INVOICE OPERATIONS
     // ===================================================================
@@ -228,6 +233,60 @@ public class InvoiceController {
         }
     }
 
+    /**
+     * Get invoices by cursor (keyset pagination, no total count)
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('SYSTEM_ADMIN', 'ADMIN', 'DOCTOR', 'RECEPTIONIST', 'NURSE')")
+    @Operation(
+            summary = "📋 قائمة الفواتير بالمؤشر",
+            description = """
+            الحصول على الفواتير الأحدث أولاً بدون عدد إجمالي
+            - للصفحة التالية أرسل nextCursor من الاستجابة السابقة
+            - SYSTEM_ADMIN: يمكنه عرض فواتير أي عيادة
+            - باقي الأدوار: يعرضون فواتير عيادتهم فقط
+            """
+    )
+    public ResponseEntity<ApiResponse<CursorPageResponse<InvoiceResponse>>> getInvoicesByCursor(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @Parameter(description = "معرف المريض")
+            @RequestParam(required = false) Long patientId,
+            @Parameter(description = "معرف العيادة (SYSTEM_ADMIN فقط)")
+            @RequestParam(required = false) Long clinicId,
+            @Parameter(description = "حالة الفاتورة")
+            @RequestParam(required = false) InvoiceStatus status,
+            @Parameter(description = "من تاريخ")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @Parameter(description = "إلى تاريخ")
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @Parameter(description = "مؤشر الصفحة التالية (فارغ للصفحة الأولى)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "حجم الصفحة", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+            criteria.setPatientId(patientId);
+            criteria.setClinicId(clinicId);
+            criteria.setStatus(status);
+            criteria.setFromDate(fromDate);
+            criteria.setToDate(toDate);
+
+            CursorPageResponse<InvoiceResponse> invoices =
+                    invoiceService.getInvoicesByCursor(criteria, cursor, size, currentUser);
+
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "تم جلب الفواتير بنجاح", invoices)
+            );
+        } catch (Exception e) {
+            logger.error("Error fetching invoices by cursor: ", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    new ApiResponse<>(false, "فشل جلب الفواتير: " + e.getMessage(), null)
+            );
+        }
+    }
+
     /**
      * Get invoice by ID
      */
@@ -600,9 +659,10 @@ public class InvoiceController {
                     )
             }
     )
-    public ResponseEntity<byte[]> exportInvoicePdf(
+    public ResponseEntity<StreamingResponseBody> exportInvoicePdf(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserPrincipal currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         logger.info("تصدير فاتورة PDF رقم {} بواسطة المستخدم: {}", id, currentUser.getUsername());
 
@@ -610,9 +670,6 @@ public class InvoiceController {
             // Fetch invoice details
             InvoiceResponse invoice = invoiceService.getInvoiceById(id, currentUser);
 
-            // Generate PDF
-            byte[] pdfContent = pdfInvoiceService.generateInvoicePdf(invoice);
-
             // Prepare response headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -622,10 +679,11 @@ public class InvoiceController {
             headers.setContentDispositionFormData("attachment", filename);
             headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
-            logger.info("تم إنشاء ملف PDF للفاتورة {} بنجاح", invoice.getInvoiceNumber());
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfContent);
+            // The PDF is rendered straight into the response (chunked, no intermediate byte[])
+            return pdfResponse(RenderedPdfCache.INVOICE, invoice, headers, ifNoneMatch, outputStream -> {
+                pdfInvoiceService.writeInvoicePdf(invoice, outputStream);
+                logger.info("تم إنشاء ملف PDF للفاتورة {} بنجاح", invoice.getInvoiceNumber());
+            });
 
         } catch (ResourceNotFoundException e) {
             logger.error("الفاتورة غير موجودة: {}", id);
@@ -667,9 +725,10 @@ public class InvoiceController {
                     )
             }
     )
-    public ResponseEntity<byte[]> exportInvoiceReceipt(
+    public ResponseEntity<StreamingResponseBody> exportInvoiceReceipt(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserPrincipal currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         logger.info("تصدير إيصال PDF للفاتورة {} بواسطة المستخدم: {}", id, currentUser.getUsername());
 
@@ -683,9 +742,6 @@ public class InvoiceController {
                 return ResponseEntity.badRequest().build();
             }
 
-            // Generate receipt PDF
-            byte[] pdfContent = pdfInvoiceService.generateInvoiceReceiptPdf(invoice);
-
             // Prepare response headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -695,10 +751,10 @@ public class InvoiceController {
             headers.setContentDispositionFormData("attachment", filename);
             headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
-            logger.info("تم إنشاء إيصال PDF للفاتورة {} بنجاح", invoice.getInvoiceNumber());
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfContent);
+            return pdfResponse(RenderedPdfCache.RECEIPT, invoice, headers, ifNoneMatch, outputStream -> {
+                pdfInvoiceService.writeInvoiceReceiptPdf(invoice, outputStream);
+                logger.info("تم إنشاء إيصال PDF للفاتورة {} بنجاح", invoice.getInvoiceNumber());
+            });
 
         } catch (ResourceNotFoundException e) {
             logger.error("الفاتورة غير موجودة: {}", id);
@@ -719,9 +775,10 @@ public class InvoiceController {
             summary = "👁️ معاينة الفاتورة PDF",
             description = "عرض الفاتورة في المتصفح بدون تحميل"
     )
-    public ResponseEntity<byte[]> previewInvoicePdf(
+    public ResponseEntity<StreamingResponseBody> previewInvoicePdf(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserPrincipal currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         logger.info("معاينة فاتورة PDF رقم {} بواسطة المستخدم: {}", id, currentUser.getUsername());
 
@@ -729,9 +786,6 @@ public class InvoiceController {
             // Fetch invoice details
             InvoiceResponse invoice = invoiceService.getInvoiceById(id, currentUser);
 
-            // Generate PDF
-            byte[] pdfContent = pdfInvoiceService.generateInvoicePdf(invoice);
-
             // Prepare response headers for inline display
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -739,9 +793,8 @@ public class InvoiceController {
             headers.add("Content-Disposition", "inline; filename=\"" + filename + "\"");
             headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(pdfContent);
+            return pdfResponse(RenderedPdfCache.INVOICE, invoice, headers, ifNoneMatch,
+                    outputStream -> pdfInvoiceService.writeInvoicePdf(invoice, outputStream));
 
         } catch (ResourceNotFoundException e) {
             logger.error("الفاتورة غير موجودة: {}", id);
@@ -751,4 +804,27 @@ public class InvoiceController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * بناء استجابة PDF متدفقة؛ الفواتير المدفوعة تُخدم من الذاكرة المؤقتة مع ETag
+     */
+    private ResponseEntity<StreamingResponseBody> pdfResponse(String kind, InvoiceResponse invoice, HttpHeaders headers,
+                                                              String ifNoneMatch, RenderedPdfCache.PdfWriter writer) {
+        if (invoice.getStatus() != InvoiceStatus.PAID || invoice.getUpdatedAt() == null) {
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(writer::writeTo);
+        }
+
+        String key = renderedPdfCache.key(kind, invoice.getId(), invoice.getUpdatedAt());
+        String etag = renderedPdfCache.etag(key);
+        if (renderedPdfCache.matches(ifNoneMatch, key)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        headers.setETag(etag);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(outputStream -> renderedPdfCache.write(key, outputStream, writer));
+    }
+}
@@ -16,6 +16,7 @@ import com.nakqeeb.amancare.security.UserPrincipal;
 import com.nakqeeb.amancare.service.ClinicContextService;
 import com.nakqeeb.amancare.service.MedicalRecordService;
 import com.nakqeeb.amancare.service.pdf.PdfMedicalRecordService;
+import com.nakqeeb.amancare.service.pdf.RenderedPdfCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -36,6 +37,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -55,6 +57,7 @@ public class MedicalRecordController {
     private final MedicalRecordService medicalRecordService;
     private final ClinicContextService clinicContextService;
     private final PdfMedicalRecordService pdfMedicalRecordService;
+    private final RenderedPdfCache renderedPdfCache;
 
     // =============================================================================
     // CREATE OPERATIONS
@@ -209,6 +212,40 @@ public class MedicalRecordController {
         }
     }
 
+    /**
+     * السجلات الطبية بالترقيم بالمؤشر
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("hasAnyRole('SYSTEM_ADMIN', 'ADMIN', 'DOCTOR', 'NURSE', 'RECEPTIONIST')")
+    @Operation(
+            summary = "📋 قائمة السجلات الطبية بالمؤشر",
+            description = """
+            الحصول على السجلات الطبية الأحدث زيارةً أولاً بدون عدد إجمالي:
+            - للصفحة التالية أرسل nextCursor من الاستجابة السابقة
+            - SYSTEM_ADMIN: يمكنه الوصول لسجلات جميع العيادات
+            - باقي الأدوار: سجلات عيادتهم فقط
+            """
+    )
+    public ResponseEntity<ApiResponse<CursorPageResponse<MedicalRecordSummaryResponse>>> getMedicalRecordsByCursor(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @Parameter(description = "مؤشر الصفحة التالية (فارغ للصفحة الأولى)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "حجم الصفحة", example = "10")
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            CursorPageResponse<MedicalRecordSummaryResponse> medicalRecords =
+                    medicalRecordService.getMedicalRecordsByCursor(cursor, size, currentUser);
+
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "تم جلب قائمة السجلات الطبية بنجاح", medicalRecords)
+            );
+        } catch (Exception e) {
+            log.error("خطأ في جلب السجلات الطبية بالمؤشر: ", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "فشل في جلب السجلات الطبية: " + e.getMessage(), null));
+        }
+    }
+
     /**
      * الحصول على سجل طبي بالمعرف
      */
@@ -760,12 +797,13 @@ public class MedicalRecordController {
                     description = "غير مصرح بالوصول لهذا السجل"
             )
     })
-    public ResponseEntity<byte[]> exportMedicalRecordPdf(
+    public ResponseEntity<StreamingResponseBody> exportMedicalRecordPdf(
             @Parameter(description = "معرف السجل الطبي", example = "1")
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal currentUser,
             @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
-            @RequestParam(required = false) Long clinicId) {
+            @RequestParam(required = false) Long clinicId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         log.info("تصدير السجل الطبي {} كـ PDF بواسطة المستخدم {}", id, currentUser.getUsername());
 
@@ -779,18 +817,31 @@ public class MedicalRecordController {
             // Get medical record
             MedicalRecordResponse medicalRecord = medicalRecordService.getMedicalRecordById(id, currentUser);
 
-            // Generate PDF
-            byte[] pdfBytes = pdfMedicalRecordService.generateMedicalRecordPdf(medicalRecord);
-
             // Prepare response headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDispositionFormData("attachment",
                     "medical-record-" + id + "-" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".pdf");
 
+            // The PDF is rendered straight into the response (chunked, no intermediate byte[])
+            StreamingResponseBody body = outputStream ->
+                    pdfMedicalRecordService.writeMedicalRecordPdf(medicalRecord, outputStream);
+
+            // Locked records never change: serve them from the rendered-PDF cache with an ETag
+            if (medicalRecord.getStatus() == RecordStatus.LOCKED && medicalRecord.getUpdatedAt() != null) {
+                String key = renderedPdfCache.key(RenderedPdfCache.MEDICAL_RECORD, id, medicalRecord.getUpdatedAt());
+                String etag = renderedPdfCache.etag(key);
+                if (renderedPdfCache.matches(ifNoneMatch, key)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+                headers.setETag(etag);
+                StreamingResponseBody render = body;
+                body = outputStream -> renderedPdfCache.write(key, outputStream, render::writeTo);
+            }
+
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfBytes);
+                    .body(body);
 
         } catch (Exception e) {
             log.error("خطأ في تصدير السجل الطبي {} كـ PDF: ", id, e);
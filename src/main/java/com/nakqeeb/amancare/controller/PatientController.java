@@ -33,6 +33,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -691,7 +692,7 @@ public class PatientController {
                     )
             }
     )
-    public ResponseEntity<byte[]> exportPatientDetailsPdf(
+    public ResponseEntity<StreamingResponseBody> exportPatientDetailsPdf(
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal currentUser,
             @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
@@ -715,9 +716,6 @@ public class PatientController {
             // Fetch patient details
             PatientResponse patient = patientService.getPatientById(effectiveClinicId, id);
 
-            // Generate PDF
-            byte[] pdfContent = pdfPatientService.generatePatientDetailsPdf(patient);
-
             // Prepare response headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -727,9 +725,11 @@ public class PatientController {
             headers.setContentDispositionFormData("attachment", filename);
             headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
+            // The PDF is rendered straight into the response (chunked, no intermediate byte[])
+            StreamingResponseBody body = outputStream -> pdfPatientService.writePatientDetailsPdf(patient, outputStream);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfContent);
+                    .body(body);
 
         } catch (ResourceNotFoundException e) {
             logger.error("Patient not found: {}", id);
@@ -766,7 +766,7 @@ public class PatientController {
                     )
             }
     )
-    public ResponseEntity<byte[]> exportPatientCardPdf(
+    public ResponseEntity<StreamingResponseBody> exportPatientCardPdf(
             @PathVariable Long id,
             @AuthenticationPrincipal UserPrincipal currentUser,
             @Parameter(description = "معرف العيادة (للـ SYSTEM_ADMIN فقط)")
@@ -791,9 +791,6 @@ public class PatientController {
             // Fetch patient details
             PatientResponse patient = patientService.getPatientById(effectiveClinicId, id);
 
-            // Generate PDF card
-            byte[] pdfContent = pdfPatientService.generatePatientCardPdf(patient);
-
             // Prepare response headers
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -802,9 +799,10 @@ public class PatientController {
 //            headers.setContentDispositionFormData("inline", filename); // inline for quick preview
 //            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
 
+            StreamingResponseBody body = outputStream -> pdfPatientService.writePatientCardPdf(patient, outputStream);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(pdfContent);
+                    .body(body);
 
         } catch (ResourceNotFoundException e) {
             logger.error("Patient not found: {}", id);
@@ -3,11 +3,13 @@ package com.nakqeeb.amancare.dto.response;
 import com.nakqeeb.amancare.entity.Appointment;
 import com.nakqeeb.amancare.entity.AppointmentStatus;
 import com.nakqeeb.amancare.entity.AppointmentType;
+import com.nakqeeb.amancare.repository.projection.AppointmentListView;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Period;
 
 /**
  * استجابة بيانات الموعد الكاملة
@@ -110,6 +112,50 @@ public class AppointmentResponse {
         return response;
     }
 
+    /**
+     * إنشاء الاستجابة من إسقاط قائمة المواعيد (بدون تحميل الكيانات المرتبطة)
+     */
+    public static AppointmentResponse fromView(AppointmentListView view) {
+        AppointmentResponse response = new AppointmentResponse();
+        response.setId(view.getId());
+
+        // معلومات المريض
+        AppointmentPatientInfo patientInfo = new AppointmentPatientInfo();
+        patientInfo.setId(view.getPatientId());
+        patientInfo.setPatientNumber(view.getPatientNumber());
+        patientInfo.setFullName(view.getPatientFirstName() + " " + view.getPatientLastName());
+        patientInfo.setPhone(view.getPatientPhone());
+        patientInfo.setAge(view.getPatientDateOfBirth() != null ?
+                Period.between(view.getPatientDateOfBirth(), LocalDate.now()).getYears() : null);
+        response.setPatient(patientInfo);
+
+        // معلومات الطبيب
+        AppointmentDoctorInfo doctorInfo = new AppointmentDoctorInfo();
+        doctorInfo.setId(view.getDoctorId());
+        doctorInfo.setFullName(view.getDoctorFirstName() + " " + view.getDoctorLastName());
+        doctorInfo.setSpecialization(view.getDoctorSpecialization());
+        response.setDoctor(doctorInfo);
+
+        response.setAppointmentDate(view.getAppointmentDate());
+        response.setAppointmentTime(view.getAppointmentTime());
+        response.setDurationMinutes(view.getDurationMinutes());
+        response.setIsDurationOverridden(view.getIsDurationOverridden());
+        response.setOriginalDurationMinutes(view.getOriginalDurationMinutes());
+        response.setOverrideReason(view.getOverrideReason());
+        response.setTokenNumber(view.getTokenNumber());
+        response.setAppointmentType(view.getAppointmentType());
+        response.setStatus(view.getStatus());
+        response.setChiefComplaint(view.getChiefComplaint());
+        response.setNotes(view.getNotes());
+        response.setCreatedAt(view.getCreatedAt());
+        response.setUpdatedAt(view.getUpdatedAt());
+        if (view.getCreatedByFirstName() != null) {
+            response.setCreatedBy(view.getCreatedByFirstName() + " " + view.getCreatedByLastName());
+        }
+
+        return response;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
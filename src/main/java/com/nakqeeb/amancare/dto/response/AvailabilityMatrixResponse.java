@@ -0,0 +1,47 @@
+// src/main/java/com/nakqeeb/amancare/dto/response/AvailabilityMatrixResponse.java
+
+package com.nakqeeb.amancare.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "مصفوفة الأوقات المتاحة لأطباء العيادة خلال فترة (طبيب × تاريخ ← الأوقات المتاحة)")
+public class AvailabilityMatrixResponse {
+
+    @Schema(description = "معرف العيادة")
+    private Long clinicId;
+
+    @Schema(description = "تاريخ البداية")
+    private LocalDate startDate;
+
+    @Schema(description = "تاريخ النهاية")
+    private LocalDate endDate;
+
+    @Schema(description = "مدة الموعد بالدقائق")
+    private Integer durationMinutes;
+
+    @Schema(description = "الأطباء وأوقاتهم المتاحة")
+    private List<DoctorAvailability> doctors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DoctorAvailability {
+        private Long doctorId;
+        private String fullName;
+        private String specialization;
+
+        // التواريخ التي لا يعمل فيها الطبيب غير موجودة في الخريطة
+        private Map<LocalDate, List<LocalTime>> availableSlots;
+    }
+}
@@ -0,0 +1,62 @@
+package com.nakqeeb.amancare.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * استجابة الترقيم بالمؤشر (بدون عدد إجمالي)
+ * Keyset pagination result: the next page is requested with nextCursor, and no
+ * COUNT query is run, so totals are not available.
+ */
+@Schema(description = "نتائج مرقمة بالمؤشر")
+public class CursorPageResponse<T> {
+
+    @Schema(description = "عناصر الصفحة")
+    private List<T> content;
+
+    @Schema(description = "حجم الصفحة")
+    private int pageSize;
+
+    @Schema(description = "هل يوجد صفحة تالية")
+    private boolean hasNext;
+
+    @Schema(description = "مؤشر الصفحة التالية (يُرسل كما هو في الطلب التالي)")
+    private String nextCursor;
+
+    // Constructors
+    public CursorPageResponse() {}
+
+    public CursorPageResponse(List<T> content, int pageSize, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.pageSize = pageSize;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * بناء الاستجابة من Slice؛ المؤشر مأخوذ من آخر عنصر
+     */
+    public static <E, T> CursorPageResponse<T> from(Slice<E> slice, Function<E, T> mapper,
+                                                    Function<E, String> cursorOf) {
+        List<E> rows = slice.getContent();
+        String nextCursor = slice.hasNext() && !rows.isEmpty() ? cursorOf.apply(rows.get(rows.size() - 1)) : null;
+        return new CursorPageResponse<>(rows.stream().map(mapper).toList(), slice.getSize(),
+                slice.hasNext(), nextCursor);
+    }
+
+    // Getters and Setters
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public int getPageSize() { return pageSize; }
+    public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -1,6 +1,7 @@
 package com.nakqeeb.amancare.dto.response;
 
 import com.nakqeeb.amancare.entity.*;
+import com.nakqeeb.amancare.repository.projection.InvoiceListView;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -86,13 +87,7 @@ public class InvoiceResponse {
         response.setBalanceDue(invoice.getBalanceDue());
 
         // Payment status
-        if (invoice.getBalanceDue().compareTo(BigDecimal.ZERO) == 0) {
-            response.setPaymentStatus(PaymentStatus.COMPLETED);
-        } else if (invoice.getPaidAmount().compareTo(BigDecimal.ZERO) > 0) {
-            response.setPaymentStatus(PaymentStatus.PENDING);
-        } else {
-            response.setPaymentStatus(PaymentStatus.PENDING);
-        }
+        applyPaymentStatus(response);
 
         // Items
         if (invoice.getItems() != null) {
@@ -125,12 +120,78 @@ public class InvoiceResponse {
         }
 
         // Calculate overdue
-        if (invoice.getDueDate() != null && LocalDate.now().isAfter(invoice.getDueDate())
-                && invoice.getBalanceDue().compareTo(BigDecimal.ZERO) > 0) {
-            response.setOverdue(true);
-            response.setDaysOverdue((int) java.time.temporal.ChronoUnit.DAYS.between(invoice.getDueDate(), LocalDate.now()));
+        applyOverdue(response);
+
+        return response;
+    }
+
+    /**
+     * Build a list row from the invoice projection; items and payments are loaded per page by the caller
+     */
+    public static InvoiceResponse fromView(InvoiceListView view, List<InvoiceItem> items, List<Payment> payments) {
+        InvoiceResponse response = new InvoiceResponse();
+
+        // Basic info
+        response.setId(view.getId());
+        response.setInvoiceNumber(view.getInvoiceNumber());
+        response.setInvoiceDate(view.getInvoiceDate());
+        response.setDueDate(view.getDueDate());
+        response.setStatus(view.getStatus());
+
+        // Patient, appointment and clinic info
+        response.setPatientId(view.getPatientId());
+        response.setPatientName(view.getPatientFirstName() + " " + view.getPatientLastName());
+        response.setPatientPhone(view.getPatientPhone());
+        response.setAppointmentId(view.getAppointmentId());
+        response.setClinicId(view.getClinicId());
+        response.setClinicName(view.getClinicName());
+
+        // Financial details
+        response.setSubtotal(view.getSubtotal());
+        response.setTaxAmount(view.getTaxAmount());
+        response.setDiscountAmount(view.getDiscountAmount());
+        response.setTotalAmount(view.getTotalAmount());
+        response.setPaidAmount(view.getPaidAmount());
+        response.setBalanceDue(view.getBalanceDue());
+        applyPaymentStatus(response);
+
+        response.setItems(items.stream()
+                .map(InvoiceItemResponse::fromEntity)
+                .collect(Collectors.toList()));
+        response.setPayments(payments.stream()
+                .map(payment -> PaymentResponse.fromEntity(payment, view.getId(), view.getInvoiceNumber()))
+                .collect(Collectors.toList()));
+
+        // Additional info
+        response.setNotes(view.getNotes());
+        response.setCreatedBy(view.getCreatedByUsername());
+        if (view.getCreatedAt() != null) {
+            response.setCreatedAt(view.getCreatedAt().toString());
+        }
+        if (view.getUpdatedAt() != null) {
+            response.setUpdatedAt(view.getUpdatedAt().toString());
         }
 
+        applyOverdue(response);
+
         return response;
     }
+
+    private static void applyPaymentStatus(InvoiceResponse response) {
+        if (response.getBalanceDue().compareTo(BigDecimal.ZERO) == 0) {
+            response.setPaymentStatus(PaymentStatus.COMPLETED);
+        } else if (response.getPaidAmount().compareTo(BigDecimal.ZERO) > 0) {
+            response.setPaymentStatus(PaymentStatus.PENDING);
+        } else {
+            response.setPaymentStatus(PaymentStatus.PENDING);
+        }
+    }
+
+    private static void applyOverdue(InvoiceResponse response) {
+        if (response.getDueDate() != null && LocalDate.now().isAfter(response.getDueDate())
+                && response.getBalanceDue().compareTo(BigDecimal.ZERO) > 0) {
+            response.setOverdue(true);
+            response.setDaysOverdue((int) java.time.temporal.ChronoUnit.DAYS.between(response.getDueDate(), LocalDate.now()));
+        }
+    }
 }
\ No newline at end of file
@@ -182,6 +182,14 @@ public class PatientSummaryResponse {
      * Create PatientSummaryResponse from Patient entity
      */
     public static PatientSummaryResponse fromPatient(Patient patient) {
+        return fromPatient(patient, patient.getAppointments() != null ? patient.getAppointments().size() : null);
+    }
+
+    /**
+     * For list pages: the appointment count comes from one grouped query for the
+     * whole page instead of loading each patient's appointments
+     */
+    public static PatientSummaryResponse fromPatient(Patient patient, Integer appointmentsCount) {
         PatientSummaryResponse response = new PatientSummaryResponse();
 
         response.setId(patient.getId());
@@ -203,10 +211,7 @@ public class PatientSummaryResponse {
             response.setAge(Period.between(patient.getDateOfBirth(), LocalDate.now()).getYears());
         }
 
-        // Set appointment count if available
-        if (patient.getAppointments() != null) {
-            response.setAppointmentsCount(patient.getAppointments().size());
-        }
+        response.setAppointmentsCount(appointmentsCount);
 
         // Calculate outstanding balance if invoices are available
         /*if (patient.getInvoices() != null) {
@@ -21,13 +21,20 @@ public class PaymentResponse {
     private String createdAt;
 
     public static PaymentResponse fromEntity(Payment payment) {
-        PaymentResponse response = new PaymentResponse();
-        response.setId(payment.getId());
-
         if (payment.getInvoice() != null) {
-            response.setInvoiceId(payment.getInvoice().getId());
-            response.setInvoiceNumber(payment.getInvoice().getInvoiceNumber());
+            return fromEntity(payment, payment.getInvoice().getId(), payment.getInvoice().getInvoiceNumber());
         }
+        return fromEntity(payment, null, null);
+    }
+
+    /**
+     * When the invoice number is already known (invoice list pages), the invoice is not loaded
+     */
+    public static PaymentResponse fromEntity(Payment payment, Long invoiceId, String invoiceNumber) {
+        PaymentResponse response = new PaymentResponse();
+        response.setId(payment.getId());
+        response.setInvoiceId(invoiceId);
+        response.setInvoiceNumber(invoiceNumber);
 
         response.setAmount(payment.getAmount());
         response.setPaymentDate(payment.getPaymentDate());
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -118,8 +119,11 @@ public class MedicalRecordResponse {
                 .pastMedicalHistory(medicalRecord.getPastMedicalHistory())
                 .familyHistory(medicalRecord.getFamilyHistory())
                 .socialHistory(medicalRecord.getSocialHistory())
-                .allergies(medicalRecord.getAllergies())
-                .currentMedications(medicalRecord.getCurrentMedications())
+                // نسخ المجموعات الكسولة داخل المعاملة حتى لا تُحمّل أثناء تحويل JSON
+                .allergies(medicalRecord.getAllergies() != null ?
+                        new ArrayList<>(medicalRecord.getAllergies()) : null)
+                .currentMedications(medicalRecord.getCurrentMedications() != null ?
+                        new ArrayList<>(medicalRecord.getCurrentMedications()) : null)
                 .physicalExamination(medicalRecord.getPhysicalExamination())
                 .systemicExamination(medicalRecord.getSystemicExamination())
                 .diagnosis(medicalRecord.getDiagnosis() != null ?
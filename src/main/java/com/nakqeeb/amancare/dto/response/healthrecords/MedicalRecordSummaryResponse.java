@@ -44,7 +44,12 @@ public class MedicalRecordSummaryResponse {
                     .map(Diagnosis::getDescription)
                     .orElse(null);
         }
+        return fromEntity(medicalRecord, primaryDiagnosis);
+    }
 
+    // Factory method for list pages: the primary diagnosis is loaded separately so the
+    // diagnosis collection is never initialized
+    public static MedicalRecordSummaryResponse fromEntity(MedicalRecord medicalRecord, String primaryDiagnosis) {
         return MedicalRecordSummaryResponse.builder()
                 .id(medicalRecord.getId())
                 .patientId(medicalRecord.getPatientId())
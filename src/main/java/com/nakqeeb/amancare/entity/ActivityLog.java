@@ -6,6 +6,11 @@ import java.time.LocalDateTime;
 /**
  * سجل الأنشطة - يسجل جميع عمليات POST, PUT, PATCH, DELETE لكل عيادة
  * Activity Log - Tracks all POST, PUT, PATCH, DELETE operations per clinic
+ *
+ * The table is partitioned by month on timestamp by ActivityLogPartitionManager,
+ * with primary key (id, timestamp); an existing unpartitioned table is migrated
+ * only when activity.logging.partitioning.migrate-on-startup is set. Queries
+ * should filter on a timestamp range so that only the matching partitions are read.
  */
 @Entity
 @Table(name = "activity_logs", indexes = {
@@ -19,6 +19,7 @@ import java.util.List;
         indexes = {
                 @Index(name = "idx_clinic_date", columnList = "clinic_id, appointment_date"),
                 @Index(name = "idx_doctor_date", columnList = "doctor_id, appointment_date"),
+                @Index(name = "idx_doctor_date_time", columnList = "doctor_id, appointment_date, appointment_time"),
                 @Index(name = "idx_patient_appointments", columnList = "patient_id, appointment_date"),
                 @Index(name = "idx_appointments_date_status", columnList = "appointment_date, status")
         })
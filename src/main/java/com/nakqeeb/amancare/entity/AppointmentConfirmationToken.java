@@ -13,7 +13,8 @@ import java.time.LocalDateTime;
 @Table(name = "appointment_confirmation_tokens",
         indexes = {
                 @Index(name = "idx_token", columnList = "token"),
-                @Index(name = "idx_appointment_id", columnList = "appointment_id")
+                @Index(name = "idx_appointment_id", columnList = "appointment_id"),
+                @Index(name = "idx_appointment_confirmation_tokens_expiry", columnList = "expiry_date")
         })
 @Data
 @NoArgsConstructor
@@ -0,0 +1,211 @@
+// =============================================================================
+// Clinic Statistics Entity - كيان إحصائيات العيادة المحدثة تدريجياً
+// =============================================================================
+
+package com.nakqeeb.amancare.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * عدادات لوحة التحكم لكل عيادة وفترة
+ * One row per clinic and period: ALL (running totals), yyyy-MM (month) or yyyy-MM-dd (day).
+ * Rows are only changed with additive upserts from ClinicStatisticsService, or
+ * replaced wholesale when a clinic is rebuilt from the source tables.
+ */
+@Entity
+@Table(name = "clinic_statistics",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "unique_statistics_clinic_period",
+                        columnNames = {"clinic_id", "period"})
+        })
+public class ClinicStatistics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "clinic_id", nullable = false)
+    private Long clinicId;
+
+    // ALL أو yyyy-MM أو yyyy-MM-dd
+    @Column(name = "period", nullable = false, length = 10)
+    private String period;
+
+    @Column(name = "appointments_total", nullable = false)
+    private Long appointmentsTotal = 0L;
+
+    @Column(name = "appointments_completed", nullable = false)
+    private Long appointmentsCompleted = 0L;
+
+    @Column(name = "appointments_cancelled", nullable = false)
+    private Long appointmentsCancelled = 0L;
+
+    @Column(name = "appointments_no_show", nullable = false)
+    private Long appointmentsNoShow = 0L;
+
+    @Column(name = "invoices_total", nullable = false)
+    private Long invoicesTotal = 0L;
+
+    @Column(name = "invoices_paid", nullable = false)
+    private Long invoicesPaid = 0L;
+
+    @Column(name = "invoices_pending", nullable = false)
+    private Long invoicesPending = 0L;
+
+    @Column(name = "invoices_cancelled", nullable = false)
+    private Long invoicesCancelled = 0L;
+
+    @Column(name = "invoices_paid_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal invoicesPaidAmount = BigDecimal.ZERO;
+
+    @Column(name = "invoices_pending_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal invoicesPendingAmount = BigDecimal.ZERO;
+
+    @Column(name = "invoices_outstanding_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal invoicesOutstandingAmount = BigDecimal.ZERO;
+
+    @Column(name = "payments_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal paymentsAmount = BigDecimal.ZERO;
+
+    @Column(name = "patients_active", nullable = false)
+    private Long patientsActive = 0L;
+
+    @Column(name = "users_total", nullable = false)
+    private Long usersTotal = 0L;
+
+    @Column(name = "users_active", nullable = false)
+    private Long usersActive = 0L;
+
+    @Column(name = "doctors", nullable = false)
+    private Long doctors = 0L;
+
+    @Column(name = "nurses", nullable = false)
+    private Long nurses = 0L;
+
+    @Column(name = "receptionists", nullable = false)
+    private Long receptionists = 0L;
+
+    @Column(name = "active_doctors", nullable = false)
+    private Long activeDoctors = 0L;
+
+    @Column(name = "active_nurses", nullable = false)
+    private Long activeNurses = 0L;
+
+    @Column(name = "active_receptionists", nullable = false)
+    private Long activeReceptionists = 0L;
+
+    @Column(name = "records_total", nullable = false)
+    private Long recordsTotal = 0L;
+
+    @Column(name = "records_draft", nullable = false)
+    private Long recordsDraft = 0L;
+
+    @Column(name = "records_completed", nullable = false)
+    private Long recordsCompleted = 0L;
+
+    @Column(name = "records_reviewed", nullable = false)
+    private Long recordsReviewed = 0L;
+
+    @Column(name = "records_locked", nullable = false)
+    private Long recordsLocked = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public ClinicStatistics() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getClinicId() { return clinicId; }
+    public void setClinicId(Long clinicId) { this.clinicId = clinicId; }
+
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+
+    public Long getAppointmentsTotal() { return appointmentsTotal; }
+    public void setAppointmentsTotal(Long appointmentsTotal) { this.appointmentsTotal = appointmentsTotal; }
+
+    public Long getAppointmentsCompleted() { return appointmentsCompleted; }
+    public void setAppointmentsCompleted(Long appointmentsCompleted) { this.appointmentsCompleted = appointmentsCompleted; }
+
+    public Long getAppointmentsCancelled() { return appointmentsCancelled; }
+    public void setAppointmentsCancelled(Long appointmentsCancelled) { this.appointmentsCancelled = appointmentsCancelled; }
+
+    public Long getAppointmentsNoShow() { return appointmentsNoShow; }
+    public void setAppointmentsNoShow(Long appointmentsNoShow) { this.appointmentsNoShow = appointmentsNoShow; }
+
+    public Long getInvoicesTotal() { return invoicesTotal; }
+    public void setInvoicesTotal(Long invoicesTotal) { this.invoicesTotal = invoicesTotal; }
+
+    public Long getInvoicesPaid() { return invoicesPaid; }
+    public void setInvoicesPaid(Long invoicesPaid) { this.invoicesPaid = invoicesPaid; }
+
+    public Long getInvoicesPending() { return invoicesPending; }
+    public void setInvoicesPending(Long invoicesPending) { this.invoicesPending = invoicesPending; }
+
+    public Long getInvoicesCancelled() { return invoicesCancelled; }
+    public void setInvoicesCancelled(Long invoicesCancelled) { this.invoicesCancelled = invoicesCancelled; }
+
+    public BigDecimal getInvoicesPaidAmount() { return invoicesPaidAmount; }
+    public void setInvoicesPaidAmount(BigDecimal invoicesPaidAmount) { this.invoicesPaidAmount = invoicesPaidAmount; }
+
+    public BigDecimal getInvoicesPendingAmount() { return invoicesPendingAmount; }
+    public void setInvoicesPendingAmount(BigDecimal invoicesPendingAmount) { this.invoicesPendingAmount = invoicesPendingAmount; }
+
+    public BigDecimal getInvoicesOutstandingAmount() { return invoicesOutstandingAmount; }
+    public void setInvoicesOutstandingAmount(BigDecimal invoicesOutstandingAmount) { this.invoicesOutstandingAmount = invoicesOutstandingAmount; }
+
+    public BigDecimal getPaymentsAmount() { return paymentsAmount; }
+    public void setPaymentsAmount(BigDecimal paymentsAmount) { this.paymentsAmount = paymentsAmount; }
+
+    public Long getPatientsActive() { return patientsActive; }
+    public void setPatientsActive(Long patientsActive) { this.patientsActive = patientsActive; }
+
+    public Long getUsersTotal() { return usersTotal; }
+    public void setUsersTotal(Long usersTotal) { this.usersTotal = usersTotal; }
+
+    public Long getUsersActive() { return usersActive; }
+    public void setUsersActive(Long usersActive) { this.usersActive = usersActive; }
+
+    public Long getDoctors() { return doctors; }
+    public void setDoctors(Long doctors) { this.doctors = doctors; }
+
+    public Long getNurses() { return nurses; }
+    public void setNurses(Long nurses) { this.nurses = nurses; }
+
+    public Long getReceptionists() { return receptionists; }
+    public void setReceptionists(Long receptionists) { this.receptionists = receptionists; }
+
+    public Long getActiveDoctors() { return activeDoctors; }
+    public void setActiveDoctors(Long activeDoctors) { this.activeDoctors = activeDoctors; }
+
+    public Long getActiveNurses() { return activeNurses; }
+    public void setActiveNurses(Long activeNurses) { this.activeNurses = activeNurses; }
+
+    public Long getActiveReceptionists() { return activeReceptionists; }
+    public void setActiveReceptionists(Long activeReceptionists) { this.activeReceptionists = activeReceptionists; }
+
+    public Long getRecordsTotal() { return recordsTotal; }
+    public void setRecordsTotal(Long recordsTotal) { this.recordsTotal = recordsTotal; }
+
+    public Long getRecordsDraft() { return recordsDraft; }
+    public void setRecordsDraft(Long recordsDraft) { this.recordsDraft = recordsDraft; }
+
+    public Long getRecordsCompleted() { return recordsCompleted; }
+    public void setRecordsCompleted(Long recordsCompleted) { this.recordsCompleted = recordsCompleted; }
+
+    public Long getRecordsReviewed() { return recordsReviewed; }
+    public void setRecordsReviewed(Long recordsReviewed) { this.recordsReviewed = recordsReviewed; }
+
+    public Long getRecordsLocked() { return recordsLocked; }
+    public void setRecordsLocked(Long recordsLocked) { this.recordsLocked = recordsLocked; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
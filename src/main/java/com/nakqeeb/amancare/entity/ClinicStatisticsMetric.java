@@ -0,0 +1,69 @@
+// =============================================================================
+// Clinic Statistics Metric - مؤشرات إحصائيات العيادة
+// =============================================================================
+
+package com.nakqeeb.amancare.entity;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/**
+ * مؤشر واحد في جدول clinic_statistics (اسم العمود ونوعه)
+ */
+public enum ClinicStatisticsMetric {
+    APPOINTMENTS_TOTAL("appointments_total", false, ClinicStatistics::getAppointmentsTotal), // إجمالي المواعيد
+    APPOINTMENTS_COMPLETED("appointments_completed", false, ClinicStatistics::getAppointmentsCompleted), // المواعيد المكتملة
+    APPOINTMENTS_CANCELLED("appointments_cancelled", false, ClinicStatistics::getAppointmentsCancelled), // المواعيد الملغية
+    APPOINTMENTS_NO_SHOW("appointments_no_show", false, ClinicStatistics::getAppointmentsNoShow), // المواعيد التي لم يحضر لها المريض
+    INVOICES_TOTAL("invoices_total", false, ClinicStatistics::getInvoicesTotal), // إجمالي الفواتير
+    INVOICES_PAID("invoices_paid", false, ClinicStatistics::getInvoicesPaid), // الفواتير المدفوعة
+    INVOICES_PENDING("invoices_pending", false, ClinicStatistics::getInvoicesPending), // الفواتير المعلقة
+    INVOICES_CANCELLED("invoices_cancelled", false, ClinicStatistics::getInvoicesCancelled), // الفواتير الملغية
+    INVOICES_PAID_AMOUNT("invoices_paid_amount", true, ClinicStatistics::getInvoicesPaidAmount), // قيمة الفواتير المدفوعة (الإيرادات)
+    INVOICES_PENDING_AMOUNT("invoices_pending_amount", true, ClinicStatistics::getInvoicesPendingAmount), // المبالغ المعلقة
+    INVOICES_OUTSTANDING_AMOUNT("invoices_outstanding_amount", true, ClinicStatistics::getInvoicesOutstandingAmount), // الأرصدة المستحقة
+    PAYMENTS_AMOUNT("payments_amount", true, ClinicStatistics::getPaymentsAmount), // المبالغ المحصلة
+    PATIENTS_ACTIVE("patients_active", false, ClinicStatistics::getPatientsActive), // المرضى النشطون
+    USERS_TOTAL("users_total", false, ClinicStatistics::getUsersTotal), // إجمالي المستخدمين
+    USERS_ACTIVE("users_active", false, ClinicStatistics::getUsersActive), // المستخدمون النشطون
+    DOCTORS("doctors", false, ClinicStatistics::getDoctors), // الأطباء
+    NURSES("nurses", false, ClinicStatistics::getNurses), // الممرضون
+    RECEPTIONISTS("receptionists", false, ClinicStatistics::getReceptionists), // موظفو الاستقبال
+    ACTIVE_DOCTORS("active_doctors", false, ClinicStatistics::getActiveDoctors), // الأطباء النشطون
+    ACTIVE_NURSES("active_nurses", false, ClinicStatistics::getActiveNurses), // الممرضون النشطون
+    ACTIVE_RECEPTIONISTS("active_receptionists", false, ClinicStatistics::getActiveReceptionists), // موظفو الاستقبال النشطون
+    RECORDS_TOTAL("records_total", false, ClinicStatistics::getRecordsTotal), // إجمالي السجلات الطبية
+    RECORDS_DRAFT("records_draft", false, ClinicStatistics::getRecordsDraft), // السجلات المسودة
+    RECORDS_COMPLETED("records_completed", false, ClinicStatistics::getRecordsCompleted), // السجلات المكتملة
+    RECORDS_REVIEWED("records_reviewed", false, ClinicStatistics::getRecordsReviewed), // السجلات المراجعة
+    RECORDS_LOCKED("records_locked", false, ClinicStatistics::getRecordsLocked); // السجلات المقفلة
+
+    private final String column;
+    private final boolean amount;
+    private final Function<ClinicStatistics, Number> getter;
+
+    ClinicStatisticsMetric(String column, boolean amount, Function<ClinicStatistics, Number> getter) {
+        this.column = column;
+        this.amount = amount;
+        this.getter = getter;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * true للمبالغ المالية (DECIMAL)، false للأعداد (BIGINT)
+     */
+    public boolean isAmount() {
+        return amount;
+    }
+
+    public BigDecimal valueOf(ClinicStatistics statistics) {
+        Number value = getter.apply(statistics);
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : BigDecimal.valueOf(value.longValue());
+    }
+}
@@ -0,0 +1,61 @@
+// =============================================================================
+// Doctor Day Lock Entity - قفل حجز يوم الطبيب
+// =============================================================================
+
+package com.nakqeeb.amancare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * صف واحد لكل طبيب ويوم يُقفل أثناء حجز أو تعديل موعد في ذلك اليوم
+ * Booking transactions take a row lock here with an atomic UPDATE (see
+ * DoctorDayLockRepository.acquire) before checking for overlaps. Two bookings for
+ * the same doctor and day therefore run one after the other. Bookings for other
+ * doctors or days do not wait.
+ */
+@Entity
+@Table(name = "doctor_day_locks",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "unique_doctor_day_lock", columnNames = {"doctor_id", "lock_date"})
+        })
+public class DoctorDayLock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "lock_date", nullable = false)
+    private LocalDate lockDate;
+
+    // عدد مرات الحجز/التعديل في هذا اليوم
+    @Column(name = "reservations", nullable = false)
+    private Long reservations = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public DoctorDayLock() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public LocalDate getLockDate() { return lockDate; }
+    public void setLockDate(LocalDate lockDate) { this.lockDate = lockDate; }
+
+    public Long getReservations() { return reservations; }
+    public void setReservations(Long reservations) { this.reservations = reservations; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
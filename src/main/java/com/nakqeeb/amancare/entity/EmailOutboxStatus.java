@@ -0,0 +1,18 @@
+package com.nakqeeb.amancare.entity;
+
+/**
+ * حالة رسالة البريد في صندوق الإرسال
+ */
+public enum EmailOutboxStatus {
+    PENDING("بانتظار الإرسال"),
+    SENT("مُرسلة"),
+    DEAD("فشلت نهائياً");
+
+    private final String arabicName;
+
+    EmailOutboxStatus(String arabicName) {
+        this.arabicName = arabicName;
+    }
+
+    public String getArabicName() { return arabicName; }
+}
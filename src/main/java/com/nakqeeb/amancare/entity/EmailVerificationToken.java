@@ -12,7 +12,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "email_verification_tokens")
+@Table(name = "email_verification_tokens",
+        indexes = {
+                @Index(name = "idx_email_verification_tokens_expiry", columnList = "expiry_date")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
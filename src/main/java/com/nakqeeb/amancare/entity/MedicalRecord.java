@@ -20,7 +20,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "medical_records")
+@NamedEntityGraph(name = MedicalRecord.SUMMARY_GRAPH,
+        attributeNodes = {@NamedAttributeNode("patient"), @NamedAttributeNode("doctor")})
+@NamedEntityGraph(name = MedicalRecord.DETAIL_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("patient"),
+                @NamedAttributeNode("doctor"),
+                @NamedAttributeNode("clinic"),
+                @NamedAttributeNode("diagnosis")
+        })
+@Table(name = "medical_records",
+        indexes = {
+                @Index(name = "idx_medical_records_clinic_visit", columnList = "clinic_id, visit_date")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,6 +40,13 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = false)
 public class MedicalRecord {
 
+    /**
+     * خطط التحميل: القوائم تحمّل المريض والطبيب فقط بدون أي مجموعات،
+     * والتفاصيل (وتصدير PDF) تحمّل التشخيصات مع السجل وبقية المجموعات باستعلام واحد لكل مجموعة
+     */
+    public static final String SUMMARY_GRAPH = "MedicalRecord.summary";
+    public static final String DETAIL_GRAPH = "MedicalRecord.detail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -104,12 +123,12 @@ public class MedicalRecord {
     @Size(max = 1000, message = "التاريخ الاجتماعي يجب أن يكون أقل من 1000 حرف")
     private String socialHistory;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "medical_record_allergies", joinColumns = @JoinColumn(name = "medical_record_id"))
     @Column(name = "allergy", length = 255)
     private List<String> allergies = new ArrayList<>();
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
     @CollectionTable(name = "medical_record_medications", joinColumns = @JoinColumn(name = "medical_record_id"))
     @Column(name = "medication", length = 255)
     private List<String> currentMedications = new ArrayList<>();
@@ -0,0 +1,68 @@
+// =============================================================================
+// Medical Record Search Document - نص البحث المفهرس للسجل الطبي
+// =============================================================================
+
+package com.nakqeeb.amancare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * نص البحث الموحد لكل سجل طبي (الشكوى، خطة العلاج، الملاحظات، التشخيصات)
+ * One row per medical record holding its searchable text, already normalized
+ * with MedicalRecordSearchService.normalizeForIndex. The FULLTEXT (ngram) index on content is
+ * created by MedicalRecordSearchService because JPA cannot declare a parser.
+ */
+@Entity
+@Table(name = "medical_record_search",
+        indexes = {
+                @Index(name = "idx_record_search_clinic", columnList = "clinic_id")
+        })
+public class MedicalRecordSearchDocument {
+
+    @Id
+    @Column(name = "medical_record_id")
+    private Long medicalRecordId;
+
+    @Column(name = "clinic_id", nullable = false)
+    private Long clinicId;
+
+    @Column(name = "content", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String content;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public Long getMedicalRecordId() {
+        return medicalRecordId;
+    }
+
+    public void setMedicalRecordId(Long medicalRecordId) {
+        this.medicalRecordId = medicalRecordId;
+    }
+
+    public Long getClinicId() {
+        return clinicId;
+    }
+
+    public void setClinicId(Long clinicId) {
+        this.clinicId = clinicId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,67 @@
+// =============================================================================
+// Number Counter Entity - كيان عدادات الأرقام المتسلسلة
+// =============================================================================
+
+package com.nakqeeb.amancare.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * عداد لكل عيادة ونوع وفترة (مثلاً فواتير شهر معين)
+ * The row is only ever changed with an atomic UPDATE ... SET last_value = last_value + n
+ * (see NumberCounterRepository), so concurrent allocators never hand out the same value.
+ */
+@Entity
+@Table(name = "number_counters",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "unique_counter_clinic_type_period",
+                        columnNames = {"clinic_id", "counter_type", "period"})
+        })
+public class NumberCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "clinic_id", nullable = false)
+    private Long clinicId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "counter_type", nullable = false, length = 20)
+    private NumberCounterType counterType;
+
+    // yyyyMM للعدادات الشهرية، ALL للعدادات غير المرتبطة بفترة
+    @Column(name = "period", nullable = false, length = 10)
+    private String period;
+
+    // آخر قيمة تم حجزها
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public NumberCounter() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getClinicId() { return clinicId; }
+    public void setClinicId(Long clinicId) { this.clinicId = clinicId; }
+
+    public NumberCounterType getCounterType() { return counterType; }
+    public void setCounterType(NumberCounterType counterType) { this.counterType = counterType; }
+
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+
+    public Long getLastValue() { return lastValue; }
+    public void setLastValue(Long lastValue) { this.lastValue = lastValue; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
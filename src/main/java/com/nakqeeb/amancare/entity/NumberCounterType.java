@@ -0,0 +1,17 @@
+package com.nakqeeb.amancare.entity;
+
+/**
+ * نوع العداد المستخدم لتوليد الأرقام المتسلسلة
+ */
+public enum NumberCounterType {
+    INVOICE("رقم الفاتورة"),
+    PATIENT("رقم المريض");
+
+    private final String arabicName;
+
+    NumberCounterType(String arabicName) {
+        this.arabicName = arabicName;
+    }
+
+    public String getArabicName() { return arabicName; }
+}
@@ -11,7 +11,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "password_reset_tokens")
+@Table(name = "password_reset_tokens",
+        indexes = {
+                @Index(name = "idx_password_reset_tokens_expiry", columnList = "expiry_date")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
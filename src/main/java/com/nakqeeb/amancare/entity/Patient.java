@@ -20,7 +20,8 @@ import java.util.List;
 @Table(name = "patients",
         indexes = {
                 @Index(name = "idx_clinic_name", columnList = "clinic_id, first_name, last_name"),
-                @Index(name = "idx_clinic_phone", columnList = "clinic_id, phone")
+                @Index(name = "idx_clinic_phone", columnList = "clinic_id, phone"),
+                @Index(name = "idx_patient_clinic_updated", columnList = "clinic_id, updated_at")
         },
         uniqueConstraints = {
                 @UniqueConstraint(name = "unique_patient_clinic", columnNames = {"clinic_id", "patient_number"})
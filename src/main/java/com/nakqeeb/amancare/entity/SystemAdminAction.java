@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
  * كيان لتسجيل جميع إجراءات SYSTEM_ADMIN عند التصرف نيابة عن العيادات
  */
 @Entity
-@Table(name = "system_admin_actions")
+@Table(name = "system_admin_actions", indexes = {
+        @Index(name = "idx_admin_action_created_at", columnList = "created_at")
+})
 public class SystemAdminAction {
 
     @Id
@@ -7,6 +7,7 @@ package com.nakqeeb.amancare.exception;
 import com.nakqeeb.amancare.dto.response.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -15,6 +16,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -88,6 +90,32 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    /**
+     * معالجة أخطاء التحقق من معاملات الطلب (@Min / @Max على @RequestParam)
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<ApiResponse<Object>> handleMethodValidationException(
+            HandlerMethodValidationException ex, WebRequest request) {
+
+        Map<String, String> validationErrors = new HashMap<>();
+        ex.getParameterValidationResults().forEach(result -> {
+            String parameterName = result.getMethodParameter().getParameterName();
+            result.getResolvableErrors().forEach(error ->
+                    validationErrors.put(parameterName, error.getDefaultMessage()));
+        });
+
+        ApiResponse<Object> response = new ApiResponse<>();
+        response.setSuccess(false);
+        response.setMessage("بيانات الإدخال غير صحيحة");
+        response.setData(Map.of(
+                "validationErrors", validationErrors,
+                "timestamp", LocalDateTime.now(),
+                "path", request.getDescription(false).replace("uri=", "")
+        ));
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     /**
      * معالجة استثناءات المصادقة
      */
@@ -399,6 +427,40 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    /**
+     * Handle LimitExceededException (too many concurrent heavy requests)
+     */
+    @ExceptionHandler(LimitExceededException.class)
+    public ResponseEntity<ApiResponse<Object>> handleLimitExceededException(
+            LimitExceededException ex, WebRequest request) {
+
+        logger.warn("Limit exceeded: {}", ex.getMessage());
+
+        ApiResponse<Object> response = new ApiResponse<>();
+        response.setSuccess(false);
+        response.setMessage(ex.getMessage());
+        response.setData(createErrorDetails(ex, request));
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+    }
+
+    /**
+     * Handle TaskRejectedException (download/export executor is saturated)
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTaskRejectedException(
+            TaskRejectedException ex, WebRequest request) {
+
+        logger.warn("Task rejected: {}", ex.getMessage());
+
+        ApiResponse<Object> response = new ApiResponse<>();
+        response.setSuccess(false);
+        response.setMessage("الخادم مشغول حالياً، يرجى المحاولة لاحقاً");
+        response.setData(createErrorDetails(ex, request));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     /**
      * Handle ForbiddenOperationException
      */
@@ -3,21 +3,56 @@
 package com.nakqeeb.amancare.filter;
 
 import com.nakqeeb.amancare.config.RateLimitConfig;
-import io.github.bucket4j.Bucket;
+import com.nakqeeb.amancare.config.RateLimitPolicy;
+import com.nakqeeb.amancare.service.InMemoryRateLimitStore;
+import com.nakqeeb.amancare.service.RateLimitStore;
 import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * تحديد معدل الطلبات حسب السياسة وعنوان العميل
+ * Throttled requests are counted in the rate.limit.throttled meter (tag: policy);
+ * rate.limit.buckets reports how many client buckets each policy holds.
+ * Buckets live in the RateLimitStore bean if one is defined (a shared store),
+ * otherwise in a per-node InMemoryRateLimitStore.
+ */
 @Component
-@RequiredArgsConstructor
 public class RateLimitFilter implements Filter {
 
     private final RateLimitConfig rateLimitConfig;
+    private final RateLimitStore rateLimitStore;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Counter> throttledCounters = new HashMap<>();
+
+    public RateLimitFilter(RateLimitConfig rateLimitConfig, ObjectProvider<RateLimitStore> rateLimitStores,
+                           MeterRegistry meterRegistry) {
+        this.rateLimitConfig = rateLimitConfig;
+        this.rateLimitStore = rateLimitStores.getIfAvailable(
+                () -> new InMemoryRateLimitStore(rateLimitConfig.getMaxKeysPerPolicy()));
+
+        for (RateLimitPolicy policy : rateLimitConfig.getPolicies()) {
+            throttledCounters.put(policy.name(), Counter.builder("rate.limit.throttled")
+                    .tag("policy", policy.name())
+                    .register(meterRegistry));
+            Gauge.builder("rate.limit.buckets", rateLimitStore, store -> store.size(policy))
+                    .tag("policy", policy.name())
+                    .register(meterRegistry);
+        }
+    }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -26,33 +61,68 @@ public class RateLimitFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        // Apply rate limiting only to guest booking endpoints
-        String requestURI = httpRequest.getRequestURI();
-        if (requestURI.startsWith("/api/v1/guest/book-appointment")) {
-            String key = getClientIP(httpRequest);
-            Bucket bucket = rateLimitConfig.resolveBucket(key);
-            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
-
-            if (probe.isConsumed()) {
-                httpResponse.addHeader("X-Rate-Limit-Remaining",
-                        String.valueOf(probe.getRemainingTokens()));
-                chain.doFilter(request, response);
-            } else {
-                httpResponse.setStatus(429); // Too Many Requests
-                httpResponse.getWriter().write(
-                        "{\"success\": false, \"message\": \"تم تجاوز حد الطلبات. يرجى المحاولة لاحقاً\"}"
-                );
-            }
-        } else {
+        RateLimitPolicy policy = rateLimitConfig.isEnabled() ? findPolicy(httpRequest) : null;
+        if (policy == null) {
             chain.doFilter(request, response);
+            return;
+        }
+
+        String key = getClientIP(httpRequest);
+        ConsumptionProbe probe = rateLimitStore.tryConsume(policy, key);
+
+        if (probe.isConsumed()) {
+            httpResponse.addHeader("X-Rate-Limit-Remaining",
+                    String.valueOf(probe.getRemainingTokens()));
+            chain.doFilter(request, response);
+        } else {
+            throttledCounters.get(policy.name()).increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
+            httpResponse.setStatus(429); // Too Many Requests
+            httpResponse.addHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            httpResponse.setContentType("application/json");
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            httpResponse.getWriter().write(
+                    "{\"success\": false, \"message\": \"تم تجاوز حد الطلبات. يرجى المحاولة لاحقاً\"}"
+            );
         }
     }
 
+    /**
+     * أول سياسة تطابق طريقة الطلب ومساره (بدون context-path)
+     */
+    private RateLimitPolicy findPolicy(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RateLimitPolicy policy : rateLimitConfig.getPolicies()) {
+            if (policy.method() != null && !policy.method().equalsIgnoreCase(request.getMethod())) {
+                continue;
+            }
+            for (String pattern : policy.patterns()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * عنوان العميل: يُعتمد X-Forwarded-For فقط إذا وصل الطلب من وكيل موثوق،
+     * ويؤخذ أقرب عنوان غير موثوق من اليمين (لا يمكن للعميل تزويره)
+     */
     private String getClientIP(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
         String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
+        if (xfHeader == null || !rateLimitConfig.isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String[] hops = xfHeader.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !rateLimitConfig.isTrustedProxy(hop)) {
+                return hop;
+            }
         }
-        return xfHeader.split(",")[0];
+        return remoteAddr;
     }
-}
\ No newline at end of file
+}
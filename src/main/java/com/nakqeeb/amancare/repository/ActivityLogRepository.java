@@ -9,6 +9,7 @@ import com.nakqeeb.amancare.entity.ActivityLog;
 import com.nakqeeb.amancare.entity.ActionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -205,4 +206,34 @@ public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long>
      * Delete all logs for a specific clinic (when clinic is deleted)
      */
     void deleteByClinicId(Long clinicId);
-}
\ No newline at end of file
+
+    // =============================================================================
+    // KEYSET PAGINATION
+    // =============================================================================
+
+    /**
+     * Search activities by cursor: (timestamp, id) descending, without a count query
+     */
+    @Query("SELECT a FROM ActivityLog a WHERE a.clinicId = :clinicId " +
+            "AND (:userId IS NULL OR a.userId = :userId) " +
+            "AND (:actionType IS NULL OR a.actionType = :actionType) " +
+            "AND (:entityType IS NULL OR a.entityType = :entityType) " +
+            "AND (:startDate IS NULL OR a.timestamp >= :startDate) " +
+            "AND (:endDate IS NULL OR a.timestamp <= :endDate) " +
+            "AND (:searchTerm IS NULL OR LOWER(a.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+            "    OR LOWER(a.entityName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
+            "AND (:afterId IS NULL OR a.timestamp < :afterTimestamp " +
+            "     OR (a.timestamp = :afterTimestamp AND a.id < :afterId)) " +
+            "ORDER BY a.timestamp DESC, a.id DESC")
+    Slice<ActivityLog> searchActivitiesAfterCursor(
+            @Param("clinicId") Long clinicId,
+            @Param("userId") Long userId,
+            @Param("actionType") ActionType actionType,
+            @Param("entityType") String entityType,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("searchTerm") String searchTerm,
+            @Param("afterTimestamp") LocalDateTime afterTimestamp,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+}
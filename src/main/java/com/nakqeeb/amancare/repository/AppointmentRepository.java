@@ -9,15 +9,20 @@ import com.nakqeeb.amancare.entity.AppointmentStatus;
 import com.nakqeeb.amancare.entity.Clinic;
 import com.nakqeeb.amancare.entity.Patient;
 import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.repository.projection.AppointmentListView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,6 +80,44 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByDoctorAndAppointmentDateAndStatus(User doctor, LocalDate date, AppointmentStatus status);
     Page<Appointment> findByDoctorAndAppointmentDateAndStatus(User doctor, LocalDate date, AppointmentStatus status, Pageable pageable);
 
+    /**
+     * قائمة المواعيد كإسقاط: استعلام واحد للصفحة بدلاً من تحميل المريض والطبيب والمنشئ لكل صف
+     * clinicId null returns all clinics (SYSTEM_ADMIN)
+     */
+    @Query(value = "SELECT a.id AS id, " +
+            "p.id AS patientId, p.patientNumber AS patientNumber, p.firstName AS patientFirstName, " +
+            "p.lastName AS patientLastName, p.phone AS patientPhone, p.dateOfBirth AS patientDateOfBirth, " +
+            "d.id AS doctorId, d.firstName AS doctorFirstName, d.lastName AS doctorLastName, " +
+            "d.specialization AS doctorSpecialization, " +
+            "a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime, " +
+            "a.durationMinutes AS durationMinutes, a.isDurationOverridden AS isDurationOverridden, " +
+            "a.originalDurationMinutes AS originalDurationMinutes, a.overrideReason AS overrideReason, " +
+            "a.tokenNumber AS tokenNumber, a.appointmentType AS appointmentType, a.status AS status, " +
+            "a.chiefComplaint AS chiefComplaint, a.notes AS notes, " +
+            "a.createdAt AS createdAt, a.updatedAt AS updatedAt, " +
+            "cb.firstName AS createdByFirstName, cb.lastName AS createdByLastName " +
+            "FROM Appointment a JOIN a.patient p JOIN a.doctor d LEFT JOIN a.createdBy cb " +
+            "WHERE (:clinicId IS NULL OR a.clinic.id = :clinicId) " +
+            "AND (:date IS NULL OR a.appointmentDate = :date) " +
+            "AND (:doctorId IS NULL OR d.id = :doctorId) " +
+            "AND (:status IS NULL OR a.status = :status)",
+            countQuery = "SELECT COUNT(a) FROM Appointment a " +
+                    "WHERE (:clinicId IS NULL OR a.clinic.id = :clinicId) " +
+                    "AND (:date IS NULL OR a.appointmentDate = :date) " +
+                    "AND (:doctorId IS NULL OR a.doctor.id = :doctorId) " +
+                    "AND (:status IS NULL OR a.status = :status)")
+    Page<AppointmentListView> findListViews(@Param("clinicId") Long clinicId,
+                                            @Param("date") LocalDate date,
+                                            @Param("doctorId") Long doctorId,
+                                            @Param("status") AppointmentStatus status,
+                                            Pageable pageable);
+
+    /**
+     * عدد المواعيد لكل مريض في صفحة المرضى: [patientId, count]
+     */
+    @Query("SELECT a.patient.id, COUNT(a) FROM Appointment a WHERE a.patient.id IN :patientIds GROUP BY a.patient.id")
+    List<Object[]> countByPatientIds(@Param("patientIds") Collection<Long> patientIds);
+
     // =============================================================================
     // الدوال المُصححة - تم تبسيط المنطق
     // =============================================================================
@@ -99,6 +142,34 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findDoctorAppointmentsForConflictCheck(@Param("doctor") User doctor,
                                                              @Param("date") LocalDate date);
 
+    /**
+     * آخر موعد نشط يبدأ قبل الوقت المحدد؛ المواعيد النشطة لا تتداخل، لذلك هو الوحيد الذي قد يمتد إلى الوقت
+     * قراءة مقفلة (FOR UPDATE) حتى ترى آخر حجز ملتزم وليس لقطة المعاملة
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.appointmentDate = :date AND " +
+            "a.appointmentTime < :time AND a.status NOT IN ('CANCELLED', 'NO_SHOW') AND " +
+            "(:excludeId IS NULL OR a.id <> :excludeId) ORDER BY a.appointmentTime DESC")
+    List<Appointment> findActiveStartingBefore(@Param("doctor") User doctor,
+                                               @Param("date") LocalDate date,
+                                               @Param("time") LocalTime time,
+                                               @Param("excludeId") Long excludeId,
+                                               Pageable pageable);
+
+    /**
+     * المواعيد النشطة التي تبدأ في الفترة [from, to)، بقراءة مقفلة مثل findActiveStartingBefore
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.appointmentDate = :date AND " +
+            "a.appointmentTime >= :from AND a.appointmentTime < :to AND " +
+            "a.status NOT IN ('CANCELLED', 'NO_SHOW') AND " +
+            "(:excludeId IS NULL OR a.id <> :excludeId) ORDER BY a.appointmentTime")
+    List<Appointment> findActiveStartingBetween(@Param("doctor") User doctor,
+                                                @Param("date") LocalDate date,
+                                                @Param("from") LocalTime from,
+                                                @Param("to") LocalTime to,
+                                                @Param("excludeId") Long excludeId);
+
     // =============================================================================
     // باقي الدوال (لم تتغير)
     // =============================================================================
@@ -170,7 +241,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      * Count today's appointments in a clinic
      */
     @Query("SELECT COUNT(a) FROM Appointment a WHERE a.clinic = :clinic " +
-            "AND DATE(a.appointmentDate) = :date " +
+            "AND a.appointmentDate = :date " +
             "AND a.status NOT IN ('CANCELLED', 'NO_SHOW')")
     long countTodayAppointmentsByClinic(@Param("clinic") Clinic clinic,
                                         @Param("date") LocalDate date);
@@ -231,6 +302,26 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             Integer tokenNumber
     );
 
+    /**
+     * أوقات ومدد المواعيد النشطة للطبيب في تاريخ معين (بدون تحميل الكيانات)
+     * Returns [appointmentTime, durationMinutes] rows for non-cancelled appointments
+     */
+    @Query("SELECT a.appointmentTime, a.durationMinutes FROM Appointment a " +
+            "WHERE a.doctor = :doctor AND a.appointmentDate = :date AND a.status != 'CANCELLED'")
+    List<Object[]> findBookedIntervalsByDoctorAndDate(@Param("doctor") User doctor,
+                                                       @Param("date") LocalDate date);
+
+    /**
+     * المواعيد النشطة لمجموعة أطباء في فترة زمنية (لمصفوفة التوفر)
+     * Returns [doctorId, appointmentDate, appointmentTime, durationMinutes] rows
+     */
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.appointmentTime, a.durationMinutes FROM Appointment a " +
+            "WHERE a.doctor.id IN :doctorIds AND a.appointmentDate BETWEEN :startDate AND :endDate " +
+            "AND a.status != 'CANCELLED'")
+    List<Object[]> findBookedIntervalsByDoctorsAndDateRange(@Param("doctorIds") Collection<Long> doctorIds,
+                                                            @Param("startDate") LocalDate startDate,
+                                                            @Param("endDate") LocalDate endDate);
+
     /**
      * Find all appointments for a doctor on a specific date ordered by token number
      */
@@ -262,4 +353,43 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("date") LocalDate date,
             @Param("time") LocalTime time
     );
-}
\ No newline at end of file
+
+    // =============================================================================
+    // KEYSET PAGINATION
+    // =============================================================================
+
+    /**
+     * المواعيد بالترقيم بالمؤشر كإسقاط: (التاريخ، الوقت، المعرف) تصاعدياً، بدون استعلام عد
+     * Same columns and joins as findListViews, so a page is one statement.
+     * afterId is null for the first page; otherwise the page starts after the given key
+     */
+    @Query("SELECT a.id AS id, " +
+            "p.id AS patientId, p.patientNumber AS patientNumber, p.firstName AS patientFirstName, " +
+            "p.lastName AS patientLastName, p.phone AS patientPhone, p.dateOfBirth AS patientDateOfBirth, " +
+            "d.id AS doctorId, d.firstName AS doctorFirstName, d.lastName AS doctorLastName, " +
+            "d.specialization AS doctorSpecialization, " +
+            "a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime, " +
+            "a.durationMinutes AS durationMinutes, a.isDurationOverridden AS isDurationOverridden, " +
+            "a.originalDurationMinutes AS originalDurationMinutes, a.overrideReason AS overrideReason, " +
+            "a.tokenNumber AS tokenNumber, a.appointmentType AS appointmentType, a.status AS status, " +
+            "a.chiefComplaint AS chiefComplaint, a.notes AS notes, " +
+            "a.createdAt AS createdAt, a.updatedAt AS updatedAt, " +
+            "cb.firstName AS createdByFirstName, cb.lastName AS createdByLastName " +
+            "FROM Appointment a JOIN a.patient p JOIN a.doctor d LEFT JOIN a.createdBy cb " +
+            "WHERE (:clinicId IS NULL OR a.clinic.id = :clinicId) " +
+            "AND (:date IS NULL OR a.appointmentDate = :date) " +
+            "AND (:doctorId IS NULL OR d.id = :doctorId) " +
+            "AND (:status IS NULL OR a.status = :status) " +
+            "AND (:afterId IS NULL OR a.appointmentDate > :afterDate " +
+            "     OR (a.appointmentDate = :afterDate AND (a.appointmentTime > :afterTime " +
+            "     OR (a.appointmentTime = :afterTime AND a.id > :afterId)))) " +
+            "ORDER BY a.appointmentDate ASC, a.appointmentTime ASC, a.id ASC")
+    Slice<AppointmentListView> findListViewsAfterCursor(@Param("clinicId") Long clinicId,
+                                                        @Param("date") LocalDate date,
+                                                        @Param("doctorId") Long doctorId,
+                                                        @Param("status") AppointmentStatus status,
+                                                        @Param("afterDate") LocalDate afterDate,
+                                                        @Param("afterTime") LocalTime afterTime,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+}
@@ -0,0 +1,33 @@
+// =============================================================================
+// Clinic Statistics Repository - مستودع إحصائيات العيادات
+// =============================================================================
+
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.ClinicStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * مستودع إحصائيات العيادات (الكتابة تتم عبر ClinicStatisticsService)
+ */
+@Repository
+public interface ClinicStatisticsRepository extends JpaRepository<ClinicStatistics, Long> {
+
+    /**
+     * صفوف الفترات المطلوبة للعيادة (الإجمالي والشهر والأيام)
+     */
+    List<ClinicStatistics> findByClinicIdAndPeriodIn(Long clinicId, Collection<String> periods);
+
+    /**
+     * العيادات التي لم تُحسب إحصائياتها بعد
+     */
+    @Query(value = "SELECT c.id FROM clinics c WHERE NOT EXISTS " +
+            "(SELECT 1 FROM clinic_statistics s WHERE s.clinic_id = c.id AND s.period = 'ALL')",
+            nativeQuery = true)
+    List<Long> findClinicIdsWithoutStatistics();
+}
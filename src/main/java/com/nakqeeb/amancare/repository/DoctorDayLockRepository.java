@@ -0,0 +1,39 @@
+// =============================================================================
+// Doctor Day Lock Repository - مستودع أقفال أيام الأطباء
+// =============================================================================
+
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.DoctorDayLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * مستودع أقفال أيام الأطباء
+ */
+@Repository
+public interface DoctorDayLockRepository extends JpaRepository<DoctorDayLock, Long> {
+
+    boolean existsByDoctorIdAndLockDate(Long doctorId, LocalDate lockDate);
+
+    /**
+     * قفل يوم الطبيب (يبقى القفل حتى نهاية المعاملة)
+     */
+    @Modifying
+    @Query("UPDATE DoctorDayLock l SET l.reservations = l.reservations + 1, l.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE l.doctorId = :doctorId AND l.lockDate = :lockDate")
+    int acquire(@Param("doctorId") Long doctorId, @Param("lockDate") LocalDate lockDate);
+
+    /**
+     * إنشاء صف القفل إن لم يكن موجوداً (آمن عند التزامن بفضل القيد الفريد)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO doctor_day_locks (doctor_id, lock_date, reservations, updated_at) " +
+            "VALUES (:doctorId, :lockDate, 0, NOW())", nativeQuery = true)
+    int insertIfAbsent(@Param("doctorId") Long doctorId, @Param("lockDate") LocalDate lockDate);
+}
@@ -6,6 +6,8 @@ package com.nakqeeb.amancare.repository;
 
 import com.nakqeeb.amancare.entity.DoctorSchedule;
 import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.projection.DoctorDayAvailabilityView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Repository;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +42,29 @@ public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule,
                                                       @Param("dayOfWeek") DayOfWeek dayOfWeek,
                                                       @Param("date") LocalDate date);
 
+    /**
+     * جداول الطبيب السارية في يوم معين (الأحدث أولاً)
+     * List variant of findDoctorScheduleForDay that tolerates overlapping rows
+     */
+    @Query("SELECT ds FROM DoctorSchedule ds WHERE ds.doctor = :doctor AND ds.dayOfWeek = :dayOfWeek " +
+            "AND ds.isActive = true AND (ds.effectiveDate IS NULL OR ds.effectiveDate <= :date) " +
+            "AND (ds.endDate IS NULL OR ds.endDate >= :date) " +
+            "ORDER BY ds.effectiveDate DESC")
+    List<DoctorSchedule> findDoctorSchedulesForDay(@Param("doctor") User doctor,
+                                                   @Param("dayOfWeek") DayOfWeek dayOfWeek,
+                                                   @Param("date") LocalDate date);
+
+    /**
+     * الجداول النشطة لمجموعة أطباء السارية في أي يوم ضمن فترة (لمصفوفة التوفر)
+     */
+    @Query("SELECT ds FROM DoctorSchedule ds WHERE ds.doctor.id IN :doctorIds AND ds.isActive = true " +
+            "AND (ds.effectiveDate IS NULL OR ds.effectiveDate <= :endDate) " +
+            "AND (ds.endDate IS NULL OR ds.endDate >= :startDate) " +
+            "ORDER BY ds.effectiveDate DESC")
+    List<DoctorSchedule> findActiveSchedulesForDoctorsInRange(@Param("doctorIds") Collection<Long> doctorIds,
+                                                              @Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate);
+
     /**
      * البحث عن جميع الأطباء المتاحين في يوم ووقت معين
      */
@@ -112,4 +138,23 @@ public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule,
             "AND a.status NOT IN ('CANCELLED')")
     long countActiveAppointmentsOnDate(@Param("doctor") User doctor,
                                        @Param("date") LocalDate date);
+
+    /**
+     * جداول جميع الأطباء النشطين السارية في يوم معين مع أوقات عدم التوفر في نفس اليوم (استعلام واحد)
+     */
+    @Query("SELECT d.id AS doctorId, d.firstName AS doctorFirstName, d.lastName AS doctorLastName, " +
+            "d.specialization AS specialization, c.id AS clinicId, c.name AS clinicName, " +
+            "ds.id AS scheduleId, ds.effectiveDate AS effectiveDate, ds.startTime AS startTime, " +
+            "ds.endTime AS endTime, ds.breakStartTime AS breakStartTime, ds.breakEndTime AS breakEndTime, " +
+            "u.id AS unavailabilityId, u.startTime AS unavailableFrom, u.endTime AS unavailableTo " +
+            "FROM DoctorSchedule ds JOIN ds.doctor d JOIN d.clinic c " +
+            "LEFT JOIN DoctorUnavailability u ON u.doctor = d AND u.unavailableDate = :date " +
+            "WHERE d.role = :role AND d.isActive = true " +
+            "AND ds.dayOfWeek = :dayOfWeek AND ds.isActive = true " +
+            "AND (ds.effectiveDate IS NULL OR ds.effectiveDate <= :date) " +
+            "AND (ds.endDate IS NULL OR ds.endDate >= :date) " +
+            "ORDER BY d.id, ds.effectiveDate DESC, ds.id")
+    List<DoctorDayAvailabilityView> findDayAvailability(@Param("role") UserRole role,
+                                                        @Param("dayOfWeek") DayOfWeek dayOfWeek,
+                                                        @Param("date") LocalDate date);
 }
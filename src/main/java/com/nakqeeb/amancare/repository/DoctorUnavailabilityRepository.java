@@ -12,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -42,4 +43,13 @@ public interface DoctorUnavailabilityRepository extends JpaRepository<DoctorUnav
             "AND du.unavailableDate = :date")
     List<DoctorUnavailability> findByClinicAndDate(@Param("clinicId") Long clinicId,
                                                    @Param("date") LocalDate date);
-}
\ No newline at end of file
+
+    /**
+     * عدم التوفر لمجموعة أطباء في فترة زمنية (لمصفوفة التوفر)
+     */
+    @Query("SELECT du FROM DoctorUnavailability du WHERE du.doctor.id IN :doctorIds " +
+            "AND du.unavailableDate BETWEEN :startDate AND :endDate")
+    List<DoctorUnavailability> findByDoctorIdsAndDateRange(@Param("doctorIds") Collection<Long> doctorIds,
+                                                           @Param("startDate") LocalDate startDate,
+                                                           @Param("endDate") LocalDate endDate);
+}
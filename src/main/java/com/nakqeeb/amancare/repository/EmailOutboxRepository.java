@@ -0,0 +1,38 @@
+// =============================================================================
+// Email Outbox Repository - مستودع صندوق البريد الصادر
+// =============================================================================
+
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.EmailOutbox;
+import com.nakqeeb.amancare.entity.EmailOutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * مستودع صندوق البريد الصادر
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * الرسائل المستحقة للإرسال مع قفلها وتخطي المقفلة لدى مرسل آخر (SKIP LOCKED)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status = :status AND e.nextAttemptAt <= :now " +
+            "ORDER BY e.nextAttemptAt, e.id")
+    List<EmailOutbox> findDueForUpdate(@Param("status") EmailOutboxStatus status,
+                                       @Param("now") LocalDateTime now,
+                                       Pageable pageable);
+}
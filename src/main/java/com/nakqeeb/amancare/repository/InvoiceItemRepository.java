@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +25,12 @@ public interface InvoiceItemRepository extends JpaRepository<InvoiceItem, Long>
      */
     List<InvoiceItem> findByInvoice(Invoice invoice);
 
+    /**
+     * بنود مجموعة فواتير (صفحة من قائمة الفواتير) باستعلام واحد
+     */
+    @Query("SELECT it FROM InvoiceItem it WHERE it.invoice.id IN :invoiceIds ORDER BY it.id")
+    List<InvoiceItem> findByInvoiceIds(@Param("invoiceIds") Collection<Long> invoiceIds);
+
     /**
      * البحث عن العناصر الأكثر شيوعاً في العيادة
      */
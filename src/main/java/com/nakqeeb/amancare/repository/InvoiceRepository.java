@@ -8,8 +8,10 @@ import com.nakqeeb.amancare.entity.Clinic;
 import com.nakqeeb.amancare.entity.Invoice;
 import com.nakqeeb.amancare.entity.InvoiceStatus;
 import com.nakqeeb.amancare.entity.Patient;
+import com.nakqeeb.amancare.repository.projection.InvoiceListView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -142,6 +144,14 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
             "ORDER BY i.createdAt DESC LIMIT 1")
     Optional<String> findLastInvoiceNumberByClinic(@Param("clinic") Clinic clinic);
 
+    /**
+     * أكبر تسلسل مستخدم في أرقام فواتير الشهر (INV-clinic-yyyyMM-تسلسل) لتهيئة العداد
+     */
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING_INDEX(invoice_number, '-', -1) AS UNSIGNED)), 0) " +
+            "FROM invoices WHERE clinic_id = :clinicId AND invoice_number LIKE CONCAT(:prefix, '%')",
+            nativeQuery = true)
+    long findMaxInvoiceSequence(@Param("clinicId") Long clinicId, @Param("prefix") String prefix);
+
     /**
      * الإيرادات اليومية
      */
@@ -152,11 +162,19 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     /**
      * الإيرادات الشهرية
      */
+    default BigDecimal getMonthlyRevenue(Clinic clinic, int year, int month) {
+        LocalDate start = LocalDate.of(year, month, 1);
+        return getRevenueBetween(clinic, start, start.plusMonths(1));
+    }
+
+    /**
+     * الإيرادات في الفترة [from, to) - نطاق على invoice_date يستخدم الفهرس
+     */
     @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Invoice i WHERE i.clinic = :clinic AND " +
-            "YEAR(i.invoiceDate) = :year AND MONTH(i.invoiceDate) = :month AND i.status = 'PAID'")
-    BigDecimal getMonthlyRevenue(@Param("clinic") Clinic clinic,
-                                 @Param("year") int year,
-                                 @Param("month") int month);
+            "i.invoiceDate >= :from AND i.invoiceDate < :to AND i.status = 'PAID'")
+    BigDecimal getRevenueBetween(@Param("clinic") Clinic clinic,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
 
     @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Invoice i WHERE i.clinic = :clinic " +
             "AND i.status = 'PAID'")
@@ -182,6 +200,38 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
                                            @Param("endDate") LocalDate endDate,
                                            Pageable pageable);
 
+    /**
+     * قائمة الفواتير كإسقاط: استعلام واحد للصفحة مع المريض والعيادة والمنشئ
+     * clinicId null returns all clinics (SYSTEM_ADMIN)
+     */
+    @Query(value = "SELECT i.id AS id, i.invoiceNumber AS invoiceNumber, i.invoiceDate AS invoiceDate, " +
+            "i.dueDate AS dueDate, i.status AS status, " +
+            "p.id AS patientId, p.firstName AS patientFirstName, p.lastName AS patientLastName, " +
+            "p.phone AS patientPhone, i.appointment.id AS appointmentId, " +
+            "c.id AS clinicId, c.name AS clinicName, " +
+            "i.subtotal AS subtotal, i.taxAmount AS taxAmount, i.discountAmount AS discountAmount, " +
+            "i.totalAmount AS totalAmount, i.paidAmount AS paidAmount, i.balanceDue AS balanceDue, " +
+            "i.notes AS notes, cb.username AS createdByUsername, " +
+            "i.createdAt AS createdAt, i.updatedAt AS updatedAt " +
+            "FROM Invoice i JOIN i.patient p JOIN i.clinic c LEFT JOIN i.createdBy cb " +
+            "WHERE (:clinicId IS NULL OR c.id = :clinicId) " +
+            "AND (:patientId IS NULL OR p.id = :patientId) " +
+            "AND (:status IS NULL OR i.status = :status) " +
+            "AND (:fromDate IS NULL OR i.invoiceDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR i.invoiceDate <= :toDate)",
+            countQuery = "SELECT COUNT(i) FROM Invoice i " +
+                    "WHERE (:clinicId IS NULL OR i.clinic.id = :clinicId) " +
+                    "AND (:patientId IS NULL OR i.patient.id = :patientId) " +
+                    "AND (:status IS NULL OR i.status = :status) " +
+                    "AND (:fromDate IS NULL OR i.invoiceDate >= :fromDate) " +
+                    "AND (:toDate IS NULL OR i.invoiceDate <= :toDate)")
+    Page<InvoiceListView> findListViews(@Param("clinicId") Long clinicId,
+                                        @Param("patientId") Long patientId,
+                                        @Param("status") InvoiceStatus status,
+                                        @Param("fromDate") LocalDate fromDate,
+                                        @Param("toDate") LocalDate toDate,
+                                        Pageable pageable);
+
     /**
      * عد الفواتير حسب العيادة
      */
@@ -215,6 +265,13 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
             "AND i.status IN ('PENDING', 'SENT', 'VIEWED', 'PARTIALLY_PAID')")
     BigDecimal getTotalPendingAmount(@Param("clinic") Clinic clinic);
 
+    /**
+     * عدد ومبلغ الفواتير المتأخرة في استعلام واحد [count, balanceDue]
+     */
+    @Query("SELECT COUNT(i), COALESCE(SUM(i.balanceDue), 0) FROM Invoice i WHERE i.clinic = :clinic AND " +
+            "i.dueDate < :today AND i.balanceDue > 0")
+    List<Object[]> getOverdueSummary(@Param("clinic") Clinic clinic, @Param("today") LocalDate today);
+
     /**
      * المبلغ الإجمالي المتأخر
      */
@@ -230,9 +287,41 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     /**
      * عد الفواتير حسب الشهر
      */
-    @Query("SELECT COUNT(i) FROM Invoice i WHERE i.clinic = :clinic AND " +
-            "YEAR(i.invoiceDate) = :year AND MONTH(i.invoiceDate) = :month")
-    long countByClinicAndMonth(@Param("clinic") Clinic clinic,
-                               @Param("year") int year,
-                               @Param("month") int month);
-}
\ No newline at end of file
+    default long countByClinicAndMonth(Clinic clinic, int year, int month) {
+        LocalDate start = LocalDate.of(year, month, 1);
+        return countByClinicAndInvoiceDateGreaterThanEqualAndInvoiceDateLessThan(clinic, start, start.plusMonths(1));
+    }
+
+    long countByClinicAndInvoiceDateGreaterThanEqualAndInvoiceDateLessThan(Clinic clinic, LocalDate from, LocalDate to);
+
+    /**
+     * الفواتير بالترقيم بالمؤشر كإسقاط: (تاريخ الفاتورة، المعرف) تنازلياً، بدون استعلام عد
+     * Same columns and joins as findListViews, so a page is one statement.
+     */
+    @Query("SELECT i.id AS id, i.invoiceNumber AS invoiceNumber, i.invoiceDate AS invoiceDate, " +
+            "i.dueDate AS dueDate, i.status AS status, " +
+            "p.id AS patientId, p.firstName AS patientFirstName, p.lastName AS patientLastName, " +
+            "p.phone AS patientPhone, i.appointment.id AS appointmentId, " +
+            "c.id AS clinicId, c.name AS clinicName, " +
+            "i.subtotal AS subtotal, i.taxAmount AS taxAmount, i.discountAmount AS discountAmount, " +
+            "i.totalAmount AS totalAmount, i.paidAmount AS paidAmount, i.balanceDue AS balanceDue, " +
+            "i.notes AS notes, cb.username AS createdByUsername, " +
+            "i.createdAt AS createdAt, i.updatedAt AS updatedAt " +
+            "FROM Invoice i JOIN i.patient p JOIN i.clinic c LEFT JOIN i.createdBy cb " +
+            "WHERE (:clinicId IS NULL OR c.id = :clinicId) " +
+            "AND (:patientId IS NULL OR p.id = :patientId) " +
+            "AND (:status IS NULL OR i.status = :status) " +
+            "AND (:fromDate IS NULL OR i.invoiceDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR i.invoiceDate <= :toDate) " +
+            "AND (:afterId IS NULL OR i.invoiceDate < :afterDate " +
+            "     OR (i.invoiceDate = :afterDate AND i.id < :afterId)) " +
+            "ORDER BY i.invoiceDate DESC, i.id DESC")
+    Slice<InvoiceListView> findListViewsAfterCursor(@Param("clinicId") Long clinicId,
+                                                    @Param("patientId") Long patientId,
+                                                    @Param("status") InvoiceStatus status,
+                                                    @Param("fromDate") LocalDate fromDate,
+                                                    @Param("toDate") LocalDate toDate,
+                                                    @Param("afterDate") LocalDate afterDate,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+}
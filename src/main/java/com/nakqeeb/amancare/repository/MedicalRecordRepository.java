@@ -10,13 +10,18 @@ import com.nakqeeb.amancare.entity.healthrecords.RecordStatus;
 import com.nakqeeb.amancare.entity.healthrecords.VisitType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,20 +37,35 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
      */
     Optional<MedicalRecord> findByIdAndClinicId(Long id, Long clinicId);
 
+    /**
+     * Load a record for the full detail view / PDF export (detail fetch plan)
+     */
+    @EntityGraph(value = MedicalRecord.DETAIL_GRAPH)
+    Optional<MedicalRecord> findWithDetailsById(Long id);
+
+    @EntityGraph(value = MedicalRecord.DETAIL_GRAPH)
+    Optional<MedicalRecord> findWithDetailsByIdAndClinicId(Long id, Long clinicId);
+
+    @EntityGraph(value = MedicalRecord.DETAIL_GRAPH)
+    Optional<MedicalRecord> findWithDetailsByAppointmentIdAndClinicId(Long appointmentId, Long clinicId);
+
     /**
      * Find all medical records for a clinic with pagination
      */
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findByClinicIdOrderByVisitDateDescCreatedAtDesc(Long clinicId, Pageable pageable);
 
     /**
      * Find medical records by patient
      */
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findByPatientIdAndClinicIdOrderByVisitDateDescCreatedAtDesc(
             Long patientId, Long clinicId, Pageable pageable);
 
     /**
      * Find medical records by doctor
      */
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findByDoctorIdAndClinicIdOrderByVisitDateDescCreatedAtDesc(
             Long doctorId, Long clinicId, Pageable pageable);
 
@@ -95,7 +115,7 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
     /**
      * Find medical records for today
      */
-    @Query("SELECT mr FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND DATE(mr.visitDate) = CURRENT_DATE ORDER BY mr.createdAt DESC")
+    @Query("SELECT mr FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND mr.visitDate = CURRENT_DATE ORDER BY mr.createdAt DESC")
     List<MedicalRecord> findTodayRecords(@Param("clinicId") Long clinicId);
 
     /**
@@ -173,6 +193,7 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
             "     LOWER(mr.notes) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
             "     LOWER(d.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
             "ORDER BY mr.visitDate DESC, mr.createdAt DESC")
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findBySearchCriteria(
             @Param("clinicId") Long clinicId,
             @Param("patientId") Long patientId,
@@ -207,20 +228,33 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
     /**
      * Count medical records for today
      */
-    @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND DATE(mr.visitDate) = CURRENT_DATE")
+    @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND mr.visitDate = CURRENT_DATE")
     Long countTodayRecords(@Param("clinicId") Long clinicId);
 
     /**
-     * Count medical records for this week
+     * Count medical records for this week (Sunday to Saturday, like YEARWEEK)
      */
-    @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND YEARWEEK(mr.visitDate) = YEARWEEK(CURRENT_DATE)")
-    Long countThisWeekRecords(@Param("clinicId") Long clinicId);
+    default Long countThisWeekRecords(Long clinicId) {
+        LocalDate start = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+        return countRecordsBetween(clinicId, start, start.plusWeeks(1));
+    }
 
     /**
      * Count medical records for this month
      */
-    @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND YEAR(mr.visitDate) = YEAR(CURRENT_DATE) AND MONTH(mr.visitDate) = MONTH(CURRENT_DATE)")
-    Long countThisMonthRecords(@Param("clinicId") Long clinicId);
+    default Long countThisMonthRecords(Long clinicId) {
+        LocalDate start = LocalDate.now().withDayOfMonth(1);
+        return countRecordsBetween(clinicId, start, start.plusMonths(1));
+    }
+
+    /**
+     * Count medical records with visit date in [from, to)
+     */
+    @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.clinicId = :clinicId AND " +
+            "mr.visitDate >= :from AND mr.visitDate < :to")
+    Long countRecordsBetween(@Param("clinicId") Long clinicId,
+                             @Param("from") LocalDate from,
+                             @Param("to") LocalDate to);
 
     /**
      * Count medical records by patient
@@ -264,6 +298,7 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
      * Find all medical records across clinics (SYSTEM_ADMIN only)
      */
     @Query("SELECT mr FROM MedicalRecord mr ORDER BY mr.visitDate DESC, mr.createdAt DESC")
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findAllRecordsForSystemAdmin(Pageable pageable);
 
     /**
@@ -285,6 +320,7 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
             "     LOWER(mr.notes) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
             "     LOWER(d.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
             "ORDER BY mr.visitDate DESC, mr.createdAt DESC")
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findBySearchCriteriaForSystemAdmin(
             @Param("clinicId") Long clinicId,
             @Param("patientId") Long patientId,
@@ -306,6 +342,17 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
     @Query("SELECT COUNT(mr) FROM MedicalRecord mr WHERE mr.status = :status")
     Long countAllRecordsByStatus(@Param("status") RecordStatus status);
 
+    /**
+     * Global totals by status in one pass: [total, completed, draft, reviewed, locked]
+     */
+    @Query("SELECT COUNT(mr), " +
+            "COALESCE(SUM(CASE WHEN mr.status = 'COMPLETED' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN mr.status = 'DRAFT' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN mr.status = 'REVIEWED' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN mr.status = 'LOCKED' THEN 1 ELSE 0 END), 0) " +
+            "FROM MedicalRecord mr")
+    List<Object[]> getAllRecordsStatusSummary();
+
     // =============================================================================
     // DIAGNOSIS STATISTICS QUERIES
     // =============================================================================
@@ -367,6 +414,7 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
     List<MedicalRecord> findOldLockedRecords(@Param("clinicId") Long clinicId,
                                              @Param("before") LocalDateTime before);
 
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findByPatientIdOrderByVisitDateDescCreatedAtDesc(Long patientId, Pageable pageable);
 
     /**
@@ -375,7 +423,33 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
      */
     @Query("SELECT m FROM MedicalRecord m WHERE m.doctor.id = :doctorId " +
             "ORDER BY m.visitDate DESC, m.createdAt DESC")
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
     Page<MedicalRecord> findByDoctorIdOrderByVisitDateDescCreatedAtDesc(@Param("doctorId") Long doctorId,
                                                                         Pageable pageable);
 
-}
\ No newline at end of file
+    // =============================================================================
+    // KEYSET PAGINATION
+    // =============================================================================
+
+    /**
+     * Records by cursor: (visitDate, id) descending, without a count query.
+     * clinicId null returns all clinics (SYSTEM_ADMIN)
+     */
+    @Query("SELECT mr FROM MedicalRecord mr WHERE (:clinicId IS NULL OR mr.clinicId = :clinicId) " +
+            "AND (:afterId IS NULL OR mr.visitDate < :afterDate " +
+            "     OR (mr.visitDate = :afterDate AND mr.id < :afterId)) " +
+            "ORDER BY mr.visitDate DESC, mr.id DESC")
+    @EntityGraph(value = MedicalRecord.SUMMARY_GRAPH)
+    Slice<MedicalRecord> findAfterCursor(@Param("clinicId") Long clinicId,
+                                         @Param("afterDate") LocalDate afterDate,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Primary diagnosis descriptions for a page of records: [recordId, description].
+     * Summary lists read these instead of initializing each record's diagnosis collection
+     */
+    @Query("SELECT d.medicalRecord.id, d.description FROM Diagnosis d " +
+            "WHERE d.medicalRecord.id IN :recordIds AND d.isPrimary = true ORDER BY d.id")
+    List<Object[]> findPrimaryDiagnoses(@Param("recordIds") Collection<Long> recordIds);
+}
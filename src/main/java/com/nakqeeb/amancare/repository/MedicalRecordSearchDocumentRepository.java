@@ -0,0 +1,85 @@
+// =============================================================================
+// Medical Record Search Repository - مستودع فهرس البحث في السجلات الطبية
+// =============================================================================
+
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.MedicalRecord;
+import com.nakqeeb.amancare.entity.MedicalRecordSearchDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * مستودع فهرس البحث النصي الكامل للسجلات الطبية
+ */
+@Repository
+public interface MedicalRecordSearchDocumentRepository extends JpaRepository<MedicalRecordSearchDocument, Long> {
+
+    /**
+     * إضافة أو تحديث نص البحث للسجل
+     */
+    @Modifying
+    @Query(value = "INSERT INTO medical_record_search (medical_record_id, clinic_id, content, updated_at) " +
+            "VALUES (:recordId, :clinicId, :content, NOW()) " +
+            "ON DUPLICATE KEY UPDATE clinic_id = VALUES(clinic_id), content = VALUES(content), " +
+            "updated_at = VALUES(updated_at)", nativeQuery = true)
+    int upsert(@Param("recordId") Long recordId,
+               @Param("clinicId") Long clinicId,
+               @Param("content") String content);
+
+    /**
+     * السجلات التي لم تُفهرس بعد (لبناء الفهرس أول مرة)
+     */
+    @Query(value = "SELECT mr.id FROM medical_records mr WHERE mr.id > :afterId AND NOT EXISTS " +
+            "(SELECT 1 FROM medical_record_search s WHERE s.medical_record_id = mr.id) " +
+            "ORDER BY mr.id LIMIT :limit", nativeQuery = true)
+    List<Long> findUnindexedRecordIds(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * البحث النصي الكامل مع بقية معايير البحث، مرتباً حسب درجة التطابق
+     * query is a MySQL boolean-mode expression built by MedicalRecordSearchService
+     */
+    @Query(value = "SELECT mr.* FROM medical_record_search s " +
+            "JOIN medical_records mr ON mr.id = s.medical_record_id " +
+            "WHERE MATCH(s.content) AGAINST(:query IN BOOLEAN MODE) " +
+            "AND (:clinicId IS NULL OR s.clinic_id = :clinicId) " +
+            "AND (:patientId IS NULL OR mr.patient_id = :patientId) " +
+            "AND (:doctorId IS NULL OR mr.doctor_id = :doctorId) " +
+            "AND (:visitType IS NULL OR mr.visit_type = :visitType) " +
+            "AND (:status IS NULL OR mr.status = :status) " +
+            "AND (:startDate IS NULL OR mr.visit_date >= :startDate) " +
+            "AND (:endDate IS NULL OR mr.visit_date <= :endDate) " +
+            "AND (:isConfidential IS NULL OR mr.is_confidential = :isConfidential) " +
+            "ORDER BY MATCH(s.content) AGAINST(:query IN BOOLEAN MODE) DESC, " +
+            "mr.visit_date DESC, mr.created_at DESC",
+            countQuery = "SELECT COUNT(*) FROM medical_record_search s " +
+                    "JOIN medical_records mr ON mr.id = s.medical_record_id " +
+                    "WHERE MATCH(s.content) AGAINST(:query IN BOOLEAN MODE) " +
+                    "AND (:clinicId IS NULL OR s.clinic_id = :clinicId) " +
+                    "AND (:patientId IS NULL OR mr.patient_id = :patientId) " +
+                    "AND (:doctorId IS NULL OR mr.doctor_id = :doctorId) " +
+                    "AND (:visitType IS NULL OR mr.visit_type = :visitType) " +
+                    "AND (:status IS NULL OR mr.status = :status) " +
+                    "AND (:startDate IS NULL OR mr.visit_date >= :startDate) " +
+                    "AND (:endDate IS NULL OR mr.visit_date <= :endDate) " +
+                    "AND (:isConfidential IS NULL OR mr.is_confidential = :isConfidential)",
+            nativeQuery = true)
+    Page<MedicalRecord> search(@Param("query") String query,
+                               @Param("clinicId") Long clinicId,
+                               @Param("patientId") Long patientId,
+                               @Param("doctorId") Long doctorId,
+                               @Param("visitType") String visitType,
+                               @Param("status") String status,
+                               @Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate,
+                               @Param("isConfidential") Boolean isConfidential,
+                               Pageable pageable);
+}
@@ -0,0 +1,53 @@
+// =============================================================================
+// Number Counter Repository - مستودع عدادات الأرقام المتسلسلة
+// =============================================================================
+
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.NumberCounter;
+import com.nakqeeb.amancare.entity.NumberCounterType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * مستودع عدادات الأرقام المتسلسلة
+ */
+@Repository
+public interface NumberCounterRepository extends JpaRepository<NumberCounter, Long> {
+
+    /**
+     * زيادة العداد بشكل ذري (يقفل الصف حتى نهاية المعاملة)
+     */
+    @Modifying
+    @Query("UPDATE NumberCounter c SET c.lastValue = c.lastValue + :amount, c.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE c.clinicId = :clinicId AND c.counterType = :counterType AND c.period = :period")
+    int increment(@Param("clinicId") Long clinicId,
+                  @Param("counterType") NumberCounterType counterType,
+                  @Param("period") String period,
+                  @Param("amount") long amount);
+
+    /**
+     * آخر قيمة محجوزة
+     */
+    @Query("SELECT c.lastValue FROM NumberCounter c " +
+            "WHERE c.clinicId = :clinicId AND c.counterType = :counterType AND c.period = :period")
+    Optional<Long> findLastValue(@Param("clinicId") Long clinicId,
+                                 @Param("counterType") NumberCounterType counterType,
+                                 @Param("period") String period);
+
+    /**
+     * إنشاء العداد إن لم يكن موجوداً (آمن عند التزامن بفضل القيد الفريد)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO number_counters (clinic_id, counter_type, period, last_value, updated_at) " +
+            "VALUES (:clinicId, :counterType, :period, :initialValue, NOW())", nativeQuery = true)
+    int insertIfAbsent(@Param("clinicId") Long clinicId,
+                       @Param("counterType") String counterType,
+                       @Param("period") String period,
+                       @Param("initialValue") long initialValue);
+}
@@ -64,6 +64,28 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
                                                  @Param("phone") String phone,
                                                  Pageable pageable);
 
+    /**
+     * الحقول التي يحتاجها فهرس البحث في الذاكرة (PatientSearchIndex)
+     * [id, firstName, lastName, phone, patientNumber, gender, bloodType, isActive]
+     */
+    @Query("SELECT p.id, p.firstName, p.lastName, p.phone, p.patientNumber, p.gender, p.bloodType, p.isActive " +
+            "FROM Patient p WHERE p.clinic.id = :clinicId")
+    List<Object[]> findSearchFieldsByClinicId(@Param("clinicId") Long clinicId);
+
+    /**
+     * نفس حقول الفهرس للمرضى المعدلين منذ وقت معين (مزامنة تغييرات العقد الأخرى)
+     */
+    @Query("SELECT p.id, p.firstName, p.lastName, p.phone, p.patientNumber, p.gender, p.bloodType, p.isActive " +
+            "FROM Patient p WHERE p.clinic.id = :clinicId AND p.updatedAt >= :since")
+    List<Object[]> findSearchFieldsByClinicIdUpdatedSince(@Param("clinicId") Long clinicId,
+                                                          @Param("since") LocalDateTime since);
+
+    /**
+     * نسخة بيانات مرضى العيادة: [عدد المرضى، آخر تعديل] من الفهرس (clinic_id, updated_at)
+     */
+    @Query("SELECT COUNT(p), MAX(p.updatedAt) FROM Patient p WHERE p.clinic.id = :clinicId")
+    List<Object[]> findSearchVersionByClinicId(@Param("clinicId") Long clinicId);
+
     /**
      * Enhanced search with multiple filters including gender, bloodType, and isActive
      * البحث المحسن مع عدة فلاتر
@@ -137,6 +159,13 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     @Query("SELECT COUNT(p) FROM Patient p WHERE p.clinic = :clinic AND p.isActive = true")
     long countActivePatientsByClinic(@Param("clinic") Clinic clinic);
 
+    /**
+     * أكبر تسلسل مستخدم في أرقام المرضى (P + yyyyMM + تسلسل) لتهيئة عداد العيادة
+     */
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(patient_number, 8) AS UNSIGNED)), 0) FROM patients " +
+            "WHERE clinic_id = :clinicId AND patient_number REGEXP '^P[0-9]{10,}$'", nativeQuery = true)
+    long findMaxPatientSequence(@Param("clinicId") Long clinicId);
+
     /**
      * Count only INACTIVE patients in clinic
      */
@@ -171,12 +200,28 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
             "WHERE p.clinic = :clinic AND p.dateOfBirth IS NOT NULL")
     Double calculateAverageAgeByClinic(@Param("clinic") Clinic clinic);
 
+    /**
+     * ملخص المرضى في مرور واحد على جدول المرضى
+     * [total, active, inactive, createdBetween, male, female, averageAge]
+     */
+    @Query("SELECT COUNT(p), " +
+            "COALESCE(SUM(CASE WHEN p.isActive = true THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.isActive = false THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.createdAt >= :startDateTime AND p.createdAt <= :endDateTime THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.gender = 'MALE' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.gender = 'FEMALE' THEN 1 ELSE 0 END), 0), " +
+            "AVG(CASE WHEN p.dateOfBirth IS NOT NULL THEN YEAR(CURRENT_DATE) - YEAR(p.dateOfBirth) END) " +
+            "FROM Patient p WHERE p.clinic = :clinic")
+    List<Object[]> getPatientSummary(@Param("clinic") Clinic clinic,
+                                     @Param("startDateTime") LocalDateTime startDateTime,
+                                     @Param("endDateTime") LocalDateTime endDateTime);
+
     /**
      * Count patients with appointments today
      */
     @Query("SELECT COUNT(DISTINCT a.patient) FROM Appointment a " +
             "WHERE a.clinic = :clinic " +
-            "AND DATE(a.appointmentDate) = CURRENT_DATE " +
+            "AND a.appointmentDate = CURRENT_DATE " +
             "AND a.status NOT IN ('CANCELLED', 'NO_SHOW')")
     long countPatientsWithAppointmentsToday(@Param("clinic") Clinic clinic);
 
@@ -18,6 +18,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,6 +32,13 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      */
     List<Payment> findByInvoiceOrderByPaymentDateDesc(Invoice invoice);
 
+    /**
+     * مدفوعات مجموعة فواتير (صفحة من قائمة الفواتير) باستعلام واحد مع المستخدم المنفذ
+     */
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.createdBy WHERE p.invoice.id IN :invoiceIds " +
+            "ORDER BY p.paymentDate DESC, p.id DESC")
+    List<Payment> findByInvoiceIds(@Param("invoiceIds") Collection<Long> invoiceIds);
+
     /**
      * البحث عن المدفوعات حسب المريض
      */
@@ -104,11 +112,19 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     /**
      * المدفوعات الشهرية
      */
+    default BigDecimal getMonthlyPayments(Clinic clinic, int year, int month) {
+        LocalDate start = LocalDate.of(year, month, 1);
+        return getPaymentsBetween(clinic, start, start.plusMonths(1));
+    }
+
+    /**
+     * المدفوعات في الفترة [from, to) - نطاق على payment_date يستخدم الفهرس
+     */
     @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.clinic = :clinic AND " +
-            "YEAR(p.paymentDate) = :year AND MONTH(p.paymentDate) = :month")
-    BigDecimal getMonthlyPayments(@Param("clinic") Clinic clinic,
-                                  @Param("year") int year,
-                                  @Param("month") int month);
+            "p.paymentDate >= :from AND p.paymentDate < :to")
+    BigDecimal getPaymentsBetween(@Param("clinic") Clinic clinic,
+                                  @Param("from") LocalDate from,
+                                  @Param("to") LocalDate to);
 
     /**
      * المدفوعات اليومية
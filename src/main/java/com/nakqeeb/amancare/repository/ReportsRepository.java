@@ -78,7 +78,7 @@ public interface ReportsRepository {
             "DATE(p.created_at) as date, " +
             "COUNT(p.id) as new_patients_count " +
             "FROM patients p WHERE p.clinic_id = :clinicId AND " +
-            "DATE(p.created_at) BETWEEN :startDate AND :endDate " +
+            "p.created_at >= :startDate AND p.created_at < DATE_ADD(:endDate, INTERVAL 1 DAY) " +
             "GROUP BY DATE(p.created_at) ORDER BY date",
             nativeQuery = true)
     List<Object[]> getNewPatientsReport(@Param("clinicId") Long clinicId,
@@ -0,0 +1,51 @@
+// =============================================================================
+// Appointment List View - إسقاط قائمة المواعيد
+// =============================================================================
+
+package com.nakqeeb.amancare.repository.projection;
+
+import com.nakqeeb.amancare.entity.AppointmentStatus;
+import com.nakqeeb.amancare.entity.AppointmentType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * الأعمدة التي تحتاجها قائمة المواعيد فقط، مقروءة باستعلام واحد مع المريض والطبيب والمنشئ
+ * Columns of AppointmentResponse read in a single query instead of loading the
+ * patient, doctor and createdBy associations row by row.
+ */
+public interface AppointmentListView {
+
+    Long getId();
+
+    Long getPatientId();
+    String getPatientNumber();
+    String getPatientFirstName();
+    String getPatientLastName();
+    String getPatientPhone();
+    LocalDate getPatientDateOfBirth();
+
+    Long getDoctorId();
+    String getDoctorFirstName();
+    String getDoctorLastName();
+    String getDoctorSpecialization();
+
+    LocalDate getAppointmentDate();
+    LocalTime getAppointmentTime();
+    Integer getDurationMinutes();
+    Boolean getIsDurationOverridden();
+    Integer getOriginalDurationMinutes();
+    String getOverrideReason();
+    Integer getTokenNumber();
+    AppointmentType getAppointmentType();
+    AppointmentStatus getStatus();
+    String getChiefComplaint();
+    String getNotes();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+
+    String getCreatedByFirstName();
+    String getCreatedByLastName();
+}
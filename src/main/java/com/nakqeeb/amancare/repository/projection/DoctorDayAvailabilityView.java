@@ -0,0 +1,35 @@
+// =============================================================================
+// Doctor Day Availability View - إسقاط توفر الأطباء في يوم معين
+// =============================================================================
+
+package com.nakqeeb.amancare.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * جدول الطبيب الساري في يوم معين مع فترة عدم توفر واحدة (إن وجدت) لكل صف
+ * A doctor with several unavailability periods on the day appears once per
+ * period; the unavailability columns are null when there is none.
+ */
+public interface DoctorDayAvailabilityView {
+
+    Long getDoctorId();
+    String getDoctorFirstName();
+    String getDoctorLastName();
+    String getSpecialization();
+
+    Long getClinicId();
+    String getClinicName();
+
+    Long getScheduleId();
+    LocalDate getEffectiveDate();
+    LocalTime getStartTime();
+    LocalTime getEndTime();
+    LocalTime getBreakStartTime();
+    LocalTime getBreakEndTime();
+
+    Long getUnavailabilityId();
+    LocalTime getUnavailableFrom();
+    LocalTime getUnavailableTo();
+}
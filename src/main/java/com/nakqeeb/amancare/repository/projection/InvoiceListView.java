@@ -0,0 +1,47 @@
+// =============================================================================
+// Invoice List View - إسقاط قائمة الفواتير
+// =============================================================================
+
+package com.nakqeeb.amancare.repository.projection;
+
+import com.nakqeeb.amancare.entity.InvoiceStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * أعمدة الفاتورة التي تحتاجها قائمة الفواتير مع بيانات المريض والعيادة والمنشئ
+ * Items and payments are not part of the row. They are read for the whole page
+ * with one query each.
+ */
+public interface InvoiceListView {
+
+    Long getId();
+    String getInvoiceNumber();
+    LocalDate getInvoiceDate();
+    LocalDate getDueDate();
+    InvoiceStatus getStatus();
+
+    Long getPatientId();
+    String getPatientFirstName();
+    String getPatientLastName();
+    String getPatientPhone();
+
+    Long getAppointmentId();
+
+    Long getClinicId();
+    String getClinicName();
+
+    BigDecimal getSubtotal();
+    BigDecimal getTaxAmount();
+    BigDecimal getDiscountAmount();
+    BigDecimal getTotalAmount();
+    BigDecimal getPaidAmount();
+    BigDecimal getBalanceDue();
+
+    String getNotes();
+    String getCreatedByUsername();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,45 @@
+// ===================================================================
+// SCHEDULED REBUILD OF CLINIC STATISTICS
+// ===================================================================
+package com.nakqeeb.amancare.scheduler;
+
+import com.nakqeeb.amancare.service.ClinicStatisticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClinicStatisticsScheduler {
+
+    private final ClinicStatisticsService clinicStatisticsService;
+
+    /**
+     * حساب إحصائيات العيادات التي لا توجد لها عدادات بعد (أول تشغيل)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildMissingStatistics() {
+        try {
+            clinicStatisticsService.rebuildMissing();
+        } catch (Exception e) {
+            log.error("خطأ في حساب إحصائيات العيادات: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * إعادة حساب العدادات من الجداول الأصلية يومياً لتصحيح أي انحراف
+     */
+    @Scheduled(cron = "${app.statistics.rebuild-cron:0 30 3 * * *}")
+    public void rebuildStatistics() {
+        try {
+            clinicStatisticsService.rebuildAll();
+            log.info("تمت إعادة حساب إحصائيات العيادات");
+        } catch (Exception e) {
+            log.error("خطأ في إعادة حساب إحصائيات العيادات: {}", e.getMessage());
+        }
+    }
+}
@@ -3,8 +3,7 @@
 // ===================================================================
 package com.nakqeeb.amancare.scheduler;
 
-import com.nakqeeb.amancare.service.EmailVerificationService;
-import com.nakqeeb.amancare.service.PasswordResetService;
+import com.nakqeeb.amancare.service.RetentionPurgeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,8 +14,7 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class TokenCleanupScheduler {
 
-    private final PasswordResetService passwordResetService;
-    private final EmailVerificationService emailVerificationService;
+    private final RetentionPurgeService retentionPurgeService;
 
     /**
      * تنظيف الرموز المنتهية الصلاحية كل ساعة
@@ -24,9 +22,9 @@ public class TokenCleanupScheduler {
     @Scheduled(fixedRate = 3600000) // Every hour
     public void cleanupExpiredTokens() {
         try {
-            passwordResetService.cleanupExpiredTokens();
-            emailVerificationService.cleanupExpiredTokens();
-            log.debug("تم تنظيف الرموز المنتهية الصلاحية");
+            // رموز إعادة التعيين وتأكيد البريد وتأكيد المواعيد، على دفعات
+            long deleted = retentionPurgeService.purgeExpiredTokens();
+            log.debug("تم تنظيف {} من الرموز المنتهية الصلاحية", deleted);
         } catch (Exception e) {
             log.error("خطأ في تنظيف الرموز المنتهية الصلاحية: {}", e.getMessage());
         }
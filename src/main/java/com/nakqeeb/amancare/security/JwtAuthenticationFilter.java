@@ -4,7 +4,6 @@
 
 package com.nakqeeb.amancare.security;
 
-import com.nakqeeb.amancare.service.CustomUserDetailsService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,6 +18,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * مرشح JWT للمصادقة على كل طلب
@@ -30,7 +30,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider tokenProvider;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private UserPrincipalCache userPrincipalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -40,10 +40,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromToken(jwt);
+            // تحليل واحد للتوكن: التحقق من التوقيع واستخراج البيانات معاً
+            Optional<JwtClaims> claims = StringUtils.hasText(jwt)
+                    ? tokenProvider.parseToken(jwt)
+                    : Optional.empty();
 
-                UserDetails userDetails = userDetailsService.loadUserById(userId);
+            if (claims.isPresent()) {
+                Long userId = claims.get().getUserId();
+
+                // resolved from the bounded principal cache, falling back to the DB on a miss
+                UserDetails userDetails = userPrincipalCache.getPrincipal(userId);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,51 @@
+// =============================================================================
+// JWT Claims - بيانات الرمز المميز بعد التحقق منه
+// =============================================================================
+
+package com.nakqeeb.amancare.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * بيانات JWT المستخرجة بعد التحقق من التوقيع (غير قابلة للتعديل)
+ * Immutable view of a verified token, produced by a single parse in JwtTokenProvider
+ */
+public final class JwtClaims {
+
+    private final Long userId;
+    private final Long clinicId;
+    private final String role;
+    private final String type;
+    private final Date expiration;
+
+    private JwtClaims(Long userId, Long clinicId, String role, String type, Date expiration) {
+        this.userId = userId;
+        this.clinicId = clinicId;
+        this.role = role;
+        this.type = type;
+        this.expiration = expiration;
+    }
+
+    static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+                Long.parseLong(claims.getSubject()),
+                claims.get("clinicId", Long.class),
+                claims.get("role", String.class),
+                claims.get("type", String.class),
+                claims.getExpiration()
+        );
+    }
+
+    // Getters
+    public Long getUserId() { return userId; }
+    public Long getClinicId() { return clinicId; }
+    public String getRole() { return role; }
+    public Date getExpiration() { return expiration == null ? null : new Date(expiration.getTime()); }
+
+    /**
+     * هل هذا refresh token
+     */
+    public boolean isRefreshToken() { return "refresh".equals(type); }
+}
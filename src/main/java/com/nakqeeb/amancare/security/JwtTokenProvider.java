@@ -6,6 +6,7 @@ package com.nakqeeb.amancare.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * مقدم رموز JWT المميزة
@@ -29,6 +31,18 @@ public class JwtTokenProvider {
     @Value("${app.jwt.refresh-expiration}")
     private long refreshExpirationInMs;
 
+    // المفتاح والمحلل يُبنيان مرة واحدة عند بدء التشغيل (JwtParser آمن للاستخدام المتزامن)
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     /**
      * إنشاء JWT token للمستخدم
      */
@@ -62,15 +76,22 @@ public class JwtTokenProvider {
                 .compact();
     }
 
+    /**
+     * التحقق من التوكن واستخراج بياناته في خطوة واحدة
+     * Verify the signature and extract the claims with a single parse
+     *
+     * @return the parsed claims, or empty if the token is invalid or expired
+     */
+    public Optional<JwtClaims> parseToken(String token) {
+        Claims claims = parseClaims(token);
+        return claims == null ? Optional.empty() : Optional.of(JwtClaims.from(claims));
+    }
+
     /**
      * استخراج معرف المستخدم من التوكن
      */
     public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
 
         return Long.parseLong(claims.getSubject());
     }
@@ -79,11 +100,7 @@ public class JwtTokenProvider {
      * استخراج معرف العيادة من التوكن
      */
     public Long getClinicIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
 
         return claims.get("clinicId", Long.class);
     }
@@ -92,12 +109,15 @@ public class JwtTokenProvider {
      * التحقق من صحة التوكن
      */
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    /**
+     * تحليل التوكن والتحقق من توقيعه، يعيد null إذا كان غير صالح
+     */
+    private Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SecurityException ex) {
             System.err.println("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -109,14 +129,13 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             System.err.println("JWT claims string is empty");
         }
-        return false;
+        return null;
     }
 
     /**
      * الحصول على مفتاح التوقيع
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 }
\ No newline at end of file
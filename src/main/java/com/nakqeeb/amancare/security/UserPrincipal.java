@@ -23,19 +23,21 @@ public class UserPrincipal implements UserDetails {
     private String email;
     private String password;
     private Long clinicId;
+    private String clinicName;
     private String role;
     private String fullName;
     private boolean active;
     private Collection<? extends GrantedAuthority> authorities;
 
     public UserPrincipal(Long id, String username, String email, String password,
-                         Long clinicId, String role, String fullName, boolean active,
+                         Long clinicId, String clinicName, String role, String fullName, boolean active,
                          Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
         this.clinicId = clinicId;
+        this.clinicName = clinicName;
         this.role = role;
         this.fullName = fullName;
         this.active = active;
@@ -56,6 +58,7 @@ public class UserPrincipal implements UserDetails {
                 user.getEmail(),
                 user.getPasswordHash(),
                 user.getClinic().getId(),
+                user.getClinic().getName(),
                 user.getRole().name(),
                 user.getFullName(),
                 user.getIsActive(),
@@ -67,6 +70,7 @@ public class UserPrincipal implements UserDetails {
     public Long getId() { return id; }
     public String getEmail() { return email; }
     public Long getClinicId() { return clinicId; }
+    public String getClinicName() { return clinicName; }
     public String getRole() { return role; }
     public String getFullName() { return fullName; }
 
@@ -0,0 +1,112 @@
+// =============================================================================
+// User Principal Cache - ذاكرة تخزين مؤقت لهوية المستخدم المصادق
+// =============================================================================
+
+package com.nakqeeb.amancare.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nakqeeb.amancare.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * ذاكرة مؤقتة محدودة الحجم لـ UserPrincipal حسب معرف المستخدم
+ * Bounded, TTL-evicting cache of authenticated principals keyed by user id.
+ *
+ * JwtAuthenticationFilter resolves the principal through this cache instead of
+ * hitting the users table on every request. Changes to status, role or password
+ * evict the entry; the TTL bounds how long any missed invalidation can survive.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+
+    private static final String CACHE_NAME = "userPrincipals";
+
+    private final CustomUserDetailsService userDetailsService;
+    private final boolean enabled;
+    private final Cache<Long, UserPrincipal> cache;
+
+    public UserPrincipalCache(CustomUserDetailsService userDetailsService,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.security.principal-cache.enabled:true}") boolean enabled,
+                              @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        logger.info("Principal cache enabled={}, maxSize={}, ttl={}s", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * تحميل المستخدم من الذاكرة المؤقتة أو من قاعدة البيانات عند عدم وجوده
+     * Resolve the principal for the given user id, loading it on a miss
+     */
+    public UserPrincipal getPrincipal(Long userId) {
+        if (!enabled) {
+            return (UserPrincipal) userDetailsService.loadUserById(userId);
+        }
+        return cache.get(userId, id -> (UserPrincipal) userDetailsService.loadUserById(id));
+    }
+
+    /**
+     * إزالة المستخدم من الذاكرة المؤقتة
+     * Evict a user; inside a transaction the eviction is repeated after commit so a
+     * concurrent request cannot re-cache the pre-commit row.
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * تفريغ الذاكرة المؤقتة بالكامل
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * إحصائيات الإصابة والإخفاق
+     * Hit/miss statistics, also published as cache.* meters under name "userPrincipals"
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
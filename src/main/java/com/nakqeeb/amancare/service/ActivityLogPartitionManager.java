@@ -0,0 +1,418 @@
+// =============================================================================
+// Activity Log Partition Manager - تقسيم جدول سجلات الأنشطة شهرياً
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * تقسيم جدول activity_logs إلى أقسام شهرية (RANGE COLUMNS على timestamp)
+ * Application-managed monthly partitioning of activity_logs.
+ *
+ * Each month is a partition named pYYYYMM holding rows with timestamp below
+ * the first day of the next month, followed by a pmax catch-all. Partitions are
+ * created months-ahead in advance by splitting the empty pmax, and retention
+ * drops whole partitions instead of deleting rows (see RetentionPurgeService).
+ * MySQL requires the partitioning column in every unique key, so the
+ * partitioned table's primary key is (id, timestamp); id stays AUTO_INCREMENT
+ * and unique.
+ *
+ * Queries that filter on clinic_id plus a timestamp range only read the
+ * matching months. The "timestamp IS NULL OR ..." filters in
+ * ActivityLogRepository still prune, because Connector/J inlines the parameters
+ * (client-side prepared statements) and the optimizer folds the NULL checks
+ * away. verifyPruning() runs EXPLAIN on the SQL of those repository queries and
+ * warns when one of them reads pmax.
+ *
+ * Queries without a timestamp predicate read every partition. They stay cheap
+ * because each one is an index lookup per partition, so the cost grows with
+ * the number of months kept, not with the number of rows:
+ * - findByClinicIdOrderByTimestampDesc, findTop50ByClinicIdOrderByTimestampDesc
+ *   and the first page of searchActivitiesAfterCursor: an ordered scan of
+ *   (clinic_id, timestamp) in each partition, merged and stopped at the LIMIT.
+ *   Later cursor pages prune the months after the cursor.
+ * - getEntityActivityTrail: one (entity_type, entity_id) lookup per partition.
+ * - findById / deleteById: the primary key is (id, timestamp), so an id lookup
+ *   probes the primary key of every partition.
+ * - countByClinicId: counts the clinic's (clinic_id) index entries in every
+ *   partition. It is not used by any request path; do not call it per request.
+ *
+ * Migration from the unpartitioned table is opt-in
+ * (activity.logging.partitioning.migrate-on-startup) and runs online in the
+ * background under the MySQL named lock amancare_activity_logs_partitioning, so
+ * only one node migrates at a time:
+ * 1. Create activity_logs_partitioned with the same columns and indexes.
+ * 2. Copy rows in id chunks.
+ * 3. Swap the two tables with one atomic RENAME.
+ * 4. Copy rows that arrived during the copy from the old table, then copy any
+ *    row still missing by id (a row with a low id that committed after its
+ *    chunk was copied). The old table stays behind as
+ *    activity_logs_unpartitioned until dropped by hand.
+ */
+@Service
+@Slf4j
+public class ActivityLogPartitionManager {
+
+    public static final String TABLE = "activity_logs";
+    private static final String SHADOW_TABLE = "activity_logs_partitioned";
+    private static final String ARCHIVE_TABLE = "activity_logs_unpartitioned";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String MIGRATION_LOCK = "amancare_activity_logs_partitioning";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter BOUNDARY = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // فجوة المعرفات بين الجدول الجديد والقديم حتى لا تتعارض الصفوف المنسوخة بعد التبديل
+    private static final long AUTO_INCREMENT_GAP = 1_000_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    // خيط خاص للترحيل: قد يستغرق ساعات فلا يحجز خيطاً من applicationTaskExecutor
+    private final SimpleAsyncTaskExecutor partitioningExecutor;
+
+    @Value("${activity.logging.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${activity.logging.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${activity.logging.partitioning.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${activity.logging.partitioning.copy-chunk-size:10000}")
+    private int copyChunkSize;
+
+    @Value("${activity.logging.partitioning.copy-pause-ms:50}")
+    private long copyPauseMs;
+
+    public ActivityLogPartitionManager(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitioningExecutor = new SimpleAsyncTaskExecutor("activity-log-partitioning-");
+        this.partitioningExecutor.setConcurrencyLimit(1);
+        this.partitioningExecutor.setDaemon(true);
+    }
+
+    /**
+     * ترحيل الجدول (إن لزم) وإنشاء الأقسام القادمة بعد بدء التطبيق، في الخلفية على خيط مخصص
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        partitioningExecutor.execute(() -> {
+            try {
+                if (!isPartitioned()) {
+                    if (!migrateOnStartup) {
+                        log.warn("{} is not partitioned; set activity.logging.partitioning.migrate-on-startup=true " +
+                                "to migrate it", TABLE);
+                        return;
+                    }
+                    migrate();
+                    if (!isPartitioned()) {
+                        // عقدة أخرى تُجري الترحيل، أو توقف الترحيل
+                        return;
+                    }
+                }
+                ensurePartitionsAhead();
+                verifyPruning();
+            } catch (Exception e) {
+                log.error("Activity log partition setup failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * إنشاء أقسام الأشهر القادمة يومياً
+     */
+    @Scheduled(cron = "${activity.logging.partitioning.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (isPartitioned()) {
+                ensurePartitionsAhead();
+            }
+        } catch (Exception e) {
+            log.error("Activity log partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * هل الجدول مقسم بالفعل
+     */
+    public boolean isPartitioned() {
+        return isPartitioned(jdbcTemplate);
+    }
+
+    private static boolean isPartitioned(JdbcTemplate jdbc) {
+        Integer partitions = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                Integer.class, TABLE);
+        return partitions != null && partitions > 0;
+    }
+
+    /**
+     * حذف الأقسام الشهرية التي تقع بالكامل قبل الحد (بدون DELETE)
+     *
+     * @return عدد الأقسام المحذوفة
+     */
+    public int dropPartitionsBefore(LocalDateTime cutoff) {
+        if (!enabled || !isPartitioned()) {
+            return 0;
+        }
+
+        int dropped = 0;
+        for (YearMonth month : monthlyPartitions()) {
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                break;
+            }
+            String partition = month.format(PARTITION_NAME);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+            dropped++;
+            log.info("Dropped activity log partition {}", partition);
+        }
+        return dropped;
+    }
+
+    /**
+     * إضافة أقسام الأشهر حتى months-ahead بتقسيم pmax (فارغ عادةً فلا تُنقل صفوف)
+     */
+    public void ensurePartitionsAhead() {
+        TreeSet<YearMonth> existing = monthlyPartitions();
+        YearMonth target = YearMonth.now().plusMonths(Math.max(monthsAhead, 0));
+        YearMonth next = existing.isEmpty() ? YearMonth.now() : existing.last().plusMonths(1);
+
+        while (!next.isAfter(target)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION +
+                    " INTO (" + partitionDefinition(next) + ", " + maxPartitionDefinition() + ")");
+            log.info("Created activity log partition {}", next.format(PARTITION_NAME));
+            next = next.plusMonths(1);
+        }
+    }
+
+    /**
+     * تشغيل EXPLAIN على استعلامات المستودع ذات نطاق التاريخ وتسجيل الأقسام التي تقرؤها
+     * The SQL mirrors the WHERE clauses Hibernate generates for ActivityLogRepository,
+     * bound the same way (client-side prepared statements), for a clinic and the
+     * last 7 days.
+     *
+     * @return الأقسام المقروءة لكل استعلام
+     */
+    public Map<String, String> verifyPruning() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp from = Timestamp.valueOf(now.minusDays(7));
+        Timestamp to = Timestamp.valueOf(now);
+        String filters = "clinic_id = ? AND (? IS NULL OR user_id = ?) AND (? IS NULL OR action_type = ?) " +
+                "AND (? IS NULL OR entity_type = ?) AND (? IS NULL OR `timestamp` >= ?) " +
+                "AND (? IS NULL OR `timestamp` <= ?) ";
+        Object[] filterParams = {0L, null, null, null, null, null, null, from, from, to, to};
+
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("searchActivities", explain(
+                "SELECT * FROM " + TABLE + " WHERE " + filters + "ORDER BY `timestamp` DESC LIMIT 20",
+                filterParams));
+        result.put("searchActivitiesAfterCursor", explain(
+                "SELECT * FROM " + TABLE + " WHERE " + filters +
+                        "AND (? IS NULL OR `timestamp` < ? OR (`timestamp` = ? AND id < ?)) " +
+                        "ORDER BY `timestamp` DESC, id DESC LIMIT 21",
+                concat(filterParams, Long.MAX_VALUE, to, to, Long.MAX_VALUE)));
+        result.put("countByClinicIdAndTimestampBetween", explain(
+                "SELECT COUNT(id) FROM " + TABLE + " WHERE clinic_id = ? AND `timestamp` BETWEEN ? AND ?",
+                0L, from, to));
+        result.put("countByActionType", explain(
+                "SELECT action_type, COUNT(id) FROM " + TABLE + " WHERE clinic_id = ? AND `timestamp` >= ? " +
+                        "GROUP BY action_type",
+                0L, from));
+
+        // pmax لا يحتوي إلا على صفوف مستقبلية، فقراءته تعني أن الاستعلام لم يُقلَّص
+        result.forEach((query, partitions) -> {
+            if (partitions == null || partitions.contains(MAX_PARTITION)) {
+                log.warn("Activity log query {} is not pruned to recent partitions: {}", query, partitions);
+            } else {
+                log.info("Activity log query {} reads partitions: {}", query, partitions);
+            }
+        });
+        return result;
+    }
+
+    private String explain(String sql, Object... params) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, params);
+        return plan.isEmpty() ? null : (String) plan.get(0).get("partitions");
+    }
+
+    private static Object[] concat(Object[] first, Object... rest) {
+        Object[] all = Arrays.copyOf(first, first.length + rest.length);
+        System.arraycopy(rest, 0, all, first.length, rest.length);
+        return all;
+    }
+
+    // =============================================================================
+    // MIGRATION
+    // =============================================================================
+
+    /**
+     * ترحيل الجدول غير المقسم إلى جدول مقسم بدون إيقاف الكتابة، تحت قفل MySQL مسمى
+     * The named lock belongs to a connection, so the whole migration runs on the
+     * connection that holds it. A node that cannot take the lock immediately
+     * skips the migration.
+     */
+    public void migrate() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            JdbcTemplate locked = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Integer acquired = locked.queryForObject("SELECT GET_LOCK(?, 0)", Integer.class, MIGRATION_LOCK);
+            if (acquired == null || acquired != 1) {
+                log.info("Another node is migrating {}; skipping", TABLE);
+                return null;
+            }
+            try {
+                if (!isPartitioned(locked)) {
+                    migrate(locked);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Migration of {} interrupted; {} is left in place and is dropped by the next attempt",
+                        TABLE, SHADOW_TABLE);
+            } finally {
+                locked.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, MIGRATION_LOCK);
+            }
+            return null;
+        });
+    }
+
+    private void migrate(JdbcTemplate jdbc) throws InterruptedException {
+        if (tableExists(jdbc, ARCHIVE_TABLE)) {
+            log.warn("{} already exists; drop it before migrating {} again", ARCHIVE_TABLE, TABLE);
+            return;
+        }
+
+        log.info("Migrating {} to a monthly partitioned layout", TABLE);
+
+        Timestamp oldest = jdbc.queryForObject("SELECT MIN(`timestamp`) FROM " + TABLE, Timestamp.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest.toLocalDateTime()) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(Math.max(monthsAhead, 0));
+
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            definitions.add(partitionDefinition(month));
+        }
+        definitions.add(maxPartitionDefinition());
+
+        jdbc.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+        jdbc.execute("CREATE TABLE " + SHADOW_TABLE + " LIKE " + TABLE);
+        jdbc.execute("ALTER TABLE " + SHADOW_TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, `timestamp`)");
+        jdbc.execute("ALTER TABLE " + SHADOW_TABLE + " PARTITION BY RANGE COLUMNS(`timestamp`) (" +
+                String.join(", ", definitions) + ")");
+
+        long copiedUpTo = copyRows(jdbc, TABLE, SHADOW_TABLE, 0L, Long.MAX_VALUE, false);
+
+        // التبديل: المعرفات الجديدة تبدأ بعد فجوة حتى لا تتعارض مع الصفوف المنسوخة لاحقاً
+        Long maxId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + TABLE, Long.class);
+        jdbc.execute("ALTER TABLE " + SHADOW_TABLE + " AUTO_INCREMENT = " + (maxId + AUTO_INCREMENT_GAP));
+        jdbc.execute("RENAME TABLE " + TABLE + " TO " + ARCHIVE_TABLE + ", " + SHADOW_TABLE + " TO " + TABLE);
+
+        // الصفوف التي كُتبت أثناء النسخ
+        long caughtUp = copyRows(jdbc, ARCHIVE_TABLE, TABLE, copiedUpTo, Long.MAX_VALUE, false);
+        // صفوف بمعرف أقل التُزمت بعد نسخ دفعتها؛ لا كتابة على الجدول القديم بعد RENAME
+        copyRows(jdbc, ARCHIVE_TABLE, TABLE, 0L, copiedUpTo, true);
+
+        log.info("Migrated {} to monthly partitions ({} months); old table kept as {} (rows up to id {}, last id {})",
+                TABLE, definitions.size() - 1, ARCHIVE_TABLE, copiedUpTo, caughtUp);
+    }
+
+    /**
+     * نسخ الصفوف في النطاق (afterId, upToId] على دفعات، وإرجاع آخر معرف في النطاق
+     *
+     * @param onlyMissing نسخ الصفوف غير الموجودة في الجدول الهدف فقط (NOT EXISTS)
+     */
+    private long copyRows(JdbcTemplate jdbc, String from, String to, long afterId, long upToId,
+                          boolean onlyMissing) throws InterruptedException {
+        String nextChunk = "SELECT MAX(id) FROM (SELECT id FROM " + from + " WHERE id > ? AND id <= ? " +
+                "ORDER BY id LIMIT " + Math.max(copyChunkSize, 1) + ") chunk";
+        String copyChunk = "INSERT INTO " + to + " SELECT f.* FROM " + from + " f WHERE f.id > ? AND f.id <= ?" +
+                (onlyMissing ? " AND NOT EXISTS (SELECT 1 FROM " + to + " t WHERE t.id = f.id)" : "");
+
+        long lastId = afterId;
+        long copied = 0;
+        while (true) {
+            Long chunkEnd = jdbc.queryForObject(nextChunk, Long.class, lastId, upToId);
+            if (chunkEnd == null) {
+                break;
+            }
+            copied += jdbc.update(copyChunk, lastId, chunkEnd);
+            lastId = chunkEnd;
+            if (copyPauseMs > 0) {
+                Thread.sleep(copyPauseMs);
+            }
+        }
+        log.info("Copied {} {}rows from {} to {}", copied, onlyMissing ? "missing " : "", from, to);
+        return lastId;
+    }
+
+    // =============================================================================
+    // HELPERS
+    // =============================================================================
+
+    private TreeSet<YearMonth> monthlyPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                String.class, TABLE);
+
+        return names.stream()
+                .filter(name -> !MAX_PARTITION.equals(name))
+                .map(name -> {
+                    try {
+                        return YearMonth.parse(name, PARTITION_NAME);
+                    } catch (DateTimeParseException e) {
+                        return null;
+                    }
+                })
+                .filter(month -> month != null)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbc, String table) {
+        Integer count = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN ('" +
+                month.plusMonths(1).atDay(1).atStartOfDay().format(BOUNDARY) + "')";
+    }
+
+    private static String maxPartitionDefinition() {
+        return "PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)";
+    }
+}
@@ -5,25 +5,23 @@
 
 package com.nakqeeb.amancare.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nakqeeb.amancare.dto.response.ActivityLogResponse;
 import com.nakqeeb.amancare.dto.response.ActivityStatisticsResponse;
+import com.nakqeeb.amancare.dto.response.CursorPageResponse;
 import com.nakqeeb.amancare.entity.ActivityLog;
 import com.nakqeeb.amancare.entity.ActionType;
-import com.nakqeeb.amancare.entity.User;
-import com.nakqeeb.amancare.entity.Clinic;
 import com.nakqeeb.amancare.repository.ActivityLogRepository;
-import com.nakqeeb.amancare.repository.UserRepository;
-import com.nakqeeb.amancare.repository.ClinicRepository;
+import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.util.CursorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
@@ -48,25 +46,23 @@ public class ActivityLogService {
     private ActivityLogRepository activityLogRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ActivityLogWriter activityLogWriter;
 
     @Autowired
-    private ClinicRepository clinicRepository;
-
-    @Autowired
-    private ObjectMapper objectMapper;
+    private RetentionPurgeService retentionPurgeService;
 
     // =============================================================================
-    // CREATE ACTIVITY LOG (Async for performance)
+    // CREATE ACTIVITY LOG (buffered, written in batches)
     // =============================================================================
 
     /**
-     * Log an activity asynchronously to avoid blocking the main request thread
+     * Queue an activity for the batched writer without blocking the request thread.
+     * User and clinic names are taken from the authenticated principal.
      */
-    @Async
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void logActivity(
             Long clinicId,
-            Long userId,
+            UserPrincipal user,
             ActionType actionType,
             String httpMethod,
             String entityType,
@@ -83,18 +79,19 @@ public class ActivityLogService {
             Long durationMs
     ) {
         try {
-            // Get user details
-            User user = userId != null ? userRepository.findById(userId).orElse(null) : null;
-            Clinic clinic = clinicId != null ? clinicRepository.findById(clinicId).orElse(null) : null;
+            // اسم العيادة متاح من المستخدم إلا إذا كان SYSTEM_ADMIN يتصرف نيابة عن عيادة أخرى
+            String clinicName = user != null && clinicId != null && clinicId.equals(user.getClinicId())
+                    ? user.getClinicName()
+                    : null;
 
             // Build activity log
             ActivityLog activity = ActivityLog.builder()
                     .clinicId(clinicId)
-                    .clinicName(clinic != null ? clinic.getName() : null)
-                    .userId(userId)
+                    .clinicName(clinicName)
+                    .userId(user != null ? user.getId() : null)
                     .username(user != null ? user.getUsername() : "Unknown")
                     .userFullName(user != null ? user.getFullName() : "Unknown User")
-                    .userRole(user != null ? user.getRole().name() : null)
+                    .userRole(user != null ? user.getRole() : null)
                     .actionType(actionType)
                     .httpMethod(httpMethod)
                     .entityType(entityType)
@@ -110,28 +107,11 @@ public class ActivityLogService {
                     .timestamp(LocalDateTime.now())
                     .build();
 
-            // Convert values to JSON if provided
-            if (newValue != null) {
-                try {
-                    activity.setNewValue(objectMapper.writeValueAsString(newValue));
-                } catch (JsonProcessingException e) {
-                    logger.warn("Failed to serialize new value: {}", e.getMessage());
-                }
-            }
-
-            if (oldValue != null) {
-                try {
-                    activity.setOldValue(objectMapper.writeValueAsString(oldValue));
-                } catch (JsonProcessingException e) {
-                    logger.warn("Failed to serialize old value: {}", e.getMessage());
-                }
-            }
-
-            // Save activity log
-            activityLogRepository.save(activity);
+            // Values are serialized to JSON here, before the request ends
+            activityLogWriter.submit(activity, newValue, oldValue);
 
-            logger.debug("Activity logged: {} {} by user {} in clinic {}",
-                    actionType, entityType, userId, clinicId);
+            logger.debug("Activity queued: {} {} by user {} in clinic {}",
+                    actionType, entityType, activity.getUserId(), clinicId);
 
         } catch (Exception e) {
             // Never throw exceptions from logging to avoid breaking the main request
@@ -142,10 +122,10 @@ public class ActivityLogService {
     /**
      * Simplified logging method for common use cases
      */
-    @Async
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void logSimpleActivity(
             Long clinicId,
-            Long userId,
+            UserPrincipal user,
             ActionType actionType,
             String entityType,
             Long entityId,
@@ -153,7 +133,7 @@ public class ActivityLogService {
             String description
     ) {
         logActivity(
-                clinicId, userId, actionType,
+                clinicId, user, actionType,
                 actionType.name(), entityType, entityId, entityName,
                 description, null, null, null, null, null,
                 true, null, null
@@ -199,6 +179,33 @@ public class ActivityLogService {
         return activities.map(ActivityLogResponse::fromEntity);
     }
 
+    /**
+     * Search activities by cursor (no count query), newest first
+     */
+    public CursorPageResponse<ActivityLogResponse> searchActivitiesByCursor(
+            Long clinicId,
+            Long userId,
+            ActionType actionType,
+            String entityType,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String searchTerm,
+            String cursor,
+            int size
+    ) {
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, 2);
+        Slice<ActivityLog> activities = activityLogRepository.searchActivitiesAfterCursor(
+                clinicId, userId, actionType, entityType,
+                startDate, endDate, searchTerm,
+                after != null ? after.localDateTime(0) : null,
+                after != null ? after.id(1) : null,
+                CursorUtil.limit(size)
+        );
+
+        return CursorPageResponse.from(activities, ActivityLogResponse::fromEntity,
+                activity -> CursorUtil.encode(activity.getTimestamp(), activity.getId()));
+    }
+
     /**
      * Get activity trail for a specific entity
      */
@@ -345,13 +352,12 @@ public class ActivityLogService {
     // =============================================================================
 
     /**
-     * Delete old activity logs (should be run periodically)
+     * Delete old activity logs in chunks (also run daily by RetentionPurgeService)
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cleanupOldLogs(int retentionDays) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(retentionDays);
-        activityLogRepository.deleteOldLogs(cutoffDate);
-        logger.info("Cleaned up activity logs older than {} days", retentionDays);
+        long deleted = retentionPurgeService.purgeActivityLogs(retentionDays);
+        logger.info("Cleaned up {} activity logs older than {} days", deleted, retentionDays);
     }
 
     /**
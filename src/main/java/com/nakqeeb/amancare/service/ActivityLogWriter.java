@@ -0,0 +1,382 @@
+// =============================================================================
+// Activity Log Writer - كاتب سجلات الأنشطة على دفعات
+// src/main/java/com/nakqeeb/amancare/service/ActivityLogWriter.java
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakqeeb.amancare.entity.ActivityLog;
+import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.repository.ClinicRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * كاتب سجلات الأنشطة - مخزن مؤقت محدود يُفرغ على دفعات بواسطة خيط مخصص
+ * Bounded in-memory buffer of activity logs drained by a dedicated writer thread.
+ *
+ * Entries are flushed with JDBC batch inserts once batch-size entries are
+ * pending or flush-interval-ms has elapsed. When the buffer is full the caller
+ * waits up to enqueue-timeout-ms and the entry is then dropped and counted,
+ * so request threads are never blocked for long. Pending entries are flushed
+ * on shutdown after the web server has stopped accepting requests; entries
+ * submitted after that are written synchronously on the caller's thread.
+ */
+@Service
+public class ActivityLogWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO activity_logs (clinic_id, clinic_name, user_id, username, user_full_name, user_role, " +
+                    "action_type, http_method, entity_type, entity_id, entity_name, description, endpoint, " +
+                    "ip_address, user_agent, old_value, new_value, timestamp, success, error_message, " +
+                    "duration_ms, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // TEXT في MySQL محدود بـ 65535 بايت، و utf8mb4 قد يستخدم 4 بايت للحرف
+    private static final int MAX_JSON_LENGTH = 16000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClinicRepository clinicRepository;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final BlockingQueue<PendingActivity> buffer;
+
+    private final Counter enqueuedCounter;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = false;
+    private volatile boolean stopped = false;
+    private Thread writerThread;
+
+    public ActivityLogWriter(JdbcTemplate jdbcTemplate,
+                             ClinicRepository clinicRepository,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${activity.logging.enabled:true}") boolean enabled,
+                             @Value("${activity.logging.buffer-capacity:10000}") int bufferCapacity,
+                             @Value("${activity.logging.batch-size:200}") int batchSize,
+                             @Value("${activity.logging.flush-interval-ms:500}") long flushIntervalMs,
+                             @Value("${activity.logging.enqueue-timeout-ms:5}") long enqueueTimeoutMs,
+                             @Value("${activity.logging.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clinicRepository = clinicRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+
+        this.enqueuedCounter = meterRegistry.counter("activity.log.enqueued");
+        this.droppedCounter = meterRegistry.counter("activity.log.dropped");
+        this.writtenCounter = meterRegistry.counter("activity.log.written");
+        this.failedCounter = meterRegistry.counter("activity.log.failed");
+        Gauge.builder("activity.log.buffer.size", buffer, BlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * إضافة نشاط إلى المخزن المؤقت؛ يعيد false إذا تم إسقاطه
+     * Queue an activity for writing. newValue/oldValue are serialized here, on the
+     * request thread, so the writer never reads request-scoped objects after the
+     * request has ended.
+     *
+     * @return false if logging is disabled or the entry was dropped because the buffer is full
+     */
+    public boolean submit(ActivityLog activity, Object newValue, Object oldValue) {
+        if (!enabled) {
+            return false;
+        }
+
+        PendingActivity pending = new PendingActivity(activity,
+                toJson(newValue, "new"), toJson(oldValue, "old"));
+
+        if (stopped) {
+            // الكاتب متوقف (إيقاف التطبيق): كتابة مباشرة بدلاً من الإسقاط
+            writeBatch(List.of(pending));
+            return true;
+        }
+
+        try {
+            if (buffer.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueuedCounter.increment();
+                if (stopped) {
+                    // توقف الكاتب بين الفحص والإضافة
+                    flushRemaining();
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        droppedCounter.increment();
+        logger.warn("Activity log buffer full, dropped {} {} by user {}",
+                activity.getActionType(), activity.getEntityType(), activity.getUserId());
+        return false;
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    // =============================================================================
+    // LIFECYCLE
+    // =============================================================================
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drainLoop, "activity-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Activity log writer started (batchSize={}, flushIntervalMs={}, capacity={})",
+                batchSize, flushIntervalMs, buffer.remainingCapacity() + buffer.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        stopped = true;
+        if (writerThread == null) {
+            return;
+        }
+
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            logger.warn("Activity log writer did not stop within {} ms with {} unwritten entries",
+                    shutdownTimeoutMs, buffer.size());
+        } else {
+            flushRemaining();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * يتوقف بعد توقف خادم الويب حتى تُكتب سجلات الطلبات الجارية
+     * Stops after the embedded web server so in-flight requests are still recorded
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // =============================================================================
+    // WRITER
+    // =============================================================================
+
+    private void drainLoop() {
+        List<PendingActivity> batch = new ArrayList<>(batchSize);
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingActivity first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Never let the writer thread die
+                logger.error("Activity log writer failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        logger.info("Activity log writer drained and stopped");
+    }
+
+    /**
+     * كتابة ما تبقى في المخزن بعد توقف خيط الكاتب
+     */
+    private synchronized void flushRemaining() {
+        List<PendingActivity> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                logger.error("Failed to write remaining activity logs: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingActivity> batch) {
+        resolveMissingClinicNames(batch);
+
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingActivity pending : batch) {
+            rows.add(toRow(pending));
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), this::bindRow);
+            writtenCounter.increment(rows.size());
+        } catch (DataAccessException e) {
+            // عزل الصفوف المعطوبة حتى لا تضيع الدفعة كاملة
+            logger.warn("Batch insert of {} activity logs failed, retrying row by row: {}",
+                    rows.size(), e.getMessage());
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bindRow(ps, row));
+                    writtenCounter.increment();
+                } catch (DataAccessException rowError) {
+                    failedCounter.increment();
+                    logger.error("Failed to write activity log: {}", rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * تحميل أسماء العيادات الناقصة باستعلام واحد للدفعة (مثلاً عند تصرف SYSTEM_ADMIN نيابة عن عيادة)
+     */
+    private void resolveMissingClinicNames(List<PendingActivity> batch) {
+        Set<Long> missing = new HashSet<>();
+        for (PendingActivity pending : batch) {
+            if (pending.activity.getClinicName() == null && pending.activity.getClinicId() != null) {
+                missing.add(pending.activity.getClinicId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Long, String> names = new HashMap<>();
+            for (Clinic clinic : clinicRepository.findAllById(missing)) {
+                names.put(clinic.getId(), clinic.getName());
+            }
+            for (PendingActivity pending : batch) {
+                if (pending.activity.getClinicName() == null) {
+                    pending.activity.setClinicName(names.get(pending.activity.getClinicId()));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to resolve clinic names for activity logs: {}", e.getMessage());
+        }
+    }
+
+    private Object[] toRow(PendingActivity pending) {
+        ActivityLog a = pending.activity;
+        LocalDateTime now = LocalDateTime.now();
+        return new Object[]{
+                a.getClinicId(),
+                truncate(a.getClinicName(), 255),
+                a.getUserId(),
+                truncate(a.getUsername(), 100),
+                truncate(a.getUserFullName(), 200),
+                truncate(a.getUserRole(), 50),
+                a.getActionType() != null ? a.getActionType().name() : null,
+                truncate(a.getHttpMethod(), 10),
+                truncate(a.getEntityType(), 100),
+                a.getEntityId(),
+                truncate(a.getEntityName(), 255),
+                truncate(a.getDescription(), 500),
+                truncate(a.getEndpoint(), 500),
+                truncate(a.getIpAddress(), 45),
+                truncate(a.getUserAgent(), 500),
+                pending.oldValueJson,
+                pending.newValueJson,
+                Timestamp.valueOf(a.getTimestamp() != null ? a.getTimestamp() : now),
+                a.getSuccess() == null || a.getSuccess(),
+                truncate(a.getErrorMessage(), 500),
+                a.getDurationMs(),
+                Timestamp.valueOf(now),
+                Timestamp.valueOf(now)
+        };
+    }
+
+    private void bindRow(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] == null) {
+                ps.setNull(i + 1, Types.NULL);
+            } else {
+                ps.setObject(i + 1, row[i]);
+            }
+        }
+    }
+
+    private String toJson(Object value, String label) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return truncate(objectMapper.writeValueAsString(value), MAX_JSON_LENGTH);
+        } catch (Exception e) {
+            logger.warn("Failed to serialize {} value: {}", label, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    /**
+     * نشاط بانتظار الكتابة (القيم مسلسلة مسبقاً إلى JSON)
+     */
+    private static final class PendingActivity {
+        final ActivityLog activity;
+        final String newValueJson;
+        final String oldValueJson;
+
+        PendingActivity(ActivityLog activity, String newValueJson, String oldValueJson) {
+            this.activity = activity;
+            this.newValueJson = newValueJson;
+            this.oldValueJson = oldValueJson;
+        }
+    }
+}
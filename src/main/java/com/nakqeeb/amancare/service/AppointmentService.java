@@ -12,18 +12,22 @@ import com.nakqeeb.amancare.dto.response.AppointmentPageResponse;
 import com.nakqeeb.amancare.dto.response.AppointmentResponse;
 import com.nakqeeb.amancare.dto.response.AppointmentStatistics;
 import com.nakqeeb.amancare.dto.response.AppointmentSummaryResponse;
+import com.nakqeeb.amancare.dto.response.CursorPageResponse;
 import com.nakqeeb.amancare.entity.*;
 import com.nakqeeb.amancare.exception.BadRequestException;
 import com.nakqeeb.amancare.exception.ConflictException;
 import com.nakqeeb.amancare.exception.ResourceNotFoundException;
 import com.nakqeeb.amancare.repository.*;
+import com.nakqeeb.amancare.repository.projection.AppointmentListView;
 import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.util.CursorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -71,6 +75,15 @@ public class AppointmentService {
     @Autowired
     private DoctorScheduleRepository scheduleRepository;
 
+    @Autowired
+    private AvailabilityCacheService availabilityCacheService;
+
+    @Autowired
+    private ClinicStatisticsService clinicStatisticsService;
+
+    @Autowired
+    private SlotReservationService slotReservationService;
+
     /**
      * إنشاء موعد جديد
      */
@@ -186,6 +199,7 @@ public class AppointmentService {
 
         // 11. Save appointment
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(savedAppointment);
         logger.info("Appointment created successfully: ID={}, Token={}, Duration={}",
                 savedAppointment.getId(), savedAppointment.getTokenNumber(),
                 savedAppointment.getDurationMinutes());
@@ -208,22 +222,13 @@ public class AppointmentService {
             throw new BadRequestException("لا يمكن تجاوز مدة موعد مكتمل");
         }
 
-        // Validate new duration doesn't conflict with next appointment
-        LocalTime endTime = appointment.getAppointmentTime().plusMinutes(request.getNewDurationMinutes());
-        List<Appointment> nextAppointments = appointmentRepository.findByDoctorAndAppointmentDate(
-                appointment.getDoctor(), appointment.getAppointmentDate()
-        );
-
-        for (Appointment next : nextAppointments) {
-            if (next.getId().equals(appointment.getId())) continue;
-            if (next.getStatus() == AppointmentStatus.CANCELLED) continue;
-
-            if (next.getAppointmentTime().isBefore(endTime) &&
-                    next.getAppointmentTime().isAfter(appointment.getAppointmentTime())) {
-                throw new BadRequestException(
-                        "المدة الجديدة تتعارض مع الموعد التالي في " + next.getAppointmentTime()
-                );
-            }
+        // Validate new duration doesn't conflict with next appointment (under the doctor-day lock)
+        Appointment next = slotReservationService.reserve(appointment.getDoctor(), appointment.getAppointmentDate(),
+                appointment.getAppointmentTime(), request.getNewDurationMinutes(), appointment.getId());
+        if (next != null) {
+            throw new BadRequestException(
+                    "المدة الجديدة تتعارض مع الموعد التالي في " + next.getAppointmentTime()
+            );
         }
 
         // Apply override
@@ -232,6 +237,7 @@ public class AppointmentService {
         appointment.setOverrideReason(request.getReason());
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(savedAppointment);
 
         logger.info("Duration overridden for appointment {}: {} -> {} minutes. Reason: {}",
                 appointmentId, appointment.getOriginalDurationMinutes(),
@@ -256,52 +262,29 @@ public class AppointmentService {
     public AppointmentPageResponse getAllAppointments(Long clinicId, LocalDate date, Long doctorId,
                                                       AppointmentStatus status, int page, int size,
                                                       String sortBy, String sortDirection) {
-        Clinic clinic = clinicRepository.findById(clinicId)
-                .orElseThrow(() -> new ResourceNotFoundException("العيادة غير موجودة"));
+        if (clinicId != null && !clinicRepository.existsById(clinicId)) {
+            throw new ResourceNotFoundException("العيادة غير موجودة");
+        }
 
         // إعداد الترتيب
         Sort.Direction direction = sortDirection.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Sort sort = Sort.by(direction, sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Appointment> appointmentsPage;
-
-        // التصفية حسب المعايير
-        if (date != null && doctorId != null && status != null) {
-            // تصفية بالتاريخ والطبيب والحالة
-            User doctor = userRepository.findById(doctorId).orElse(null);
-            if (doctor == null || !doctor.getClinic().getId().equals(clinicId)) {
-                throw new BadRequestException("الطبيب غير موجود في هذه العيادة");
-            }
-            appointmentsPage = appointmentRepository.findByDoctorAndAppointmentDateAndStatus(doctor, date, status, pageable);
-        } else if (date != null && doctorId != null) {
-            // تصفية بالتاريخ والطبيب
+        if (doctorId != null && clinicId != null) {
             User doctor = userRepository.findById(doctorId).orElse(null);
             if (doctor == null || !doctor.getClinic().getId().equals(clinicId)) {
                 throw new BadRequestException("الطبيب غير موجود في هذه العيادة");
             }
-            appointmentsPage = appointmentRepository.findByDoctorAndAppointmentDate(doctor, date, pageable);
-        } else if (date != null) {
-            // تصفية بالتاريخ فقط
-            appointmentsPage = appointmentRepository.findByClinicAndAppointmentDate(clinic, date, pageable);
-        } else if (doctorId != null) {
-            // تصفية بالطبيب فقط
-            User doctor = userRepository.findById(doctorId).orElse(null);
-            if (doctor == null || !doctor.getClinic().getId().equals(clinicId)) {
-                throw new BadRequestException("الطبيب غير موجود في هذه العيادة");
-            }
-            appointmentsPage = appointmentRepository.findByDoctor(doctor, pageable);
-        } else if (status != null) {
-            // تصفية بالحالة فقط
-            appointmentsPage = appointmentRepository.findByClinicAndStatus(clinic, status, pageable);
-        } else {
-            // جميع المواعيد
-            appointmentsPage = appointmentRepository.findByClinic(clinic, pageable);
         }
 
+        // التصفية بكل المعايير المرسلة في استعلام إسقاط واحد
+        Page<AppointmentListView> appointmentsPage = appointmentRepository.findListViews(
+                clinicId, date, doctorId, status, pageable);
+
         List<AppointmentResponse> appointmentSummaries = appointmentsPage.getContent()
                 .stream()
-                .map(AppointmentResponse::fromAppointment)
+                .map(AppointmentResponse::fromView)
                 .collect(Collectors.toList());
 
         return new AppointmentPageResponse(
@@ -315,6 +298,33 @@ public class AppointmentService {
         );
     }
 
+    /**
+     * المواعيد بالترقيم بالمؤشر (بدون استعلام عد)، مرتبة بالتاريخ والوقت
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AppointmentResponse> getAppointmentsByCursor(Long clinicId, LocalDate date,
+                                                                           Long doctorId, AppointmentStatus status,
+                                                                           String cursor, int size) {
+        if (doctorId != null && clinicId != null) {
+            User doctor = userRepository.findById(doctorId).orElse(null);
+            if (doctor == null || !doctor.getClinic().getId().equals(clinicId)) {
+                throw new BadRequestException("الطبيب غير موجود في هذه العيادة");
+            }
+        }
+
+        // المؤشر: تاريخ وآخر وقت ومعرف آخر موعد في الصفحة السابقة
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, 3);
+        Slice<AppointmentListView> slice = appointmentRepository.findListViewsAfterCursor(
+                clinicId, date, doctorId, status,
+                after != null ? after.localDate(0) : null,
+                after != null ? after.localTime(1) : null,
+                after != null ? after.id(2) : null,
+                CursorUtil.limit(size));
+
+        return CursorPageResponse.from(slice, AppointmentResponse::fromView,
+                a -> CursorUtil.encode(a.getAppointmentDate(), a.getAppointmentTime(), a.getId()));
+    }
+
     /**
      * مواعيد اليوم
      */
@@ -382,13 +392,15 @@ public class AppointmentService {
             // Use the new comprehensive validation
             validateAppointmentDateTime(appointment.getDoctor(), newDate, newTime);
 
-            // Also check for conflicts with other appointments
-            if (request.getDurationMinutes() != null) {
-                checkForConflicts(appointment.getDoctor(), newDate, newTime,
-                        request.getDurationMinutes(), appointmentId);
-            }
+            // Also check for conflicts with other appointments (the current duration when none is sent)
+            checkForConflicts(appointment.getDoctor(), newDate, newTime,
+                    request.getDurationMinutes() != null ? request.getDurationMinutes() : appointment.getDurationMinutes(),
+                    appointmentId);
         }
 
+        // إبطال أوقات اليوم الأصلي قبل تغيير التاريخ
+        availabilityCacheService.evictSlots(appointment);
+
         // Update fields
         if (request.getAppointmentDate() != null) {
             appointment.setAppointmentDate(request.getAppointmentDate());
@@ -410,6 +422,7 @@ public class AppointmentService {
         }
 
         Appointment updatedAppointment = appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(updatedAppointment);
         return AppointmentResponse.fromAppointment(updatedAppointment);
     }
 
@@ -430,6 +443,7 @@ public class AppointmentService {
 
         appointment.setStatus(newStatus);
         Appointment updatedAppointment = appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(updatedAppointment);
         return AppointmentResponse.fromAppointment(updatedAppointment);
     }
 
@@ -457,6 +471,7 @@ public class AppointmentService {
         }
 
         appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(appointment);
     }
 
     /**
@@ -503,13 +518,12 @@ public class AppointmentService {
 
         LocalDate targetDate = date != null ? date : LocalDate.now();
 
-        long totalAppointments = appointmentRepository.countAppointmentsByDate(clinic, targetDate);
-        long completedAppointments = appointmentRepository.countAppointmentsByDateAndStatus(
-                clinic, targetDate, AppointmentStatus.COMPLETED);
-        long cancelledAppointments = appointmentRepository.countAppointmentsByDateAndStatus(
-                clinic, targetDate, AppointmentStatus.CANCELLED);
-        long noShowAppointments = appointmentRepository.countAppointmentsByDateAndStatus(
-                clinic, targetDate, AppointmentStatus.NO_SHOW);
+        // Counters maintained by ClinicStatisticsService (the day row of targetDate)
+        ClinicStatisticsService.Snapshot counters = clinicStatisticsService.snapshot(clinic.getId(), targetDate);
+        long totalAppointments = counters.day(ClinicStatisticsMetric.APPOINTMENTS_TOTAL);
+        long completedAppointments = counters.day(ClinicStatisticsMetric.APPOINTMENTS_COMPLETED);
+        long cancelledAppointments = counters.day(ClinicStatisticsMetric.APPOINTMENTS_CANCELLED);
+        long noShowAppointments = counters.day(ClinicStatisticsMetric.APPOINTMENTS_NO_SHOW);
 
         return new AppointmentStatistics(totalAppointments, completedAppointments,
                 cancelledAppointments, noShowAppointments, targetDate);
@@ -733,33 +747,14 @@ public class AppointmentService {
     private void checkForConflicts(User doctor, LocalDate date, LocalTime time,
                                    Integer duration, Long excludeAppointmentId) {
 
-        // الحصول على جميع مواعيد الطبيب في ذلك التاريخ
-        List<Appointment> doctorAppointments = appointmentRepository.findDoctorAppointmentsForConflictCheck(doctor, date);
+        // قفل يوم الطبيب حتى نهاية المعاملة ثم البحث عن موعد متداخل (استبعاد الموعد الحالي في حالة التحديث)
+        Appointment existingAppointment = slotReservationService.reserve(doctor, date, time, duration, excludeAppointmentId);
 
-        // استبعاد الموعد الحالي في حالة التحديث
-        if (excludeAppointmentId != null) {
-            doctorAppointments = doctorAppointments.stream()
-                    .filter(apt -> !apt.getId().equals(excludeAppointmentId))
-                    .collect(Collectors.toList());
-        }
-
-        // حساب وقت انتهاء الموعد الجديد
-        LocalTime newEndTime = time.plusMinutes(duration);
-
-        // التحقق من التعارض مع كل موعد موجود
-        for (Appointment existingAppointment : doctorAppointments) {
+        if (existingAppointment != null) {
             LocalTime existingStartTime = existingAppointment.getAppointmentTime();
             LocalTime existingEndTime = existingStartTime.plusMinutes(existingAppointment.getDurationMinutes());
-
-            // التحقق من التداخل:
-            // الموعد الجديد يبدأ قبل انتهاء الموعد الموجود
-            // AND الموعد الجديد ينتهي بعد بداية الموعد الموجود
-            boolean hasOverlap = time.isBefore(existingEndTime) && newEndTime.isAfter(existingStartTime);
-
-            if (hasOverlap) {
-                throw new ConflictException("يوجد تعارض مع موعد آخر للطبيب من " +
-                        existingStartTime + " إلى " + existingEndTime);
-            }
+            throw new ConflictException("يوجد تعارض مع موعد آخر للطبيب من " +
+                    existingStartTime + " إلى " + existingEndTime);
         }
     }
 
@@ -2,19 +2,15 @@ package com.nakqeeb.amancare.service;
 
 import com.nakqeeb.amancare.entity.Appointment;
 import com.nakqeeb.amancare.entity.AppointmentStatus;
-import com.nakqeeb.amancare.entity.DoctorSchedule;
 import com.nakqeeb.amancare.entity.User;
 import com.nakqeeb.amancare.exception.BadRequestException;
-import com.nakqeeb.amancare.exception.ResourceNotFoundException;
 import com.nakqeeb.amancare.repository.AppointmentRepository;
-import com.nakqeeb.amancare.repository.DoctorScheduleRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
@@ -29,14 +25,11 @@ public class AppointmentTokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(AppointmentTokenService.class);
 
-    @Autowired
-    private DoctorScheduleService doctorScheduleService;
-
     @Autowired
     private AppointmentRepository appointmentRepository;
 
     @Autowired
-    private DoctorScheduleRepository scheduleRepository;
+    private SlotAvailabilityService slotAvailabilityService;
 
     /**
      * Generate available time slots with their corresponding token numbers
@@ -47,37 +40,8 @@ public class AppointmentTokenService {
      */
     @Transactional(readOnly = true)
     public Map<LocalTime, Integer> generateTimeSlotsWithTokens(User doctor, LocalDate date) {
-        // **UPDATED: Get duration from doctor's schedule instead of parameter**
-        Integer durationMinutes = doctorScheduleService.getDurationForDoctor(doctor, date);
-
-        // 1. Get doctor's schedule for this day
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        Optional<DoctorSchedule> scheduleOpt = scheduleRepository.findDoctorScheduleForDay(
-                doctor, dayOfWeek, date
-        );
-
-        if (scheduleOpt.isEmpty()) {
-            logger.debug("No schedule found for doctor {} on {}", doctor.getId(), date);
-            return new LinkedHashMap<>();
-        }
-
-        DoctorSchedule schedule = scheduleOpt.get();
-
-        // 2. Generate all possible time slots
-        List<LocalTime> allTimeSlots = generateTimeSlots(
-                schedule.getStartTime(),
-                schedule.getEndTime(),
-                schedule.getBreakStartTime(),
-                schedule.getBreakEndTime(),
-                durationMinutes
-        );
-
-        // 3. Create token mapping (sequential starting from 1)
-        Map<LocalTime, Integer> slotsWithTokens = new LinkedHashMap<>();
-        int tokenNumber = 1;
-        for (LocalTime slot : allTimeSlots) {
-            slotsWithTokens.put(slot, tokenNumber++);
-        }
+        // Duration, break and token order all come from the doctor's schedule for this day
+        Map<LocalTime, Integer> slotsWithTokens = slotAvailabilityService.loadDay(doctor, date).getTokenSlots();
 
         logger.debug("Generated {} time slots with tokens for doctor {} on {}",
                 slotsWithTokens.size(), doctor.getId(), date);
@@ -88,33 +52,19 @@ public class AppointmentTokenService {
     /**
      * Get available time slots with tokens (excluding booked ones)
      *
+     * A slot is excluded when any minute of it overlaps an active appointment or an
+     * unavailability window; token numbers stay those of the full schedule.
+     *
      * @param doctor The doctor
      * @param date The appointment date
      * @return Map of available time slots to token numbers
      */
     @Transactional(readOnly = true)
     public Map<LocalTime, Integer> getAvailableTimeSlotsWithTokens(User doctor, LocalDate date) {
-        // 1. Generate all time slots with tokens
-        Map<LocalTime, Integer> allSlots = generateTimeSlotsWithTokens(doctor, date);
+        Map<LocalTime, Integer> availableSlots = slotAvailabilityService.loadDay(doctor, date).getFreeTokenSlots();
 
-        // 2. Get all active (non-cancelled) appointments for this doctor on this date
-        List<Appointment> bookedAppointments = appointmentRepository
-                .findActiveAppointmentsByDoctorAndDateOrderByToken(doctor, date);
-
-        // 3. Remove booked time slots
-        Set<LocalTime> bookedTimes = bookedAppointments.stream()
-                .map(Appointment::getAppointmentTime)
-                .collect(Collectors.toSet());
-
-        Map<LocalTime, Integer> availableSlots = new LinkedHashMap<>();
-        for (Map.Entry<LocalTime, Integer> entry : allSlots.entrySet()) {
-            if (!bookedTimes.contains(entry.getKey())) {
-                availableSlots.put(entry.getKey(), entry.getValue());
-            }
-        }
-
-        logger.debug("Found {} available slots out of {} total slots for doctor {} on {}",
-                availableSlots.size(), allSlots.size(), doctor.getId(), date);
+        logger.debug("Found {} available slots for doctor {} on {}",
+                availableSlots.size(), doctor.getId(), date);
 
         return availableSlots;
     }
@@ -218,37 +168,4 @@ public class AppointmentTokenService {
             // The token becomes available for rebooking
         }
     }
-
-    // =============================================================================
-    // Helper Methods
-    // =============================================================================
-
-    /**
-     * Generate time slots between start and end time, excluding break time
-     */
-    private List<LocalTime> generateTimeSlots(LocalTime startTime, LocalTime endTime,
-                                              LocalTime breakStartTime, LocalTime breakEndTime,
-                                              int durationMinutes) {
-        List<LocalTime> slots = new ArrayList<>();
-        LocalTime currentTime = startTime;
-
-        while (currentTime.plusMinutes(durationMinutes).isBefore(endTime) ||
-                currentTime.plusMinutes(durationMinutes).equals(endTime)) {
-
-            // Check if current time is NOT in break time
-            boolean isInBreakTime = false;
-            if (breakStartTime != null && breakEndTime != null) {
-                isInBreakTime = !currentTime.isBefore(breakStartTime) &&
-                        currentTime.isBefore(breakEndTime);
-            }
-
-            if (!isInBreakTime) {
-                slots.add(currentTime);
-            }
-
-            currentTime = currentTime.plusMinutes(durationMinutes);
-        }
-
-        return slots;
-    }
-}
\ No newline at end of file
+}
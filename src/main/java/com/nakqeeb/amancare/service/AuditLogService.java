@@ -17,7 +17,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -242,30 +241,6 @@ public class AuditLogService {
         return stats;
     }
 
-    /**
-     * Export audit logs to CSV
-     */
-    @Transactional(readOnly = true)
-    public String exportAuditLogsToCsv(
-            LocalDateTime startDate,
-            LocalDateTime endDate) {
-
-        StringBuilder csv = new StringBuilder();
-        csv.append("Timestamp,Admin User,Action Type,Clinic,Resource Type,Resource ID,Reason,IP Address,Status\n");
-
-        Pageable pageable = PageRequest.of(0, 10000, Sort.by("createdAt").descending());
-        Page<SystemAdminAction> actions = actionRepository.findByDateRange(
-                startDate, endDate, pageable
-        );
-
-        for (SystemAdminAction action : actions) {
-            csv.append(formatCsvRow(action));
-            csv.append("\n");
-        }
-
-        return csv.toString();
-    }
-
     /**
      * Get actions for specific resource
      */
@@ -503,34 +478,6 @@ public class AuditLogService {
         }
     }
 
-    /**
-     * Format action for CSV export
-     */
-    private String formatCsvRow(SystemAdminAction action) {
-        StringBuilder row = new StringBuilder();
-        row.append(action.getCreatedAt()).append(",");
-        row.append(action.getAdminUserId()).append(",");
-        row.append(action.getActionType()).append(",");
-        row.append(action.getTargetClinicId() != null ? action.getTargetClinicId() : "").append(",");
-        row.append(action.getTargetResourceType() != null ? action.getTargetResourceType() : "").append(",");
-        row.append(action.getTargetResourceId() != null ? action.getTargetResourceId() : "").append(",");
-        row.append(escapeForCsv(action.getReason())).append(",");
-        row.append(action.getIpAddress() != null ? action.getIpAddress() : "").append(",");
-        row.append(action.getResponseStatus() != null ? action.getResponseStatus() : "200");
-        return row.toString();
-    }
-
-    /**
-     * Escape string for CSV format
-     */
-    private String escapeForCsv(String value) {
-        if (value == null) return "";
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
-        }
-        return value;
-    }
-
     /**
      * Convert action statistics to map
      */
@@ -13,8 +13,10 @@ import com.nakqeeb.amancare.entity.UserRole;
 import com.nakqeeb.amancare.exception.ForbiddenOperationException;
 import com.nakqeeb.amancare.repository.ClinicRepository;
 import com.nakqeeb.amancare.repository.UserRepository;
+import com.nakqeeb.amancare.security.JwtClaims;
 import com.nakqeeb.amancare.security.JwtTokenProvider;
 import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.security.UserPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -26,6 +28,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -50,6 +53,9 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     // تعريف الأدوار المسموح إنشاؤها لكل دور
     private static final Set<UserRole> SYSTEM_ADMIN_CAN_CREATE = Set.of(
             UserRole.SYSTEM_ADMIN,  // فقط مدير النظام يمكنه إنشاء مدير نظام آخر
@@ -224,14 +230,16 @@ public class AuthService {
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userPrincipalCache.evict(userId);
     }
 
     /**
      * تحديث الرمز المميز
      */
     public JwtAuthenticationResponse refreshToken(String refreshToken) {
-        if (tokenProvider.validateToken(refreshToken)) {
-            Long userId = tokenProvider.getUserIdFromToken(refreshToken);
+        Optional<JwtClaims> claims = tokenProvider.parseToken(refreshToken);
+        if (claims.isPresent()) {
+            Long userId = claims.get().getUserId();
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("المستخدم غير موجود"));
 
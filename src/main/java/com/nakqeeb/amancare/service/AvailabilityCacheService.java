@@ -0,0 +1,135 @@
+// =============================================================================
+// Availability Cache Service - إبطال الذاكرة المؤقتة للمواعيد المتاحة
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.config.CacheConfig;
+import com.nakqeeb.amancare.entity.Appointment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * إبطال الذاكرة المؤقتة المتعلقة بتوفر الأطباء بعد الحجز والإلغاء وتعديل الجداول
+ * Evicts availability-related cache entries after bookings, cancellations and
+ * schedule changes.
+ *
+ * Evictions run immediately and again after the surrounding transaction commits,
+ * so a concurrent read cannot re-cache the pre-commit state.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AvailabilityCacheService {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * مفتاح ذاكرة الأوقات المتاحة: clinicId-doctorId-date-duration
+     */
+    public static String slotsKey(Long clinicId, Long doctorId, LocalDate date, Integer durationMinutes) {
+        return clinicId + "-" + doctorId + "-" + date + "-" + durationMinutes;
+    }
+
+    /**
+     * مفتاح مصفوفة التوفر الأسبوعية: clinicId-weekStart-duration
+     */
+    public static String matrixKey(Long clinicId, LocalDate weekStart, Integer durationMinutes) {
+        return clinicId + "-" + weekStart + "-" + durationMinutes;
+    }
+
+    /**
+     * بداية الأسبوع (الإثنين) الذي يحتوي التاريخ
+     */
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * إبطال الأوقات المتاحة لطبيب في تاريخ معين (لجميع المدد)
+     */
+    public void evictSlots(Long clinicId, Long doctorId, LocalDate date) {
+        String prefix = clinicId + "-" + doctorId + "-" + date + "-";
+        String matrixPrefix = clinicId + "-" + weekStart(date) + "-";
+        runNowAndAfterCommit(() -> {
+            evictByPrefix(CacheConfig.AVAILABLE_SLOTS, prefix);
+            evictByPrefix(CacheConfig.AVAILABILITY_MATRIX, matrixPrefix);
+        });
+    }
+
+    /**
+     * إبطال الأوقات المتاحة الخاصة بموعد
+     */
+    public void evictSlots(Appointment appointment) {
+        evictSlots(appointment.getClinic().getId(), appointment.getDoctor().getId(),
+                appointment.getAppointmentDate());
+    }
+
+    /**
+     * إبطال كل ما يخص الطبيب بعد تغيير جدوله أو أوقات عدم توفره
+     */
+    public void evictDoctor(Long clinicId, Long doctorId) {
+        String prefix = clinicId + "-" + doctorId + "-";
+        runNowAndAfterCommit(() -> {
+            evictByPrefix(CacheConfig.AVAILABLE_SLOTS, prefix);
+            evictByPrefix(CacheConfig.AVAILABILITY_MATRIX, clinicId + "-");
+            evictKey(CacheConfig.DOCTOR_SCHEDULES, doctorId);
+            evictKey(CacheConfig.CLINIC_DOCTORS, clinicId);
+        });
+    }
+
+    /**
+     * إبطال قائمة أطباء العيادة (مثلاً عند تفعيل أو تعطيل طبيب)
+     */
+    public void evictClinicDoctors(Long clinicId) {
+        runNowAndAfterCommit(() -> {
+            evictKey(CacheConfig.CLINIC_DOCTORS, clinicId);
+            evictByPrefix(CacheConfig.AVAILABILITY_MATRIX, clinicId + "-");
+        });
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private void evictKey(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void evictByPrefix(String cacheName, String prefix) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().asMap().keySet()
+                    .removeIf(key -> key instanceof String k && k.startsWith(prefix));
+        } else if (cache != null) {
+            cache.clear();
+        }
+        log.debug("Evicted {} entries with prefix {}", cacheName, prefix);
+    }
+
+    private void runNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
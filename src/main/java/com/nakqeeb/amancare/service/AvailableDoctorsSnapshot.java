@@ -0,0 +1,166 @@
+// =============================================================================
+// Available Doctors Snapshot - لقطة توفر الأطباء لليوم الحالي
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.dto.response.DoctorAvailabilityResponse;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.DoctorScheduleRepository;
+import com.nakqeeb.amancare.repository.projection.DoctorDayAvailabilityView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * لقطة في الذاكرة لجداول جميع الأطباء وأوقات عدم توفرهم لليوم الحالي
+ * In-memory snapshot behind the public "available now" endpoint.
+ *
+ * The snapshot holds the effective schedule and unavailability periods of every
+ * active doctor for today, loaded with a single join query. It is refreshed in
+ * the background every refresh-interval-ms and reloaded on the first read after
+ * midnight. Requests only evaluate the current time against it, so public
+ * traffic does not reach the database. Schedule changes show up after at most
+ * one refresh interval.
+ */
+@Service
+@Slf4j
+public class AvailableDoctorsSnapshot {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final DoctorScheduleRepository scheduleRepository;
+
+    private final Object loadLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    public AvailableDoctorsSnapshot(DoctorScheduleRepository scheduleRepository) {
+        this.scheduleRepository = scheduleRepository;
+    }
+
+    /**
+     * الأطباء المتاحون الآن (clinicId = null لجميع العيادات)
+     */
+    public List<DoctorAvailabilityResponse> getAvailableNow(Long clinicId) {
+        LocalDate today = LocalDate.now();
+        LocalTime now = LocalTime.now();
+        Snapshot current = snapshotFor(today);
+
+        List<DoctorAvailabilityResponse> available = new ArrayList<>();
+        for (DoctorDay doctor : current.doctors()) {
+            if (clinicId != null && !clinicId.equals(doctor.clinicId())) {
+                continue;
+            }
+            if (!doctor.isAvailableAt(now)) {
+                continue;
+            }
+
+            DoctorAvailabilityResponse response = new DoctorAvailabilityResponse();
+            response.setDoctorId(doctor.doctorId());
+            response.setDoctorName(doctor.doctorName());
+            response.setSpecialization(doctor.specialization());
+            response.setClinicId(doctor.clinicId());
+            response.setClinicName(doctor.clinicName());
+            response.setAvailableNow(true);
+            response.setAvailableUntil(doctor.endTime().format(TIME_FORMAT));
+            available.add(response);
+        }
+        return available;
+    }
+
+    /**
+     * تحديث اللقطة في الخلفية
+     */
+    @Scheduled(fixedDelayString = "${app.public.available-doctors.refresh-interval-ms:30000}",
+            initialDelayString = "${app.public.available-doctors.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            load(LocalDate.now());
+        } catch (Exception e) {
+            log.warn("Failed to refresh available doctors snapshot: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot snapshotFor(LocalDate today) {
+        Snapshot current = snapshot;
+        if (current != null && current.date().equals(today)) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = snapshot;
+            if (current != null && current.date().equals(today)) {
+                return current;
+            }
+            return load(today);
+        }
+    }
+
+    private Snapshot load(LocalDate date) {
+        List<DoctorDayAvailabilityView> rows = scheduleRepository.findDayAvailability(
+                UserRole.DOCTOR, date.getDayOfWeek(), date);
+
+        // الصفوف مرتبة حسب الطبيب ثم أحدث جدول؛ يُعتمد أول جدول لكل طبيب
+        List<DoctorDay> doctors = new ArrayList<>();
+        DoctorDay currentDoctor = null;
+        for (DoctorDayAvailabilityView row : rows) {
+            if (currentDoctor == null || !currentDoctor.doctorId().equals(row.getDoctorId())) {
+                currentDoctor = new DoctorDay(row.getDoctorId(),
+                        row.getDoctorFirstName() + " " + row.getDoctorLastName(),
+                        row.getSpecialization(), row.getClinicId(), row.getClinicName(), row.getScheduleId(),
+                        row.getStartTime(), row.getEndTime(), row.getBreakStartTime(), row.getBreakEndTime(),
+                        new ArrayList<>());
+                doctors.add(currentDoctor);
+            }
+            if (row.getUnavailabilityId() != null && row.getScheduleId().equals(currentDoctor.scheduleId())) {
+                currentDoctor.unavailable().add(new LocalTime[]{row.getUnavailableFrom(), row.getUnavailableTo()});
+            }
+        }
+
+        Snapshot loaded = new Snapshot(date, List.copyOf(doctors));
+        snapshot = loaded;
+        log.debug("Loaded available doctors snapshot for {}: {} scheduled doctors", date, doctors.size());
+        return loaded;
+    }
+
+    private record Snapshot(LocalDate date, List<DoctorDay> doctors) {}
+
+    /**
+     * جدول طبيب واحد لليوم مع فترات عدم التوفر [من، إلى] (كلاهما null = طوال اليوم)
+     */
+    private record DoctorDay(Long doctorId, String doctorName, String specialization,
+                             Long clinicId, String clinicName, Long scheduleId,
+                             LocalTime startTime, LocalTime endTime,
+                             LocalTime breakStartTime, LocalTime breakEndTime,
+                             List<LocalTime[]> unavailable) {
+
+        // نفس قواعد DoctorSchedule.isAvailableAt و DoctorUnavailability.isUnavailableAt
+        boolean isAvailableAt(LocalTime time) {
+            if (time.isBefore(startTime) || time.isAfter(endTime)) {
+                return false;
+            }
+            if (breakStartTime != null && breakEndTime != null
+                    && !time.isBefore(breakStartTime) && !time.isAfter(breakEndTime)) {
+                return false;
+            }
+            for (LocalTime[] period : unavailable) {
+                LocalTime from = period[0];
+                LocalTime to = period[1];
+                if (from == null && to == null) {
+                    return false;
+                }
+                if (from != null && to != null && !time.isBefore(from) && !time.isAfter(to)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -4,6 +4,7 @@
 
 package com.nakqeeb.amancare.service;
 
+import com.nakqeeb.amancare.config.CacheConfig;
 import com.nakqeeb.amancare.entity.Clinic;
 import com.nakqeeb.amancare.entity.SystemAdminAction;
 import com.nakqeeb.amancare.entity.User;
@@ -18,7 +19,11 @@ import com.nakqeeb.amancare.security.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -31,6 +36,12 @@ import java.util.Optional;
 /**
  * خدمة إدارة سياق العيادة لـ SYSTEM_ADMIN
  * تتيح لـ SYSTEM_ADMIN التصرف نيابة عن عيادة معينة لأغراض الدعم والصيانة
+ *
+ * The effective clinic of a SYSTEM_ADMIN is resolved once per request and kept
+ * as a request attribute, so the activity logging aspect and every service on
+ * the same request reuse it. The header is parsed, the clinic is checked
+ * against the clinics cache, and one CONTEXT_SWITCH action is recorded off the
+ * request thread, all once per request instead of once per call site.
  */
 @Service
 @Transactional
@@ -38,6 +49,8 @@ public class ClinicContextService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClinicContextService.class);
 
+    private static final String RESOLVED_CONTEXT_ATTRIBUTE = ClinicContextService.class.getName() + ".RESOLVED";
+
     @Autowired
     private ClinicRepository clinicRepository;
 
@@ -47,6 +60,13 @@ public class ClinicContextService {
     @Autowired
     private SystemAdminActionRepository actionRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("adminActionTaskExecutor")
+    private TaskExecutor adminActionTaskExecutor;
+
     /**
      * الحصول على معرف العيادة الفعال للمستخدم الحالي
      *
@@ -62,6 +82,12 @@ public class ClinicContextService {
             return userPrincipal.getClinicId();
         }
 
+        // سياق محسوب مسبقاً في نفس الطلب
+        ResolvedClinicContext resolved = getResolvedContext();
+        if (resolved != null && resolved.userId().equals(userPrincipal.getId())) {
+            return resolved.clinicId();
+        }
+
         // للـ SYSTEM_ADMIN، تحقق من وجود سياق عيادة
         Long contextClinicId = getClinicContextFromRequest();
 
@@ -75,8 +101,9 @@ public class ClinicContextService {
         // التحقق من وجود العيادة
         validateClinicExists(contextClinicId);
 
-        // تسجيل الإجراء
+        // تسجيل الإجراء (مرة واحدة لكل طلب)
         logSystemAdminAction(userPrincipal.getId(), contextClinicId, "CONTEXT_SWITCH");
+        storeResolvedContext(new ResolvedClinicContext(userPrincipal.getId(), contextClinicId));
 
         return contextClinicId;
     }
@@ -158,12 +185,40 @@ public class ClinicContextService {
 
     /**
      * التحقق من وجود العيادة
+     * Only existing clinics are cached, so a clinic created after a failed lookup
+     * is found on the next request. Clinics are never hard-deleted.
      */
-    @Cacheable("clinics")
     private void validateClinicExists(Long clinicId) {
+        Cache cache = cacheManager.getCache(CacheConfig.CLINICS);
+        if (cache != null && cache.get(clinicId) != null) {
+            return;
+        }
         if (!clinicRepository.existsById(clinicId)) {
             throw new ResourceNotFoundException("العيادة المحددة غير موجودة: " + clinicId);
         }
+        if (cache != null) {
+            cache.put(clinicId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * السياق المحسوب مسبقاً في الطلب الحالي (null خارج الطلبات أو قبل الحساب)
+     */
+    private ResolvedClinicContext getResolvedContext() {
+        ServletRequestAttributes attributes =
+                (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (ResolvedClinicContext) attributes.getRequest().getAttribute(RESOLVED_CONTEXT_ATTRIBUTE);
+    }
+
+    private void storeResolvedContext(ResolvedClinicContext resolved) {
+        ServletRequestAttributes attributes =
+                (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.getRequest().setAttribute(RESOLVED_CONTEXT_ATTRIBUTE, resolved);
+        }
     }
 
     /**
@@ -189,10 +244,12 @@ public class ClinicContextService {
                 action.setRequestMethod(method);
                 action.setCreatedAt(LocalDateTime.now());
 
-                actionRepository.save(action);
-
-                logger.info("System Admin Action Logged: User {} performed {} on clinic {} - {}",
-                        adminUserId, actionType, targetClinicId, reason);
+                // الحفظ خارج خيط الطلب على منفذ مخصص يُفرَّغ عند الإيقاف؛ عند امتلاء طابوره يُحفظ مباشرة
+                try {
+                    adminActionTaskExecutor.execute(() -> saveSystemAdminAction(action));
+                } catch (TaskRejectedException e) {
+                    saveSystemAdminAction(action);
+                }
             }
         } catch (Exception e) {
             logger.error("Failed to log system admin action", e);
@@ -200,6 +257,17 @@ public class ClinicContextService {
         }
     }
 
+    private void saveSystemAdminAction(SystemAdminAction action) {
+        try {
+            actionRepository.save(action);
+
+            logger.info("System Admin Action Logged: User {} performed {} on clinic {} - {}",
+                    action.getAdminUserId(), action.getActionType(), action.getTargetClinicId(), action.getReason());
+        } catch (Exception e) {
+            logger.error("Failed to log system admin action", e);
+        }
+    }
+
     /**
      * الحصول على معلومات السياق الحالي
      */
@@ -228,6 +296,11 @@ public class ClinicContextService {
         return info;
     }
 
+    /**
+     * سياق العيادة المحسوب لـ SYSTEM_ADMIN في الطلب الحالي
+     */
+    private record ResolvedClinicContext(Long userId, Long clinicId) {}
+
     /**
      * DTO لمعلومات السياق
      */
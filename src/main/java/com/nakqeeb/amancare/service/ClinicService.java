@@ -10,6 +10,7 @@ import com.nakqeeb.amancare.dto.request.UpdateClinicRequest;
 import com.nakqeeb.amancare.dto.request.UpdateSubscriptionRequest;
 import com.nakqeeb.amancare.dto.response.*;
 import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.ClinicStatisticsMetric;
 import com.nakqeeb.amancare.entity.Patient;
 import com.nakqeeb.amancare.entity.SubscriptionPlan;
 import com.nakqeeb.amancare.entity.User;
@@ -31,7 +32,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -65,6 +65,9 @@ public class ClinicService {
     @Autowired
     private ClinicContextService clinicContextService;
 
+    @Autowired
+    private ClinicStatisticsService clinicStatisticsService;
+
     // ===================================================================
     // CREATE OPERATIONS
     // ===================================================================
@@ -194,24 +197,20 @@ public class ClinicService {
         stats.setClinicId(clinicId);
         stats.setClinicName(clinic.getName());
 
-        // Get counts
-        stats.setTotalUsers(userRepository.countByClinic(clinic));
-        stats.setTotalPatients(patientRepository.countActivePatientsByClinic(clinic));
-        stats.setActivePatients(patientRepository.countActivePatientsByClinic(clinic));
-        stats.setTotalAppointments(appointmentRepository.countByClinic(clinic));
-        stats.setTodayAppointments(appointmentRepository.countTodayAppointmentsByClinic(
-                clinic, LocalDate.now()));
-
-        // Get financial data (handle nulls from repository)
-        BigDecimal totalRevenue = invoiceRepository.getTotalRevenueByClinic(clinic);
-        stats.setTotalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
-
-        BigDecimal monthlyRevenue = invoiceRepository.getMonthlyRevenue(
-                clinic, LocalDate.now().getYear(), LocalDate.now().getMonthValue());
-        stats.setMonthlyRevenue(monthlyRevenue != null ? monthlyRevenue : BigDecimal.ZERO);
-
-        BigDecimal outstandingBalance = invoiceRepository.getTotalOutstandingAmount(clinic);
-        stats.setOutstandingBalance(outstandingBalance != null ? outstandingBalance : BigDecimal.ZERO);
+        // Counters maintained by ClinicStatisticsService (one indexed read instead of a query per figure)
+        ClinicStatisticsService.Snapshot counters = clinicStatisticsService.snapshot(clinicId, LocalDate.now());
+        stats.setTotalUsers(counters.total(ClinicStatisticsMetric.USERS_TOTAL));
+        stats.setTotalPatients(counters.total(ClinicStatisticsMetric.PATIENTS_ACTIVE));
+        stats.setActivePatients(counters.total(ClinicStatisticsMetric.PATIENTS_ACTIVE));
+        stats.setTotalAppointments(counters.total(ClinicStatisticsMetric.APPOINTMENTS_TOTAL));
+        stats.setTodayAppointments(counters.day(ClinicStatisticsMetric.APPOINTMENTS_TOTAL)
+                - counters.day(ClinicStatisticsMetric.APPOINTMENTS_CANCELLED)
+                - counters.day(ClinicStatisticsMetric.APPOINTMENTS_NO_SHOW));
+
+        // Get financial data
+        stats.setTotalRevenue(counters.totalAmount(ClinicStatisticsMetric.INVOICES_PAID_AMOUNT));
+        stats.setMonthlyRevenue(counters.monthAmount(ClinicStatisticsMetric.INVOICES_PAID_AMOUNT));
+        stats.setOutstandingBalance(counters.totalAmount(ClinicStatisticsMetric.INVOICES_OUTSTANDING_AMOUNT));
 
         // Subscription info
         stats.setSubscriptionPlan(clinic.getSubscriptionPlan().name());
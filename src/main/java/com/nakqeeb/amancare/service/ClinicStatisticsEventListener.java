@@ -0,0 +1,180 @@
+// =============================================================================
+// Clinic Statistics Event Listener - تحويل تغييرات الكيانات إلى فروقات إحصائية
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.entity.*;
+import com.nakqeeb.amancare.entity.healthrecords.RecordStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * يستقبل أحداث Hibernate بعد نجاح المعاملة ويحسب الفرق في إحصائيات العيادة
+ * Hibernate post-commit listener feeding ClinicStatisticsService.
+ *
+ * Every path that changes a tracked entity through JPA is covered, whichever
+ * service made the change. An update contributes new state minus old state. An
+ * update without the old state marks the clinic for a rebuild instead.
+ * Rolled-back transactions never reach the listener.
+ */
+@Component
+@Slf4j
+public class ClinicStatisticsEventListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final Set<Class<?>> TRACKED = Set.of(
+            Appointment.class, Invoice.class, Payment.class, Patient.class, User.class, MedicalRecord.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ClinicStatisticsService statisticsService;
+
+    public ClinicStatisticsEventListener(EntityManagerFactory entityManagerFactory,
+                                         ClinicStatisticsService statisticsService) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.statisticsService = statisticsService;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!statisticsService.isEnabled()) {
+            return;
+        }
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return TRACKED.contains(persister.getMappedClass());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getPersister(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) {
+            // الحالة السابقة غير معروفة (تحديث بدون تحميل الكيان)
+            statisticsService.markDirty(clinicId(event.getPersister().getPropertyNames(), event.getState()));
+            return;
+        }
+        record(event.getPersister(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getPersister(), event.getDeletedState(), null);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // المعاملة لم تنجح، لا يوجد تغيير
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private void record(EntityPersister persister, Object[] oldState, Object[] newState) {
+        try {
+            Class<?> type = persister.getMappedClass();
+            String[] names = persister.getPropertyNames();
+
+            ClinicStatisticsService.Delta delta = new ClinicStatisticsService.Delta();
+            if (oldState != null) {
+                contribute(type, names, oldState, -1, delta);
+            }
+            if (newState != null) {
+                contribute(type, names, newState, 1, delta);
+            }
+            statisticsService.apply(delta);
+        } catch (Exception e) {
+            // لا يجب أن يؤثر فشل الإحصائيات على الطلب؛ إعادة البناء الليلية تصحح العدادات
+            log.warn("Could not record statistics for {}: {}", persister.getEntityName(), e.getMessage());
+        }
+    }
+
+    private void contribute(Class<?> type, String[] names, Object[] state, int sign,
+                            ClinicStatisticsService.Delta delta) {
+        Long clinicId = clinicId(names, state);
+        if (clinicId == null) {
+            return;
+        }
+
+        if (type == Appointment.class) {
+            statisticsService.contributeAppointment(delta, clinicId,
+                    (LocalDate) value(names, state, "appointmentDate"),
+                    (AppointmentStatus) value(names, state, "status"), sign);
+        } else if (type == Invoice.class) {
+            statisticsService.contributeInvoice(delta, clinicId,
+                    (LocalDate) value(names, state, "invoiceDate"),
+                    (InvoiceStatus) value(names, state, "status"),
+                    (BigDecimal) value(names, state, "totalAmount"),
+                    (BigDecimal) value(names, state, "balanceDue"), sign);
+        } else if (type == Payment.class) {
+            statisticsService.contributePayment(delta, clinicId,
+                    (LocalDate) value(names, state, "paymentDate"),
+                    (BigDecimal) value(names, state, "amount"), sign);
+        } else if (type == Patient.class) {
+            statisticsService.contributePatient(delta, clinicId,
+                    (Boolean) value(names, state, "isActive"), sign);
+        } else if (type == User.class) {
+            statisticsService.contributeUser(delta, clinicId,
+                    (UserRole) value(names, state, "role"),
+                    (Boolean) value(names, state, "isActive"), sign);
+        } else if (type == MedicalRecord.class) {
+            statisticsService.contributeMedicalRecord(delta, clinicId,
+                    (LocalDate) value(names, state, "visitDate"),
+                    (RecordStatus) value(names, state, "status"), sign);
+        }
+    }
+
+    private static Long clinicId(String[] names, Object[] state) {
+        Object clinic = value(names, state, "clinic");
+        if (clinic instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        return clinic instanceof Clinic c ? c.getId() : null;
+    }
+
+    private static Object value(String[] names, Object[] state, String property) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,631 @@
+// =============================================================================
+// Clinic Statistics Service - إحصائيات العيادات المحدثة تدريجياً
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.entity.AppointmentStatus;
+import com.nakqeeb.amancare.entity.ClinicStatistics;
+import com.nakqeeb.amancare.entity.ClinicStatisticsMetric;
+import com.nakqeeb.amancare.entity.InvoiceStatus;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.entity.healthrecords.RecordStatus;
+import com.nakqeeb.amancare.repository.ClinicRepository;
+import com.nakqeeb.amancare.repository.ClinicStatisticsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * إحصائيات لوحة التحكم لكل عيادة: عدادات تُحدّث مع كل تغيير بدلاً من استعلامات COUNT متعددة
+ * Incrementally maintained clinic statistics.
+ *
+ * ClinicStatisticsEventListener turns committed inserts, updates and deletes of
+ * appointments, invoices, payments, patients, users and medical records into
+ * deltas. The deltas are merged in memory and flushed every few seconds as
+ * additive upserts into the ALL, month and day rows of the clinic, so a
+ * dashboard read is a primary-key lookup of a handful of rows. Counters lag
+ * commits by at most flush-interval-ms.
+ *
+ * Deltas that are lost (crash before flush, bulk SQL that bypasses Hibernate)
+ * are corrected by rebuild(), which recomputes a clinic from the source tables.
+ * It runs nightly, for clinics without statistics at startup, and for clinics
+ * whose change could not be turned into a delta. The recompute reads one
+ * REPEATABLE READ snapshot; the clinic's pending deltas are discarded right after
+ * that snapshot is taken, because the commits they describe are already in it.
+ * Deltas recorded later are kept and flushed on top of the rebuilt rows.
+ */
+@Service
+@Slf4j
+public class ClinicStatisticsService {
+
+    public static final String ALL = "ALL";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final Set<InvoiceStatus> PENDING_STATUSES = EnumSet.of(
+            InvoiceStatus.PENDING, InvoiceStatus.SENT, InvoiceStatus.VIEWED, InvoiceStatus.PARTIALLY_PAID);
+    private static final Set<InvoiceStatus> OUTSTANDING_STATUSES = EnumSet.of(
+            InvoiceStatus.SENT, InvoiceStatus.PARTIALLY_PAID, InvoiceStatus.OVERDUE);
+
+    private static final ClinicStatisticsMetric[] METRICS = ClinicStatisticsMetric.values();
+    private static final String UPSERT_SQL = buildUpsertSql();
+    private static final Comparator<RowKey> ROW_KEY_ORDER =
+            Comparator.comparing(RowKey::clinicId).thenComparing(RowKey::period);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClinicStatisticsRepository statisticsRepository;
+    private final ClinicRepository clinicRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final boolean enabled;
+
+    // التغييرات المعلقة بانتظار الكتابة، محمية بـ pendingLock
+    private final Object pendingLock = new Object();
+    private Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> pending = new HashMap<>();
+    private Set<Long> dirtyClinics = new HashSet<>();
+
+    // الكتابة وإعادة البناء لا تتداخلان
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public ClinicStatisticsService(JdbcTemplate jdbcTemplate,
+                                   ClinicStatisticsRepository statisticsRepository,
+                                   ClinicRepository clinicRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.statistics.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statisticsRepository = statisticsRepository;
+        this.clinicRepository = clinicRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // =============================================================================
+    // READ
+    // =============================================================================
+
+    /**
+     * قراءة صفوف الإجمالي والشهر والأسبوع واليوم للتاريخ المحدد باستعلام واحد
+     * عند تعطيل العدادات تُحسب القيم مباشرة باستعلام تجميع واحد لكل جدول
+     */
+    public Snapshot snapshot(Long clinicId, LocalDate date) {
+        LocalDate weekStart = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+        Set<String> periods = new LinkedHashSet<>();
+        periods.add(ALL);
+        periods.add(monthPeriod(date));
+        for (int i = 0; i < 7; i++) {
+            periods.add(dayPeriod(weekStart.plusDays(i)));
+        }
+
+        Map<String, Map<ClinicStatisticsMetric, BigDecimal>> rows = new HashMap<>();
+        if (enabled) {
+            for (ClinicStatistics row : statisticsRepository.findByClinicIdAndPeriodIn(clinicId, periods)) {
+                EnumMap<ClinicStatisticsMetric, BigDecimal> values = new EnumMap<>(ClinicStatisticsMetric.class);
+                for (ClinicStatisticsMetric metric : METRICS) {
+                    values.put(metric, metric.valueOf(row));
+                }
+                rows.put(row.getPeriod(), values);
+            }
+        } else {
+            recompute(clinicId).forEach((key, values) -> {
+                if (periods.contains(key.period())) {
+                    rows.put(key.period(), values);
+                }
+            });
+        }
+        return new Snapshot(rows, date, weekStart);
+    }
+
+    // =============================================================================
+    // CONTRIBUTIONS
+    // =============================================================================
+
+    public void contributeAppointment(Delta delta, Long clinicId, LocalDate date, AppointmentStatus status, int sign) {
+        delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_TOTAL, sign);
+        if (status == AppointmentStatus.COMPLETED) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_COMPLETED, sign);
+        } else if (status == AppointmentStatus.CANCELLED) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_CANCELLED, sign);
+        } else if (status == AppointmentStatus.NO_SHOW) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_NO_SHOW, sign);
+        }
+    }
+
+    public void contributeInvoice(Delta delta, Long clinicId, LocalDate date, InvoiceStatus status,
+                                  BigDecimal totalAmount, BigDecimal balanceDue, int sign) {
+        delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_TOTAL, sign);
+        if (status == InvoiceStatus.PAID) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PAID, sign);
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PAID_AMOUNT, signed(totalAmount, sign));
+        } else if (status == InvoiceStatus.PENDING) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PENDING, sign);
+        } else if (status == InvoiceStatus.CANCELLED) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_CANCELLED, sign);
+        }
+        if (PENDING_STATUSES.contains(status)) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PENDING_AMOUNT, signed(balanceDue, sign));
+        }
+        if (OUTSTANDING_STATUSES.contains(status)) {
+            delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_OUTSTANDING_AMOUNT, signed(balanceDue, sign));
+        }
+    }
+
+    public void contributePayment(Delta delta, Long clinicId, LocalDate date, BigDecimal amount, int sign) {
+        delta.add(clinicId, date, ClinicStatisticsMetric.PAYMENTS_AMOUNT, signed(amount, sign));
+    }
+
+    public void contributePatient(Delta delta, Long clinicId, Boolean isActive, int sign) {
+        if (Boolean.TRUE.equals(isActive)) {
+            delta.add(clinicId, null, ClinicStatisticsMetric.PATIENTS_ACTIVE, sign);
+        }
+    }
+
+    public void contributeUser(Delta delta, Long clinicId, UserRole role, Boolean isActive, int sign) {
+        boolean active = Boolean.TRUE.equals(isActive);
+        delta.add(clinicId, null, ClinicStatisticsMetric.USERS_TOTAL, sign);
+        if (active) {
+            delta.add(clinicId, null, ClinicStatisticsMetric.USERS_ACTIVE, sign);
+        }
+        ClinicStatisticsMetric roleMetric = roleMetric(role, false);
+        if (roleMetric != null) {
+            delta.add(clinicId, null, roleMetric, sign);
+            if (active) {
+                delta.add(clinicId, null, roleMetric(role, true), sign);
+            }
+        }
+    }
+
+    public void contributeMedicalRecord(Delta delta, Long clinicId, LocalDate date, RecordStatus status, int sign) {
+        delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_TOTAL, sign);
+        ClinicStatisticsMetric statusMetric = recordStatusMetric(status);
+        if (statusMetric != null) {
+            delta.add(clinicId, date, statusMetric, sign);
+        }
+    }
+
+    /**
+     * إضافة تغييرات معاملة منتهية إلى المخزن المؤقت
+     */
+    public void apply(Delta delta) {
+        if (!enabled || delta.isEmpty()) {
+            return;
+        }
+        synchronized (pendingLock) {
+            delta.rows.forEach((key, values) -> {
+                EnumMap<ClinicStatisticsMetric, BigDecimal> target =
+                        pending.computeIfAbsent(key, k -> new EnumMap<>(ClinicStatisticsMetric.class));
+                values.forEach((metric, value) -> target.merge(metric, value, BigDecimal::add));
+            });
+        }
+    }
+
+    /**
+     * تغيير لا يمكن تحويله إلى فرق (مثلاً بدون الحالة السابقة): إعادة حساب العيادة عند الكتابة التالية
+     */
+    public void markDirty(Long clinicId) {
+        if (!enabled || clinicId == null) {
+            return;
+        }
+        synchronized (pendingLock) {
+            dirtyClinics.add(clinicId);
+        }
+    }
+
+    // =============================================================================
+    // WRITE
+    // =============================================================================
+
+    /**
+     * كتابة التغييرات المعلقة إلى قاعدة البيانات
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.flush-interval-ms:2000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        Set<Long> dirty;
+        writeLock.lock();
+        try {
+            Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> batch;
+            synchronized (pendingLock) {
+                if (pending.isEmpty() && dirtyClinics.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                dirty = dirtyClinics;
+                pending = new HashMap<>();
+                dirtyClinics = new HashSet<>();
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    // دفعة واحدة في معاملة واحدة: إما تُطبق كلها أو تُعاد كلها إلى الطابور دون احتساب مزدوج
+                    transactionTemplate.executeWithoutResult(status -> writeRows(batch));
+                } catch (Exception e) {
+                    log.warn("Failed to flush {} statistics rows, will retry: {}", batch.size(), e.getMessage());
+                    requeue(batch);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        for (Long clinicId : dirty) {
+            rebuild(clinicId);
+        }
+    }
+
+    /**
+     * إعادة حساب إحصائيات عيادة من الجداول الأصلية
+     */
+    public void rebuild(Long clinicId) {
+        if (!enabled) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> rows = snapshotTemplate.execute(status -> {
+                // أول قراءة تثبت اللقطة؛ التغييرات المعلقة قبلها موجودة في اللقطة فتُحذف حتى لا تُحسب مرتين
+                jdbcTemplate.queryForList("SELECT id FROM clinics WHERE id = ?", Long.class, clinicId);
+                discardPending(clinicId);
+                return recompute(clinicId);
+            });
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM clinic_statistics WHERE clinic_id = ?", clinicId);
+                writeRows(rows);
+            });
+            log.debug("Rebuilt statistics for clinic {} ({} rows)", clinicId, rows.size());
+        } catch (Exception e) {
+            log.error("Failed to rebuild statistics for clinic {}: {}", clinicId, e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * إعادة حساب جميع العيادات (مطابقة دورية)
+     */
+    public void rebuildAll() {
+        flush();
+        clinicRepository.findAll().forEach(clinic -> rebuild(clinic.getId()));
+    }
+
+    /**
+     * حساب العيادات التي لا توجد لها إحصائيات (أول تشغيل أو عيادة جديدة)
+     */
+    public void rebuildMissing() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> clinicIds = statisticsRepository.findClinicIdsWithoutStatistics();
+        if (!clinicIds.isEmpty()) {
+            log.info("Building statistics for {} clinics", clinicIds.size());
+            clinicIds.forEach(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> recompute(Long clinicId) {
+        Delta delta = new Delta();
+        // صف الإجمالي موجود دائماً حتى لعيادة فارغة
+        delta.add(clinicId, null, ClinicStatisticsMetric.USERS_TOTAL, BigDecimal.ZERO);
+
+        jdbcTemplate.query("SELECT appointment_date, COUNT(*), SUM(status = 'COMPLETED'), " +
+                        "SUM(status = 'CANCELLED'), SUM(status = 'NO_SHOW') " +
+                        "FROM appointments WHERE clinic_id = ? GROUP BY appointment_date",
+                rs -> {
+                    LocalDate date = rs.getDate(1).toLocalDate();
+                    delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_TOTAL, rs.getLong(2));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_COMPLETED, rs.getLong(3));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_CANCELLED, rs.getLong(4));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.APPOINTMENTS_NO_SHOW, rs.getLong(5));
+                }, clinicId);
+
+        jdbcTemplate.query("SELECT invoice_date, COUNT(*), SUM(status = 'PAID'), SUM(status = 'PENDING'), " +
+                        "SUM(status = 'CANCELLED'), " +
+                        "COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount END), 0), " +
+                        "COALESCE(SUM(CASE WHEN status IN (" + inList(PENDING_STATUSES) + ") THEN balance_due END), 0), " +
+                        "COALESCE(SUM(CASE WHEN status IN (" + inList(OUTSTANDING_STATUSES) + ") THEN balance_due END), 0) " +
+                        "FROM invoices WHERE clinic_id = ? GROUP BY invoice_date",
+                rs -> {
+                    LocalDate date = rs.getDate(1).toLocalDate();
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_TOTAL, rs.getLong(2));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PAID, rs.getLong(3));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PENDING, rs.getLong(4));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_CANCELLED, rs.getLong(5));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PAID_AMOUNT, rs.getBigDecimal(6));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_PENDING_AMOUNT, rs.getBigDecimal(7));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.INVOICES_OUTSTANDING_AMOUNT, rs.getBigDecimal(8));
+                }, clinicId);
+
+        jdbcTemplate.query("SELECT payment_date, COALESCE(SUM(amount), 0) FROM payments " +
+                        "WHERE clinic_id = ? GROUP BY payment_date",
+                rs -> {
+                    delta.add(clinicId, rs.getDate(1).toLocalDate(),
+                            ClinicStatisticsMetric.PAYMENTS_AMOUNT, rs.getBigDecimal(2));
+                }, clinicId);
+
+        Long activePatients = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM patients WHERE clinic_id = ? AND is_active = TRUE", Long.class, clinicId);
+        delta.add(clinicId, null, ClinicStatisticsMetric.PATIENTS_ACTIVE, activePatients != null ? activePatients : 0L);
+
+        jdbcTemplate.query("SELECT role, is_active, COUNT(*) FROM users WHERE clinic_id = ? GROUP BY role, is_active",
+                rs -> {
+                    UserRole role = parseRole(rs.getString(1));
+                    boolean active = rs.getBoolean(2);
+                    long count = rs.getLong(3);
+                    delta.add(clinicId, null, ClinicStatisticsMetric.USERS_TOTAL, count);
+                    if (active) {
+                        delta.add(clinicId, null, ClinicStatisticsMetric.USERS_ACTIVE, count);
+                    }
+                    ClinicStatisticsMetric roleMetric = roleMetric(role, false);
+                    if (roleMetric != null) {
+                        delta.add(clinicId, null, roleMetric, count);
+                        if (active) {
+                            delta.add(clinicId, null, roleMetric(role, true), count);
+                        }
+                    }
+                }, clinicId);
+
+        jdbcTemplate.query("SELECT visit_date, COUNT(*), SUM(status = 'DRAFT'), SUM(status = 'COMPLETED'), " +
+                        "SUM(status = 'REVIEWED'), SUM(status = 'LOCKED') " +
+                        "FROM medical_records WHERE clinic_id = ? GROUP BY visit_date",
+                rs -> {
+                    LocalDate date = rs.getDate(1).toLocalDate();
+                    delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_TOTAL, rs.getLong(2));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_DRAFT, rs.getLong(3));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_COMPLETED, rs.getLong(4));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_REVIEWED, rs.getLong(5));
+                    delta.add(clinicId, date, ClinicStatisticsMetric.RECORDS_LOCKED, rs.getLong(6));
+                }, clinicId);
+
+        return delta.rows;
+    }
+
+    /**
+     * Rows are written in (clinic_id, period) order so concurrent writers (flush
+     * and rebuild on different nodes) take row locks in the same order and cannot
+     * deadlock each other.
+     */
+    private void writeRows(Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(rows.size());
+        Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> ordered = new TreeMap<>(ROW_KEY_ORDER);
+        ordered.putAll(rows);
+        ordered.forEach((key, values) -> {
+            Object[] row = new Object[METRICS.length + 3];
+            row[0] = key.clinicId();
+            row[1] = key.period();
+            for (int i = 0; i < METRICS.length; i++) {
+                BigDecimal value = values.getOrDefault(METRICS[i], BigDecimal.ZERO);
+                row[i + 2] = METRICS[i].isAmount() ? value : value.longValue();
+            }
+            row[METRICS.length + 2] = now;
+            args.add(row);
+        });
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * حذف التغييرات المعلقة للعيادة (يستدعى بعد تثبيت لقطة إعادة الحساب)
+     * The write lock is held by the caller, so no batch of this clinic is being flushed.
+     */
+    private void discardPending(Long clinicId) {
+        synchronized (pendingLock) {
+            pending.keySet().removeIf(key -> key.clinicId().equals(clinicId));
+            dirtyClinics.remove(clinicId);
+        }
+    }
+
+    private void requeue(Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> batch) {
+        synchronized (pendingLock) {
+            batch.forEach((key, values) -> {
+                EnumMap<ClinicStatisticsMetric, BigDecimal> target =
+                        pending.computeIfAbsent(key, k -> new EnumMap<>(ClinicStatisticsMetric.class));
+                values.forEach((metric, value) -> target.merge(metric, value, BigDecimal::add));
+            });
+        }
+    }
+
+    private static String buildUpsertSql() {
+        StringBuilder columns = new StringBuilder("clinic_id, period");
+        StringBuilder placeholders = new StringBuilder("?, ?");
+        StringBuilder updates = new StringBuilder();
+        for (ClinicStatisticsMetric metric : METRICS) {
+            columns.append(", ").append(metric.getColumn());
+            placeholders.append(", ?");
+            updates.append(metric.getColumn()).append(" = ").append(metric.getColumn())
+                    .append(" + VALUES(").append(metric.getColumn()).append("), ");
+        }
+        return "INSERT INTO clinic_statistics (" + columns + ", updated_at) VALUES (" + placeholders + ", ?) " +
+                "ON DUPLICATE KEY UPDATE " + updates + "updated_at = VALUES(updated_at)";
+    }
+
+    private static String inList(Set<InvoiceStatus> statuses) {
+        return statuses.stream().map(s -> "'" + s.name() + "'").collect(Collectors.joining(", "));
+    }
+
+    private static ClinicStatisticsMetric roleMetric(UserRole role, boolean active) {
+        if (role == null) {
+            return null;
+        }
+        return switch (role) {
+            case DOCTOR -> active ? ClinicStatisticsMetric.ACTIVE_DOCTORS : ClinicStatisticsMetric.DOCTORS;
+            case NURSE -> active ? ClinicStatisticsMetric.ACTIVE_NURSES : ClinicStatisticsMetric.NURSES;
+            case RECEPTIONIST -> active ? ClinicStatisticsMetric.ACTIVE_RECEPTIONISTS : ClinicStatisticsMetric.RECEPTIONISTS;
+            default -> null;
+        };
+    }
+
+    private static ClinicStatisticsMetric recordStatusMetric(RecordStatus status) {
+        if (status == null) {
+            return null;
+        }
+        return switch (status) {
+            case DRAFT -> ClinicStatisticsMetric.RECORDS_DRAFT;
+            case COMPLETED -> ClinicStatisticsMetric.RECORDS_COMPLETED;
+            case REVIEWED -> ClinicStatisticsMetric.RECORDS_REVIEWED;
+            case LOCKED -> ClinicStatisticsMetric.RECORDS_LOCKED;
+            default -> null;
+        };
+    }
+
+    private static UserRole parseRole(String role) {
+        try {
+            return role != null ? UserRole.valueOf(role) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal signed(BigDecimal amount, int sign) {
+        if (amount == null) {
+            return BigDecimal.ZERO;
+        }
+        return sign < 0 ? amount.negate() : amount;
+    }
+
+    static String monthPeriod(LocalDate date) {
+        return date.format(MONTH_FORMAT);
+    }
+
+    static String dayPeriod(LocalDate date) {
+        return date.toString();
+    }
+
+    private record RowKey(Long clinicId, String period) {}
+
+    /**
+     * تغييرات معاملة واحدة؛ كل قيمة تُضاف إلى صف الإجمالي وصف الشهر وصف اليوم
+     */
+    public static class Delta {
+        private final Map<RowKey, EnumMap<ClinicStatisticsMetric, BigDecimal>> rows = new HashMap<>();
+
+        public void add(Long clinicId, LocalDate date, ClinicStatisticsMetric metric, long value) {
+            add(clinicId, date, metric, BigDecimal.valueOf(value));
+        }
+
+        public void add(Long clinicId, LocalDate date, ClinicStatisticsMetric metric, BigDecimal value) {
+            if (clinicId == null || value == null) {
+                return;
+            }
+            addTo(new RowKey(clinicId, ALL), metric, value);
+            if (date != null) {
+                addTo(new RowKey(clinicId, monthPeriod(date)), metric, value);
+                addTo(new RowKey(clinicId, dayPeriod(date)), metric, value);
+            }
+        }
+
+        public boolean isEmpty() {
+            rows.values().removeIf(values -> {
+                values.values().removeIf(value -> value.signum() == 0);
+                return values.isEmpty();
+            });
+            return rows.isEmpty();
+        }
+
+        private void addTo(RowKey key, ClinicStatisticsMetric metric, BigDecimal value) {
+            rows.computeIfAbsent(key, k -> new EnumMap<>(ClinicStatisticsMetric.class))
+                    .merge(metric, value, BigDecimal::add);
+        }
+    }
+
+    /**
+     * صفوف إحصائيات العيادة حول تاريخ معين
+     */
+    public static class Snapshot {
+        private final Map<String, Map<ClinicStatisticsMetric, BigDecimal>> rows;
+        private final LocalDate date;
+        private final LocalDate weekStart;
+
+        private Snapshot(Map<String, Map<ClinicStatisticsMetric, BigDecimal>> rows, LocalDate date, LocalDate weekStart) {
+            this.rows = rows;
+            this.date = date;
+            this.weekStart = weekStart;
+        }
+
+        public long total(ClinicStatisticsMetric metric) {
+            return totalAmount(metric).longValue();
+        }
+
+        public BigDecimal totalAmount(ClinicStatisticsMetric metric) {
+            return value(ALL, metric);
+        }
+
+        public long month(ClinicStatisticsMetric metric) {
+            return monthAmount(metric).longValue();
+        }
+
+        public BigDecimal monthAmount(ClinicStatisticsMetric metric) {
+            return value(monthPeriod(date), metric);
+        }
+
+        public long day(ClinicStatisticsMetric metric) {
+            return dayAmount(metric).longValue();
+        }
+
+        public BigDecimal dayAmount(ClinicStatisticsMetric metric) {
+            return value(dayPeriod(date), metric);
+        }
+
+        /**
+         * الأسبوع الذي يبدأ يوم الأحد (مثل YEARWEEK في MySQL)
+         */
+        public long week(ClinicStatisticsMetric metric) {
+            long sum = 0;
+            for (int i = 0; i < 7; i++) {
+                sum += value(dayPeriod(weekStart.plusDays(i)), metric).longValue();
+            }
+            return sum;
+        }
+
+        private BigDecimal value(String period, ClinicStatisticsMetric metric) {
+            Map<ClinicStatisticsMetric, BigDecimal> row = rows.get(period);
+            return row != null ? row.getOrDefault(metric, BigDecimal.ZERO) : BigDecimal.ZERO;
+        }
+    }
+}
@@ -49,6 +49,12 @@ public class DoctorScheduleService {
     @Autowired
     private DurationCalculationService durationCalculationService;
 
+    @Autowired
+    private AvailabilityCacheService availabilityCacheService;
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
     /**
      * إنشاء جدولة جديدة للطبيب
      */
@@ -106,6 +112,7 @@ public class DoctorScheduleService {
             createdSchedules.add(saved);
         }
 
+        availabilityCacheService.evictDoctor(clinicId, doctor.getId());
         return createdSchedules;
     }
 
@@ -166,7 +173,9 @@ public class DoctorScheduleService {
         unavailability.setIsRecurring(request.getIsRecurring());
         unavailability.setRecurrenceEndDate(request.getRecurrenceEndDate());
 
-        return unavailabilityRepository.save(unavailability);
+        DoctorUnavailability saved = unavailabilityRepository.save(unavailability);
+        availabilityCacheService.evictDoctor(clinicId, doctor.getId());
+        return saved;
     }
 
     /**
@@ -285,30 +294,8 @@ public class DoctorScheduleService {
             throw new BadRequestException("الطبيب لا ينتمي لهذه العيادة");
         }
 
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        Optional<DoctorSchedule> scheduleOpt = scheduleRepository.findDoctorScheduleForDay(
-                doctor, dayOfWeek, date);
-
-        if (scheduleOpt.isEmpty()) {
-            return new ArrayList<>(); // لا يعمل في هذا اليوم
-        }
-
-        DoctorSchedule schedule = scheduleOpt.get();
-        List<LocalTime> availableSlots = new ArrayList<>();
-
-        // إنشاء قائمة الأوقات المتاحة (كل 30 دقيقة مثلاً)
-        LocalTime currentTime = schedule.getStartTime();
-        while (currentTime.plusMinutes(durationMinutes).isBefore(schedule.getEndTime()) ||
-                currentTime.plusMinutes(durationMinutes).equals(schedule.getEndTime())) {
-
-            if (isDoctorAvailable(doctor, date, currentTime)) {
-                availableSlots.add(currentTime);
-            }
-
-            currentTime = currentTime.plusMinutes(30); // فترات 30 دقيقة
-        }
-
-        return availableSlots;
+        // الجدول وأوقات عدم التوفر والمواعيد المحجوزة تُحمّل مرة واحدة (فترات 30 دقيقة)
+        return slotAvailabilityService.loadDay(doctor, date).getFreeSlots(durationMinutes, 30);
     }
 
     /**
@@ -323,6 +310,7 @@ public class DoctorScheduleService {
         }
 
         scheduleRepository.delete(schedule);
+        availabilityCacheService.evictDoctor(clinicId, schedule.getDoctor().getId());
     }
 
     /**
@@ -337,6 +325,7 @@ public class DoctorScheduleService {
         }
 
         unavailabilityRepository.delete(unavailability);
+        availabilityCacheService.evictDoctor(clinicId, unavailability.getDoctor().getId());
     }
 
     // **COMPLETE UPDATE METHOD**
@@ -489,6 +478,7 @@ public class DoctorScheduleService {
 
         // 12. Save and return
         DoctorSchedule updatedSchedule = scheduleRepository.save(schedule);
+        availabilityCacheService.evictDoctor(clinicId, schedule.getDoctor().getId());
 
         logger.info(
                 "Schedule {} updated successfully. Doctor: {}, Day: {}, Duration: {} minutes",
@@ -589,6 +579,7 @@ public class DoctorScheduleService {
 
         schedule.setIsActive(false);
         scheduleRepository.save(schedule);
+        availabilityCacheService.evictDoctor(clinicId, schedule.getDoctor().getId());
 
         logger.info("Schedule {} deactivated for doctor {}",
                 scheduleId, schedule.getDoctor().getId());
@@ -639,6 +630,7 @@ public class DoctorScheduleService {
 
         if (!newSchedules.isEmpty()) {
             newSchedules = scheduleRepository.saveAll(newSchedules);
+            availabilityCacheService.evictDoctor(clinicId, sourceSchedule.getDoctor().getId());
             logger.info("Cloned schedule {} to {} new days",
                     sourceScheduleId, newSchedules.size());
         }
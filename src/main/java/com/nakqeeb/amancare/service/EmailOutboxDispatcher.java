@@ -0,0 +1,206 @@
+// =============================================================================
+// Email Outbox Dispatcher - إرسال البريد الصادر في الخلفية
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakqeeb.amancare.entity.EmailOutbox;
+import com.nakqeeb.amancare.entity.EmailOutboxStatus;
+import com.nakqeeb.amancare.repository.EmailOutboxRepository;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * إرسال رسائل صندوق البريد الصادر على دفعات مع إعادة المحاولة
+ * Outbox dispatcher.
+ *
+ * Each run claims up to batch-size due rows in a short transaction (SELECT ...
+ * FOR UPDATE SKIP LOCKED, so several nodes never claim the same row) and pushes
+ * their next attempt past a lease. Rendering and SMTP then run outside any
+ * transaction, and the whole batch is sent over one SMTP connection. A second
+ * short transaction marks rows SENT, or schedules a retry with exponential
+ * backoff, or marks them DEAD after max-attempts. A node that dies mid-batch
+ * leaves its rows to be picked up again once the lease expires, so a message
+ * can be delivered twice but is never lost. Template variables (reset and
+ * confirmation links among them) are cleared once a row is SENT or DEAD.
+ */
+@Service
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.mail.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.mail.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${app.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 EmailService emailService,
+                                 JavaMailSender mailSender,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * إرسال الرسائل المستحقة حتى يفرغ الصندوق
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+
+        int claimed;
+        do {
+            List<EmailOutbox> batch = transactionTemplate.execute(status -> claimBatch());
+            claimed = batch == null ? 0 : batch.size();
+            if (claimed > 0) {
+                Map<Long, String> failures = send(batch);
+                transactionTemplate.executeWithoutResult(status -> recordResults(batch, failures));
+            }
+        } while (claimed == batchSize);
+    }
+
+    /**
+     * حجز دفعة من الرسائل المستحقة بتأجيل محاولتها التالية إلى ما بعد مهلة الحجز
+     */
+    private List<EmailOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> due = outboxRepository.findDueForUpdate(
+                EmailOutboxStatus.PENDING, now, PageRequest.of(0, Math.max(batchSize, 1)));
+        for (EmailOutbox email : due) {
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+        }
+        return due;
+    }
+
+    /**
+     * إنشاء الرسائل وإرسالها عبر اتصال SMTP واحد، وإرجاع الأخطاء حسب معرف الرسالة
+     */
+    private Map<Long, String> send(List<EmailOutbox> batch) {
+        Map<Long, String> failures = new HashMap<>();
+        Map<Object, EmailOutbox> byMessage = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+
+        for (EmailOutbox email : batch) {
+            try {
+                Map<String, Object> variables = email.getVariables() == null ? Map.of()
+                        : objectMapper.readValue(email.getVariables(), new TypeReference<Map<String, Object>>() {});
+                MimeMessage message = emailService.buildHtmlMessage(
+                        email.getRecipient(), email.getSubject(), email.getTemplateName(), variables);
+                messages.add(message);
+                byMessage.put(message, email);
+            } catch (Exception e) {
+                failures.put(email.getId(), "Render failed: " + e.getMessage());
+            }
+        }
+
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                byMessage.values().forEach(email -> failures.put(email.getId(), e.getMessage()));
+            } else {
+                e.getFailedMessages().forEach((message, error) -> {
+                    EmailOutbox email = byMessage.get(message);
+                    if (email != null) {
+                        failures.put(email.getId(), error.getMessage());
+                    }
+                });
+            }
+        } catch (MailException e) {
+            byMessage.values().forEach(email -> failures.put(email.getId(), e.getMessage()));
+        }
+        return failures;
+    }
+
+    /**
+     * تسجيل نتيجة الإرسال: مُرسلة، أو إعادة المحاولة لاحقاً، أو فشل نهائي
+     */
+    private void recordResults(List<EmailOutbox> batch, Map<Long, String> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        int sent = 0;
+        int dead = 0;
+
+        for (EmailOutbox email : outboxRepository.findAllById(batch.stream().map(EmailOutbox::getId).toList())) {
+            String error = failures.get(email.getId());
+            if (error == null) {
+                email.setStatus(EmailOutboxStatus.SENT);
+                email.setSentAt(now);
+                email.setLastError(null);
+                // المتغيرات قد تحمل روابط ورموزاً صالحة؛ لا حاجة لها بعد الإرسال
+                email.setVariables(null);
+                sent++;
+                continue;
+            }
+
+            email.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (email.getAttempts() >= maxAttempts) {
+                email.setStatus(EmailOutboxStatus.DEAD);
+                email.setVariables(null);
+                dead++;
+                log.error("فشل إرسال البريد الإلكتروني نهائياً إلى {} بعد {} محاولات: {}",
+                        email.getRecipient(), email.getAttempts(), error);
+            } else {
+                email.setNextAttemptAt(now.plusSeconds(backoffSeconds(email.getAttempts())));
+                log.warn("فشل إرسال البريد الإلكتروني إلى {} (محاولة {}), ستتم إعادة المحاولة: {}",
+                        email.getRecipient(), email.getAttempts(), error);
+            }
+        }
+
+        log.info("Email outbox batch: {} sent, {} retrying, {} dead", sent, batch.size() - sent - dead, dead);
+    }
+
+    private long backoffSeconds(int attempts) {
+        long backoff = initialBackoffSeconds << Math.min(attempts - 1, 20);
+        return Math.min(backoff, maxBackoffSeconds);
+    }
+}
@@ -3,6 +3,10 @@
 // ===================================================================
 package com.nakqeeb.amancare.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakqeeb.amancare.entity.EmailOutbox;
+import com.nakqeeb.amancare.repository.EmailOutboxRepository;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +30,8 @@ public class EmailService {
 
     private final JavaMailSender mailSender;
     private final TemplateEngine templateEngine;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final ObjectMapper objectMapper;
 
     @Value("${app.mail.from}")
     private String fromEmail;
@@ -57,21 +63,7 @@ public class EmailService {
      */
     public void sendHtmlEmail(String to, String subject, String templateName, Map<String, Object> variables) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-
-            // إنشاء محتوى HTML من القالب
-            Context context = new Context();
-            variables.forEach(context::setVariable);
-            String htmlContent = templateEngine.process(templateName, context);
-
-            helper.setText(htmlContent, true);
-
-            mailSender.send(message);
+            mailSender.send(buildHtmlMessage(to, subject, templateName, variables));
             log.info("تم إرسال البريد الإلكتروني HTML إلى: {}", to);
         } catch (MessagingException e) {
             log.error("خطأ في إرسال البريد الإلكتروني HTML إلى {}: {}", to, e.getMessage());
@@ -79,6 +71,43 @@ public class EmailService {
         }
     }
 
+    /**
+     * إنشاء رسالة HTML من القالب بدون إرسالها
+     */
+    public MimeMessage buildHtmlMessage(String to, String subject, String templateName,
+                                        Map<String, Object> variables) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(to);
+        helper.setSubject(subject);
+
+        // إنشاء محتوى HTML من القالب
+        Context context = new Context();
+        variables.forEach(context::setVariable);
+        String htmlContent = templateEngine.process(templateName, context);
+
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
+    /**
+     * إضافة بريد HTML إلى صندوق الإرسال ضمن المعاملة الحالية
+     * The row commits with the caller's transaction and EmailOutboxDispatcher
+     * renders and sends it in the background, so SMTP never runs on the request thread.
+     */
+    public void queueHtmlEmail(String to, String subject, String templateName, Map<String, Object> variables) {
+        try {
+            String json = objectMapper.writeValueAsString(variables);
+            emailOutboxRepository.save(new EmailOutbox(to, subject, templateName, json));
+            log.debug("تمت إضافة البريد الإلكتروني إلى صندوق الإرسال: {} ({})", to, templateName);
+        } catch (JsonProcessingException e) {
+            log.error("خطأ في تجهيز متغيرات البريد الإلكتروني إلى {}: {}", to, e.getMessage());
+            throw new RuntimeException("فشل في إرسال البريد الإلكتروني");
+        }
+    }
+
     /**
      * إرسال رابط إعادة تعيين كلمة المرور
      */
@@ -91,7 +120,7 @@ public class EmailService {
                 "expiryTime", "24 ساعة"
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "إعادة تعيين كلمة المرور - نظام أمان كير",
                 "password-reset-email",
@@ -107,7 +136,7 @@ public class EmailService {
                 "userName", userName
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "تم تغيير كلمة المرور بنجاح - نظام أمان كير",
                 "password-reset-success",
@@ -128,7 +157,7 @@ public class EmailService {
                 "expiryTime", "24 ساعة"
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "تأكيد البريد الإلكتروني - نظام أمان كير",
                 "email-verification",
@@ -144,7 +173,7 @@ public class EmailService {
                 "userName", userName
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "تم تفعيل حسابك بنجاح - نظام أمان كير",
                 "account-activated",
@@ -164,7 +193,7 @@ public class EmailService {
                 "expiryTime", "24 ساعة"
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "إعادة إرسال رابط تأكيد البريد الإلكتروني - نظام أمان كير",
                 "resend-email-verification",
@@ -195,7 +224,7 @@ public class EmailService {
                 "expiryTime", "48 ساعة"
         );
 
-        sendHtmlEmail(
+        queueHtmlEmail(
                 email,
                 "تأكيد موعدك - " + clinicName,
                 "appointment-confirmation",
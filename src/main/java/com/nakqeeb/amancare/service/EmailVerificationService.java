@@ -8,6 +8,7 @@ import com.nakqeeb.amancare.entity.EmailVerificationToken;
 import com.nakqeeb.amancare.entity.User;
 import com.nakqeeb.amancare.repository.EmailVerificationTokenRepository;
 import com.nakqeeb.amancare.repository.UserRepository;
+import com.nakqeeb.amancare.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,6 +28,7 @@ public class EmailVerificationService {
     private final EmailVerificationTokenRepository tokenRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Value("${app.email-verification.token-validity-hours:24}")
     private int tokenValidityHours;
@@ -102,6 +104,7 @@ public class EmailVerificationService {
         user.setIsActive(true);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        userPrincipalCache.evict(user.getId());
 
         // تحديد الرمز كمستخدم
         verificationToken.setUsed(true);
@@ -2,6 +2,7 @@
 
 package com.nakqeeb.amancare.service;
 
+import com.nakqeeb.amancare.config.CacheConfig;
 import com.nakqeeb.amancare.dto.request.GuestBookingRequest;
 import com.nakqeeb.amancare.dto.response.*;
 import com.nakqeeb.amancare.entity.*;
@@ -36,9 +37,15 @@ public class GuestBookingService {
     private final DoctorScheduleService doctorScheduleService;
     private final EmailService emailService;
     private final AppointmentTokenService tokenService;
+    private final AvailabilityCacheService availabilityCacheService;
+    private final PatientSearchIndex patientSearchIndex;
+    private final SlotAvailabilityService slotAvailabilityService;
+    private final NumberAllocatorService numberAllocatorService;
+    private final SlotReservationService slotReservationService;
 
     private static final String PATIENT_NUMBER_PREFIX = "P";
     private static final int TOKEN_VALIDITY_HOURS = 48;
+    private static final int MAX_MATRIX_DAYS = 31;
 
     /**
      * Get all active clinics for guest booking
@@ -58,7 +65,7 @@ public class GuestBookingService {
      * Get all doctors for a specific clinic with their availability
      */
     @Transactional(readOnly = true)
-    @Cacheable(value = "clinicDoctors", key = "#clinicId")
+    @Cacheable(value = CacheConfig.CLINIC_DOCTORS, key = "#clinicId")
     public List<ClinicDoctorSummary> getClinicDoctors(Long clinicId) {
         Clinic clinic = clinicRepository.findById(clinicId)
                 .orElseThrow(() -> new ResourceNotFoundException("العيادة غير موجودة"));
@@ -90,7 +97,8 @@ public class GuestBookingService {
      * Get available time slots for a doctor on a specific date
      */
     @Transactional(readOnly = true)
-    @Cacheable(value = "availableSlots", key = "#clinicId + '-' + #doctorId + '-' + #date")
+    @Cacheable(value = CacheConfig.AVAILABLE_SLOTS,
+            key = "T(com.nakqeeb.amancare.service.AvailabilityCacheService).slotsKey(#clinicId, #doctorId, #date, #durationMinutes)")
     public List<LocalTime> getAvailableTimeSlots(Long clinicId, Long doctorId,
                                                  LocalDate date, Integer durationMinutes) {
         // Validate clinic
@@ -105,9 +113,52 @@ public class GuestBookingService {
             throw new BadRequestException("الطبيب لا ينتمي لهذه العيادة");
         }
 
-        // Use existing DoctorScheduleService method
-        return doctorScheduleService.getAvailableTimeSlots(clinicId, doctorId, date,
-                durationMinutes != null ? durationMinutes : 30);
+        // Same slot engine as the staff-facing endpoints (30-minute steps)
+        return slotAvailabilityService.loadDay(doctor, date)
+                .getFreeSlots(durationMinutes != null ? durationMinutes : 30, 30);
+    }
+
+    /**
+     * مصفوفة الأوقات المتاحة لأطباء العيادة خلال فترة (حتى 31 يوماً)
+     * Assembled from per-week cached matrices; doctorIds optionally narrows the doctors.
+     */
+    @Transactional(readOnly = true)
+    public AvailabilityMatrixResponse getAvailabilityMatrix(Long clinicId, LocalDate startDate, LocalDate endDate,
+                                                            Integer durationMinutes, Set<Long> doctorIds) {
+        if (!clinicRepository.existsById(clinicId)) {
+            throw new ResourceNotFoundException("العيادة غير موجودة");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("تاريخ النهاية يجب أن يكون بعد تاريخ البداية");
+        }
+        if (startDate.plusDays(MAX_MATRIX_DAYS).isBefore(endDate.plusDays(1))) {
+            throw new BadRequestException("الحد الأقصى للفترة هو " + MAX_MATRIX_DAYS + " يوماً");
+        }
+
+        int duration = durationMinutes != null ? durationMinutes : 30;
+        Map<Long, AvailabilityMatrixResponse.DoctorAvailability> merged = new LinkedHashMap<>();
+
+        for (LocalDate weekStart = AvailabilityCacheService.weekStart(startDate);
+             !weekStart.isAfter(endDate); weekStart = weekStart.plusWeeks(1)) {
+            AvailabilityMatrixResponse week = slotAvailabilityService.getClinicWeekMatrix(clinicId, weekStart, duration);
+
+            for (AvailabilityMatrixResponse.DoctorAvailability row : week.getDoctors()) {
+                if (doctorIds != null && !doctorIds.isEmpty() && !doctorIds.contains(row.getDoctorId())) {
+                    continue;
+                }
+                AvailabilityMatrixResponse.DoctorAvailability target = merged.computeIfAbsent(row.getDoctorId(),
+                        id -> new AvailabilityMatrixResponse.DoctorAvailability(
+                                id, row.getFullName(), row.getSpecialization(), new TreeMap<>()));
+                row.getAvailableSlots().forEach((date, slots) -> {
+                    if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+                        target.getAvailableSlots().put(date, slots);
+                    }
+                });
+            }
+        }
+
+        return new AvailabilityMatrixResponse(clinicId, startDate, endDate, duration,
+                new ArrayList<>(merged.values()));
     }
 
     /**
@@ -152,6 +203,7 @@ public class GuestBookingService {
         // 5. Create appointment with SCHEDULED status (not confirmed yet)
         Appointment appointment = createAppointment(patient, doctor, clinic, request);
         appointment = appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(appointment);
 
         // 6. Generate confirmation token
         String token = generateSecureToken();
@@ -257,6 +309,7 @@ public class GuestBookingService {
         appointment.setNotes(currentNotes + "\nتم الإلغاء من قبل المريض في " + LocalDateTime.now());
 
         appointmentRepository.save(appointment);
+        availabilityCacheService.evictSlots(appointment);
         log.info("Appointment cancelled by patient. ID: {}", appointmentId);
     }
 
@@ -319,6 +372,7 @@ public class GuestBookingService {
         patient.setIsActive(true);
 
         patient = patientRepository.save(patient);
+        patientSearchIndex.patientSaved(patient);
         log.info("Created new patient: {}", patient.getPatientNumber());
         return patient;
     }
@@ -352,27 +406,8 @@ public class GuestBookingService {
 
     private boolean hasConflictingAppointment(User doctor, LocalDate date,
                                               LocalTime time, Integer duration) {
-        List<Appointment> existingAppointments = appointmentRepository
-                .findByDoctorAndAppointmentDate(doctor, date);
-
-        LocalTime endTime = time.plusMinutes(duration != null ? duration : 30);
-
-        for (Appointment apt : existingAppointments) {
-            if (apt.getStatus() == AppointmentStatus.CANCELLED) {
-                continue;
-            }
-
-            LocalTime aptStart = apt.getAppointmentTime();
-            LocalTime aptEnd = aptStart.plusMinutes(apt.getDurationMinutes());
-
-            // Check for time overlap
-            if (!(time.isAfter(aptEnd) || time.equals(aptEnd) ||
-                    endTime.isBefore(aptStart) || endTime.equals(aptStart))) {
-                return true;
-            }
-        }
-
-        return false;
+        // Locks the doctor's day until this booking commits, so concurrent bookings cannot both pass
+        return slotReservationService.reserve(doctor, date, time, duration != null ? duration : 30, null) != null;
     }
 
     private void sendConfirmationEmail(Patient patient, Appointment appointment,
@@ -414,20 +449,7 @@ public class GuestBookingService {
     }
 
     private String generatePatientNumber(Clinic clinic) {
-        LocalDate currentDate = LocalDate.now();
-        String prefix = "P" + currentDate.getYear() + String.format("%02d", currentDate.getMonthValue());
-
-        // البحث عن آخر رقم مريض بنفس البادئة
-        long count = patientRepository.countActivePatientsByClinic(clinic);
-
-        // توليد رقم فريد
-        String patientNumber;
-        do {
-            count++;
-            patientNumber = prefix + String.format("%04d", count);
-        } while (patientRepository.existsByClinicAndPatientNumber(clinic, patientNumber));
-
-        return patientNumber;
+        return numberAllocatorService.nextPatientNumber(clinic.getId());
     }
 
     private String generateSecureToken() {
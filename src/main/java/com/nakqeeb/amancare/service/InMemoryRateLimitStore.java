@@ -0,0 +1,51 @@
+// =============================================================================
+// In-Memory Rate Limit Store - مخزن دلاء محدود في الذاكرة
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nakqeeb.amancare.config.RateLimitPolicy;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * دلاء تحديد المعدل في ذاكرة محدودة الحجم تنتهي صلاحيتها تلقائياً
+ * One bounded Caffeine cache per policy. A bucket expires once it has been idle
+ * for the policy period. By then it would have refilled completely, so dropping
+ * it loses nothing. Under a scan the size bound evicts the least useful keys
+ * instead of growing the heap. An evicted client simply starts a new full bucket.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final long maxKeysPerPolicy;
+    private final Map<String, Cache<String, Bucket>> buckets = new ConcurrentHashMap<>();
+
+    public InMemoryRateLimitStore(long maxKeysPerPolicy) {
+        this.maxKeysPerPolicy = maxKeysPerPolicy;
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(RateLimitPolicy policy, String clientKey) {
+        return cacheFor(policy)
+                .get(clientKey, key -> policy.newBucket())
+                .tryConsumeAndReturnRemaining(1);
+    }
+
+    @Override
+    public long size(RateLimitPolicy policy) {
+        Cache<String, Bucket> cache = buckets.get(policy.name());
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    private Cache<String, Bucket> cacheFor(RateLimitPolicy policy) {
+        return buckets.computeIfAbsent(policy.name(), name -> Caffeine.newBuilder()
+                .maximumSize(maxKeysPerPolicy)
+                .expireAfterAccess(policy.period())
+                .build());
+    }
+}
@@ -15,13 +15,17 @@ import com.nakqeeb.amancare.exception.BadRequestException;
 import com.nakqeeb.amancare.exception.ForbiddenOperationException;
 import com.nakqeeb.amancare.exception.ResourceNotFoundException;
 import com.nakqeeb.amancare.repository.*;
+import com.nakqeeb.amancare.repository.projection.InvoiceListView;
 import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.service.pdf.RenderedPdfCache;
+import com.nakqeeb.amancare.util.CursorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,9 +33,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -70,6 +75,15 @@ public class InvoiceService {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private NumberAllocatorService numberAllocatorService;
+
+    @Autowired
+    private RenderedPdfCache renderedPdfCache;
+
+    @Autowired
+    private ClinicStatisticsService clinicStatisticsService;
+
     // ===================================================================
     // INVOICE OPERATIONS
     // ===================================================================
@@ -240,25 +254,39 @@ public class InvoiceService {
             effectiveClinicId = currentUser.getClinicId();
         }
 
-        Page<Invoice> invoices;
+        if (effectiveClinicId != null && !clinicRepository.existsById(effectiveClinicId)) {
+            throw new ResourceNotFoundException("العيادة غير موجودة");
+        }
 
-        if (effectiveClinicId != null) {
-            Clinic clinic = clinicRepository.findById(effectiveClinicId)
-                    .orElseThrow(() -> new ResourceNotFoundException("العيادة غير موجودة"));
+        // One projection query for the page, then items and payments for all its invoices
+        Page<InvoiceListView> invoices = invoiceRepository.findListViews(
+                effectiveClinicId, criteria.getPatientId(), criteria.getStatus(),
+                criteria.getFromDate(), criteria.getToDate(), pageable);
 
-            // Apply filters based on criteria
-            if (criteria.getStatus() != null) {
-                invoices = invoiceRepository.findByClinicAndStatus(clinic, criteria.getStatus(), pageable);
-            } else if (criteria.getFromDate() != null && criteria.getToDate() != null) {
-                invoices = invoiceRepository.findByClinicAndDateRange(clinic, criteria.getFromDate(), criteria.getToDate(), pageable);
-            } else {
-                invoices = invoiceRepository.findByClinic(clinic, pageable);
-            }
-        } else {
-            invoices = invoiceRepository.findAll(pageable);
-        }
+        return invoices.map(viewMapper(invoices.getContent()));
+    }
 
-        return invoices.map(InvoiceResponse::fromEntity);
+    /**
+     * الفواتير بالترقيم بالمؤشر (بدون استعلام عد)، الأحدث أولاً
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<InvoiceResponse> getInvoicesByCursor(InvoiceSearchCriteria criteria, String cursor,
+                                                                   int size, UserPrincipal currentUser) {
+        // Same clinic scope as getAllInvoices
+        Long effectiveClinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())
+                ? criteria.getClinicId()
+                : currentUser.getClinicId();
+
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, 2);
+        Slice<InvoiceListView> slice = invoiceRepository.findListViewsAfterCursor(
+                effectiveClinicId, criteria.getPatientId(), criteria.getStatus(),
+                criteria.getFromDate(), criteria.getToDate(),
+                after != null ? after.localDate(0) : null,
+                after != null ? after.id(1) : null,
+                CursorUtil.limit(size));
+
+        return CursorPageResponse.from(slice, viewMapper(slice.getContent()),
+                invoice -> CursorUtil.encode(invoice.getInvoiceDate(), invoice.getId()));
     }
 
     /**
@@ -551,6 +579,8 @@ public class InvoiceService {
         }
 
         invoiceRepository.save(invoice);
+        renderedPdfCache.evict(RenderedPdfCache.INVOICE, invoice.getId());
+        renderedPdfCache.evict(RenderedPdfCache.RECEIPT, invoice.getId());
 
         // Log the action
         auditLogService.logAction(
@@ -613,25 +643,23 @@ public class InvoiceService {
         InvoiceStatisticsResponse stats = new InvoiceStatisticsResponse();
         stats.setClinicId(clinicId);
 
+        // Counters maintained by ClinicStatisticsService; overdue depends on today's date so it stays a live query
+        ClinicStatisticsService.Snapshot counters = clinicStatisticsService.snapshot(clinicId, LocalDate.now());
+
         // Get counts by status
-        stats.setTotalInvoices(invoiceRepository.countByClinic(clinic));
-        stats.setPaidInvoices(invoiceRepository.countByClinicAndStatus(clinic, InvoiceStatus.PAID));
-        stats.setPendingInvoices(invoiceRepository.countByClinicAndStatus(clinic, InvoiceStatus.PENDING));
-        stats.setOverdueInvoices(invoiceRepository.countOverdueInvoices(clinic));
-        stats.setCancelledInvoices(invoiceRepository.countByClinicAndStatus(clinic, InvoiceStatus.CANCELLED));
+        stats.setTotalInvoices(counters.total(ClinicStatisticsMetric.INVOICES_TOTAL));
+        stats.setPaidInvoices(counters.total(ClinicStatisticsMetric.INVOICES_PAID));
+        stats.setPendingInvoices(counters.total(ClinicStatisticsMetric.INVOICES_PENDING));
+        Object[] overdue = invoiceRepository.getOverdueSummary(clinic, LocalDate.now()).get(0);
+        stats.setOverdueInvoices(((Number) overdue[0]).longValue());
+        stats.setCancelledInvoices(counters.total(ClinicStatisticsMetric.INVOICES_CANCELLED));
 
         // Get financial totals
-        BigDecimal totalRevenue = invoiceRepository.getTotalRevenueByClinic(clinic);
-        stats.setTotalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
-
-        BigDecimal totalPaid = paymentRepository.getTotalPaymentsByClinic(clinic);
-        stats.setTotalPaid(totalPaid != null ? totalPaid : BigDecimal.ZERO);
-
-        BigDecimal totalPending = invoiceRepository.getTotalPendingAmount(clinic);
-        stats.setTotalPending(totalPending != null ? totalPending : BigDecimal.ZERO);
+        stats.setTotalRevenue(counters.totalAmount(ClinicStatisticsMetric.INVOICES_PAID_AMOUNT));
+        stats.setTotalPaid(counters.totalAmount(ClinicStatisticsMetric.PAYMENTS_AMOUNT));
+        stats.setTotalPending(counters.totalAmount(ClinicStatisticsMetric.INVOICES_PENDING_AMOUNT));
 
-        BigDecimal totalOverdue = invoiceRepository.getTotalOverdueAmount(clinic);
-        stats.setTotalOverdue(totalOverdue != null ? totalOverdue : BigDecimal.ZERO);
+        stats.setTotalOverdue(overdue[1] != null ? (BigDecimal) overdue[1] : BigDecimal.ZERO);
 
         // Calculate average and collection rate
         if (stats.getTotalInvoices() > 0) {
@@ -648,12 +676,11 @@ public class InvoiceService {
         }
 
         // Period-specific stats
-        LocalDate today = LocalDate.now();
-        stats.setTodayRevenue(paymentRepository.getTotalPaymentsByDate(clinic, today));
-        stats.setMonthlyRevenue(paymentRepository.getMonthlyPayments(clinic, today.getYear(), today.getMonthValue()));
+        stats.setTodayRevenue(counters.dayAmount(ClinicStatisticsMetric.PAYMENTS_AMOUNT));
+        stats.setMonthlyRevenue(counters.monthAmount(ClinicStatisticsMetric.PAYMENTS_AMOUNT));
 
-        stats.setTodayInvoices(invoiceRepository.countByClinicAndInvoiceDate(clinic, today));
-        stats.setMonthlyInvoices(invoiceRepository.countByClinicAndMonth(clinic, today.getYear(), today.getMonthValue()));
+        stats.setTodayInvoices(counters.day(ClinicStatisticsMetric.INVOICES_TOTAL));
+        stats.setMonthlyInvoices(counters.month(ClinicStatisticsMetric.INVOICES_TOTAL));
 
         return stats;
     }
@@ -689,20 +716,23 @@ public class InvoiceService {
      * Generate unique invoice number
      */
     private String generateInvoiceNumber(Clinic clinic) {
-        String prefix = "INV-" + clinic.getId() + "-";
-        String datePart = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
-
-        // Get last invoice number for this clinic and month
-        String lastNumber = invoiceRepository.findLastInvoiceNumberByClinic(clinic)
-                .orElse(prefix + datePart + "-0000");
-
-        // Extract and increment the counter
-        String[] parts = lastNumber.split("-");
-        int counter = 1;
-        if (parts.length > 3 && parts[2].equals(datePart)) {
-            counter = Integer.parseInt(parts[3]) + 1;
-        }
+        return numberAllocatorService.nextInvoiceNumber(clinic.getId());
+    }
 
-        return String.format("%s%s-%04d", prefix, datePart, counter);
+    /**
+     * تحويل صفحة من الإسقاطات إلى استجابات؛ البنود والمدفوعات لكل فواتير الصفحة باستعلامين
+     */
+    private Function<InvoiceListView, InvoiceResponse> viewMapper(List<InvoiceListView> views) {
+        List<Long> invoiceIds = views.stream().map(InvoiceListView::getId).toList();
+        Map<Long, List<InvoiceItem>> itemsByInvoice = invoiceIds.isEmpty() ? Map.of() :
+                invoiceItemRepository.findByInvoiceIds(invoiceIds).stream()
+                        .collect(Collectors.groupingBy(item -> item.getInvoice().getId()));
+        Map<Long, List<Payment>> paymentsByInvoice = invoiceIds.isEmpty() ? Map.of() :
+                paymentRepository.findByInvoiceIds(invoiceIds).stream()
+                        .collect(Collectors.groupingBy(payment -> payment.getInvoice().getId()));
+
+        return view -> InvoiceResponse.fromView(view,
+                itemsByInvoice.getOrDefault(view.getId(), List.of()),
+                paymentsByInvoice.getOrDefault(view.getId(), List.of()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+// =============================================================================
+// Log Export Service - تصدير سجلات المراجعة والأنشطة إلى CSV بشكل متدفق
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.entity.ActionType;
+import com.nakqeeb.amancare.exception.LimitExceededException;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * تصدير السجلات إلى CSV صفاً بصف مباشرة إلى الاستجابة
+ * Streaming CSV exporter for system admin actions and activity logs.
+ *
+ * Rows are read with a forward-only, read-only JDBC result set whose fetch size
+ * is Integer.MIN_VALUE, which makes MySQL Connector/J stream rows one at a time
+ * instead of buffering the whole result. Each row is written to the output
+ * stream as soon as it is read, and nothing passes through the persistence
+ * context, so memory stays flat whatever the date range. There is no row limit.
+ *
+ * Each export holds a connection for as long as it streams, so at most
+ * app.export.max-concurrent run at once and further requests are rejected with
+ * 429. Exports run as WebAsyncTask on their own exportTaskExecutor with their own
+ * app.export.timeout-minutes, instead of the download executor and the short MVC
+ * async timeout used by PDF downloads.
+ */
+@Service
+@Slf4j
+public class LogExportService {
+
+    public static final String AUDIT_CSV_HEADER =
+            "Timestamp,Admin User,Action Type,Clinic,Resource Type,Resource ID,Reason,IP Address,Status";
+
+    public static final String ACTIVITY_CSV_HEADER =
+            "Timestamp,Clinic ID,Clinic,User ID,Username,User Full Name,User Role,Action Type,HTTP Method," +
+            "Entity Type,Entity ID,Entity Name,Description,Endpoint,IP Address,Success,Error Message,Duration (ms)";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final AsyncTaskExecutor exportTaskExecutor;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public LogExportService(DataSource dataSource,
+                            @Qualifier("exportTaskExecutor") AsyncTaskExecutor exportTaskExecutor,
+                            @Value("${app.export.max-concurrent:2}") int maxConcurrent,
+                            @Value("${app.export.timeout-minutes:30}") long timeoutMinutes) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // MySQL Connector/J: تدفق الصفوف واحداً تلو الآخر بدلاً من تحميل النتيجة كاملة
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.exportTaskExecutor = exportTaskExecutor;
+        this.permits = new Semaphore(Math.max(maxConcurrent, 1));
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(Math.max(timeoutMinutes, 1));
+    }
+
+    /**
+     * تشغيل التصدير كمهمة غير متزامنة بمهلتها الخاصة، مع رفض الطلب إن بلغ عدد التصديرات الحد
+     *
+     * @param headers نوع المحتوى واسم الملف، تُنسخ إلى الاستجابة قبل أول بايت
+     */
+    public WebAsyncTask<Void> stream(HttpServletResponse response, HttpHeaders headers, Export export) {
+        if (!permits.tryAcquire()) {
+            throw new LimitExceededException("يوجد عدد كبير من عمليات التصدير الجارية، يرجى المحاولة لاحقاً");
+        }
+        // يُحرر مرة واحدة: عند انتهاء المهمة، أو عند اكتمال الطلب إن لم تبدأ المهمة أصلاً
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        WebAsyncTask<Void> task = new WebAsyncTask<>(timeoutMillis, exportTaskExecutor, () -> {
+            try {
+                headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+                export.writeTo(response.getOutputStream());
+                response.flushBuffer();
+                return null;
+            } finally {
+                release.run();
+            }
+        });
+        task.onTimeout(() -> {
+            log.warn("CSV export exceeded {} ms and was cancelled", timeoutMillis);
+            return null;
+        });
+        task.onCompletion(release);
+        return task;
+    }
+
+    @FunctionalInterface
+    public interface Export {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * تصدير إجراءات مدير النظام في فترة زمنية (الأحدث أولاً)
+     */
+    public long exportAuditLogs(LocalDateTime startDate, LocalDateTime endDate,
+                                OutputStream out, boolean gzip) throws IOException {
+        String sql = "SELECT created_at, admin_user_id, action_type, target_clinic_id, target_resource_type, " +
+                "target_resource_id, reason, ip_address, response_status " +
+                "FROM system_admin_actions WHERE created_at BETWEEN ? AND ? " +
+                "ORDER BY created_at DESC";
+
+        return export(sql, new Object[]{Timestamp.valueOf(startDate), Timestamp.valueOf(endDate)},
+                AUDIT_CSV_HEADER, out, gzip, (rs, row) -> {
+                    row.add(formatTimestamp(rs.getTimestamp("created_at")));
+                    row.add(rs.getString("admin_user_id"));
+                    row.add(rs.getString("action_type"));
+                    row.add(rs.getString("target_clinic_id"));
+                    row.add(rs.getString("target_resource_type"));
+                    row.add(rs.getString("target_resource_id"));
+                    row.add(rs.getString("reason"));
+                    row.add(rs.getString("ip_address"));
+                    String status = rs.getString("response_status");
+                    row.add(status != null ? status : "200");
+                });
+    }
+
+    /**
+     * تصدير سجلات الأنشطة بنفس معايير البحث في ActivityLogService.searchActivities
+     */
+    public long exportActivities(Long clinicId, Long userId, ActionType actionType, String entityType,
+                                 LocalDateTime startDate, LocalDateTime endDate, String searchTerm,
+                                 OutputStream out, boolean gzip) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT timestamp, clinic_id, clinic_name, user_id, username, user_full_name, user_role, " +
+                "action_type, http_method, entity_type, entity_id, entity_name, description, endpoint, " +
+                "ip_address, success, error_message, duration_ms " +
+                "FROM activity_logs WHERE clinic_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(clinicId);
+
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            params.add(userId);
+        }
+        if (actionType != null) {
+            sql.append(" AND action_type = ?");
+            params.add(actionType.name());
+        }
+        if (entityType != null) {
+            sql.append(" AND entity_type = ?");
+            params.add(entityType);
+        }
+        if (startDate != null) {
+            sql.append(" AND timestamp >= ?");
+            params.add(Timestamp.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND timestamp <= ?");
+            params.add(Timestamp.valueOf(endDate));
+        }
+        if (searchTerm != null) {
+            String like = "%" + searchTerm.toLowerCase() + "%";
+            sql.append(" AND (LOWER(description) LIKE ? OR LOWER(entity_name) LIKE ?)");
+            params.add(like);
+            params.add(like);
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC");
+
+        return export(sql.toString(), params.toArray(), ACTIVITY_CSV_HEADER, out, gzip, (rs, row) -> {
+            row.add(formatTimestamp(rs.getTimestamp("timestamp")));
+            row.add(rs.getString("clinic_id"));
+            row.add(rs.getString("clinic_name"));
+            row.add(rs.getString("user_id"));
+            row.add(rs.getString("username"));
+            row.add(rs.getString("user_full_name"));
+            row.add(rs.getString("user_role"));
+            row.add(rs.getString("action_type"));
+            row.add(rs.getString("http_method"));
+            row.add(rs.getString("entity_type"));
+            row.add(rs.getString("entity_id"));
+            row.add(rs.getString("entity_name"));
+            row.add(rs.getString("description"));
+            row.add(rs.getString("endpoint"));
+            row.add(rs.getString("ip_address"));
+            row.add(String.valueOf(rs.getBoolean("success")));
+            row.add(rs.getString("error_message"));
+            row.add(rs.getString("duration_ms"));
+        });
+    }
+
+    // =============================================================================
+    // HELPERS
+    // =============================================================================
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void collect(ResultSet rs, List<String> row) throws SQLException;
+    }
+
+    private long export(String sql, Object[] params, String header, OutputStream out, boolean gzip,
+                        RowWriter rowWriter) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 8192);
+        long[] count = {0};
+        List<String> row = new ArrayList<>();
+
+        writer.write(header);
+        writer.write('\n');
+        try {
+            streamingJdbcTemplate.query(sql, rs -> {
+                row.clear();
+                rowWriter.collect(rs, row);
+                try {
+                    writeRow(writer, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }, params);
+        } catch (UncheckedIOException e) {
+            // العميل أغلق الاتصال أثناء التنزيل
+            throw e.getCause();
+        }
+
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipOut) {
+            gzipOut.finish();
+        }
+        log.debug("Exported {} rows to CSV", count[0]);
+        return count[0];
+    }
+
+    private static void writeRow(Writer writer, List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeForCsv(row.get(i)));
+        }
+        writer.write('\n');
+    }
+
+    private static String formatTimestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : "";
+    }
+
+    /**
+     * Escape string for CSV format
+     */
+    private static String escapeForCsv(String value) {
+        if (value == null) return "";
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,216 @@
+// =============================================================================
+// Medical Record Search Service - البحث النصي الكامل في السجلات الطبية
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.dto.request.healthrecords.MedicalRecordSearchCriteria;
+import com.nakqeeb.amancare.entity.MedicalRecord;
+import com.nakqeeb.amancare.entity.healthrecords.Diagnosis;
+import com.nakqeeb.amancare.repository.MedicalRecordRepository;
+import com.nakqeeb.amancare.repository.MedicalRecordSearchDocumentRepository;
+import com.nakqeeb.amancare.util.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * فهرس البحث النصي للسجلات الطبية بدلاً من LIKE '%term%' على عدة أعمدة
+ * Full-text search over medical records backed by a MySQL FULLTEXT index with
+ * the ngram parser, which tokenizes Arabic without a word list.
+ *
+ * Each record has one row in medical_record_search holding the chief complaint,
+ * treatment plan, notes and diagnosis descriptions, folded with
+ * normalizeForIndex (diacritics, alef/ya/ta-marbuta). Search terms
+ * are folded the same way, so spelling variants match. MedicalRecordService
+ * updates the row in the same transaction as the record. Records that existed
+ * before the index are indexed at startup. Until the index is ready, or if the
+ * server cannot build it, callers fall back to the LIKE queries.
+ */
+@Service
+@Slf4j
+public class MedicalRecordSearchService {
+
+    private static final String FULLTEXT_INDEX = "ft_medical_record_search";
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    private final MedicalRecordSearchDocumentRepository searchRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int minTokenLength;
+
+    private volatile boolean ready = false;
+
+    public MedicalRecordSearchService(MedicalRecordSearchDocumentRepository searchRepository,
+                                      MedicalRecordRepository medicalRecordRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.search.full-text-enabled:true}") boolean enabled,
+                                      @Value("${app.search.ngram-token-size:2}") int minTokenLength) {
+        this.searchRepository = searchRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minTokenLength = minTokenLength;
+    }
+
+    // =============================================================================
+    // INDEXING
+    // =============================================================================
+
+    /**
+     * تحديث نص البحث للسجل (يُستدعى داخل معاملة حفظ السجل)
+     */
+    public void index(MedicalRecord record) {
+        if (!enabled || record.getId() == null || record.getClinic() == null) {
+            return;
+        }
+        searchRepository.upsert(record.getId(), record.getClinic().getId(), content(record));
+    }
+
+    /**
+     * حذف السجل من الفهرس
+     */
+    public void remove(Long recordId) {
+        if (!enabled || recordId == null) {
+            return;
+        }
+        if (searchRepository.existsById(recordId)) {
+            searchRepository.deleteById(recordId);
+        }
+    }
+
+    /**
+     * إنشاء فهرس FULLTEXT وفهرسة السجلات القديمة عند التشغيل
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ensureFullTextIndex();
+            int indexed = backfill();
+            if (indexed > 0) {
+                log.info("Indexed {} medical records for full-text search", indexed);
+            }
+            ready = true;
+        } catch (Exception e) {
+            log.warn("Full-text search unavailable, using LIKE search: {}", e.getMessage());
+        }
+    }
+
+    // =============================================================================
+    // SEARCH
+    // =============================================================================
+
+    /**
+     * تحويل كلمة البحث إلى استعلام FULLTEXT؛ null يعني استخدام بحث LIKE
+     */
+    public String toQuery(String searchTerm) {
+        if (!ready || searchTerm == null) {
+            return null;
+        }
+        // إزالة رموز الوضع المنطقي في MySQL من نص المستخدم
+        String normalized = normalizeForIndex(searchTerm).replaceAll("[+\\-<>()~*\"@]", " ");
+        StringBuilder query = new StringBuilder();
+        for (String word : normalized.split("\\s+")) {
+            // الكلمات الأقصر من حجم ngram لا تُفهرس
+            if (word.length() >= minTokenLength) {
+                query.append("+\"").append(word).append("\" ");
+            }
+        }
+        return query.isEmpty() ? null : query.toString().trim();
+    }
+
+    /**
+     * البحث مرتباً حسب درجة التطابق ثم تاريخ الزيارة
+     */
+    public Page<MedicalRecord> search(String query, Long clinicId, MedicalRecordSearchCriteria criteria,
+                                      Pageable pageable) {
+        // الترتيب يحدده الاستعلام (درجة التطابق)، لذلك يُتجاهل ترتيب الصفحة
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return searchRepository.search(
+                query,
+                clinicId,
+                criteria.getPatientId(),
+                criteria.getDoctorId(),
+                criteria.getVisitType() != null ? criteria.getVisitType().name() : null,
+                criteria.getStatus() != null ? criteria.getStatus().name() : null,
+                criteria.getVisitDateFrom(),
+                criteria.getVisitDateTo(),
+                criteria.getIsConfidential(),
+                unsorted
+        );
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private void ensureFullTextIndex() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                        "AND table_name = 'medical_record_search' AND index_name = ?",
+                Integer.class, FULLTEXT_INDEX);
+        if (existing == null || existing == 0) {
+            log.info("Creating full-text index {}", FULLTEXT_INDEX);
+            jdbcTemplate.execute("ALTER TABLE medical_record_search ADD FULLTEXT INDEX " + FULLTEXT_INDEX +
+                    " (content) WITH PARSER ngram");
+        }
+    }
+
+    private int backfill() {
+        int total = 0;
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = searchRepository.findUnindexedRecordIds(lastId, BACKFILL_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                return total;
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    medicalRecordRepository.findAllById(ids).forEach(this::index));
+            total += ids.size();
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private static String content(MedicalRecord record) {
+        List<String> parts = new ArrayList<>();
+        parts.add(record.getChiefComplaint());
+        parts.add(record.getTreatmentPlan());
+        parts.add(record.getNotes());
+        if (record.getDiagnosis() != null) {
+            for (Diagnosis diagnosis : record.getDiagnosis()) {
+                parts.add(diagnosis.getDescription());
+            }
+        }
+        return normalizeForIndex(StringUtil.joinWithSpace(parts.toArray(new String[0])));
+    }
+
+    /**
+     * توحيد النص للفهرس: StringUtil.normalizeForSearch مع توحيد ٱ/ى/ة ومسافات البحث
+     * Kept local to the full-text index so other callers of normalizeForSearch keep their matching.
+     */
+    static String normalizeForIndex(String text) {
+        return StringUtil.normalizeForSearch(text)
+                .replace('\u0671', '\u0627') // ٱ -> ا
+                .replace('\u0649', '\u064A') // ى -> ي
+                .replace('\u0629', '\u0647') // ة -> ه
+                .replaceAll("\\s+", " ");
+    }
+}
@@ -6,6 +6,7 @@
 package com.nakqeeb.amancare.service;
 
 import com.nakqeeb.amancare.dto.request.healthrecords.*;
+import com.nakqeeb.amancare.dto.response.CursorPageResponse;
 import com.nakqeeb.amancare.dto.response.healthrecords.*;
 import com.nakqeeb.amancare.entity.healthrecords.*;
 import com.nakqeeb.amancare.entity.*;
@@ -14,19 +15,25 @@ import com.nakqeeb.amancare.exception.BusinessLogicException;
 import com.nakqeeb.amancare.exception.UnauthorizedAccessException;
 import com.nakqeeb.amancare.repository.*;
 import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.service.pdf.RenderedPdfCache;
+import com.nakqeeb.amancare.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -56,6 +63,15 @@ public class MedicalRecordService {
     @Autowired
     private ClinicContextService clinicContextService;
 
+    @Autowired
+    private final RenderedPdfCache renderedPdfCache;
+
+    @Autowired
+    private final ClinicStatisticsService clinicStatisticsService;
+
+    @Autowired
+    private final MedicalRecordSearchService medicalRecordSearchService;
+
     // =============================================================================
     // CREATE OPERATIONS
     // =============================================================================
@@ -98,6 +114,7 @@ public class MedicalRecordService {
 
         // Save medical record
         MedicalRecord savedRecord = medicalRecordRepository.save(medicalRecord);
+        medicalRecordSearchService.index(savedRecord);
 
         // Log audit
         auditLogService.logActivity(
@@ -128,10 +145,10 @@ public class MedicalRecordService {
 
         if (UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())) {
             // SYSTEM_ADMIN can access records from any clinic
-            medicalRecord = medicalRecordRepository.findById(id)
+            medicalRecord = medicalRecordRepository.findWithDetailsById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("السجل الطبي غير موجود"));
         } else {
-            medicalRecord = medicalRecordRepository.findByIdAndClinicId(id, currentUser.getClinicId())
+            medicalRecord = medicalRecordRepository.findWithDetailsByIdAndClinicId(id, currentUser.getClinicId())
                     .orElseThrow(() -> new ResourceNotFoundException("السجل الطبي غير موجود"));
         }
 
@@ -159,8 +176,32 @@ public class MedicalRecordService {
                     currentUser.getClinicId(), pageable);
         }
 
-        return medicalRecords.map(this::filterConfidentialData)
-                .map(MedicalRecordSummaryResponse::fromEntity);
+        return toSummaries(medicalRecords);
+    }
+
+    /**
+     * السجلات الطبية بالترقيم بالمؤشر (بدون استعلام عد)، الأحدث زيارةً أولاً
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<MedicalRecordSummaryResponse> getMedicalRecordsByCursor(
+            String cursor, int size, UserPrincipal currentUser) {
+        // SYSTEM_ADMIN sees all clinics, as in getAllMedicalRecords
+        Long clinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())
+                ? null
+                : currentUser.getClinicId();
+
+        CursorUtil.Cursor after = CursorUtil.decode(cursor, 2);
+        Slice<MedicalRecord> medicalRecords = medicalRecordRepository.findAfterCursor(
+                clinicId,
+                after != null ? after.localDate(0) : null,
+                after != null ? after.id(1) : null,
+                CursorUtil.limit(size));
+
+        Map<Long, String> primaryDiagnoses = findPrimaryDiagnoses(medicalRecords.getContent());
+        return CursorPageResponse.from(medicalRecords,
+                record -> MedicalRecordSummaryResponse.fromEntity(
+                        filterConfidentialData(record), primaryDiagnoses.get(record.getId())),
+                record -> CursorUtil.encode(record.getVisitDate(), record.getId()));
     }
 
     /**
@@ -173,8 +214,14 @@ public class MedicalRecordService {
         log.info("البحث المتقدم في السجلات الطبية: {}", criteria);
 
         Page<MedicalRecord> medicalRecords;
-
-        if (UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())) {
+        String fullTextQuery = medicalRecordSearchService.toQuery(criteria.getSearchTerm());
+        boolean systemAdmin = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole());
+
+        if (fullTextQuery != null) {
+            // Ranked full-text search; clinic scoping is the same as the LIKE queries below
+            Long clinicId = systemAdmin ? criteria.getClinicId() : currentUser.getClinicId();
+            medicalRecords = medicalRecordSearchService.search(fullTextQuery, clinicId, criteria, pageable);
+        } else if (systemAdmin) {
             medicalRecords = medicalRecordRepository.findBySearchCriteriaForSystemAdmin(
                     criteria.getClinicId(),
                     criteria.getPatientId(),
@@ -202,8 +249,7 @@ public class MedicalRecordService {
             );
         }
 
-        return medicalRecords.map(this::filterConfidentialData)
-                .map(MedicalRecordSummaryResponse::fromEntity);
+        return toSummaries(medicalRecords);
     }
 
     /**
@@ -235,8 +281,7 @@ public class MedicalRecordService {
                     patientId, currentUser.getClinicId(), pageable);
         }
 
-        return medicalRecords.map(this::filterConfidentialData)
-                .map(MedicalRecordSummaryResponse::fromEntity);
+        return toSummaries(medicalRecords);
     }
 
     /**
@@ -264,8 +309,7 @@ public class MedicalRecordService {
                     doctorId, currentUser.getClinicId(), pageable);
         }
 
-        return medicalRecords.map(this::filterConfidentialData)
-                .map(MedicalRecordSummaryResponse::fromEntity);
+        return toSummaries(medicalRecords);
     }
 
     /**
@@ -275,7 +319,7 @@ public class MedicalRecordService {
     public MedicalRecordResponse getMedicalRecordByAppointment(Long appointmentId, UserPrincipal currentUser) {
         log.info("البحث عن السجل الطبي للموعد {}", appointmentId);
 
-        MedicalRecord medicalRecord = medicalRecordRepository.findByAppointmentIdAndClinicId(
+        MedicalRecord medicalRecord = medicalRecordRepository.findWithDetailsByAppointmentIdAndClinicId(
                         appointmentId, currentUser.getClinicId())
                 .orElseThrow(() -> new ResourceNotFoundException("لا يوجد سجل طبي مرتبط بهذا الموعد"));
 
@@ -300,7 +344,7 @@ public class MedicalRecordService {
         log.info("تحديث السجل الطبي {} بواسطة المستخدم {}", id, currentUser.getUsername());
 
         // Get existing record
-        MedicalRecord existingRecord = medicalRecordRepository.findByIdAndClinicId(id, currentUser.getClinicId())
+        MedicalRecord existingRecord = medicalRecordRepository.findWithDetailsByIdAndClinicId(id, currentUser.getClinicId())
                 .orElseThrow(() -> new ResourceNotFoundException("السجل الطبي غير موجود"));
 
         // Check if record can be modified
@@ -313,6 +357,8 @@ public class MedicalRecordService {
 
         // Save changes
         MedicalRecord updatedRecord = medicalRecordRepository.save(existingRecord);
+        medicalRecordSearchService.index(updatedRecord);
+        renderedPdfCache.evict(RenderedPdfCache.MEDICAL_RECORD, updatedRecord.getId());
 
         // Log audit
         auditLogService.logActivity(
@@ -337,7 +383,7 @@ public class MedicalRecordService {
 
         log.info("تحديث حالة السجل الطبي {} إلى {}", id, request.getStatus());
 
-        MedicalRecord medicalRecord = medicalRecordRepository.findByIdAndClinicId(id, currentUser.getClinicId())
+        MedicalRecord medicalRecord = medicalRecordRepository.findWithDetailsByIdAndClinicId(id, currentUser.getClinicId())
                 .orElseThrow(() -> new ResourceNotFoundException("السجل الطبي غير موجود"));
 
         // Check if status can be changed
@@ -357,6 +403,9 @@ public class MedicalRecordService {
         }
 
         MedicalRecord updatedRecord = medicalRecordRepository.save(medicalRecord);
+        // ملاحظة تغيير الحالة جزء من نص البحث
+        medicalRecordSearchService.index(updatedRecord);
+        renderedPdfCache.evict(RenderedPdfCache.MEDICAL_RECORD, updatedRecord.getId());
 
         // Log audit
         auditLogService.logActivity(
@@ -424,6 +473,7 @@ public class MedicalRecordService {
         String patientInfo = medicalRecord.getPatient().getFirstName() + " " + medicalRecord.getPatient().getLastName();
 
         medicalRecordRepository.delete(medicalRecord);
+        medicalRecordSearchService.remove(id);
 
         // Log audit
         auditLogService.logActivity(
@@ -451,34 +501,38 @@ public class MedicalRecordService {
 
         Long clinicId = UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole()) ? null : currentUser.getClinicId();
 
-        // Get basic counts
-        Long totalRecords = clinicId != null ?
-                medicalRecordRepository.countByClinicId(clinicId) :
-                medicalRecordRepository.countAllRecords();
-
-        Long completedRecords = clinicId != null ?
-                medicalRecordRepository.countByStatusAndClinicId(RecordStatus.COMPLETED, clinicId) :
-                medicalRecordRepository.countAllRecordsByStatus(RecordStatus.COMPLETED);
-
-        Long draftRecords = clinicId != null ?
-                medicalRecordRepository.countByStatusAndClinicId(RecordStatus.DRAFT, clinicId) :
-                medicalRecordRepository.countAllRecordsByStatus(RecordStatus.DRAFT);
-
-        Long reviewedRecords = clinicId != null ?
-                medicalRecordRepository.countByStatusAndClinicId(RecordStatus.REVIEWED, clinicId) :
-                medicalRecordRepository.countAllRecordsByStatus(RecordStatus.REVIEWED);
-
-        Long lockedRecords = clinicId != null ?
-                medicalRecordRepository.countByStatusAndClinicId(RecordStatus.LOCKED, clinicId) :
-                medicalRecordRepository.countAllRecordsByStatus(RecordStatus.LOCKED);
-
-        // Time-based statistics
-        Long recordsToday = clinicId != null ?
-                medicalRecordRepository.countTodayRecords(clinicId) : 0L;
-        Long recordsThisWeek = clinicId != null ?
-                medicalRecordRepository.countThisWeekRecords(clinicId) : 0L;
-        Long recordsThisMonth = clinicId != null ?
-                medicalRecordRepository.countThisMonthRecords(clinicId) : 0L;
+        Long totalRecords;
+        Long completedRecords;
+        Long draftRecords;
+        Long reviewedRecords;
+        Long lockedRecords;
+        Long recordsToday;
+        Long recordsThisWeek;
+        Long recordsThisMonth;
+
+        if (clinicId != null) {
+            // Counters maintained by ClinicStatisticsService
+            ClinicStatisticsService.Snapshot counters = clinicStatisticsService.snapshot(clinicId, LocalDate.now());
+            totalRecords = counters.total(ClinicStatisticsMetric.RECORDS_TOTAL);
+            completedRecords = counters.total(ClinicStatisticsMetric.RECORDS_COMPLETED);
+            draftRecords = counters.total(ClinicStatisticsMetric.RECORDS_DRAFT);
+            reviewedRecords = counters.total(ClinicStatisticsMetric.RECORDS_REVIEWED);
+            lockedRecords = counters.total(ClinicStatisticsMetric.RECORDS_LOCKED);
+            recordsToday = counters.day(ClinicStatisticsMetric.RECORDS_TOTAL);
+            recordsThisWeek = counters.week(ClinicStatisticsMetric.RECORDS_TOTAL);
+            recordsThisMonth = counters.month(ClinicStatisticsMetric.RECORDS_TOTAL);
+        } else {
+            // SYSTEM_ADMIN without clinic: totals across all clinics
+            Object[] summary = medicalRecordRepository.getAllRecordsStatusSummary().get(0);
+            totalRecords = ((Number) summary[0]).longValue();
+            completedRecords = ((Number) summary[1]).longValue();
+            draftRecords = ((Number) summary[2]).longValue();
+            reviewedRecords = ((Number) summary[3]).longValue();
+            lockedRecords = ((Number) summary[4]).longValue();
+            recordsToday = 0L;
+            recordsThisWeek = 0L;
+            recordsThisMonth = 0L;
+        }
 
         // Get common diagnoses and medications
         List<DiagnosisFrequencyResponse> commonDiagnoses = getCommonDiagnoses(clinicId);
@@ -713,6 +767,27 @@ public class MedicalRecordService {
         return UserRole.ADMIN.name().equals(currentUser.getRole());
     }
 
+    private Page<MedicalRecordSummaryResponse> toSummaries(Page<MedicalRecord> medicalRecords) {
+        Map<Long, String> primaryDiagnoses = findPrimaryDiagnoses(medicalRecords.getContent());
+        return medicalRecords.map(this::filterConfidentialData)
+                .map(record -> MedicalRecordSummaryResponse.fromEntity(record, primaryDiagnoses.get(record.getId())));
+    }
+
+    /**
+     * التشخيص الأساسي لسجلات الصفحة باستعلام واحد بدلاً من تحميل تشخيصات كل سجل
+     */
+    private Map<Long, String> findPrimaryDiagnoses(List<MedicalRecord> medicalRecords) {
+        Map<Long, String> primaryDiagnoses = new HashMap<>();
+        if (medicalRecords.isEmpty()) {
+            return primaryDiagnoses;
+        }
+        List<Long> recordIds = medicalRecords.stream().map(MedicalRecord::getId).toList();
+        for (Object[] row : medicalRecordRepository.findPrimaryDiagnoses(recordIds)) {
+            primaryDiagnoses.putIfAbsent((Long) row[0], (String) row[1]);
+        }
+        return primaryDiagnoses;
+    }
+
     private MedicalRecord filterConfidentialData(MedicalRecord medicalRecord) {
         // This method would filter sensitive data based on user permissions
         // For now, we return the full record, but this could be enhanced
@@ -0,0 +1,209 @@
+// =============================================================================
+// Number Allocator Service - توليد الأرقام المتسلسلة (الفواتير والمرضى)
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nakqeeb.amancare.entity.NumberCounterType;
+import com.nakqeeb.amancare.repository.InvoiceRepository;
+import com.nakqeeb.amancare.repository.NumberCounterRepository;
+import com.nakqeeb.amancare.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * توليد أرقام متسلسلة لكل عيادة ونوع وفترة بدون تعارض عند التزامن
+ * Per clinic/type/period counter allocator.
+ *
+ * With a block size of 1 (the default for invoices) the number_counters row is
+ * incremented inside the caller's transaction: numbers are gap-free, a rollback
+ * gives the number back, and numbers are issued in commit order across nodes.
+ * The row lock is held until the caller commits, so invoice creation is
+ * serialized per clinic and month.
+ *
+ * With a larger block size (hi/lo, the default for patients) a node reserves a
+ * block of values with one atomic increment and hands them out from memory.
+ * Reservations run on the numberingDataSource pool (app.numbering.datasource.*,
+ * see NumberingDataSourceConfig), so a caller that already holds a connection
+ * never waits on the application pool for a second one.
+ * Values are unique across nodes; a restart or a rolled-back caller leaves gaps.
+ */
+@Service
+@Slf4j
+public class NumberAllocatorService {
+
+    public static final String NO_PERIOD = "ALL";
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String INCREMENT_SQL =
+            "UPDATE number_counters SET last_value = last_value + ?, updated_at = NOW() " +
+                    "WHERE clinic_id = ? AND counter_type = ? AND period = ?";
+    private static final String SELECT_SQL =
+            "SELECT last_value FROM number_counters WHERE clinic_id = ? AND counter_type = ? AND period = ?";
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO number_counters (clinic_id, counter_type, period, last_value, updated_at) " +
+                    "VALUES (?, ?, ?, ?, NOW())";
+
+    private final NumberCounterRepository counterRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate required;
+    private final ReservationPool reservationPool;
+    private final int invoiceBlockSize;
+    private final int patientBlockSize;
+
+    // الكتل المحجوزة في الذاكرة؛ فقدان كتلة بالإخلاء يترك فجوة فقط
+    private final Cache<String, Block> blocks;
+
+    public NumberAllocatorService(NumberCounterRepository counterRepository,
+                                  InvoiceRepository invoiceRepository,
+                                  PatientRepository patientRepository,
+                                  @Qualifier("numberingDataSource") DataSource numberingDataSource,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.numbering.invoice-block-size:1}") int invoiceBlockSize,
+                                  @Value("${app.numbering.patient-block-size:20}") int patientBlockSize,
+                                  @Value("${app.numbering.max-cached-blocks:10000}") long maxCachedBlocks) {
+        this.counterRepository = counterRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.patientRepository = patientRepository;
+        this.required = new TransactionTemplate(transactionManager);
+        this.reservationPool = new ReservationPool(numberingDataSource);
+        this.invoiceBlockSize = Math.max(invoiceBlockSize, 1);
+        this.patientBlockSize = Math.max(patientBlockSize, 1);
+        // الفترات الشهرية المنتهية لا يُطلب منها مجدداً فتُخلى بعد الخمول
+        this.blocks = Caffeine.newBuilder()
+                .maximumSize(maxCachedBlocks)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    /**
+     * رقم الفاتورة التالي: INV-{clinicId}-{yyyyMM}-{0001} (يبدأ من جديد كل شهر)
+     */
+    public String nextInvoiceNumber(Long clinicId) {
+        String period = LocalDate.now().format(PERIOD_FORMAT);
+        String prefix = "INV-" + clinicId + "-" + period + "-";
+        long counter = next(clinicId, NumberCounterType.INVOICE, period,
+                () -> invoiceRepository.findMaxInvoiceSequence(clinicId, prefix));
+        return String.format("%s%04d", prefix, counter);
+    }
+
+    /**
+     * رقم المريض التالي: P{yyyyMM}{0001} بتسلسل واحد للعيادة
+     */
+    public String nextPatientNumber(Long clinicId) {
+        String prefix = "P" + LocalDate.now().format(PERIOD_FORMAT);
+        long counter = next(clinicId, NumberCounterType.PATIENT, NO_PERIOD,
+                () -> patientRepository.findMaxPatientSequence(clinicId));
+        return prefix + String.format("%04d", counter);
+    }
+
+    /**
+     * القيمة التالية للعداد
+     *
+     * @param seed أكبر قيمة مستخدمة حالياً، تُستدعى مرة واحدة عند إنشاء صف العداد
+     */
+    public long next(Long clinicId, NumberCounterType type, String period, LongSupplier seed) {
+        int blockSize = blockSize(type);
+        if (blockSize == 1) {
+            return nextInCallerTransaction(clinicId, type, period, seed);
+        }
+
+        String key = clinicId + ":" + type + ":" + period;
+        Block block = blocks.get(key, k -> new Block());
+
+        synchronized (block) {
+            if (block.next > block.last) {
+                long last = reserve(clinicId, type, period, blockSize, seed);
+                block.next = last - blockSize + 1;
+                block.last = last;
+                log.debug("Reserved {} block {}..{}", key, block.next, block.last);
+            }
+            return block.next++;
+        }
+    }
+
+    private int blockSize(NumberCounterType type) {
+        return type == NumberCounterType.INVOICE ? invoiceBlockSize : patientBlockSize;
+    }
+
+    /**
+     * زيادة العداد ضمن معاملة المستدعي (بدون فجوات، ويُقفل الصف حتى الالتزام)
+     */
+    private long nextInCallerTransaction(Long clinicId, NumberCounterType type, String period, LongSupplier seed) {
+        Long value = required.execute(status -> {
+            if (counterRepository.increment(clinicId, type, period, 1) == 0) {
+                counterRepository.insertIfAbsent(clinicId, type.name(), period, seed.getAsLong());
+                counterRepository.increment(clinicId, type, period, 1);
+            }
+            return counterRepository.findLastValue(clinicId, type, period)
+                    .orElseThrow(() -> new IllegalStateException("Counter row missing for " + type + " " + period));
+        });
+        return value;
+    }
+
+    /**
+     * حجز مجموعة قيم جديدة على اتصال مستقل وإرجاع آخر قيمة فيها
+     */
+    private long reserve(Long clinicId, NumberCounterType type, String period, int blockSize, LongSupplier seed) {
+        ReservationPool pool = reservationPool;
+
+        Long last = pool.transaction.execute(status ->
+                incrementAndGet(pool.jdbcTemplate, clinicId, type, period, blockSize));
+        if (last == null) {
+            // أول حجز لهذا العداد: البذرة تُقرأ على اتصال المستدعي قبل فتح معاملة الحجز
+            long initialValue = seed.getAsLong();
+            last = pool.transaction.execute(status -> {
+                pool.jdbcTemplate.update(INSERT_SQL, clinicId, type.name(), period, initialValue);
+                return incrementAndGet(pool.jdbcTemplate, clinicId, type, period, blockSize);
+            });
+        }
+        if (last == null) {
+            throw new IllegalStateException("Counter row missing for " + type + " " + period);
+        }
+        return last;
+    }
+
+    private static Long incrementAndGet(JdbcTemplate jdbcTemplate, Long clinicId, NumberCounterType type,
+                                        String period, int amount) {
+        if (jdbcTemplate.update(INCREMENT_SQL, amount, clinicId, type.name(), period) == 0) {
+            return null;
+        }
+        List<Long> values = jdbcTemplate.queryForList(SELECT_SQL, Long.class, clinicId, type.name(), period);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private static final class ReservationPool {
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transaction;
+
+        private ReservationPool(DataSource dataSource) {
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            // لا ينضم إلى معاملة المستدعي حتى لو كان على نفس الـ DataSource
+            this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+    }
+
+    private static final class Block {
+        private long next = 1;
+        private long last = 0;
+    }
+}
@@ -7,6 +7,7 @@ import com.nakqeeb.amancare.entity.PasswordResetToken;
 import com.nakqeeb.amancare.entity.User;
 import com.nakqeeb.amancare.repository.PasswordResetTokenRepository;
 import com.nakqeeb.amancare.repository.UserRepository;
+import com.nakqeeb.amancare.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,6 +29,7 @@ public class PasswordResetService {
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Value("${app.password-reset.token-validity-hours:24}")
     private int tokenValidityHours;
@@ -101,6 +103,7 @@ public class PasswordResetService {
         User user = userOpt.get();
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userPrincipalCache.evict(user.getId());
 
         // تحديد الرمز كمستخدم
         resetToken.setUsed(true);
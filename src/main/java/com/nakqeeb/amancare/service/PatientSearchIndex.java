@@ -0,0 +1,406 @@
+// =============================================================================
+// Patient Search Index - فهرس البحث السريع عن المرضى في الذاكرة
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ibm.icu.text.CollationKey;
+import com.ibm.icu.text.Collator;
+import com.ibm.icu.util.ULocale;
+import com.nakqeeb.amancare.entity.BloodType;
+import com.nakqeeb.amancare.entity.Gender;
+import com.nakqeeb.amancare.entity.Patient;
+import com.nakqeeb.amancare.repository.PatientRepository;
+import com.nakqeeb.amancare.util.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * فهرس في الذاكرة للبحث عن المرضى أثناء الكتابة (بداية الاسم، نهاية الهاتف، رقم المريض)
+ * In-memory patient lookup index per clinic, replacing leading-wildcard LIKE
+ * scans on names, phone numbers and patient numbers.
+ *
+ * Each clinic index keeps sorted maps of normalized name words (prefix
+ * lookup), phone digits forwards and reversed (prefix and suffix lookup) and
+ * patient numbers (exact lookup). Names are folded with
+ * StringUtil.normalizeForSearch, so أحمد, احمد and إحمد match the same prefix.
+ * Arabic-Indic digits are treated as ASCII digits.
+ *
+ * Clinic indexes are built on first search and evicted after
+ * app.patient-search.idle-minutes without searches, or max-age-minutes after
+ * they were built. PatientService reports saves and deletes on this node, which
+ * are applied after the transaction commits. If a build is in progress, the
+ * change is applied when the build finishes.
+ *
+ * Changes made on other nodes are picked up by a version check of at most one
+ * query every version-check-ms: COUNT(*) and MAX(updated_at) of the clinic's
+ * patients, served by the (clinic_id, updated_at) index. When the latest
+ * update moved, rows updated since the previous version are re-read. When the
+ * count still differs afterwards (a hard delete), the clinic is rebuilt.
+ *
+ * Results are ordered by first and last name with an ICU root collator at
+ * primary strength, the UCA ordering behind MySQL's utf8mb4_0900_ai_ci, so pages
+ * match the database ordering used without a search term.
+ */
+@Service
+@Slf4j
+public class PatientSearchIndex {
+
+    // أقل عدد أرقام للبحث في أرقام الهواتف
+    private static final int MIN_PHONE_DIGITS = 3;
+
+    // هامش لإعادة قراءة الصفوف التي التزمت بعد تسجيل updated_at الخاص بها
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    // ترتيب UCA بدون تمييز حالة الأحرف أو التشكيل (مثل utf8mb4_0900_ai_ci)
+    private static final Collator NAME_COLLATOR = createCollator();
+
+    private final PatientRepository patientRepository;
+    private final Cache<Long, ClinicIndex> clinics;
+    private final boolean enabled;
+    private final long versionCheckMs;
+
+    public PatientSearchIndex(PatientRepository patientRepository,
+                              @Value("${app.patient-search.enabled:true}") boolean enabled,
+                              @Value("${app.patient-search.max-clinics:50}") long maxClinics,
+                              @Value("${app.patient-search.idle-minutes:60}") long idleMinutes,
+                              @Value("${app.patient-search.max-age-minutes:10}") long maxAgeMinutes,
+                              @Value("${app.patient-search.version-check-ms:2000}") long versionCheckMs) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+        this.versionCheckMs = versionCheckMs;
+        this.clinics = Caffeine.newBuilder()
+                .maximumSize(maxClinics)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .expireAfterWrite(Duration.ofMinutes(maxAgeMinutes))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * البحث عن معرفات المرضى المطابقين، مرتبة حسب الاسم الأول ثم الأخير
+     */
+    public Page<Long> search(Long clinicId, String searchTerm, Gender gender, BloodType bloodType,
+                             Boolean isActive, Pageable pageable) {
+        ClinicIndex index = synchronize(clinicId, clinics.get(clinicId, this::load));
+
+        List<Entry> matches = new ArrayList<>();
+        for (Long id : index.match(searchTerm)) {
+            Entry entry = index.entries.get(id);
+            if (entry != null
+                    && (gender == null || gender == entry.gender())
+                    && (bloodType == null || bloodType == entry.bloodType())
+                    && (isActive == null || isActive.equals(entry.active()))) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(Entry.ORDER);
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<Long> ids = matches.subList(from, to).stream().map(Entry::id).toList();
+        return new PageImpl<>(ids, pageable, matches.size());
+    }
+
+    /**
+     * تحديث المريض في الفهرس بعد نجاح المعاملة
+     */
+    public void patientSaved(Patient patient) {
+        if (!enabled || patient.getId() == null || patient.getClinic() == null) {
+            return;
+        }
+        Entry entry = Entry.of(patient.getId(), patient.getFirstName(), patient.getLastName(),
+                patient.getPhone(), patient.getPatientNumber(), patient.getGender(),
+                patient.getBloodType(), patient.getIsActive());
+        Long clinicId = patient.getClinic().getId();
+        afterCommit(() -> update(clinicId, index -> index.put(entry)));
+    }
+
+    /**
+     * حذف المريض من الفهرس بعد نجاح المعاملة
+     */
+    public void patientDeleted(Long clinicId, Long patientId) {
+        if (!enabled || clinicId == null || patientId == null) {
+            return;
+        }
+        afterCommit(() -> update(clinicId, index -> index.remove(patientId)));
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private ClinicIndex load(Long clinicId) {
+        long start = System.currentTimeMillis();
+        // النسخة تُقرأ قبل الصفوف: أي تغيير لاحق يظهر كاختلاف في الفحص التالي
+        ClinicIndex index = new ClinicIndex(readVersion(clinicId));
+        putRows(index, patientRepository.findSearchFieldsByClinicId(clinicId));
+        log.debug("Built patient search index for clinic {} ({} patients, {} ms)",
+                clinicId, index.entries.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * مطابقة الفهرس مع قاعدة البيانات لالتقاط تغييرات العقد الأخرى
+     */
+    private ClinicIndex synchronize(Long clinicId, ClinicIndex index) {
+        long now = System.currentTimeMillis();
+        if (now - index.checkedAt < versionCheckMs || !index.syncing.compareAndSet(false, true)) {
+            return index;
+        }
+        try {
+            Version current = readVersion(clinicId);
+            if (!current.equals(index.version)) {
+                if (current.lastUpdated() != null && index.version.lastUpdated() != null
+                        && current.lastUpdated().isAfter(index.version.lastUpdated())) {
+                    putRows(index, patientRepository.findSearchFieldsByClinicIdUpdatedSince(
+                            clinicId, index.version.lastUpdated().minus(SYNC_OVERLAP)));
+                }
+                if (current.count() != index.entries.size()) {
+                    // حذف نهائي أو تغيير لا يظهر في updated_at: إعادة البناء
+                    ClinicIndex rebuilt = load(clinicId);
+                    clinics.put(clinicId, rebuilt);
+                    return rebuilt;
+                }
+                index.version = current;
+            }
+            index.checkedAt = now;
+            return index;
+        } finally {
+            index.syncing.set(false);
+        }
+    }
+
+    private Version readVersion(Long clinicId) {
+        List<Object[]> rows = patientRepository.findSearchVersionByClinicId(clinicId);
+        if (rows.isEmpty()) {
+            return new Version(0, null);
+        }
+        Object[] row = rows.get(0);
+        return new Version(row[0] != null ? ((Number) row[0]).longValue() : 0, (LocalDateTime) row[1]);
+    }
+
+    private static void putRows(ClinicIndex index, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            index.put(Entry.of((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], (Gender) row[5], (BloodType) row[6], (Boolean) row[7]));
+        }
+    }
+
+    private static Collator createCollator() {
+        Collator collator = Collator.getInstance(ULocale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator.freeze();
+    }
+
+    private void update(Long clinicId, Consumer<ClinicIndex> change) {
+        // ينتظر اكتمال أي بناء جارٍ للفهرس ثم يطبق التغيير؛ لا شيء إن لم يكن الفهرس محملاً
+        clinics.asMap().computeIfPresent(clinicId, (id, index) -> {
+            change.accept(index);
+            return index;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    static String digits(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c >= '\u0660' && c <= '\u0669') {
+                digits.append((char) ('0' + (c - '\u0660')));
+            } else if (c >= '\u06F0' && c <= '\u06F9') {
+                digits.append((char) ('0' + (c - '\u06F0')));
+            }
+        }
+        return digits.toString();
+    }
+
+    private record Version(long count, LocalDateTime lastUpdated) {}
+
+    private record Entry(Long id, CollationKey firstNameKey, CollationKey lastNameKey, String[] words,
+                         String phone, String number, Gender gender, BloodType bloodType, Boolean active) {
+
+        static final Comparator<Entry> ORDER = Comparator.comparing(Entry::firstNameKey)
+                .thenComparing(Entry::lastNameKey)
+                .thenComparing(Entry::id);
+
+        static Entry of(Long id, String firstName, String lastName, String phone, String number,
+                        Gender gender, BloodType bloodType, Boolean active) {
+            String name = StringUtil.normalizeForSearch(StringUtil.joinWithSpace(firstName, lastName));
+            return new Entry(id,
+                    NAME_COLLATOR.getCollationKey(firstName != null ? firstName : ""),
+                    NAME_COLLATOR.getCollationKey(lastName != null ? lastName : ""),
+                    name.isEmpty() ? new String[0] : name.split(" "), digits(phone),
+                    number != null ? StringUtil.normalizeForSearch(number) : null,
+                    gender, bloodType, active);
+        }
+
+        boolean hasWordStartingWith(String prefix) {
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * فهرس عيادة واحدة
+     */
+    private static final class ClinicIndex {
+        private final AtomicBoolean syncing = new AtomicBoolean();
+        private volatile Version version;
+        private volatile long checkedAt = System.currentTimeMillis();
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final NavigableMap<String, Set<Long>> nameWords = new ConcurrentSkipListMap<>();
+        private final NavigableMap<String, Set<Long>> phones = new ConcurrentSkipListMap<>();
+        private final NavigableMap<String, Set<Long>> reversedPhones = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<Long>> numbers = new ConcurrentHashMap<>();
+
+        ClinicIndex(Version version) {
+            this.version = version;
+        }
+
+        synchronized void put(Entry entry) {
+            remove(entry.id());
+            entries.put(entry.id(), entry);
+            for (String word : entry.words()) {
+                add(nameWords, word, entry.id());
+            }
+            if (!entry.phone().isEmpty()) {
+                add(phones, entry.phone(), entry.id());
+                add(reversedPhones, reverse(entry.phone()), entry.id());
+            }
+            if (entry.number() != null) {
+                add(numbers, entry.number(), entry.id());
+            }
+        }
+
+        synchronized void remove(Long id) {
+            Entry old = entries.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String word : old.words()) {
+                discard(nameWords, word, id);
+            }
+            if (!old.phone().isEmpty()) {
+                discard(phones, old.phone(), id);
+                discard(reversedPhones, reverse(old.phone()), id);
+            }
+            if (old.number() != null) {
+                discard(numbers, old.number(), id);
+            }
+        }
+
+        /**
+         * رقم المريض (مطابقة تامة) أو الهاتف (بداية/نهاية) أو كل كلمات الاسم (بداية)
+         */
+        Set<Long> match(String searchTerm) {
+            String term = StringUtil.normalizeForSearch(searchTerm);
+            Set<Long> result = new HashSet<>();
+            if (term.isEmpty()) {
+                return result;
+            }
+
+            result.addAll(numbers.getOrDefault(term, Set.of()));
+
+            String digits = digits(term);
+            if (digits.length() >= MIN_PHONE_DIGITS) {
+                collectPrefix(phones, digits, result);
+                collectPrefix(reversedPhones, reverse(digits), result);
+            }
+
+            String[] words = term.split(" ");
+            String longest = words[0];
+            for (String word : words) {
+                if (word.length() > longest.length()) {
+                    longest = word;
+                }
+            }
+            Set<Long> candidates = new HashSet<>();
+            collectPrefix(nameWords, longest, candidates);
+            for (Long id : candidates) {
+                Entry entry = entries.get(id);
+                if (entry != null && matchesAll(entry, words)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+
+        private static boolean matchesAll(Entry entry, String[] words) {
+            for (String word : words) {
+                if (!entry.hasWordStartingWith(word)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void collectPrefix(NavigableMap<String, Set<Long>> map, String prefix, Set<Long> into) {
+            for (Set<Long> ids : map.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+                into.addAll(ids);
+            }
+        }
+
+        private static void add(Map<String, Set<Long>> map, String key, Long id) {
+            map.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        private static void discard(Map<String, Set<Long>> map, String key, Long id) {
+            map.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+
+        private static String reverse(String text) {
+            return new StringBuilder(text).reverse().toString();
+        }
+    }
+}
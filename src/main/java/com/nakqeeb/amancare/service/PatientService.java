@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -33,6 +34,7 @@ import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -73,6 +75,12 @@ public class PatientService {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private NumberAllocatorService numberAllocatorService;
+
+    @Autowired
+    private PatientSearchIndex patientSearchIndex;
+
     /**
      * إنشاء مريض جديد
      */
@@ -113,6 +121,7 @@ public class PatientService {
         patient.setPatientNumber(generatePatientNumber(clinic));
 
         Patient savedPatient = patientRepository.save(patient);
+        patientSearchIndex.patientSaved(savedPatient);
 
         // Log action if SYSTEM_ADMIN
         if (UserRole.SYSTEM_ADMIN.name().equals(currentUser.getRole())) {
@@ -178,10 +187,7 @@ public class PatientService {
         // جلب المرضى النشطين
         Page<Patient> patientsPage = patientRepository.findByClinicAndIsActiveTrue(clinic, pageable);
 
-        List<PatientSummaryResponse> patientSummaries = patientsPage.getContent()
-                .stream()
-                .map(PatientSummaryResponse::fromPatient)
-                .collect(Collectors.toList());
+        List<PatientSummaryResponse> patientSummaries = toSummaries(patientsPage.getContent());
 
         return new PatientPageResponse(
                 patientSummaries,
@@ -214,22 +220,19 @@ public class PatientService {
         // Clean search term
         String cleanSearchTerm = StringUtils.hasText(searchTerm) ? searchTerm.trim() : null;
 
-        // Use the new enhanced search method
-        Page<Patient> patientsPage = patientRepository.searchPatientsWithFilters(
-                clinic, cleanSearchTerm, gender, bloodType, isActive, pageable
-        );
+        Page<Patient> patientsPage;
+        if (cleanSearchTerm != null && patientSearchIndex.isEnabled()) {
+            // Typed lookups go through the in-memory index instead of leading-wildcard LIKE
+            patientsPage = loadPatients(patientSearchIndex.search(
+                    clinic.getId(), cleanSearchTerm, gender, bloodType, isActive, pageable));
+        } else {
+            // Use the new enhanced search method
+            patientsPage = patientRepository.searchPatientsWithFilters(
+                    clinic, cleanSearchTerm, gender, bloodType, isActive, pageable
+            );
+        }
 
-        List<PatientSummaryResponse> patientSummaries = patientsPage.getContent()
-                .stream()
-                .map(patient -> {
-                    PatientSummaryResponse summary = PatientSummaryResponse.fromPatient(patient);
-                    // Add extra information if needed
-                    summary.setGender(patient.getGender());
-                    summary.setBloodType(patient.getBloodType());
-                    summary.setIsActive(patient.getIsActive());
-                    return summary;
-                })
-                .collect(Collectors.toList());
+        List<PatientSummaryResponse> patientSummaries = toSummaries(patientsPage.getContent());
 
         logger.info("Found {} patients matching criteria", patientsPage.getTotalElements());
 
@@ -255,16 +258,16 @@ public class PatientService {
         Pageable pageable = PageRequest.of(page, size, Sort.by("firstName", "lastName"));
 
         Page<Patient> patientsPage;
-        if (StringUtils.hasText(searchTerm)) {
+        if (StringUtils.hasText(searchTerm) && patientSearchIndex.isEnabled()) {
+            patientsPage = loadPatients(patientSearchIndex.search(
+                    clinic.getId(), searchTerm.trim(), null, null, true, pageable));
+        } else if (StringUtils.hasText(searchTerm)) {
             patientsPage = patientRepository.searchPatients(clinic, searchTerm.trim(), pageable);
         } else {
             patientsPage = patientRepository.findByClinicAndIsActiveTrue(clinic, pageable);
         }
 
-        List<PatientSummaryResponse> patientSummaries = patientsPage.getContent()
-                .stream()
-                .map(PatientSummaryResponse::fromPatient)
-                .collect(Collectors.toList());
+        List<PatientSummaryResponse> patientSummaries = toSummaries(patientsPage.getContent());
 
         return new PatientPageResponse(
                 patientSummaries,
@@ -312,6 +315,7 @@ public class PatientService {
         updatePatientFields(patient, request);
 
         Patient updatedPatient = patientRepository.save(patient);
+        patientSearchIndex.patientSaved(updatedPatient);
         return PatientResponse.fromPatient(updatedPatient);
     }
 
@@ -340,6 +344,7 @@ public class PatientService {
         // إلغاء تفعيل المريض بدلاً من حذفه نهائياً
         patient.setIsActive(false);
         patientRepository.save(patient);
+        patientSearchIndex.patientSaved(patient);
     }
 
     /**
@@ -367,6 +372,7 @@ public class PatientService {
 
         patient.setIsActive(true);
         Patient reactivatedPatient = patientRepository.save(patient);
+        patientSearchIndex.patientSaved(reactivatedPatient);
         return PatientResponse.fromPatient(reactivatedPatient);
     }
 
@@ -468,26 +474,21 @@ public class PatientService {
         Clinic clinic = clinicRepository.findById(clinicId)
                 .orElseThrow(() -> new ResourceNotFoundException("العيادة غير موجودة"));
 
-        // Basic statistics that don't require other entities
-        long totalPatients = patientRepository.countAllPatientsByClinic(clinic);
-        long activePatients = patientRepository.countActivePatientsByClinic(clinic);
-        long inactivePatients = patientRepository.countInactivePatientsByClinic(clinic);
-
         // New patients this month
         LocalDate oneMonthAgo = LocalDate.now().minusMonths(1);
         LocalDate today = LocalDate.now();
         LocalDateTime startDateTime = DateTimeUtil.getStartOfDay(oneMonthAgo);
         LocalDateTime endDateTime = DateTimeUtil.getEndOfDay(today);
-        long newPatientsThisMonth = patientRepository.countPatientsCreatedBetween(
-                clinic, startDateTime, endDateTime);
 
-        // Gender statistics
-        long malePatients = patientRepository.countMalePatientsByClinic(clinic);
-        long femalePatients = patientRepository.countFemalePatientsByClinic(clinic);
-
-        // Average age
-        Double averageAge = patientRepository.calculateAverageAgeByClinic(clinic);
-        double avgAge = (averageAge != null) ? averageAge : 0.0;
+        // Basic statistics that don't require other entities, in one pass over patients
+        Object[] summary = patientRepository.getPatientSummary(clinic, startDateTime, endDateTime).get(0);
+        long totalPatients = ((Number) summary[0]).longValue();
+        long activePatients = ((Number) summary[1]).longValue();
+        long inactivePatients = ((Number) summary[2]).longValue();
+        long newPatientsThisMonth = ((Number) summary[3]).longValue();
+        long malePatients = ((Number) summary[4]).longValue();
+        long femalePatients = ((Number) summary[5]).longValue();
+        double avgAge = (summary[6] != null) ? ((Number) summary[6]).doubleValue() : 0.0;
 
         // Create statistics object
         return new PatientStatistics.Builder()
@@ -514,9 +515,7 @@ public class PatientService {
 
         List<Patient> todayPatients = patientRepository.findPatientsWithAppointmentsOnDate(clinic, LocalDate.now());
 
-        return todayPatients.stream()
-                .map(PatientSummaryResponse::fromPatient)
-                .collect(Collectors.toList());
+        return toSummaries(todayPatients);
     }
 
     /**
@@ -636,6 +635,7 @@ public class PatientService {
 
         // Delete the patient
         patientRepository.delete(patient);
+        patientSearchIndex.patientDeleted(clinicId, patientId);
 
         logger.warn("Patient {} permanently deleted by {} (role: {})",
                 patientId, deletingUser.getUsername(), deletingUser.getRole());
@@ -798,20 +798,38 @@ public class PatientService {
      * توليد رقم مريض تلقائي
      */
     private String generatePatientNumber(Clinic clinic) {
-        LocalDate currentDate = LocalDate.now();
-        String prefix = "P" + currentDate.getYear() + String.format("%02d", currentDate.getMonthValue());
-
-        // البحث عن آخر رقم مريض بنفس البادئة
-        long count = patientRepository.countActivePatientsByClinic(clinic);
+        return numberAllocatorService.nextPatientNumber(clinic.getId());
+    }
 
-        // توليد رقم فريد
-        String patientNumber;
-        do {
-            count++;
-            patientNumber = prefix + String.format("%04d", count);
-        } while (patientRepository.existsByClinicAndPatientNumber(clinic, patientNumber));
+    /**
+     * تحميل صفحة المرضى من معرفات الفهرس مع الحفاظ على ترتيبها
+     */
+    private Page<Patient> loadPatients(Page<Long> ids) {
+        Map<Long, Patient> byId = patientRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Patient::getId, patient -> patient));
+        List<Patient> patients = ids.getContent().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(patients, ids.getPageable(), ids.getTotalElements());
+    }
 
-        return patientNumber;
+    /**
+     * ملخصات المرضى مع عدد المواعيد باستعلام واحد للصفحة بدلاً من تحميل مواعيد كل مريض
+     */
+    private List<PatientSummaryResponse> toSummaries(List<Patient> patients) {
+        if (patients.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Integer> appointmentCounts = new HashMap<>();
+        List<Long> patientIds = patients.stream().map(Patient::getId).toList();
+        for (Object[] row : appointmentRepository.countByPatientIds(patientIds)) {
+            appointmentCounts.put((Long) row[0], ((Long) row[1]).intValue());
+        }
+        return patients.stream()
+                .map(patient -> PatientSummaryResponse.fromPatient(
+                        patient, appointmentCounts.getOrDefault(patient.getId(), 0)))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -13,11 +13,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,10 +24,8 @@ import java.util.stream.Collectors;
 public class PublicService {
 
     private final AnnouncementRepository announcementRepository;
-    private final UserRepository userRepository;
     private final ClinicRepository clinicRepository;
-    private final DoctorScheduleRepository scheduleRepository;
-    private final DoctorScheduleService doctorScheduleService;
+    private final AvailableDoctorsSnapshot availableDoctorsSnapshot;
 
     /**
      * Get active announcements for public display
@@ -53,46 +47,13 @@ public class PublicService {
     public List<DoctorAvailabilityResponse> getAvailableDoctors(Long clinicId) {
         log.info("Fetching available doctors for clinic: {}", clinicId);
 
-        List<User> doctors;
-        if (clinicId != null) {
-            Clinic clinic = clinicRepository.findById(clinicId)
-                    .orElseThrow(() -> new RuntimeException("العيادة غير موجودة"));
-            doctors = userRepository.findByClinicAndRoleAndIsActiveTrue(clinic, UserRole.DOCTOR);
-        } else {
-            doctors = userRepository.findByRoleAndIsActiveTrue(UserRole.DOCTOR);
+        if (clinicId != null && !clinicRepository.existsById(clinicId)) {
+            throw new RuntimeException("العيادة غير موجودة");
         }
 
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-        DayOfWeek currentDay = today.getDayOfWeek();
-
-        List<DoctorAvailabilityResponse> availableDoctors = new ArrayList<>();
-        log.info("Found {} doctors for clinic {}", doctors.size(), clinicId);
-        for (User doctor : doctors) {
-            // Check if doctor is available now
-            boolean isAvailable = doctorScheduleService.isDoctorAvailable(doctor, today, now);
-
-            if (isAvailable) {
-                DoctorAvailabilityResponse response = new DoctorAvailabilityResponse();
-                response.setDoctorId(doctor.getId());
-                response.setDoctorName(doctor.getFullName());
-                response.setSpecialization(doctor.getSpecialization());
-                response.setClinicId(doctor.getClinic().getId());
-                response.setClinicName(doctor.getClinic().getName());
-                response.setAvailableNow(true);
-                // response.setProfileImage(doctor.getProfileImage());
-
-                // Get schedule to determine available until time
-                scheduleRepository.findDoctorScheduleForDay(doctor, currentDay, today)
-                        .ifPresent(schedule -> {
-                            response.setAvailableUntil(
-                                    schedule.getEndTime().format(DateTimeFormatter.ofPattern("HH:mm"))
-                            );
-                        });
-
-                availableDoctors.add(response);
-            }
-        }
+        // تقييم الوقت الحالي على لقطة الجداول في الذاكرة بدلاً من استعلامين لكل طبيب
+        List<DoctorAvailabilityResponse> availableDoctors = availableDoctorsSnapshot.getAvailableNow(clinicId);
+        log.info("Found {} available doctors for clinic {}", availableDoctors.size(), clinicId);
 
         return availableDoctors;
     }
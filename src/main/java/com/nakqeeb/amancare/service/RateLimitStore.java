@@ -0,0 +1,28 @@
+// =============================================================================
+// Rate Limit Store - مخزن دلاء تحديد معدل الطلبات
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.config.RateLimitPolicy;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * مخزن دلاء تحديد المعدل لكل سياسة وعميل
+ * The in-memory store limits each node on its own. A shared implementation
+ * (for example a bucket4j ProxyManager over Redis or JDBC) can replace it by
+ * declaring a RateLimitStore bean; RateLimitFilter falls back to the in-memory
+ * store only when no such bean exists.
+ */
+public interface RateLimitStore {
+
+    /**
+     * استهلاك طلب واحد من دلو العميل في السياسة المحددة
+     */
+    ConsumptionProbe tryConsume(RateLimitPolicy policy, String clientKey);
+
+    /**
+     * عدد الدلاء المحفوظة حالياً للسياسة
+     */
+    long size(RateLimitPolicy policy);
+}
@@ -0,0 +1,194 @@
+// =============================================================================
+// Retention Purge Service - حذف السجلات القديمة على دفعات
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * حذف السجلات المنتهية مدة الاحتفاظ بها على دفعات صغيرة بدلاً من DELETE واحد ضخم
+ * Chunked retention purge.
+ *
+ * Each chunk reads up to chunk-size ids through the timestamp index, oldest
+ * first, and deletes exactly those ids (WHERE id IN (...)), so the delete never
+ * scans or locks rows outside the chunk even when ids and timestamps are not in
+ * the same order. The statement repeats the timestamp condition as a guard.
+ * Every chunk commits on its own (no surrounding transaction),
+ * and the purge pauses between chunks. Row locks and undo therefore stay small,
+ * and normal writes keep going while a large backlog drains.
+ *
+ * Progress is logged every few chunks. Deleted rows and chunk durations are
+ * exported as retention.purge.rows and retention.purge.chunk meters, tagged by
+ * table.
+ */
+@Service
+@Slf4j
+public class RetentionPurgeService {
+
+    private static final int PROGRESS_LOG_EVERY_CHUNKS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ActivityLogPartitionManager partitionManager;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${app.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.retention.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${activity.logging.retention-days:90}")
+    private int activityRetentionDays;
+
+    @Value("${app.audit.retention-days:90}")
+    private int auditRetentionDays;
+
+    @Value("${app.mail.outbox.retention-days:30}")
+    private int emailOutboxRetentionDays;
+
+    public RetentionPurgeService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                 ActivityLogPartitionManager partitionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.partitionManager = partitionManager;
+    }
+
+    /**
+     * حذف سجلات الأنشطة والمراجعة وصندوق البريد وأقفال الأيام الماضية (يومياً)
+     */
+    @Scheduled(cron = "${app.retention.cron:0 0 4 * * *}")
+    public void purgeExpiredRecords() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            purgeActivityLogs(activityRetentionDays);
+            purge("system_admin_actions", "created_at", null,
+                    Timestamp.valueOf(now.minusDays(auditRetentionDays)));
+            purge("audit_logs", "timestamp", null,
+                    Timestamp.valueOf(now.minusDays(auditRetentionDays)));
+            purge("email_outbox", "created_at", "status <> 'PENDING'",
+                    Timestamp.valueOf(now.minusDays(emailOutboxRetentionDays)));
+            purge("doctor_day_locks", "lock_date", null, Date.valueOf(LocalDate.now()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * حذف سجلات الأنشطة الأقدم من مدة الاحتفاظ
+     * When the table is partitioned, whole months before the cutoff are dropped
+     * first, and only the rest of the cutoff month is deleted in chunks.
+     */
+    public long purgeActivityLogs(int retentionDays) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        try {
+            partitionManager.dropPartitionsBefore(cutoff);
+        } catch (Exception e) {
+            log.error("Dropping expired activity log partitions failed: {}", e.getMessage());
+        }
+        return purge(ActivityLogPartitionManager.TABLE, "timestamp", null, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * حذف رموز إعادة التعيين والتأكيد المنتهية الصلاحية
+     */
+    public long purgeExpiredTokens() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return purge("password_reset_tokens", "expiry_date", null, now)
+                + purge("email_verification_tokens", "expiry_date", null, now)
+                + purge("appointment_confirmation_tokens", "expiry_date", null, now);
+    }
+
+    /**
+     * حذف صفوف الجدول التي يسبق عمودها الزمني القيمة المحددة، دفعة بعد دفعة
+     *
+     * @param extraCondition شرط إضافي ثابت (بدون معاملات) أو null
+     */
+    long purge(String table, String timestampColumn, String extraCondition, Object cutoff) {
+        String where = timestampColumn + " < ?" + (extraCondition != null ? " AND " + extraCondition : "");
+        String selectChunk = "SELECT id FROM " + table + " WHERE " + where +
+                " ORDER BY " + timestampColumn + " LIMIT " + Math.max(chunkSize, 1);
+
+        Counter deletedRows = meterRegistry.counter("retention.purge.rows", "table", table);
+        Timer chunkTimer = meterRegistry.timer("retention.purge.chunk", "table", table);
+
+        long startNanos = System.nanoTime();
+        long total = 0;
+        int chunks = 0;
+
+        try {
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(selectChunk, Long.class, cutoff);
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                String deleteChunk = "DELETE FROM " + table + " WHERE id IN (" +
+                        String.join(",", Collections.nCopies(ids.size(), "?")) + ") AND " + where;
+                Object[] args = new Object[ids.size() + 1];
+                ids.toArray(args);
+                args[ids.size()] = cutoff;
+
+                long chunkStart = System.nanoTime();
+                int deleted = jdbcTemplate.update(deleteChunk, args);
+                chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+                if (deleted == 0) {
+                    break;
+                }
+
+                deletedRows.increment(deleted);
+                total += deleted;
+                chunks++;
+
+                if (chunks % PROGRESS_LOG_EVERY_CHUNKS == 0) {
+                    log.info("Retention purge of {}: {} rows in {} chunks so far ({} rows/s)",
+                            table, total, chunks, rowsPerSecond(total, startNanos));
+                }
+
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Retention purge of {} interrupted after {} rows", table, total);
+        } catch (Exception e) {
+            log.error("Retention purge of {} failed after {} rows: {}", table, total, e.getMessage());
+        }
+
+        if (total > 0) {
+            log.info("Retention purge of {} finished: {} rows in {} chunks, {} ms ({} rows/s)",
+                    table, total, chunks, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    rowsPerSecond(total, startNanos));
+        }
+        return total;
+    }
+
+    private static long rowsPerSecond(long rows, long startNanos) {
+        long elapsedMs = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), 1);
+        return rows * 1000 / elapsedMs;
+    }
+}
@@ -0,0 +1,355 @@
+// =============================================================================
+// Slot Availability Service - حساب الأوقات المتاحة للطبيب
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.config.CacheConfig;
+import com.nakqeeb.amancare.dto.response.AvailabilityMatrixResponse;
+import com.nakqeeb.amancare.entity.DoctorSchedule;
+import com.nakqeeb.amancare.entity.DoctorUnavailability;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.exception.BadRequestException;
+import com.nakqeeb.amancare.exception.ResourceNotFoundException;
+import com.nakqeeb.amancare.repository.AppointmentRepository;
+import com.nakqeeb.amancare.repository.DoctorScheduleRepository;
+import com.nakqeeb.amancare.repository.DoctorUnavailabilityRepository;
+import com.nakqeeb.amancare.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * حساب الأوقات المتاحة للطبيب في يوم معين
+ * Loads the schedule, unavailability windows and booked appointments for a
+ * doctor/date in three queries and answers slot questions in memory.
+ *
+ * loadRange does the same for many doctors and days with three bulk queries.
+ *
+ * The day is modelled as two minute-resolution bitmaps: working minutes
+ * (schedule hours minus the break) and blocked minutes (unavailability windows
+ * plus active appointments). A slot is free when none of its minutes is blocked.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotAvailabilityService {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final DoctorScheduleRepository scheduleRepository;
+    private final DoctorUnavailabilityRepository unavailabilityRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * تحميل بيانات توفر الطبيب ليوم واحد
+     */
+    @Transactional(readOnly = true)
+    public DayAvailability loadDay(User doctor, LocalDate date) {
+        List<DoctorSchedule> schedules = scheduleRepository.findDoctorSchedulesForDay(
+                doctor, date.getDayOfWeek(), date);
+        if (schedules.isEmpty()) {
+            return DayAvailability.EMPTY;
+        }
+
+        DayAvailability day = buildDay(schedules.get(0),
+                unavailabilityRepository.findByDoctorAndUnavailableDate(doctor, date),
+                appointmentRepository.findBookedIntervalsByDoctorAndDate(doctor, date));
+
+        log.debug("Loaded availability for doctor {} on {}: {} working minutes, {} blocked minutes",
+                doctor.getId(), date, day.working.cardinality(), day.blocked.cardinality());
+        return day;
+    }
+
+    /**
+     * تحميل توفر عدة أطباء لفترة زمنية (ثلاثة استعلامات مهما كان عدد الأطباء والأيام)
+     * Returns doctorId -> date -> snapshot; days without a schedule are omitted.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Map<LocalDate, DayAvailability>> loadRange(Collection<Long> doctorIds,
+                                                                 LocalDate startDate, LocalDate endDate) {
+        Map<Long, Map<LocalDate, DayAvailability>> result = new HashMap<>();
+        if (doctorIds.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<DoctorSchedule>> schedulesByDoctor = scheduleRepository
+                .findActiveSchedulesForDoctorsInRange(doctorIds, startDate, endDate).stream()
+                .collect(Collectors.groupingBy(ds -> ds.getDoctor().getId()));
+
+        Map<Long, Map<LocalDate, List<DoctorUnavailability>>> unavailabilityByDoctor = unavailabilityRepository
+                .findByDoctorIdsAndDateRange(doctorIds, startDate, endDate).stream()
+                .collect(Collectors.groupingBy(du -> du.getDoctor().getId(),
+                        Collectors.groupingBy(DoctorUnavailability::getUnavailableDate)));
+
+        Map<Long, Map<LocalDate, List<Object[]>>> bookedByDoctor = new HashMap<>();
+        for (Object[] row : appointmentRepository.findBookedIntervalsByDoctorsAndDateRange(doctorIds, startDate, endDate)) {
+            bookedByDoctor.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .computeIfAbsent((LocalDate) row[1], d -> new ArrayList<>())
+                    .add(new Object[]{row[2], row[3]});
+        }
+
+        for (Long doctorId : doctorIds) {
+            List<DoctorSchedule> schedules = schedulesByDoctor.getOrDefault(doctorId, List.of());
+            Map<LocalDate, List<DoctorUnavailability>> unavailability =
+                    unavailabilityByDoctor.getOrDefault(doctorId, Map.of());
+            Map<LocalDate, List<Object[]>> booked = bookedByDoctor.getOrDefault(doctorId, Map.of());
+
+            Map<LocalDate, DayAvailability> days = new TreeMap<>();
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                DoctorSchedule schedule = selectSchedule(schedules, date);
+                if (schedule != null) {
+                    days.put(date, buildDay(schedule,
+                            unavailability.getOrDefault(date, List.of()),
+                            booked.getOrDefault(date, List.of())));
+                }
+            }
+            result.put(doctorId, days);
+        }
+        return result;
+    }
+
+    /**
+     * مصفوفة الأوقات المتاحة لأطباء العيادة النشطين خلال أسبوع يبدأ من weekStart
+     * Cached per clinic/week/duration; evicted by AvailabilityCacheService.
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.AVAILABILITY_MATRIX,
+            key = "T(com.nakqeeb.amancare.service.AvailabilityCacheService).matrixKey(#clinicId, #weekStart, #durationMinutes)")
+    public AvailabilityMatrixResponse getClinicWeekMatrix(Long clinicId, LocalDate weekStart, int durationMinutes) {
+        LocalDate weekEnd = weekStart.plusDays(6);
+        List<User> doctors = userRepository.findByClinicIdAndRoleAndIsActiveTrue(clinicId, UserRole.DOCTOR);
+
+        Map<Long, Map<LocalDate, DayAvailability>> availability = loadRange(
+                doctors.stream().map(User::getId).collect(Collectors.toList()), weekStart, weekEnd);
+
+        List<AvailabilityMatrixResponse.DoctorAvailability> rows = new ArrayList<>();
+        for (User doctor : doctors) {
+            Map<LocalDate, List<LocalTime>> slots = new TreeMap<>();
+            availability.getOrDefault(doctor.getId(), Map.of())
+                    .forEach((date, day) -> slots.put(date, day.getFreeSlots(durationMinutes, 30)));
+            rows.add(new AvailabilityMatrixResponse.DoctorAvailability(
+                    doctor.getId(), doctor.getFullName(), doctor.getSpecialization(), slots));
+        }
+
+        return new AvailabilityMatrixResponse(clinicId, weekStart, weekEnd, durationMinutes, rows);
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    /**
+     * نفس قاعدة findDoctorSchedulesForDay: الأحدث تاريخ سريان أولاً، والجدول بدون تاريخ أخيراً
+     */
+    private static DoctorSchedule selectSchedule(List<DoctorSchedule> schedules, LocalDate date) {
+        DoctorSchedule selected = null;
+        for (DoctorSchedule schedule : schedules) {
+            if (schedule.getDayOfWeek() != date.getDayOfWeek()
+                    || (schedule.getEffectiveDate() != null && schedule.getEffectiveDate().isAfter(date))
+                    || (schedule.getEndDate() != null && schedule.getEndDate().isBefore(date))) {
+                continue;
+            }
+            if (selected == null || (schedule.getEffectiveDate() != null
+                    && (selected.getEffectiveDate() == null
+                    || schedule.getEffectiveDate().isAfter(selected.getEffectiveDate())))) {
+                selected = schedule;
+            }
+        }
+        return selected;
+    }
+
+    private static DayAvailability buildDay(DoctorSchedule schedule,
+                                            List<DoctorUnavailability> unavailabilities,
+                                            List<Object[]> bookedIntervals) {
+        BitSet working = new BitSet(MINUTES_PER_DAY);
+        markRange(working, schedule.getStartTime(), schedule.getEndTime(), true, "schedule", schedule.getId());
+        if (schedule.getBreakStartTime() != null && schedule.getBreakEndTime() != null) {
+            markRange(working, schedule.getBreakStartTime(), schedule.getBreakEndTime(), false,
+                    "schedule break", schedule.getId());
+        }
+
+        BitSet blocked = new BitSet(MINUTES_PER_DAY);
+        for (DoctorUnavailability unavailability : unavailabilities) {
+            if (unavailability.getStartTime() == null && unavailability.getEndTime() == null) {
+                blocked.set(0, MINUTES_PER_DAY); // غير متاح طوال اليوم
+            } else if (unavailability.getStartTime() != null && unavailability.getEndTime() != null) {
+                markRange(blocked, unavailability.getStartTime(), unavailability.getEndTime(), true,
+                        "unavailability", unavailability.getId());
+            }
+        }
+
+        // [appointmentTime, durationMinutes]
+        for (Object[] row : bookedIntervals) {
+            LocalTime time = (LocalTime) row[0];
+            Integer duration = (Integer) row[1];
+            if (time == null) {
+                continue;
+            }
+            if (duration == null || duration <= 0) {
+                duration = schedule.getEffectiveDuration();
+            }
+            int start = toMinute(time);
+            int length = duration != null && duration > 0 ? duration : 1;
+            blocked.set(start, Math.min(start + length, MINUTES_PER_DAY));
+        }
+
+        return new DayAvailability(schedule, working, blocked);
+    }
+
+    /**
+     * تعيين أو مسح فترة [from, to) مع تجاهل الفترات المقلوبة أو الفارغة في البيانات
+     * A malformed row (end before start) is skipped instead of failing the whole day.
+     */
+    private static void markRange(BitSet bits, LocalTime from, LocalTime to, boolean value,
+                                  String source, Long sourceId) {
+        if (from == null || to == null) {
+            return;
+        }
+        int start = toMinute(from);
+        int end = toMinute(to);
+        if (end < start) {
+            log.warn("Ignoring inverted {} range {}-{} (id {})", source, from, to, sourceId);
+            return;
+        }
+        bits.set(start, end, value);
+    }
+
+    private static int toMinute(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * لقطة توفر الطبيب ليوم واحد
+     * Immutable snapshot of one doctor-day; all queries are answered in memory.
+     */
+    public static class DayAvailability {
+
+        private static final DayAvailability EMPTY = new DayAvailability(null, new BitSet(), new BitSet());
+
+        private final DoctorSchedule schedule;
+        private final BitSet working;
+        private final BitSet blocked;
+
+        private DayAvailability(DoctorSchedule schedule, BitSet working, BitSet blocked) {
+            this.schedule = schedule;
+            this.working = working;
+            this.blocked = blocked;
+        }
+
+        public boolean hasSchedule() {
+            return schedule != null;
+        }
+
+        public DoctorSchedule getSchedule() {
+            return schedule;
+        }
+
+        /**
+         * مدة الموعد حسب الجدول
+         */
+        public int getSlotDuration() {
+            if (schedule == null) {
+                throw new ResourceNotFoundException("لا يوجد جدول للطبيب في هذا اليوم");
+            }
+            Integer effectiveDuration = schedule.getEffectiveDuration();
+            if (effectiveDuration == null || effectiveDuration <= 0) {
+                throw new BadRequestException("لم يتم تكوين مدة المواعيد لهذا الجدول");
+            }
+            return effectiveDuration;
+        }
+
+        /**
+         * هل الفترة [time, time + duration) ضمن ساعات العمل وغير محجوزة
+         */
+        public boolean isFree(LocalTime time, int durationMinutes) {
+            if (schedule == null) {
+                return false;
+            }
+            int start = toMinute(time);
+            int end = start + durationMinutes;
+            if (end > MINUTES_PER_DAY) {
+                return false;
+            }
+            return working.nextClearBit(start) >= end && !isBlocked(start, end);
+        }
+
+        /**
+         * الأوقات المتاحة بخطوة ثابتة من بداية الدوام
+         */
+        public List<LocalTime> getFreeSlots(int durationMinutes, int stepMinutes) {
+            List<LocalTime> slots = new ArrayList<>();
+            if (schedule == null) {
+                return slots;
+            }
+
+            int dayEnd = toMinute(schedule.getEndTime());
+            for (int minute = toMinute(schedule.getStartTime());
+                 minute + durationMinutes <= dayEnd; minute += stepMinutes) {
+                LocalTime time = LocalTime.of(minute / 60, minute % 60);
+                if (isFree(time, durationMinutes)) {
+                    slots.add(time);
+                }
+            }
+            return slots;
+        }
+
+        /**
+         * جميع أوقات الجدول مع أرقام الرموز (بالتسلسل من 1، باستثناء بداية الاستراحة)
+         * Throws when the doctor has no schedule or no configured duration that day.
+         */
+        public Map<LocalTime, Integer> getTokenSlots() {
+            int duration = getSlotDuration();
+            Map<LocalTime, Integer> slotsWithTokens = new LinkedHashMap<>();
+            int dayEnd = toMinute(schedule.getEndTime());
+            int breakStart = schedule.getBreakStartTime() != null && schedule.getBreakEndTime() != null
+                    ? toMinute(schedule.getBreakStartTime()) : -1;
+            int breakEnd = breakStart >= 0 ? toMinute(schedule.getBreakEndTime()) : -1;
+
+            int tokenNumber = 1;
+            for (int minute = toMinute(schedule.getStartTime()); minute + duration <= dayEnd; minute += duration) {
+                if (minute >= breakStart && minute < breakEnd) {
+                    continue;
+                }
+                slotsWithTokens.put(LocalTime.of(minute / 60, minute % 60), tokenNumber++);
+            }
+            return slotsWithTokens;
+        }
+
+        /**
+         * أوقات الرموز غير المحجوزة
+         */
+        public Map<LocalTime, Integer> getFreeTokenSlots() {
+            int duration = getSlotDuration();
+            Map<LocalTime, Integer> available = new LinkedHashMap<>();
+            getTokenSlots().forEach((time, token) -> {
+                int start = toMinute(time);
+                if (!isBlocked(start, start + duration)) {
+                    available.put(time, token);
+                }
+            });
+            return available;
+        }
+
+        private boolean isBlocked(int start, int end) {
+            int next = blocked.nextSetBit(start);
+            return next >= 0 && next < end;
+        }
+    }
+}
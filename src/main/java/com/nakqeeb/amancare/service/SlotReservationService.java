@@ -0,0 +1,109 @@
+// =============================================================================
+// Slot Reservation Service - حجز أوقات المواعيد بدون تعارض عند التزامن
+// =============================================================================
+
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.entity.Appointment;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.repository.AppointmentRepository;
+import com.nakqeeb.amancare.repository.DoctorDayLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * قفل يوم الطبيب ثم التحقق من التداخل، داخل معاملة الحجز نفسها
+ * Serializes bookings per doctor and day so two requests (reception, guest
+ * booking, admin) can no longer both pass the overlap check for the same slot.
+ *
+ * The doctor_day_locks row is created once in its own short transaction. Each
+ * booking then locks it with an atomic UPDATE that is held until the booking
+ * commits or rolls back. The overlap check reads at most two index ranges on
+ * (doctor_id, appointment_date, appointment_time) instead of the whole day:
+ * appointments starting inside the new slot, and the last one starting before
+ * it. Active appointments never overlap, so only that last one can run into the
+ * new slot.
+ *
+ * Both overlap reads are locking reads (SELECT ... FOR UPDATE). Under MySQL's
+ * REPEATABLE READ a plain SELECT would use the snapshot taken at the caller's
+ * first read, which can predate the commit of the booking that held the day
+ * lock before us; a locking read always sees the latest committed rows.
+ */
+@Service
+@Slf4j
+public class SlotReservationService {
+
+    private final DoctorDayLockRepository lockRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final TransactionTemplate requiresNew;
+
+    public SlotReservationService(DoctorDayLockRepository lockRepository,
+                                  AppointmentRepository appointmentRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.lockRepository = lockRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * قفل يوم الطبيب حتى نهاية المعاملة الحالية
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockDoctorDay(User doctor, LocalDate date) {
+        // Non-locking read first: creating the row inside this transaction would leave a
+        // gap lock that the REQUIRES_NEW insert of a concurrent booking has to wait on
+        if (!lockRepository.existsByDoctorIdAndLockDate(doctor.getId(), date)) {
+            requiresNew.executeWithoutResult(status -> lockRepository.insertIfAbsent(doctor.getId(), date));
+        }
+        if (lockRepository.acquire(doctor.getId(), date) == 0) {
+            throw new IllegalStateException("Doctor day lock row missing for doctor " + doctor.getId() + " on " + date);
+        }
+    }
+
+    /**
+     * قفل يوم الطبيب وإرجاع أول موعد نشط يتداخل مع الفترة المطلوبة، أو null إن كانت متاحة
+     *
+     * @param excludeAppointmentId الموعد الجاري تعديله (لا يُعد تعارضاً مع نفسه)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Appointment reserve(User doctor, LocalDate date, LocalTime time, int durationMinutes,
+                               Long excludeAppointmentId) {
+        lockDoctorDay(doctor, date);
+
+        LocalTime endTime = time.plusMinutes(durationMinutes);
+        if (!endTime.isAfter(time)) {
+            // الموعد يمتد إلى نهاية اليوم
+            endTime = LocalTime.MAX;
+        }
+
+        List<Appointment> starting = appointmentRepository.findActiveStartingBetween(
+                doctor, date, time, endTime, excludeAppointmentId);
+        if (!starting.isEmpty()) {
+            return starting.get(0);
+        }
+
+        List<Appointment> previous = appointmentRepository.findActiveStartingBefore(
+                doctor, date, time, excludeAppointmentId, PageRequest.of(0, 1));
+        if (!previous.isEmpty()) {
+            Appointment before = previous.get(0);
+            LocalTime beforeEnd = before.getAppointmentTime().plusMinutes(before.getDurationMinutes());
+            if (beforeEnd.isAfter(time) || !beforeEnd.isAfter(before.getAppointmentTime())) {
+                return before;
+            }
+        }
+
+        log.debug("Reserved slot {} {} ({} min) for doctor {}", date, time, durationMinutes, doctor.getId());
+        return null;
+    }
+}
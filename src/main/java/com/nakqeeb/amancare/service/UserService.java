@@ -9,6 +9,7 @@ import com.nakqeeb.amancare.dto.response.ClinicUserResponse;
 import com.nakqeeb.amancare.dto.response.ClinicUserStats;
 import com.nakqeeb.amancare.dto.response.UserResponse;
 import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.ClinicStatisticsMetric;
 import com.nakqeeb.amancare.entity.Patient;
 import com.nakqeeb.amancare.entity.User;
 import com.nakqeeb.amancare.entity.UserRole;
@@ -19,6 +20,7 @@ import com.nakqeeb.amancare.exception.UnauthorizedException;
 import com.nakqeeb.amancare.repository.ClinicRepository;
 import com.nakqeeb.amancare.repository.UserRepository;
 import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.security.UserPrincipalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +28,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,6 +56,15 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private AvailabilityCacheService availabilityCacheService;
+
+    @Autowired
+    private ClinicStatisticsService clinicStatisticsService;
+
     /**
      * الحصول على جميع الأطباء النشطين في العيادة مع تحميل بيانات العيادة
      * Get all active doctors in the clinic with clinic data eagerly loaded
@@ -157,17 +169,20 @@ public class UserService {
 
         ClinicUserStats stats = new ClinicUserStats();
 
+        // Counters maintained by ClinicStatisticsService
+        ClinicStatisticsService.Snapshot counters = clinicStatisticsService.snapshot(clinic.getId(), LocalDate.now());
+
         // Calculate statistics
-        stats.setTotalUsers(userRepository.countByClinic(clinic));
-        stats.setActiveUsers(userRepository.countActiveUsersByClinic(clinic));
-        stats.setDoctorsCount(userRepository.countByClinicAndRole(clinic, UserRole.DOCTOR));
-        stats.setNursesCount(userRepository.countByClinicAndRole(clinic, UserRole.NURSE));
-        stats.setReceptionistsCount(userRepository.countByClinicAndRole(clinic, UserRole.RECEPTIONIST));
+        stats.setTotalUsers(counters.total(ClinicStatisticsMetric.USERS_TOTAL));
+        stats.setActiveUsers(counters.total(ClinicStatisticsMetric.USERS_ACTIVE));
+        stats.setDoctorsCount(counters.total(ClinicStatisticsMetric.DOCTORS));
+        stats.setNursesCount(counters.total(ClinicStatisticsMetric.NURSES));
+        stats.setReceptionistsCount(counters.total(ClinicStatisticsMetric.RECEPTIONISTS));
 
         // Calculate active counts for each role
-        stats.setActiveDoctorsCount(userRepository.countUsersByClinicAndRole(clinic, UserRole.DOCTOR));
-        stats.setActiveNursesCount(userRepository.countUsersByClinicAndRole(clinic, UserRole.NURSE));
-        stats.setActiveReceptionistsCount(userRepository.countUsersByClinicAndRole(clinic, UserRole.RECEPTIONIST));
+        stats.setActiveDoctorsCount(counters.total(ClinicStatisticsMetric.ACTIVE_DOCTORS));
+        stats.setActiveNursesCount(counters.total(ClinicStatisticsMetric.ACTIVE_NURSES));
+        stats.setActiveReceptionistsCount(counters.total(ClinicStatisticsMetric.ACTIVE_RECEPTIONISTS));
 
         logger.info("Clinic stats - Total: {}, Active: {}, Doctors: {}, Nurses: {}, Receptionists: {}",
                 stats.getTotalUsers(), stats.getActiveUsers(), stats.getDoctorsCount(),
@@ -233,6 +248,8 @@ public class UserService {
         User user = userRepository.findById(userId).orElseThrow();
         user.setIsActive(isActive);
         user = userRepository.save(user);
+        userPrincipalCache.evict(userId);
+        availabilityCacheService.evictClinicDoctors(effectiveClinicId);
 
         logger.info("User {} status changed to {} by admin {}",
                 userId, isActive ? "active" : "inactive", currentUser.getUsername());
@@ -272,6 +289,8 @@ public class UserService {
 
         // حفظ التغييرات
         User updatedUser = userRepository.save(userToUpdate);
+        userPrincipalCache.evict(userId);
+        availabilityCacheService.evictClinicDoctors(updatedUser.getClinic().getId());
 
         logger.info("تم تحديث المستخدم بنجاح - المعرف: {}", userId);
 
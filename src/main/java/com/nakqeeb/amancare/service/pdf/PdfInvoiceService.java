@@ -8,31 +8,19 @@ package com.nakqeeb.amancare.service.pdf;
 import com.nakqeeb.amancare.dto.response.InvoiceResponse;
 import com.nakqeeb.amancare.dto.response.InvoiceItemResponse;
 import com.nakqeeb.amancare.dto.response.PaymentResponse;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
-import com.openhtmltopdf.bidi.support.ICUBidiReorderer;
-import com.openhtmltopdf.bidi.support.ICUBidiSplitter;
-import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
-import org.apache.commons.io.IOUtils;
-import org.jsoup.helper.W3CDom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * خدمة توليد ملفات PDF للفواتير
@@ -43,7 +31,7 @@ public class PdfInvoiceService {
     private static final Logger logger = LoggerFactory.getLogger(PdfInvoiceService.class);
 
     @Autowired
-    private TemplateEngine templateEngine;
+    private PdfRenderingEngine pdfRenderingEngine;
 
     private final DateTimeFormatter arabicDateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy", new Locale("ar"));
     private final DateTimeFormatter arabicDateTimeFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm", new Locale("ar"));
@@ -51,8 +39,9 @@ public class PdfInvoiceService {
     /**
      * Generate PDF for invoice
      * إنشاء ملف PDF للفاتورة
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generateInvoicePdf(InvoiceResponse invoice) throws IOException {
+    public void writeInvoicePdf(InvoiceResponse invoice, OutputStream outputStream) throws IOException {
         logger.info("إنشاء ملف PDF للفاتورة رقم: {}", invoice.getInvoiceNumber());
 
         try {
@@ -61,14 +50,8 @@ public class PdfInvoiceService {
             Map<String, Object> variables = prepareInvoiceContext(invoice);
             context.setVariables(variables);
 
-            // Process HTML template with Thymeleaf
-            String htmlContent = templateEngine.process("pdf/invoice-template", context);
-
-            // Clean and prepare HTML for OpenHTMLtoPDF
-            htmlContent = preprocessHtml(htmlContent);
-
-            // Generate PDF with Arabic support
-            return generatePdfFromHtml(htmlContent);
+            // Render through the shared engine (cached fonts, bounded concurrent renders)
+            pdfRenderingEngine.render("pdf/invoice-template", context, outputStream);
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء ملف PDF للفاتورة {}: ", invoice.getInvoiceNumber(), e);
@@ -76,11 +59,21 @@ public class PdfInvoiceService {
         }
     }
 
+    /**
+     * نسخة byte[] من writeInvoicePdf
+     */
+    public byte[] generateInvoicePdf(InvoiceResponse invoice) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeInvoicePdf(invoice, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * Generate PDF for invoice receipt (simplified version)
      * إنشاء ملف PDF لإيصال الدفع
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generateInvoiceReceiptPdf(InvoiceResponse invoice) throws IOException {
+    public void writeInvoiceReceiptPdf(InvoiceResponse invoice, OutputStream outputStream) throws IOException {
         logger.info("إنشاء إيصال دفع PDF للفاتورة: {}", invoice.getInvoiceNumber());
 
         try {
@@ -88,10 +81,7 @@ public class PdfInvoiceService {
             Map<String, Object> variables = prepareInvoiceContext(invoice);
             context.setVariables(variables);
 
-            String htmlContent = templateEngine.process("pdf/invoice-receipt-template", context);
-            htmlContent = preprocessHtml(htmlContent);
-
-            return generatePdfFromHtml(htmlContent);
+            pdfRenderingEngine.render("pdf/invoice-receipt-template", context, outputStream);
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء إيصال PDF للفاتورة {}: ", invoice.getInvoiceNumber(), e);
@@ -99,6 +89,15 @@ public class PdfInvoiceService {
         }
     }
 
+    /**
+     * نسخة byte[] من writeInvoiceReceiptPdf
+     */
+    public byte[] generateInvoiceReceiptPdf(InvoiceResponse invoice) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeInvoiceReceiptPdf(invoice, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * Prepare invoice context for template
      */
@@ -186,211 +185,11 @@ public class PdfInvoiceService {
         return variables;
     }
 
-    /**
-     * Generate PDF from HTML content
-     */
-    private byte[] generatePdfFromHtml(String htmlContent) throws IOException {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            // Parse HTML with JSoup and convert to W3C Document
-            Document document = Jsoup.parse(htmlContent);
-            document.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
-
-            // Convert to W3C DOM
-            org.w3c.dom.Document w3cDocument = new W3CDom().fromJsoup(document);
-
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withW3cDocument(w3cDocument, null);
-            builder.toStream(outputStream);
-
-            // Add fonts with proper Arabic support
-            addFonts(builder);
-
-            // Enable RTL support
-            builder.useUnicodeBidiSplitter(new ICUBidiSplitter.ICUBidiSplitterFactory());
-            builder.useUnicodeBidiReorderer(new ICUBidiReorderer());
-            builder.defaultTextDirection(BaseRendererBuilder.TextDirection.RTL);
-
-            // Run PDF generation
-            builder.run();
-
-            logger.info("تم إنشاء ملف PDF بنجاح");
-            return outputStream.toByteArray();
-
-        } catch (Exception e) {
-            logger.error("خطأ في توليد PDF: ", e);
-            throw new IOException("فشل في توليد PDF", e);
-        }
-    }
-
-    /**
-     * Add fonts for Arabic support
-     */
-    private void addFonts(PdfRendererBuilder builder) {
-        try {
-            // Primary Arabic font - Amiri
-            InputStream amiriFont = loadFont("Amiri-Regular.ttf");
-            if (amiriFont != null) {
-                builder.useFont(() -> amiriFont, "Amiri", 400,
-                        BaseRendererBuilder.FontStyle.NORMAL, true);
-            }
-
-            // Fallback font - Noto Sans Arabic
-            InputStream notoFont = loadFont("NotoSansArabic-Regular.ttf");
-            if (notoFont != null) {
-                builder.useFont(() -> notoFont, "Noto Sans Arabic", 400,
-                        BaseRendererBuilder.FontStyle.NORMAL, true);
-            }
-
-        } catch (Exception e) {
-            logger.error("Error loading fonts: ", e);
-            // Continue without custom fonts - will use embedded fonts
-        }
-    }
-
-    /**
-     * Load font from various possible locations
-     */
-    private InputStream loadFont(String fontName) {
-        String[] paths = {
-                "fonts/" + fontName,
-                "static/fonts/" + fontName,
-                fontName
-        };
-
-        for (String path : paths) {
-            try {
-                ClassPathResource resource = new ClassPathResource(path);
-                if (resource.exists()) {
-                    logger.info("تم تحميل الخط: {}", path);
-                    return resource.getInputStream();
-                }
-            } catch (Exception e) {
-                // Try next path
-            }
-        }
-
-        logger.warn("Font not found: {}", fontName);
-        return null;
-    }
-
-    /**
-     * Preprocess HTML to ensure OpenHTMLtoPDF compatibility
-     */
-    private String preprocessHtml(String html) {
-        // Parse HTML with JSoup to clean it
-        Document doc = Jsoup.parse(html);
-
-        // Ensure all images have absolute paths or are base64
-        doc.select("img").forEach(img -> {
-            String src = img.attr("src");
-            if (!src.startsWith("data:") && !src.startsWith("http")) {
-                // Convert relative paths to base64
-                img.attr("src", convertToBase64Image(src));
-            }
-        });
-
-        // Remove any unsupported CSS properties
-        doc.select("*[style]").forEach(element -> {
-            String style = element.attr("style");
-            style = cleanCssStyle(style);
-            element.attr("style", style);
-        });
-
-        return doc.html();
-    }
-
-    /**
-     * Clean CSS style to remove unsupported properties
-     */
-    private String cleanCssStyle(String style) {
-        if (style == null || style.isEmpty()) return "";
-
-        // Remove unsupported CSS properties for OpenHTMLtoPDF
-        style = style.replaceAll("display\\s*:\\s*flex[^;]*;?", "");
-        style = style.replaceAll("display\\s*:\\s*grid[^;]*;?", "");
-        style = style.replaceAll("gap\\s*:[^;]*;?", "");
-        style = style.replaceAll("backdrop-filter\\s*:[^;]*;?", "");
-        style = style.replaceAll("filter\\s*:[^;]*;?", "");
-        style = style.replaceAll("transform\\s*:[^;]*;?", "");
-        style = style.replaceAll("transition\\s*:[^;]*;?", "");
-        style = style.replaceAll("animation[^;]*;?", "");
-        style = style.replaceAll("opacity\\s*:[^;]*;?", "");
-
-        // Convert rgba colors to hex (simplified conversion)
-        style = convertRgbaToHex(style);
-
-        return style.trim();
-    }
-
-    /**
-     * Convert RGBA colors to hex colors
-     */
-    private String convertRgbaToHex(String style) {
-        Pattern rgbaPattern = Pattern.compile("rgba?\\s*\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*,\\s*(\\d+)\\s*(?:,\\s*([\\d.]+))?\\s*\\)");
-        Matcher matcher = rgbaPattern.matcher(style);
-
-        StringBuffer result = new StringBuffer();
-        while (matcher.find()) {
-            int r = Integer.parseInt(matcher.group(1));
-            int g = Integer.parseInt(matcher.group(2));
-            int b = Integer.parseInt(matcher.group(3));
-
-            String hexColor = String.format("#%02x%02x%02x", r, g, b);
-            matcher.appendReplacement(result, hexColor);
-        }
-        matcher.appendTail(result);
-
-        return result.toString();
-    }
-
-    /**
-     * Convert image to base64
-     */
-    private String convertToBase64Image(String imagePath) {
-        try {
-            ClassPathResource resource = new ClassPathResource(imagePath);
-            if (resource.exists()) {
-                byte[] imageBytes = IOUtils.toByteArray(resource.getInputStream());
-                String base64 = Base64.getEncoder().encodeToString(imageBytes);
-
-                // Determine image type
-                String extension = imagePath.substring(imagePath.lastIndexOf(".") + 1).toLowerCase();
-                String mimeType = getMimeType(extension);
-
-                return "data:" + mimeType + ";base64," + base64;
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to convert image to base64: {}", imagePath);
-        }
-        return "";
-    }
-
-    /**
-     * Get MIME type for image
-     */
-    private String getMimeType(String extension) {
-        return switch (extension) {
-            case "png" -> "image/png";
-            case "jpg", "jpeg" -> "image/jpeg";
-            case "gif" -> "image/gif";
-            case "svg" -> "image/svg+xml";
-            default -> "image/png";
-        };
-    }
-
     /**
      * Get company logo as Base64
      */
     private String getBase64Logo() {
-        try {
-            InputStream logoStream = new ClassPathResource("images/amancare-logo.png").getInputStream();
-            byte[] logoBytes = IOUtils.toByteArray(logoStream);
-            return "data:image/png;base64," + Base64.getEncoder().encodeToString(logoBytes);
-        } catch (Exception e) {
-            logger.warn("Failed to load logo image");
-            return "";
-        }
+        return pdfRenderingEngine.getLogoDataUri();
     }
 
     /**
@@ -2,32 +2,19 @@ package com.nakqeeb.amancare.service.pdf;
 
 import com.nakqeeb.amancare.dto.response.healthrecords.*;
 import com.nakqeeb.amancare.entity.healthrecords.*;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
-import com.openhtmltopdf.bidi.support.ICUBidiReorderer;
-import com.openhtmltopdf.bidi.support.ICUBidiSplitter;
-import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
-import org.jsoup.Jsoup;
-import org.jsoup.helper.W3CDom;
-import org.jsoup.nodes.Document;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +26,7 @@ public class PdfMedicalRecordService {
     private static final Logger logger = LoggerFactory.getLogger(PdfMedicalRecordService.class);
 
     @Autowired
-    private TemplateEngine templateEngine;
+    private PdfRenderingEngine pdfRenderingEngine;
 
     private final DateTimeFormatter arabicDateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy", new Locale("ar"));
     private final DateTimeFormatter arabicDateTimeFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm", new Locale("ar"));
@@ -47,8 +34,9 @@ public class PdfMedicalRecordService {
     /**
      * إنشاء ملف PDF للسجل الطبي
      * Generate PDF for medical record
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generateMedicalRecordPdf(MedicalRecordResponse medicalRecord) throws IOException {
+    public void writeMedicalRecordPdf(MedicalRecordResponse medicalRecord, OutputStream outputStream) throws IOException {
         logger.info("إنشاء ملف PDF للسجل الطبي: {}", medicalRecord.getId());
 
         try {
@@ -57,14 +45,8 @@ public class PdfMedicalRecordService {
             Map<String, Object> variables = prepareMedicalRecordContext(medicalRecord);
             context.setVariables(variables);
 
-            // Process HTML template with Thymeleaf
-            String htmlContent = templateEngine.process("pdf/medical-record-template", context);
-
-            // Clean and prepare HTML for OpenHTMLtoPDF
-            htmlContent = preprocessHtml(htmlContent);
-
-            // Generate PDF with Arabic support
-            return generatePdfFromHtml(htmlContent);
+            // Render through the shared engine (cached fonts, bounded concurrent renders)
+            pdfRenderingEngine.render("pdf/medical-record-template", context, outputStream);
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء ملف PDF للسجل الطبي {}: ", medicalRecord.getId(), e);
@@ -72,16 +54,27 @@ public class PdfMedicalRecordService {
         }
     }
 
+    /**
+     * نسخة byte[] من writeMedicalRecordPdf
+     */
+    public byte[] generateMedicalRecordPdf(MedicalRecordResponse medicalRecord) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeMedicalRecordPdf(medicalRecord, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * إنشاء ملف PDF لتقرير السجلات الطبية المتعددة
      * Generate PDF for multiple medical records report
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generateMedicalRecordsReportPdf(
+    public void writeMedicalRecordsReportPdf(
             List<MedicalRecordResponse> medicalRecords,
             String reportTitle,
             String clinicName,
             java.time.LocalDate fromDate,
-            java.time.LocalDate toDate) throws IOException {
+            java.time.LocalDate toDate,
+            OutputStream outputStream) throws IOException {
 
         logger.info("إنشاء تقرير PDF لـ {} سجل طبي", medicalRecords.size());
 
@@ -89,18 +82,9 @@ public class PdfMedicalRecordService {
             Context context = new Context();
             context.setVariables(prepareMedicalRecordsReportContext(medicalRecords, reportTitle, clinicName, fromDate, toDate));
 
-            String htmlContent = templateEngine.process("pdf/medical-records-report-template", context);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withHtmlContent(htmlContent, null);
-            builder.toStream(outputStream);
-            builder.useFont(() -> getClass().getResourceAsStream("/fonts/NotoSansArabic-Regular.ttf"), "NotoSansArabic");
-            builder.run();
+            pdfRenderingEngine.render("pdf/medical-records-report-template", context, outputStream);
 
             logger.info("تم إنشاء تقرير PDF للسجلات الطبية بنجاح");
-            return outputStream.toByteArray();
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء تقرير PDF للسجلات الطبية: ", e);
@@ -108,11 +92,26 @@ public class PdfMedicalRecordService {
         }
     }
 
+    /**
+     * نسخة byte[] من writeMedicalRecordsReportPdf
+     */
+    public byte[] generateMedicalRecordsReportPdf(
+            List<MedicalRecordResponse> medicalRecords,
+            String reportTitle,
+            String clinicName,
+            java.time.LocalDate fromDate,
+            java.time.LocalDate toDate) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeMedicalRecordsReportPdf(medicalRecords, reportTitle, clinicName, fromDate, toDate, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * إنشاء ملف PDF لوصفة طبية
      * Generate PDF for medical prescription
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generatePrescriptionPdf(MedicalRecordResponse medicalRecord) throws IOException {
+    public void writePrescriptionPdf(MedicalRecordResponse medicalRecord, OutputStream outputStream) throws IOException {
         logger.info("إنشاء ملف PDF للوصفة الطبية من السجل: {}", medicalRecord.getId());
 
         if (medicalRecord.getPrescriptions() == null || medicalRecord.getPrescriptions().isEmpty()) {
@@ -123,18 +122,9 @@ public class PdfMedicalRecordService {
             Context context = new Context();
             context.setVariables(preparePrescriptionContext(medicalRecord));
 
-            String htmlContent = templateEngine.process("pdf/prescription-template", context);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withHtmlContent(htmlContent, null);
-            builder.toStream(outputStream);
-            builder.useFont(() -> getClass().getResourceAsStream("/fonts/NotoSansArabic-Regular.ttf"), "NotoSansArabic");
-            builder.run();
+            pdfRenderingEngine.render("pdf/prescription-template", context, outputStream);
 
             logger.info("تم إنشاء ملف PDF للوصفة الطبية بنجاح");
-            return outputStream.toByteArray();
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء ملف PDF للوصفة الطبية: ", e);
@@ -142,11 +132,21 @@ public class PdfMedicalRecordService {
         }
     }
 
+    /**
+     * نسخة byte[] من writePrescriptionPdf
+     */
+    public byte[] generatePrescriptionPdf(MedicalRecordResponse medicalRecord) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writePrescriptionPdf(medicalRecord, outputStream);
+        return outputStream.toByteArray();
+    }
+
     /**
      * إنشاء ملف PDF لتقرير الفحوصات المخبرية
      * Generate PDF for lab tests report
+     * Writes the PDF to outputStream (used for streamed downloads)
      */
-    public byte[] generateLabTestsReportPdf(MedicalRecordResponse medicalRecord) throws IOException {
+    public void writeLabTestsReportPdf(MedicalRecordResponse medicalRecord, OutputStream outputStream) throws IOException {
         logger.info("إنشاء ملف PDF لتقرير الفحوصات المخبرية من السجل: {}", medicalRecord.getId());
 
         if (medicalRecord.getLabTests() == null || medicalRecord.getLabTests().isEmpty()) {
@@ -157,18 +157,9 @@ public class PdfMedicalRecordService {
             Context context = new Context();
             context.setVariables(prepareLabTestsContext(medicalRecord));
 
-            String htmlContent = templateEngine.process("pdf/lab-tests-template", context);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withHtmlContent(htmlContent, null);
-            builder.toStream(outputStream);
-            builder.useFont(() -> getClass().getResourceAsStream("/fonts/NotoSansArabic-Regular.ttf"), "NotoSansArabic");
-            builder.run();
+            pdfRenderingEngine.render("pdf/lab-tests-template", context, outputStream);
 
             logger.info("تم إنشاء ملف PDF لتقرير الفحوصات المخبرية بنجاح");
-            return outputStream.toByteArray();
 
         } catch (Exception e) {
             logger.error("خطأ في إنشاء ملف PDF لتقرير الفحوصات المخبرية: ", e);
@@ -176,6 +167,15 @@ public class PdfMedicalRecordService {
         }
     }
 
+    /**
+     * نسخة byte[] من writeLabTestsReportPdf
+     */
+    public byte[] generateLabTestsReportPdf(MedicalRecordResponse medicalRecord) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeLabTestsReportPdf(medicalRecord, outputStream);
+        return outputStream.toByteArray();
+    }
+
     // =============================================================================
     // PRIVATE HELPER METHODS
     // =============================================================================
@@ -408,126 +408,13 @@ public class PdfMedicalRecordService {
         return "سمنة مفرطة";
     }
 
-    /**
-     * Preprocess HTML to ensure OpenHTMLtoPDF compatibility
-     */
-    private String preprocessHtml(String html) {
-        // Parse HTML with JSoup to clean it
-        Document doc = Jsoup.parse(html);
-
-        // Ensure all images have absolute paths or are base64
-        doc.select("img").forEach(img -> {
-            String src = img.attr("src");
-            if (!src.startsWith("data:") && !src.startsWith("http")) {
-                // Convert relative paths to absolute or base64
-                img.attr("src", convertToBase64Image(src));
-            }
-        });
-
-        // Remove any unsupported CSS properties
-        doc.select("*[style]").forEach(element -> {
-            String style = element.attr("style");
-            style = cleanCssStyle(style);
-            element.attr("style", style);
-        });
-
-        return doc.html();
-    }
-
-    /**
-     * Clean CSS style to remove unsupported properties
-     */
-    private String cleanCssStyle(String style) {
-        if (style == null || style.isEmpty()) return "";
-
-        // Remove unsupported CSS properties
-        style = style.replaceAll("display\\s*:\\s*flex[^;]*;?", "");
-        style = style.replaceAll("display\\s*:\\s*grid[^;]*;?", "");
-        style = style.replaceAll("gap\\s*:[^;]*;?", "");
-        style = style.replaceAll("backdrop-filter\\s*:[^;]*;?", "");
-        style = style.replaceAll("filter\\s*:[^;]*;?", "");
-        style = style.replaceAll("transform\\s*:[^;]*;?", "");
-        style = style.replaceAll("transition\\s*:[^;]*;?", "");
-        style = style.replaceAll("animation[^;]*;?", "");
-
-        // Remove opacity property
-        style = style.replaceAll("opacity\\s*:[^;]*;?", "");
-
-        // Convert rgba colors to hex (simplified conversion)
-        style = convertRgbaToHex(style);
-
-        return style.trim();
-    }
-
-    /**
-     * Convert RGBA or RGB colors in CSS to hex colors.
-     */
-    private String convertRgbaToHex(String style) {
-        String rgbaPattern = "rgba?\\s*\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*,\\s*(\\d+)(?:\\s*,\\s*([\\d.]+))?\\s*\\)";
-        Pattern pattern = Pattern.compile(rgbaPattern, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(style);
-
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            int r = Integer.parseInt(matcher.group(1));
-            int g = Integer.parseInt(matcher.group(2));
-            int b = Integer.parseInt(matcher.group(3));
-            // Optional alpha, ignored for hex conversion
-            // String alpha = matcher.group(4);
-
-            // Convert to hex
-            String replacement = String.format("#%02x%02x%02x", r, g, b);
-
-            matcher.appendReplacement(sb, replacement);
-        }
-        matcher.appendTail(sb);
-
-        return sb.toString();
-    }
-
-    /**
-     * Convert image path to base64
-     */
-    private String convertToBase64Image(String path) {
-        try {
-            ClassPathResource resource = new ClassPathResource(path);
-            if (!resource.exists()) {
-                return getBase64Logo(); // Return default logo
-            }
-            byte[] imageBytes = IOUtils.toByteArray(resource.getInputStream());
-            String mimeType = detectMimeType(path);
-            return "data:" + mimeType + ";base64," + Base64.getEncoder().encodeToString(imageBytes);
-        } catch (Exception e) {
-            logger.warn("Could not convert image to base64: {}", path);
-            return getBase64Logo();
-        }
-    }
-
-    /**
-     * Detect MIME type from file extension
-     */
-    private String detectMimeType(String filename) {
-        if (filename.endsWith(".png")) return "image/png";
-        if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) return "image/jpeg";
-        if (filename.endsWith(".gif")) return "image/gif";
-        if (filename.endsWith(".svg")) return "image/svg+xml";
-        return "image/png"; // Default
-    }
-
     /**
      * Get company logo as Base64
      */
     private String getBase64Logo() {
-        try {
-            InputStream logoStream = new ClassPathResource("images/amancare-logo.png").getInputStream();
-            byte[] logoBytes = IOUtils.toByteArray(logoStream);
-            return "data:image/png;base64," + Base64.getEncoder().encodeToString(logoBytes);
-        } catch (IOException e) {
-            logger.warn("Could not load company logo: ", e);
-            // Return a simple SVG logo as fallback
-            return generateSvgLogo();
-        }
+        String logo = pdfRenderingEngine.getLogoDataUri();
+        // Return a simple SVG logo as fallback
+        return logo.isEmpty() ? generateSvgLogo() : logo;
     }
 
     /**
@@ -546,91 +433,5 @@ public class PdfMedicalRecordService {
         return "data:image/svg+xml;base64," + Base64.getEncoder().encodeToString(svg.getBytes());
     }
 
-    /**
-     * Generate PDF from HTML content with Arabic support
-     */
-    private byte[] generatePdfFromHtml(String htmlContent) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        PdfRendererBuilder builder = new PdfRendererBuilder();
-
-        // Configure builder with proper settings
-        builder.useFastMode(); // Better performance for simpler CSS
-        builder.testMode(false);
-        builder.usePdfUaAccessbility(false); // Disable if causing issues
-        builder.usePdfAConformance(PdfRendererBuilder.PdfAConformance.NONE);
-
-        // Set HTML content using W3C DOM to avoid issues
-        Document jsoupDoc = Jsoup.parse(htmlContent, "UTF-8");
-        org.w3c.dom.Document w3cDoc = new W3CDom().fromJsoup(jsoupDoc);
-        builder.withW3cDocument(w3cDoc, null);
-
-        // Configure for Arabic/RTL support
-        builder.useUnicodeBidiSplitter(new ICUBidiSplitter.ICUBidiSplitterFactory());
-        builder.useUnicodeBidiReorderer(new ICUBidiReorderer());
-        builder.defaultTextDirection(PdfRendererBuilder.TextDirection.RTL);
-
-        // Add fonts with proper configuration
-        addFonts(builder);
-
-        // Output to byte array
-        builder.toStream(outputStream);
-
-        // Build PDF
-        builder.run();
-
-        return outputStream.toByteArray();
-    }
-
-    /**
-     * Add fonts to PDF builder
-     */
-    private void addFonts(PdfRendererBuilder builder) {
-        try {
-            // Primary Arabic font
-            InputStream arabicFont = loadFont("NotoSansArabic-Regular.ttf");
-            if (arabicFont != null) {
-                builder.useFont(() -> arabicFont, "Noto Sans Arabic", 400,
-                        BaseRendererBuilder.FontStyle.NORMAL, true);
-            }
-
-            // Fallback font - Amiri Unicode or similar
-            InputStream fallbackFont = loadFont("Amiri.ttf");
-            if (fallbackFont != null) {
-                builder.useFont(() -> fallbackFont, "Amiri", 400,
-                        BaseRendererBuilder.FontStyle.NORMAL, true);
-            }
-
-        } catch (Exception e) {
-            logger.error("Error loading fonts: ", e);
-            // Continue without custom fonts - will use embedded fonts
-        }
-    }
-
-    /**
-     * Load font from various possible locations
-     */
-    private InputStream loadFont(String fontName) {
-        String[] paths = {
-                "fonts/" + fontName,
-                "static/fonts/" + fontName,
-                fontName
-        };
-
-        for (String path : paths) {
-            try {
-                ClassPathResource resource = new ClassPathResource(path);
-                if (resource.exists()) {
-                    return resource.getInputStream();
-                }
-            } catch (Exception e) {
-                // Try next path
-            }
-        }
-
-        logger.warn("Font not found: {}", fontName);
-        return null;
-    }
-
 
 }
\ No newline at end of file
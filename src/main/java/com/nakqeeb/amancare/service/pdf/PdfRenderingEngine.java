@@ -0,0 +1,249 @@
+// =============================================================================
+// PDF Rendering Engine - محرك توليد ملفات PDF المشترك
+// =============================================================================
+
+package com.nakqeeb.amancare.service.pdf;
+
+import com.openhtmltopdf.bidi.support.ICUBidiReorderer;
+import com.openhtmltopdf.bidi.support.ICUBidiSplitter;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.io.IOUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * محرك مشترك لتوليد ملفات PDF من قوالب Thymeleaf
+ * Shared HTML-to-PDF pipeline used by the invoice, medical record and patient PDF services.
+ *
+ * Font and image bytes are read from the classpath once and handed to every
+ * builder as fresh in-memory streams. Thymeleaf keeps parsed templates in its own
+ * cache. The rendered HTML is parsed by Jsoup once, cleaned, and converted straight
+ * to a W3C document. Rendering runs on the calling thread without a second hand-off;
+ * for streamed downloads that is the dedicated downloadTaskExecutor (app.download.pool.*,
+ * see AsyncExecutionConfig), never the shared applicationTaskExecutor. At most
+ * app.pdf.max-concurrent-renders run at once: further callers wait up to
+ * app.pdf.wait-timeout-seconds, and are rejected straight away once
+ * app.pdf.max-waiting-renders are already waiting, so bursts of exports cannot
+ * take every CPU with layout work.
+ */
+@Component
+public class PdfRenderingEngine {
+    private static final Logger logger = LoggerFactory.getLogger(PdfRenderingEngine.class);
+
+    private static final Pattern RGBA_PATTERN = Pattern.compile(
+            "rgba?\\s*\\(\\s*(\\d+)\\s*,\\s*(\\d+)\\s*,\\s*(\\d+)(?:\\s*,\\s*([\\d.]+))?\\s*\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern UNSUPPORTED_CSS = Pattern.compile(
+            "display\\s*:\\s*flex[^;]*;?|display\\s*:\\s*grid[^;]*;?|gap\\s*:[^;]*;?|backdrop-filter\\s*:[^;]*;?" +
+                    "|filter\\s*:[^;]*;?|transform\\s*:[^;]*;?|transition\\s*:[^;]*;?|animation[^;]*;?|opacity\\s*:[^;]*;?");
+
+    private static final String LOGO_PATH = "images/amancare-logo.png";
+
+    private final TemplateEngine templateEngine;
+    private final Timer renderTimer;
+    private final Semaphore renderPermits;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final int maxAdmitted;
+    private final long waitTimeoutSeconds;
+
+    // اسم العائلة في CSS -> بايتات الخط
+    private final Map<String, byte[]> fonts = new LinkedHashMap<>();
+    private final Map<String, String> imageDataUris = new ConcurrentHashMap<>();
+    private final String logoDataUri;
+
+    public PdfRenderingEngine(TemplateEngine templateEngine,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.pdf.max-concurrent-renders:2}") int maxConcurrentRenders,
+                              @Value("${app.pdf.max-waiting-renders:50}") int maxWaitingRenders,
+                              @Value("${app.pdf.wait-timeout-seconds:60}") long waitTimeoutSeconds) {
+        this.templateEngine = templateEngine;
+        this.renderTimer = Timer.builder("pdf.render")
+                .description("Time spent rendering HTML templates to PDF")
+                .register(meterRegistry);
+        this.renderPermits = new Semaphore(Math.max(maxConcurrentRenders, 1), true);
+        this.maxAdmitted = Math.max(maxConcurrentRenders, 1) + Math.max(maxWaitingRenders, 0);
+        this.waitTimeoutSeconds = waitTimeoutSeconds;
+
+        // الخطوط مسجلة بالأسماء المستخدمة في القوالب
+        byte[] noto = readClasspath("fonts/NotoSansArabic-Regular.ttf");
+        if (noto != null) {
+            fonts.put("Noto Sans Arabic", noto);
+            fonts.put("NotoSansArabic", noto);
+        }
+        byte[] amiri = readClasspath("fonts/Amiri.ttf");
+        if (amiri != null) {
+            fonts.put("Amiri", amiri);
+        }
+        byte[] logo = readClasspath(LOGO_PATH);
+        this.logoDataUri = logo != null ? "data:image/png;base64," + Base64.getEncoder().encodeToString(logo) : "";
+
+        logger.info("PDF engine ready: {} font families, {} concurrent renders, {} waiting",
+                fonts.size(), maxConcurrentRenders, maxWaitingRenders);
+    }
+
+    /**
+     * توليد PDF من قالب
+     */
+    public byte[] renderToBytes(String templateName, Context context) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        render(templateName, context, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * توليد PDF من قالب وكتابته في outputStream على خيط المستدعي (بحد أقصى للتوليد المتزامن)
+     */
+    public void render(String templateName, Context context, OutputStream outputStream) throws IOException {
+        try {
+            if (admitted.incrementAndGet() > maxAdmitted) {
+                throw new IOException("الخادم مشغول بتوليد ملفات PDF أخرى، يرجى المحاولة لاحقاً");
+            }
+            try {
+                if (!renderPermits.tryAcquire(waitTimeoutSeconds, TimeUnit.SECONDS)) {
+                    throw new IOException("انتهت مهلة انتظار توليد ملف PDF");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("تمت مقاطعة توليد ملف PDF", e);
+            }
+
+            Timer.Sample sample = Timer.start();
+            try {
+                renderNow(templateName, context, outputStream);
+            } finally {
+                sample.stop(renderTimer);
+                renderPermits.release();
+            }
+        } finally {
+            admitted.decrementAndGet();
+        }
+    }
+
+    /**
+     * الشعار بصيغة data URI (يُحمّل مرة واحدة)
+     */
+    public String getLogoDataUri() {
+        return logoDataUri;
+    }
+
+    // =============================================================================
+    // Helper Methods
+    // =============================================================================
+
+    private void renderNow(String templateName, Context context, OutputStream outputStream) throws IOException {
+        String html = templateEngine.process(templateName, context);
+
+        Document document = Jsoup.parse(html);
+        preprocess(document);
+        org.w3c.dom.Document w3cDocument = new W3CDom().fromJsoup(document);
+
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.usePdfAConformance(PdfRendererBuilder.PdfAConformance.NONE);
+        builder.withW3cDocument(w3cDocument, null);
+
+        // دعم العربية والاتجاه من اليمين لليسار
+        builder.useUnicodeBidiSplitter(new ICUBidiSplitter.ICUBidiSplitterFactory());
+        builder.useUnicodeBidiReorderer(new ICUBidiReorderer());
+        builder.defaultTextDirection(BaseRendererBuilder.TextDirection.RTL);
+
+        fonts.forEach((family, bytes) -> builder.useFont(() -> new ByteArrayInputStream(bytes), family, 400,
+                BaseRendererBuilder.FontStyle.NORMAL, true));
+
+        builder.toStream(outputStream);
+        builder.run();
+    }
+
+    /**
+     * تحويل الصور إلى base64 وإزالة خصائص CSS غير المدعومة في OpenHTMLtoPDF
+     */
+    private void preprocess(Document document) {
+        document.select("img").forEach(img -> {
+            String src = img.attr("src");
+            if (!src.startsWith("data:") && !src.startsWith("http")) {
+                img.attr("src", imageDataUri(src));
+            }
+        });
+
+        document.select("*[style]").forEach(element ->
+                element.attr("style", cleanCssStyle(element.attr("style"))));
+    }
+
+    private String cleanCssStyle(String style) {
+        if (style == null || style.isEmpty()) return "";
+
+        style = UNSUPPORTED_CSS.matcher(style).replaceAll("");
+
+        Matcher matcher = RGBA_PATTERN.matcher(style);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String hexColor = String.format("#%02x%02x%02x",
+                    Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)));
+            matcher.appendReplacement(result, hexColor);
+        }
+        matcher.appendTail(result);
+
+        return result.toString().trim();
+    }
+
+    private String imageDataUri(String path) {
+        return imageDataUris.computeIfAbsent(path, p -> {
+            byte[] bytes = readClasspath(p);
+            if (bytes == null) {
+                return logoDataUri; // الشعار الافتراضي
+            }
+            return "data:" + mimeType(p) + ";base64," + Base64.getEncoder().encodeToString(bytes);
+        });
+    }
+
+    private static String mimeType(String path) {
+        String lower = path.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".gif")) return "image/gif";
+        if (lower.endsWith(".svg")) return "image/svg+xml";
+        return "image/png";
+    }
+
+    private static byte[] readClasspath(String path) {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (!resource.exists()) {
+            logger.warn("Classpath resource not found: {}", path);
+            return null;
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            return IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            logger.warn("Could not read classpath resource {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+// =============================================================================
+// Rendered PDF Cache - ذاكرة مؤقتة لملفات PDF الثابتة على القرص
+// =============================================================================
+
+package com.nakqeeb.amancare.service.pdf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * تخزين ملفات PDF للمستندات التي لا تتغير (سجل طبي مقفل، فاتورة مدفوعة)
+ * Disk cache for PDFs of documents that can no longer change.
+ *
+ * Entries are addressed by kind, entity id and the entity's last-modified
+ * timestamp, so an edited document never matches an old file; the same key is
+ * used as the HTTP ETag. The first download renders through the normal pipeline
+ * and writes to the response and a temp file at the same time. The temp file is
+ * moved into place only when rendering completes.
+ *
+ * The directory is bounded: a cache hit refreshes the file's modification time,
+ * and once the total size passes app.pdf.cache-max-bytes the least recently used
+ * files are deleted down to 90% of the limit. Files not read for
+ * app.pdf.cache-max-age-days, and abandoned temp files, are removed hourly.
+ *
+ * The files are patient documents, so the cache only runs in a directory that is
+ * configured explicitly (app.pdf.cache-dir) and never in the shared temp directory.
+ * On POSIX file systems the directory and every file in it are owner-only
+ * (rwx------ / rw-------); an existing directory that is a symbolic link or is
+ * owned by another user disables the cache instead of being used.
+ */
+@Component
+public class RenderedPdfCache {
+    private static final Logger logger = LoggerFactory.getLogger(RenderedPdfCache.class);
+
+    public static final String INVOICE = "invoice";
+    public static final String RECEIPT = "receipt";
+    public static final String MEDICAL_RECORD = "medical-record";
+
+    private static final Duration TEMP_FILE_MAX_AGE = Duration.ofHours(1);
+
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    private final Path directory;
+    private final boolean posix;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Duration maxAge;
+
+    // الحجم التقريبي للملفات المخزنة؛ يُعاد حسابه بدقة عند كل تنظيف
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public RenderedPdfCache(@Value("${app.pdf.cache-dir:}") String directory,
+                            @Value("${app.pdf.cache-enabled:true}") boolean enabled,
+                            @Value("${app.pdf.cache-max-bytes:536870912}") long maxBytes,
+                            @Value("${app.pdf.cache-max-age-days:30}") int maxAgeDays) {
+        this.directory = directory == null || directory.isBlank() ? null : Paths.get(directory).toAbsolutePath();
+        this.maxBytes = Math.max(maxBytes, 0);
+        this.maxAge = Duration.ofDays(Math.max(maxAgeDays, 1));
+        this.posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        boolean ready = enabled;
+        if (enabled && this.directory == null) {
+            logger.info("PDF cache disabled: app.pdf.cache-dir is not set");
+            ready = false;
+        } else if (enabled) {
+            try {
+                prepareDirectory();
+            } catch (IOException e) {
+                logger.warn("PDF cache disabled, cannot use {}: {}", directory, e.getMessage());
+                ready = false;
+            }
+        }
+        this.enabled = ready;
+        if (ready) {
+            cleanup();
+        }
+    }
+
+    /**
+     * مفتاح الملف المخزن، ويُستخدم أيضاً كـ ETag
+     */
+    public String key(String kind, Long id, Object version) {
+        String token = String.valueOf(version).replaceAll("[^0-9A-Za-z]", "");
+        return kind + "-" + id + "-" + token;
+    }
+
+    public String etag(String key) {
+        return "\"" + key + "\"";
+    }
+
+    /**
+     * هل يطابق رأس If-None-Match النسخة الحالية
+     */
+    public boolean matches(String ifNoneMatch, String key) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String etag = etag(key);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * كتابة الملف من الذاكرة المؤقتة، أو توليده وتخزينه أثناء الإرسال
+     */
+    public void write(String key, OutputStream outputStream, PdfWriter writer) throws IOException {
+        if (!enabled) {
+            writer.writeTo(outputStream);
+            return;
+        }
+
+        Path file = file(key);
+        if (Files.isRegularFile(file)) {
+            touch(file);
+            Files.copy(file, outputStream);
+            return;
+        }
+
+        Path temp = posix
+                ? Files.createTempFile(directory, key, ".tmp", PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS))
+                : Files.createTempFile(directory, key, ".tmp");
+        boolean complete = false;
+        try (OutputStream fileStream = Files.newOutputStream(temp)) {
+            writer.writeTo(new TeeOutputStream(outputStream, fileStream));
+            complete = true;
+        } finally {
+            if (complete) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.debug("Cached rendered PDF {}", key);
+                if (totalBytes.addAndGet(Files.size(file)) > maxBytes) {
+                    trim();
+                }
+            } else {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * حذف جميع النسخ المخزنة لمستند
+     */
+    public void evict(String kind, Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, kind + "-" + id + "-*.pdf")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not evict cached PDFs for {} {}: {}", kind, id, e.getMessage());
+        }
+    }
+
+    /**
+     * حذف الملفات التي لم تُقرأ منذ مدة الاحتفاظ والملفات المؤقتة المتروكة، ثم تطبيق حد الحجم
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+        Instant pdfCutoff = Instant.now().minus(maxAge);
+        Instant tempCutoff = Instant.now().minus(TEMP_FILE_MAX_AGE);
+        int removed = 0;
+        for (CachedFile cached : listFiles("*.{pdf,tmp}")) {
+            boolean temp = cached.path.getFileName().toString().endsWith(".tmp");
+            if (cached.lastModified.isBefore(temp ? tempCutoff : pdfCutoff) && delete(cached.path)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} expired cached PDFs", removed);
+        }
+        trim();
+    }
+
+    /**
+     * حذف الأقدم استخداماً حتى ينزل الحجم إلى 90% من الحد
+     */
+    private synchronized void trim() {
+        List<CachedFile> files = listFiles("*.pdf");
+        long size = 0;
+        for (CachedFile cached : files) {
+            size += cached.size;
+        }
+        if (size > maxBytes) {
+            long target = maxBytes / 10 * 9;
+            files.sort(Comparator.comparing(cached -> cached.lastModified));
+            int removed = 0;
+            for (CachedFile cached : files) {
+                if (size <= target) {
+                    break;
+                }
+                if (delete(cached.path)) {
+                    size -= cached.size;
+                    removed++;
+                }
+            }
+            logger.info("PDF cache over {} bytes, evicted {} least recently used files", maxBytes, removed);
+        }
+        totalBytes.set(size);
+    }
+
+    private List<CachedFile> listFiles(String glob) {
+        List<CachedFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : paths) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    files.add(new CachedFile(path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+                } catch (IOException e) {
+                    // حُذف الملف أثناء القراءة
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not list PDF cache {}: {}", directory, e.getMessage());
+        }
+        return files;
+    }
+
+    /**
+     * إنشاء المجلد بصلاحيات المالك فقط، أو التحقق من مجلد موجود وتضييق صلاحياته
+     */
+    private void prepareDirectory() throws IOException {
+        if (Files.isSymbolicLink(directory)) {
+            throw new IOException("cache directory must not be a symbolic link");
+        }
+        if (!Files.exists(directory)) {
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("not a directory");
+        }
+        if (posix) {
+            UserPrincipal owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS);
+            UserPrincipal self = directory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!owner.equals(self)) {
+                throw new IOException("cache directory is owned by " + owner.getName());
+            }
+            Files.setPosixFilePermissions(directory, DIRECTORY_PERMISSIONS);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // غير مهم: قد يُحذف الملف قبل أوانه فقط
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete cached PDF {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + ".pdf");
+    }
+
+    private record CachedFile(Path path, long size, Instant lastModified) {}
+
+    @FunctionalInterface
+    public interface PdfWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * يكتب نفس البايتات في الاستجابة وفي الملف المؤقت
+     */
+    private static final class TeeOutputStream extends FilterOutputStream {
+        private final OutputStream branch;
+
+        private TeeOutputStream(OutputStream out, OutputStream branch) {
+            super(out);
+            this.branch = branch;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            branch.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            branch.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+            branch.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
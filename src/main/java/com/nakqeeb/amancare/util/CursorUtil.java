@@ -0,0 +1,117 @@
+// =============================================================================
+// Cursor Utilities - أدوات الترقيم بالمؤشر (keyset pagination)
+// =============================================================================
+
+package com.nakqeeb.amancare.util;
+
+import com.nakqeeb.amancare.exception.BadRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * ترميز وفك ترميز مؤشر الصفحة التالية
+ * The cursor is an opaque URL-safe token holding the sort key values and id of
+ * the last row of the previous page. Callers must not build or parse it; only
+ * the endpoint that issued a cursor understands its parts. A tampered or
+ * malformed cursor is always reported as BadRequestException, including parts
+ * that are not valid dates, times or ids.
+ */
+public class CursorUtil {
+
+    // الحد الأقصى لحجم الصفحة في وضع المؤشر
+    public static final int MAX_SIZE = 100;
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * ترميز قيم مفتاح الترتيب
+     */
+    public static String encode(Object... values) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(values[i] != null ? values[i] : "");
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * فك ترميز المؤشر؛ null إذا لم يُرسل مؤشر (الصفحة الأولى)
+     */
+    public static Cursor decode(String cursor, int parts) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] values = raw.split("\\|", -1);
+            if (values.length != parts) {
+                throw invalid();
+            }
+            return new Cursor(values);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * طلب صفحة بدون إزاحة؛ الترتيب محدد في الاستعلام
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, MAX_SIZE)));
+    }
+
+    private static BadRequestException invalid() {
+        return new BadRequestException("مؤشر الصفحة غير صالح");
+    }
+
+    /**
+     * أجزاء المؤشر بعد فك الترميز؛ كل قراءة تحول الجزء إلى نوعه أو ترفض المؤشر
+     */
+    public static final class Cursor {
+        private final String[] values;
+
+        private Cursor(String[] values) {
+            this.values = values;
+        }
+
+        public LocalDate localDate(int index) {
+            return parse(index, LocalDate::parse);
+        }
+
+        public LocalTime localTime(int index) {
+            return parse(index, LocalTime::parse);
+        }
+
+        public LocalDateTime localDateTime(int index) {
+            return parse(index, LocalDateTime::parse);
+        }
+
+        public Long id(int index) {
+            return parse(index, Long::valueOf);
+        }
+
+        private <T> T parse(int index, Function<String, T> parser) {
+            String value = values[index];
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                return parser.apply(value);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw invalid();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.security.JwtTokenProvider;
+import com.nakqeeb.amancare.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * كلفة التحقق من JWT لكل طلب: التحليل المزدوج القديم مقابل التحليل الواحد
+ *
+ * doubleParseRebuildingParser is the filter path before the change: validateToken
+ * and getUserIdFromToken each derived the key, built a parser and parsed the token.
+ * doubleParseSharedParser keeps the two parses but on the shared parser, so the
+ * parser-building and parse-count savings can be told apart.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="JwtParseBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "mySecretKey123456789012345678901234567890";
+
+    private JwtTokenProvider tokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", TimeUnit.DAYS.toMillis(1));
+        ReflectionTestUtils.setField(tokenProvider, "refreshExpirationInMs", TimeUnit.DAYS.toMillis(7));
+        ReflectionTestUtils.invokeMethod(tokenProvider, "init");
+
+        UserPrincipal principal = new UserPrincipal(42L, "doctor.bench", "doctor.bench@example.com", "hash",
+                7L, "عيادة القياس", "DOCTOR", "سالم أحمد", true,
+                List.of(new SimpleGrantedAuthority("ROLE_DOCTOR")));
+        token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @Benchmark
+    public Long doubleParseRebuildingParser() {
+        Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token);
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return Long.parseLong(claims.getSubject());
+    }
+
+    @Benchmark
+    public Long doubleParseSharedParser() {
+        if (!tokenProvider.validateToken(token)) {
+            return null;
+        }
+        return tokenProvider.getUserIdFromToken(token);
+    }
+
+    @Benchmark
+    public Long singleParse() {
+        return tokenProvider.parseToken(token).map(claims -> claims.getUserId()).orElse(null);
+    }
+}
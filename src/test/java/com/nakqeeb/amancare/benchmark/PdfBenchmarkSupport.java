@@ -0,0 +1,81 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.dto.response.PatientResponse;
+import com.nakqeeb.amancare.entity.BloodType;
+import com.nakqeeb.amancare.entity.Gender;
+import com.nakqeeb.amancare.service.pdf.PdfPatientService;
+import com.nakqeeb.amancare.service.pdf.PdfRenderingEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * تجهيز محرك PDF الحقيقي خارج سياق Spring لاختبارات JMH
+ */
+final class PdfBenchmarkSupport {
+
+    private PdfBenchmarkSupport() {
+    }
+
+    static PdfRenderingEngine engine(int maxConcurrentRenders, int maxWaitingRenders) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        return new PdfRenderingEngine(templateEngine, new SimpleMeterRegistry(),
+                maxConcurrentRenders, maxWaitingRenders, 600);
+    }
+
+    static PdfPatientService patientService(PdfRenderingEngine engine) {
+        PdfPatientService service = new PdfPatientService();
+        ReflectionTestUtils.setField(service, "pdfRenderingEngine", engine);
+        return service;
+    }
+
+    static PatientResponse patient() {
+        PatientResponse patient = new PatientResponse();
+        patient.setId(1L);
+        patient.setPatientNumber("P-BENCH-1");
+        patient.setFirstName("محمد");
+        patient.setLastName("أحمد");
+        patient.setFullName("محمد أحمد");
+        patient.setDateOfBirth(LocalDate.of(1990, 5, 15));
+        patient.setAge(35);
+        patient.setGender(Gender.MALE);
+        patient.setBloodType(BloodType.A_POSITIVE);
+        patient.setPhone("770000001");
+        patient.setEmail("patient@example.com");
+        patient.setAddress("صنعاء، شارع الزبيري");
+        patient.setAllergies("البنسلين");
+        patient.setChronicDiseases("لا يوجد");
+        return patient;
+    }
+
+    /**
+     * مخرج يشبه استجابة الخادم: يستهلك البايتات دون الاحتفاظ بها
+     */
+    static final class DiscardingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
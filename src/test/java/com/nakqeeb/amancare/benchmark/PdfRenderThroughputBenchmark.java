@@ -0,0 +1,57 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.dto.response.PatientResponse;
+import com.nakqeeb.amancare.service.pdf.PdfPatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * إنتاجية توليد PDF تحت ضغط تنزيلات متزامنة لكل قيمة من app.pdf.max-concurrent-renders
+ *
+ * 8 caller threads stand in for the download executor; the semaphore decides how many
+ * of them lay out a PDF at once. Run with
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PdfRenderThroughputBenchmark"
+ * and compare ops/s and the average latency reported per setting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(8)
+@Fork(1)
+public class PdfRenderThroughputBenchmark {
+
+    @Param({"1", "2", "4"})
+    public int maxConcurrentRenders;
+
+    private PdfPatientService service;
+    private PatientResponse patient;
+
+    @Setup
+    public void setUp() {
+        // مساحة انتظار تكفي كل الخيوط حتى لا يُرفض أي طلب أثناء القياس
+        service = PdfBenchmarkSupport.patientService(PdfBenchmarkSupport.engine(maxConcurrentRenders, 8));
+        patient = PdfBenchmarkSupport.patient();
+    }
+
+    @Benchmark
+    public void renderPatientDetails(Blackhole blackhole) {
+        PdfBenchmarkSupport.DiscardingOutputStream response = new PdfBenchmarkSupport.DiscardingOutputStream();
+        service.writePatientDetailsPdf(patient, response);
+        blackhole.consume(response.bytes);
+    }
+}
@@ -0,0 +1,66 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.dto.response.PatientResponse;
+import com.nakqeeb.amancare.service.pdf.PdfPatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ذاكرة تنزيل PDF: الكتابة المتدفقة إلى الاستجابة مقابل بناء byte[] كامل ثم إرساله
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PdfStreamingBenchmark -prof gc"
+ * and compare gc.alloc.rate.norm (bytes allocated per download) between the two methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PdfStreamingBenchmark {
+
+    // حجم مخزن الاستجابة الافتراضي في Tomcat
+    private static final int RESPONSE_BUFFER = 8192;
+
+    private PdfPatientService service;
+    private PatientResponse patient;
+
+    @Setup
+    public void setUp() {
+        service = PdfBenchmarkSupport.patientService(PdfBenchmarkSupport.engine(1, 0));
+        patient = PdfBenchmarkSupport.patient();
+    }
+
+    @Benchmark
+    public void streamToResponse(Blackhole blackhole) throws IOException {
+        PdfBenchmarkSupport.DiscardingOutputStream response = new PdfBenchmarkSupport.DiscardingOutputStream();
+        try (OutputStream out = new BufferedOutputStream(response, RESPONSE_BUFFER)) {
+            service.writePatientDetailsPdf(patient, out);
+        }
+        blackhole.consume(response.bytes);
+    }
+
+    @Benchmark
+    public void renderToBytes(Blackhole blackhole) throws IOException {
+        PdfBenchmarkSupport.DiscardingOutputStream response = new PdfBenchmarkSupport.DiscardingOutputStream();
+        byte[] pdf = service.generatePatientDetailsPdf(patient);
+        try (OutputStream out = new BufferedOutputStream(response, RESPONSE_BUFFER)) {
+            out.write(pdf);
+        }
+        blackhole.consume(response.bytes);
+    }
+}
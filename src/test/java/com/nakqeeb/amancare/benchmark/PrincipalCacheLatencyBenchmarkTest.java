@@ -0,0 +1,160 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.ClinicRepository;
+import com.nakqeeb.amancare.repository.UserRepository;
+import com.nakqeeb.amancare.security.JwtAuthenticationFilter;
+import com.nakqeeb.amancare.security.JwtTokenProvider;
+import com.nakqeeb.amancare.security.UserPrincipal;
+import com.nakqeeb.amancare.security.UserPrincipalCache;
+import com.nakqeeb.amancare.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * زمن المصادقة لكل طلب في JwtAuthenticationFilter مع ذاكرة UserPrincipal وبدونها
+ *
+ * Each request runs the real filter with a signed token. Tokens go round-robin
+ * over USERS users, as in steady traffic from logged-in staff. With the cache off
+ * every request calls CustomUserDetailsService.loadUserById; with it on only the
+ * first request per user does. Prints median/p90/p99 per request together with
+ * the cache.gets hit/miss meters that UserPrincipalCache publishes.
+ *
+ * mvn -Pbenchmark test -Dtest=PrincipalCacheLatencyBenchmarkTest [-Dbenchmark.requests=50000]
+ *
+ * The in-memory H2 database makes a miss far cheaper than a MySQL round trip, so the
+ * gap measured here is a lower bound. Point it at MySQL with the -Dspring.datasource.*
+ * flags listed on StatisticsQueryBenchmarkTest.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CustomUserDetailsService.class, JwtTokenProvider.class})
+// class-based proxies as in the full application, so the @Transactional CustomUserDetailsService keeps its type
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PrincipalCacheLatencyBenchmarkTest {
+
+    private static final int USERS = 50;
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    private static final int WARMUP = 2_000;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<String> tokens = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        Clinic clinic = new Clinic();
+        clinic.setName("عيادة القياس");
+        clinic = clinicRepository.save(clinic);
+
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setClinic(clinic);
+            user.setUsername("bench.user" + i);
+            user.setEmail("bench.user" + i + "@example.com");
+            user.setPasswordHash("hash");
+            user.setFirstName("مستخدم" + i);
+            user.setLastName("القياس");
+            user.setRole(i % 2 == 0 ? UserRole.DOCTOR : UserRole.NURSE);
+            UserPrincipal principal = UserPrincipal.create(userRepository.save(user));
+            tokens.add(tokenProvider.generateToken(
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+        }
+    }
+
+    @Test
+    void perRequestLatencyWithAndWithoutPrincipalCache() throws Exception {
+        double[] off = measure(false);
+        double[] on = measure(true);
+
+        // بدون الذاكرة لا يوجد أي إصابة، ومعها يحمَّل كل مستخدم مرة واحدة فقط
+        assertThat(off[3]).isZero();
+        assertThat(on[4]).isEqualTo(USERS);
+        assertThat(on[3]).isEqualTo(WARMUP + REQUESTS - USERS);
+    }
+
+    /**
+     * @return median, p90 and p99 in microseconds, then cache hits and misses
+     */
+    private double[] measure(boolean cacheEnabled) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserPrincipalCache cache = new UserPrincipalCache(userDetailsService, meterRegistry,
+                cacheEnabled, 10_000, 60);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "userPrincipalCache", cache);
+
+        for (int i = 0; i < WARMUP; i++) {
+            authenticate(filter, tokens.get(i % USERS));
+        }
+        long[] nanos = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            String token = tokens.get((WARMUP + i) % USERS);
+            long start = System.nanoTime();
+            Authentication authentication = authenticate(filter, token);
+            nanos[i] = System.nanoTime() - start;
+            assertThat(authentication).isNotNull();
+        }
+        Arrays.sort(nanos);
+
+        double hits = meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count();
+        double misses = meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count();
+        double[] result = {nanos[REQUESTS / 2] / 1e3, nanos[REQUESTS * 9 / 10] / 1e3,
+                nanos[REQUESTS * 99 / 100] / 1e3, hits, misses};
+        System.out.printf("principal cache %-3s  median %8.1f us   p90 %8.1f us   p99 %8.1f us   hits %.0f   misses %.0f%n",
+                cacheEnabled ? "on" : "off", result[0], result[1], result[2], hits, misses);
+        return result;
+    }
+
+    private Authentication authenticate(JwtAuthenticationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/appointments");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
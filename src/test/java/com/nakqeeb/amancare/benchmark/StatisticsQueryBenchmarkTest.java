@@ -0,0 +1,229 @@
+package com.nakqeeb.amancare.benchmark;
+
+import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.ClinicRepository;
+import com.nakqeeb.amancare.repository.InvoiceRepository;
+import com.nakqeeb.amancare.repository.PatientRepository;
+import com.nakqeeb.amancare.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * قياس استعلامات الإحصائيات القديمة والجديدة على بيانات كبيرة (مليون فاتورة افتراضياً)
+ *
+ * Old side: the YEAR()/MONTH() JPQL and the one-COUNT-per-figure patient
+ * statistics from before the single-pass rewrite, issued through the same
+ * EntityManager as the repositories so only the SQL differs. New side:
+ * the current repository methods (half-open date ranges, one conditional
+ * aggregate). Both must return the same numbers; median timings are printed.
+ *
+ * mvn -Pbenchmark test -Dtest=StatisticsQueryBenchmarkTest [-Dbenchmark.invoices=1000000 -Dbenchmark.patients=250000]
+ *
+ * Runs on the in-memory H2 test database by default. To measure MySQL, point it at
+ * a scratch schema (the schema is created and dropped):
+ * -Dspring.datasource.url=jdbc:mysql://host/scratch -Dspring.datasource.username=... -Dspring.datasource.password=...
+ * -Dspring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver
+ * -Dspring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatisticsQueryBenchmarkTest {
+
+    private static final int INVOICES = Integer.getInteger("benchmark.invoices", 1_000_000);
+    private static final int PATIENTS = Integer.getInteger("benchmark.patients", 250_000);
+    private static final int CLINICS = 20;
+    private static final int BATCH = 5_000;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 15;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 730;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final List<Clinic> clinics = new ArrayList<>();
+    private Clinic measured;
+
+    @BeforeAll
+    void seed() {
+        for (int c = 0; c < CLINICS; c++) {
+            Clinic clinic = new Clinic();
+            clinic.setName("عيادة القياس " + c);
+            clinics.add(clinicRepository.save(clinic));
+        }
+        measured = clinics.get(0);
+
+        User creator = new User();
+        creator.setClinic(measured);
+        creator.setUsername("benchmark.admin");
+        creator.setEmail("benchmark.admin@example.com");
+        creator.setPasswordHash("hash");
+        creator.setFirstName("قياس");
+        creator.setLastName("الأداء");
+        creator.setRole(UserRole.ADMIN);
+        Long creatorId = userRepository.save(creator).getId();
+
+        long start = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < PATIENTS; i++) {
+            // الصفات تتوزع على رقم المريض داخل عيادته حتى تتنوع قيم كل عيادة
+            int n = i / CLINICS;
+            LocalDateTime createdAt = FIRST_DAY.plusDays(n % DAYS).atTime(10, 0);
+            rows.add(new Object[]{clinicId(i), "P" + i, "مريض" + i, "اختبار", n % 2 == 0 ? "MALE" : "FEMALE",
+                    "77" + i, n % 10 != 0, Date.valueOf(LocalDate.of(1950 + n % 60, 1 + n % 12, 1)),
+                    Timestamp.valueOf(createdAt)});
+            if (rows.size() == BATCH || i == PATIENTS - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO patients (clinic_id, patient_number, first_name, last_name, " +
+                        "gender, phone, is_active, date_of_birth, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        List<Long> patientIds = jdbcTemplate.queryForList("SELECT id FROM patients ORDER BY id", Long.class);
+        String[] statuses = {"PAID", "PAID", "PENDING", "PARTIALLY_PAID", "DRAFT", "CANCELLED"};
+        for (int i = 0; i < INVOICES; i++) {
+            int n = i / CLINICS;
+            LocalDate invoiceDate = FIRST_DAY.plusDays(n % DAYS);
+            // مريض من نفس العيادة
+            int patient = (n % (PATIENTS / CLINICS)) * CLINICS + i % CLINICS;
+            rows.add(new Object[]{clinicId(i), patientIds.get(patient), "INV-" + i, Date.valueOf(invoiceDate),
+                    Date.valueOf(invoiceDate.plusDays(30)), BigDecimal.valueOf(100 + n % 900),
+                    n % 3 == 0 ? BigDecimal.valueOf(50) : BigDecimal.ZERO, statuses[n % statuses.length],
+                    creatorId, Timestamp.valueOf(invoiceDate.atTime(9, 0))});
+            if (rows.size() == BATCH || i == INVOICES - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO invoices (clinic_id, patient_id, invoice_number, invoice_date, " +
+                        "due_date, total_amount, balance_due, status, created_by, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        System.out.printf("Seeded %d patients and %d invoices in %d ms%n",
+                PATIENTS, INVOICES, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Test
+    void monthlyRevenue() {
+        Object old = measure("monthly revenue, YEAR()/MONTH()", () -> entityManager.createQuery(
+                        "SELECT COALESCE(SUM(i.totalAmount), 0) FROM Invoice i WHERE i.clinic = :clinic AND " +
+                                "YEAR(i.invoiceDate) = :year AND MONTH(i.invoiceDate) = :month AND i.status = 'PAID'")
+                .setParameter("clinic", measured).setParameter("year", 2025).setParameter("month", 3)
+                .getSingleResult());
+        Object current = measure("monthly revenue, date range", () ->
+                invoiceRepository.getMonthlyRevenue(measured, 2025, 3));
+
+        assertThat((BigDecimal) current).isEqualByComparingTo((BigDecimal) old);
+    }
+
+    @Test
+    void monthlyInvoiceCount() {
+        Object old = measure("monthly invoice count, YEAR()/MONTH()", () -> entityManager.createQuery(
+                        "SELECT COUNT(i) FROM Invoice i WHERE i.clinic = :clinic AND " +
+                                "YEAR(i.invoiceDate) = :year AND MONTH(i.invoiceDate) = :month")
+                .setParameter("clinic", measured).setParameter("year", 2025).setParameter("month", 3)
+                .getSingleResult());
+        Object current = measure("monthly invoice count, date range", () ->
+                invoiceRepository.countByClinicAndMonth(measured, 2025, 3));
+
+        assertThat(current).isEqualTo(old);
+    }
+
+    @Test
+    void patientStatistics() {
+        LocalDateTime from = LocalDate.of(2025, 3, 1).atStartOfDay();
+        LocalDateTime to = LocalDate.of(2025, 3, 31).atTime(23, 59, 59);
+
+        Object old = measure("patient statistics, 7 queries", () -> List.of(
+                patientRepository.countAllPatientsByClinic(measured),
+                patientRepository.countActivePatientsByClinic(measured),
+                patientRepository.countInactivePatientsByClinic(measured),
+                patientRepository.countPatientsCreatedBetween(measured, from, to),
+                patientRepository.countMalePatientsByClinic(measured),
+                patientRepository.countFemalePatientsByClinic(measured),
+                Math.round(patientRepository.calculateAverageAgeByClinic(measured))));
+        Object current = measure("patient statistics, one pass", () -> {
+            Object[] summary = patientRepository.getPatientSummary(measured, from, to).get(0);
+            List<Long> values = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                values.add(((Number) summary[i]).longValue());
+            }
+            values.add(Math.round(((Number) summary[6]).doubleValue()));
+            return values;
+        });
+
+        assertThat(current).isEqualTo(old);
+    }
+
+    /**
+     * كل تشغيل داخل معاملة قراءة فقط حتى يكون للجانبين نفس كلفة المعاملة والاتصال
+     */
+    private Object measure(String name, Supplier<Object> query) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Object result = null;
+        for (int i = 0; i < WARMUP; i++) {
+            result = readOnly.execute(status -> query.get());
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            result = readOnly.execute(status -> query.get());
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-42s median %8.2f ms   p90 %8.2f ms   result %s%n",
+                name, nanos[RUNS / 2] / 1e6, nanos[RUNS * 9 / 10] / 1e6, result);
+        return result;
+    }
+
+    private Long clinicId(int row) {
+        return clinics.get(row % CLINICS).getId();
+    }
+}
@@ -0,0 +1,35 @@
+package com.nakqeeb.amancare.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * مطابقة الوكلاء الموثوقين بالعناوين المفردة ونطاقات CIDR
+ */
+class RateLimitConfigTest {
+
+    private final RateLimitConfig config = new RateLimitConfig(new MockEnvironment()
+            .withProperty("app.rate-limit.trusted-proxies", "127.0.0.1, 10.0.0.0/8, fd00::/8"));
+
+    @Test
+    void matchesSingleAddressesAndCidrRanges() {
+        assertThat(config.isTrustedProxy("127.0.0.1")).isTrue();
+        assertThat(config.isTrustedProxy("10.20.30.40")).isTrue();
+        assertThat(config.isTrustedProxy("fd12:3456::1")).isTrue();
+
+        assertThat(config.isTrustedProxy("127.0.0.2")).isFalse();
+        assertThat(config.isTrustedProxy("11.0.0.1")).isFalse();
+        assertThat(config.isTrustedProxy("2001:db8::1")).isFalse();
+    }
+
+    @Test
+    void rejectsValuesThatAreNotAddresses() {
+        assertThat(config.isTrustedProxy(null)).isFalse();
+        assertThat(config.isTrustedProxy("")).isFalse();
+        assertThat(config.isTrustedProxy("unknown")).isFalse();
+        assertThat(config.isTrustedProxy("localhost")).isFalse();
+        assertThat(config.isTrustedProxy("::zz")).isFalse();
+    }
+}
@@ -0,0 +1,202 @@
+package com.nakqeeb.amancare.repository;
+
+import com.nakqeeb.amancare.entity.Appointment;
+import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.Gender;
+import com.nakqeeb.amancare.entity.Invoice;
+import com.nakqeeb.amancare.entity.Patient;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.projection.AppointmentListView;
+import com.nakqeeb.amancare.repository.projection.InvoiceListView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * صفحات القوائم تُقرأ باستعلام واحد للصفحة واستعلام واحد للعدد مهما كان عدد الصفوف،
+ * وصفحات المؤشر باستعلام واحد فقط
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ListViewQueryCountTest {
+
+    private static final int ROWS = 6;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private Statistics statistics;
+    private Clinic clinic;
+    private final List<Long> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clinic = new Clinic();
+        clinic.setName("عيادة الاختبار");
+        entityManager.persist(clinic);
+
+        User doctor = new User();
+        doctor.setClinic(clinic);
+        doctor.setUsername("doctor.counts");
+        doctor.setEmail("doctor.counts@example.com");
+        doctor.setPasswordHash("hash");
+        doctor.setFirstName("سالم");
+        doctor.setLastName("أحمد");
+        doctor.setRole(UserRole.DOCTOR);
+        entityManager.persist(doctor);
+
+        for (int i = 0; i < ROWS; i++) {
+            // كل صف بمريض مختلف حتى يظهر أي تحميل كسول لكل صف
+            Patient patient = new Patient();
+            patient.setClinic(clinic);
+            patient.setPatientNumber("P-COUNT-" + i);
+            patient.setFirstName("مريض" + i);
+            patient.setLastName("اختبار");
+            patient.setGender(Gender.MALE);
+            patient.setPhone("77000000" + i);
+            entityManager.persist(patient);
+            patientIds.add(patient.getId());
+
+            Appointment appointment = new Appointment();
+            appointment.setClinic(clinic);
+            appointment.setPatient(patient);
+            appointment.setDoctor(doctor);
+            appointment.setAppointmentDate(LocalDate.of(2026, 1, 10));
+            appointment.setAppointmentTime(LocalTime.of(9, 0).plusMinutes(30L * i));
+            appointment.setCreatedBy(doctor);
+            entityManager.persist(appointment);
+
+            Invoice invoice = new Invoice();
+            invoice.setClinic(clinic);
+            invoice.setPatient(patient);
+            invoice.setAppointment(appointment);
+            invoice.setInvoiceNumber("INV-COUNT-" + i);
+            invoice.setInvoiceDate(LocalDate.of(2026, 1, 10));
+            invoice.setCreatedBy(doctor);
+            entityManager.persist(invoice);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void appointmentListPageUsesOneSelectAndOneCount() {
+        Page<AppointmentListView> page = appointmentRepository.findListViews(
+                clinic.getId(), null, null, null, PageRequest.of(0, 4));
+
+        for (AppointmentListView view : page.getContent()) {
+            assertThat(view.getPatientFirstName()).isNotNull();
+            assertThat(view.getDoctorFirstName()).isNotNull();
+            assertThat(view.getCreatedByFirstName()).isNotNull();
+        }
+
+        assertThat(page.getContent()).hasSize(4);
+        assertThat(page.getTotalElements()).isEqualTo(ROWS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void invoiceListPageUsesOneSelectAndOneCount() {
+        Page<InvoiceListView> page = invoiceRepository.findListViews(
+                clinic.getId(), null, null, null, null, PageRequest.of(0, 4));
+
+        for (InvoiceListView view : page.getContent()) {
+            assertThat(view.getPatientFirstName()).isNotNull();
+            assertThat(view.getClinicName()).isNotNull();
+            assertThat(view.getAppointmentId()).isNotNull();
+            assertThat(view.getCreatedByUsername()).isNotNull();
+        }
+
+        assertThat(page.getContent()).hasSize(4);
+        assertThat(page.getTotalElements()).isEqualTo(ROWS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void appointmentCursorPagesUseOneSelectEach() {
+        Slice<AppointmentListView> first = appointmentRepository.findListViewsAfterCursor(
+                clinic.getId(), null, null, null, null, null, null, PageRequest.of(0, 4));
+        AppointmentListView last = first.getContent().get(first.getContent().size() - 1);
+        Slice<AppointmentListView> second = appointmentRepository.findListViewsAfterCursor(
+                clinic.getId(), null, null, null,
+                last.getAppointmentDate(), last.getAppointmentTime(), last.getId(), PageRequest.of(0, 4));
+
+        for (AppointmentListView view : second.getContent()) {
+            assertThat(view.getPatientFirstName()).isNotNull();
+            assertThat(view.getDoctorFirstName()).isNotNull();
+            assertThat(view.getAppointmentTime()).isAfter(last.getAppointmentTime());
+        }
+
+        assertThat(first.getContent()).hasSize(4);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(ROWS - 4);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void invoiceCursorPagesUseOneSelectEach() {
+        Slice<InvoiceListView> first = invoiceRepository.findListViewsAfterCursor(
+                clinic.getId(), null, null, null, null, null, null, PageRequest.of(0, 4));
+        InvoiceListView last = first.getContent().get(first.getContent().size() - 1);
+        Slice<InvoiceListView> second = invoiceRepository.findListViewsAfterCursor(
+                clinic.getId(), null, null, null, null,
+                last.getInvoiceDate(), last.getId(), PageRequest.of(0, 4));
+
+        for (InvoiceListView view : second.getContent()) {
+            assertThat(view.getPatientFirstName()).isNotNull();
+            assertThat(view.getClinicName()).isNotNull();
+            assertThat(view.getId()).isLessThan(last.getId());
+        }
+
+        assertThat(first.getContent()).hasSize(4);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(ROWS - 4);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void appointmentCountsForPatientPageUseOneStatement() {
+        List<Object[]> counts = appointmentRepository.countByPatientIds(patientIds);
+
+        assertThat(counts).hasSize(ROWS);
+        assertThat(counts).allSatisfy(row -> assertThat(row[1]).isEqualTo(1L));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
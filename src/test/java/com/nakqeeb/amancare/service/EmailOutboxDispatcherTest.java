@@ -0,0 +1,170 @@
+package com.nakqeeb.amancare.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nakqeeb.amancare.entity.EmailOutbox;
+import com.nakqeeb.amancare.entity.EmailOutboxStatus;
+import com.nakqeeb.amancare.repository.EmailOutboxRepository;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * اختبار إرسال صندوق البريد الصادر مع خادم SMTP بديل يقبل أو يرفض رسائل محددة
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherTest {
+
+    private static final String REJECTED = "rejected@example.com";
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<String> delivered = new ArrayList<>();
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        outboxRepository.deleteAll();
+        delivered.clear();
+
+        Session session = Session.getInstance(new Properties());
+        EmailService emailService = mock(EmailService.class);
+        when(emailService.buildHtmlMessage(anyString(), anyString(), anyString(), anyMap()))
+                .thenAnswer(invocation -> {
+                    MimeMessage message = new MimeMessage(session);
+                    message.setRecipients(MimeMessage.RecipientType.TO, invocation.<String>getArgument(0));
+                    message.setSubject(invocation.getArgument(1));
+                    return message;
+                });
+        when(emailService.buildHtmlMessage(anyString(), anyString(), eq("broken-template"), anyMap()))
+                .thenThrow(new IllegalStateException("template not found"));
+
+        // بديل SMTP: يسلّم كل الرسائل ويرفض عنوان REJECTED كما يفعل JavaMailSenderImpl
+        JavaMailSender mailSender = mock(JavaMailSender.class);
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (Object argument : invocation.getArguments()) {
+                MimeMessage message = (MimeMessage) argument;
+                String to = message.getRecipients(MimeMessage.RecipientType.TO)[0].toString();
+                if (REJECTED.equals(to)) {
+                    failed.put(message, new IllegalStateException("550 mailbox unavailable"));
+                } else {
+                    delivered.add(to);
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        dispatcher = new EmailOutboxDispatcher(outboxRepository, emailService, mailSender,
+                new ObjectMapper(), transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 2);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 300L);
+    }
+
+    @Test
+    void sentRowsAreMarkedAndLoseTheirVariables() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(save("patient" + i + "@example.com", "appointment-confirmation"));
+        }
+
+        dispatcher.dispatch();
+
+        assertThat(delivered).hasSize(5);
+        for (EmailOutbox email : outboxRepository.findAllById(ids)) {
+            assertThat(email.getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+            assertThat(email.getSentAt()).isNotNull();
+            assertThat(email.getAttempts()).isEqualTo(1);
+            assertThat(email.getVariables()).isNull();
+        }
+    }
+
+    @Test
+    void rejectedRecipientIsRetriedThenMarkedDead() {
+        Long ok = save("patient@example.com", "appointment-confirmation");
+        Long rejected = save(REJECTED, "appointment-confirmation");
+
+        dispatcher.dispatch();
+
+        EmailOutbox retrying = outboxRepository.findById(rejected).orElseThrow();
+        assertThat(outboxRepository.findById(ok).orElseThrow().getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(retrying.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(retrying.getAttempts()).isEqualTo(1);
+        assertThat(retrying.getLastError()).contains("550");
+        assertThat(retrying.getVariables()).isNotNull();
+
+        makeDue(rejected);
+        dispatcher.dispatch();
+
+        EmailOutbox dead = outboxRepository.findById(rejected).orElseThrow();
+        assertThat(dead.getStatus()).isEqualTo(EmailOutboxStatus.DEAD);
+        assertThat(dead.getAttempts()).isEqualTo(2);
+        assertThat(dead.getVariables()).isNull();
+        assertThat(delivered).containsExactly("patient@example.com");
+    }
+
+    @Test
+    void renderFailureDoesNotBlockTheRestOfTheBatch() {
+        Long broken = save("patient1@example.com", "broken-template");
+        Long ok = save("patient2@example.com", "appointment-confirmation");
+
+        dispatcher.dispatch();
+
+        EmailOutbox failed = outboxRepository.findById(broken).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+        assertThat(failed.getLastError()).startsWith("Render failed");
+        assertThat(outboxRepository.findById(ok).orElseThrow().getStatus()).isEqualTo(EmailOutboxStatus.SENT);
+        assertThat(delivered).containsExactly("patient2@example.com");
+    }
+
+    private Long save(String recipient, String template) {
+        EmailOutbox email = new EmailOutbox(recipient, "تأكيد الموعد", template,
+                "{\"confirmationLink\":\"https://example.com/confirm?token=secret\"}");
+        return outboxRepository.save(email).getId();
+    }
+
+    private void makeDue(Long id) {
+        EmailOutbox email = outboxRepository.findById(id).orElseThrow();
+        email.setNextAttemptAt(email.getCreatedAt());
+        outboxRepository.save(email);
+    }
+}
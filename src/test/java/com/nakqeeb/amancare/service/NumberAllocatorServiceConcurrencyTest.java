@@ -0,0 +1,168 @@
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.config.NumberingDataSourceConfig;
+import com.nakqeeb.amancare.entity.NumberCounterType;
+import com.nakqeeb.amancare.repository.InvoiceRepository;
+import com.nakqeeb.amancare.repository.NumberCounterRepository;
+import com.nakqeeb.amancare.repository.PatientRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * اختبار تزامن توليد الأرقام: لا تكرار بين الخيوط أو العقد، وأرقام الفواتير بدون فجوات
+ */
+@DataJpaTest(properties = {
+        "app.numbering.invoice-block-size=1",
+        "app.numbering.patient-block-size=7"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({NumberAllocatorService.class, NumberingDataSourceConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NumberAllocatorServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 25;
+
+    @Autowired
+    private NumberAllocatorService allocator;
+
+    @Autowired
+    private NumberCounterRepository counterRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("numberingDataSource")
+    private DataSource numberingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void invoiceNumbersAreUniqueAndGapFreeUnderConcurrency() throws Exception {
+        List<Long> values = allocateConcurrently(List.of(allocator), 1001L, NumberCounterType.INVOICE);
+
+        assertThat(values).hasSize(THREADS * CALLS_PER_THREAD);
+        assertThat(new HashSet<>(values)).hasSize(values.size());
+        Collections.sort(values);
+        assertThat(values.get(0)).isEqualTo(1L);
+        assertThat(values.get(values.size() - 1)).isEqualTo((long) values.size());
+    }
+
+    @Test
+    void rolledBackInvoiceNumberIsReissued() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        long first = tx.execute(status -> allocator.next(1002L, NumberCounterType.INVOICE, "202601", () -> 0L));
+        long rolledBack = tx.execute(status -> {
+            long value = allocator.next(1002L, NumberCounterType.INVOICE, "202601", () -> 0L);
+            status.setRollbackOnly();
+            return value;
+        });
+        long next = tx.execute(status -> allocator.next(1002L, NumberCounterType.INVOICE, "202601", () -> 0L));
+
+        assertThat(first).isEqualTo(1L);
+        assertThat(rolledBack).isEqualTo(2L);
+        assertThat(next).isEqualTo(2L);
+    }
+
+    @Test
+    void patientBlocksAreUniqueAcrossNodes() throws Exception {
+        // عقدتان تتشاركان جدول العدادات بكتل منفصلة في الذاكرة
+        NumberAllocatorService otherNode = new NumberAllocatorService(counterRepository, invoiceRepository,
+                patientRepository, numberingDataSource, transactionManager, 1, 7, 100);
+        List<Long> values = allocateConcurrently(List.of(allocator, otherNode), 1003L, NumberCounterType.PATIENT);
+
+        assertThat(values).hasSize(THREADS * CALLS_PER_THREAD);
+        assertThat(new HashSet<>(values)).hasSize(values.size());
+    }
+
+    @Test
+    void reservationsUseTheirOwnConfiguredPool() {
+        assertThat(numberingDataSource).isNotSameAs(dataSource);
+        assertThat(numberingDataSource).isInstanceOfSatisfying(HikariDataSource.class, pool -> {
+            assertThat(pool.getPoolName()).isEqualTo("numbering-pool");
+            assertThat(pool.getMaximumPoolSize()).isEqualTo(2);
+            assertThat(pool.getJdbcUrl()).isEqualTo(((HikariDataSource) dataSource).getJdbcUrl());
+        });
+    }
+
+    @Test
+    void counterStartsAfterSeed() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        long invoice = tx.execute(status -> allocator.next(1004L, NumberCounterType.INVOICE, "202601", () -> 41L));
+        long patient = tx.execute(status -> allocator.next(1004L, NumberCounterType.PATIENT,
+                NumberAllocatorService.NO_PERIOD, () -> 99L));
+
+        assertThat(invoice).isEqualTo(42L);
+        assertThat(patient).isEqualTo(100L);
+    }
+
+    /**
+     * كل استدعاء داخل معاملة خاصة به كما في InvoiceService و PatientService
+     */
+    private List<Long> allocateConcurrently(List<NumberAllocatorService> nodes, Long clinicId,
+                                            NumberCounterType type) throws Exception {
+        String period = type == NumberCounterType.INVOICE ? "202601" : NumberAllocatorService.NO_PERIOD;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                NumberAllocatorService node = nodes.get(t % nodes.size());
+                Callable<List<Long>> task = () -> {
+                    start.await();
+                    List<Long> allocated = new ArrayList<>();
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        allocated.add(tx.execute(status -> node.next(clinicId, type, period, () -> 0L)));
+                    }
+                    return allocated;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            List<Long> values = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                values.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+            return values;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
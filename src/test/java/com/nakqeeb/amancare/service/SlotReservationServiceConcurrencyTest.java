@@ -0,0 +1,167 @@
+package com.nakqeeb.amancare.service;
+
+import com.nakqeeb.amancare.entity.Appointment;
+import com.nakqeeb.amancare.entity.AppointmentStatus;
+import com.nakqeeb.amancare.entity.Clinic;
+import com.nakqeeb.amancare.entity.Gender;
+import com.nakqeeb.amancare.entity.Patient;
+import com.nakqeeb.amancare.entity.User;
+import com.nakqeeb.amancare.entity.UserRole;
+import com.nakqeeb.amancare.repository.AppointmentRepository;
+import com.nakqeeb.amancare.repository.ClinicRepository;
+import com.nakqeeb.amancare.repository.PatientRepository;
+import com.nakqeeb.amancare.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * اختبار تزامن حجز المواعيد: طلبات متزامنة لفترات متداخلة لا تنتج حجزاً مزدوجاً
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(SlotReservationService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SlotReservationServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 15;
+    private static final int DURATION_MINUTES = 30;
+    private static final LocalDate DATE = LocalDate.of(2026, 2, 1);
+
+    @Autowired
+    private SlotReservationService slotReservationService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ClinicRepository clinicRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentOverlappingBookingsNeverDoubleBook() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Clinic clinic = tx.execute(status -> {
+            Clinic c = new Clinic();
+            c.setName("عيادة التزامن");
+            return clinicRepository.save(c);
+        });
+        User doctor = tx.execute(status -> userRepository.save(user(clinic)));
+        Patient patient = tx.execute(status -> patientRepository.save(patient(clinic)));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int booked = 0;
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                Callable<Integer> task = () -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        // بدايات بفارق 10 دقائق حتى تتداخل الفترات المطلوبة بين الخيوط
+                        LocalTime time = LocalTime.of(9, 0).plusMinutes(10L * ((thread * 7 + i * 3) % 24));
+                        Boolean saved = tx.execute(status -> book(clinic, doctor, patient, time));
+                        if (Boolean.TRUE.equals(saved)) {
+                            count++;
+                        }
+                    }
+                    return count;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                booked += future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Appointment> appointments = tx.execute(status ->
+                appointmentRepository.findActiveStartingBetween(doctor, DATE, LocalTime.MIN, LocalTime.of(23, 0), null));
+        appointments.sort(Comparator.comparing(Appointment::getAppointmentTime));
+
+        assertThat(appointments).hasSize(booked).isNotEmpty();
+        for (int i = 1; i < appointments.size(); i++) {
+            LocalTime previousEnd = appointments.get(i - 1).getAppointmentTime().plusMinutes(DURATION_MINUTES);
+            assertThat(appointments.get(i).getAppointmentTime()).isAfterOrEqualTo(previousEnd);
+        }
+    }
+
+    /**
+     * نفس تسلسل AppointmentService: قراءة سابقة في المعاملة، ثم الحجز، ثم الحفظ
+     */
+    private boolean book(Clinic clinic, User doctor, Patient patient, LocalTime time) {
+        appointmentRepository.count();
+        if (slotReservationService.reserve(doctor, DATE, time, DURATION_MINUTES, null) != null) {
+            return false;
+        }
+        Appointment appointment = new Appointment();
+        appointment.setClinic(clinic);
+        appointment.setPatient(patient);
+        appointment.setDoctor(doctor);
+        appointment.setAppointmentDate(DATE);
+        appointment.setAppointmentTime(time);
+        appointment.setDurationMinutes(DURATION_MINUTES);
+        appointment.setStatus(AppointmentStatus.SCHEDULED);
+        appointment.setCreatedBy(doctor);
+        appointmentRepository.save(appointment);
+        return true;
+    }
+
+    private static User user(Clinic clinic) {
+        User doctor = new User();
+        doctor.setClinic(clinic);
+        doctor.setUsername("doctor.slots");
+        doctor.setEmail("doctor.slots@example.com");
+        doctor.setPasswordHash("hash");
+        doctor.setFirstName("سالم");
+        doctor.setLastName("أحمد");
+        doctor.setRole(UserRole.DOCTOR);
+        return doctor;
+    }
+
+    private static Patient patient(Clinic clinic) {
+        Patient patient = new Patient();
+        patient.setClinic(clinic);
+        patient.setPatientNumber("P-SLOTS-1");
+        patient.setFirstName("مريض");
+        patient.setLastName("اختبار");
+        patient.setGender(Gender.FEMALE);
+        patient.setPhone("770000001");
+        return patient;
+    }
+}